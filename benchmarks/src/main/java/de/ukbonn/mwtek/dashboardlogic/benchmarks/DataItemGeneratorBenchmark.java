@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+package de.ukbonn.mwtek.dashboardlogic.benchmarks;
+
+import de.ukbonn.mwtek.dashboardlogic.DataItemGenerator;
+import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
+import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
+import de.ukbonn.mwtek.dashboardlogic.settings.GlobalConfiguration;
+import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
+import de.ukbonn.mwtek.dashboardlogic.settings.QualitativeLabCodesSettings;
+import de.ukbonn.mwtek.dashboardlogic.settings.VariantSettings;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the end-to-end generation of all COVID data items. Since {@link
+ * DataItemGenerator#getDataItems} flags and filters its input, each iteration measures a single
+ * generation on a freshly generated cohort.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class DataItemGeneratorBenchmark {
+
+  /** Use {@code -p caseCount=1000000} for the largest cohort. */
+  @Param({"1000", "10000", "100000"})
+  public int caseCount;
+
+  private final InputCodeSettings inputCodeSettings =
+      SyntheticCohortGenerator.createInputCodeSettings();
+  private DataItemGenerator dataItemGenerator;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    SyntheticCohort cohort = SyntheticCohortGenerator.generate(caseCount);
+    // The generator works on the lists it gets, so it gets copies that no other state refers to
+    dataItemGenerator =
+        new DataItemGenerator(
+            new ArrayList<>(cohort.conditions()),
+            new ArrayList<>(cohort.observations()),
+            new ArrayList<>(cohort.patients()),
+            new ArrayList<>(cohort.encounters()),
+            new ArrayList<>(cohort.procedures()),
+            new ArrayList<>(cohort.locations()));
+  }
+
+  @Benchmark
+  public List<DiseaseDataItem> getDataItems() {
+    return dataItemGenerator.getDataItems(
+        new HashMap<>(),
+        new VariantSettings(),
+        inputCodeSettings,
+        new QualitativeLabCodesSettings(),
+        DataItemContext.COVID,
+        new GlobalConfiguration());
+  }
+}
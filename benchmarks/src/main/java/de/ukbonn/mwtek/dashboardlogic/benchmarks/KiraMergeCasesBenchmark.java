@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+package de.ukbonn.mwtek.dashboardlogic.benchmarks;
+
+import de.ukbonn.mwtek.dashboardlogic.logic.KiraHandlingLogic;
+import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiCondition;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiProcedure;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the merge of re-admissions in the KiRa (child and adolescent psychiatry) data items.
+ * The merge updates the case data in place, so each iteration measures a single merge on freshly
+ * created case data.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class KiraMergeCasesBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  public int caseCount;
+
+  private List<MiiCondition> conditions;
+  private List<MiiProcedure> procedures;
+  private List<MiiEncounter> facilityContacts;
+  private Map<String, CoreCaseData> coreCaseDataByEncounterId;
+  private Map<String, List<Entry<String, CoreCaseData>>> caseDataEntriesByPatient;
+
+  @Setup(Level.Iteration)
+  public void setUp() {
+    SyntheticCohort cohort = SyntheticCohortGenerator.generate(caseCount);
+    conditions = new ArrayList<>(cohort.conditions());
+    procedures = new ArrayList<>(cohort.procedures());
+    facilityContacts = new ArrayList<>(cohort.facilityContacts());
+    coreCaseDataByEncounterId = SyntheticCohortGenerator.createCoreCaseDataByEncounterId(cohort);
+    caseDataEntriesByPatient =
+        coreCaseDataByEncounterId.entrySet().stream()
+            .collect(
+                Collectors.groupingBy(
+                    entry -> entry.getValue().getPatientId(),
+                    Collectors.toCollection(ArrayList::new)));
+  }
+
+  @Benchmark
+  public Set<String> mergeCases() {
+    Set<String> casesDeletedByDiagnosis = new HashSet<>();
+    caseDataEntriesByPatient
+        .values()
+        .forEach(
+            caseDataEntries ->
+                KiraHandlingLogic.mergeCases(
+                    conditions,
+                    procedures,
+                    facilityContacts,
+                    caseDataEntries,
+                    casesDeletedByDiagnosis,
+                    coreCaseDataByEncounterId));
+    return casesDeletedByDiagnosis;
+  }
+}
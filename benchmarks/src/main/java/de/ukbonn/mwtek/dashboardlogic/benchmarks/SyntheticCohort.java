@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+package de.ukbonn.mwtek.dashboardlogic.benchmarks;
+
+import static de.ukbonn.mwtek.utilities.enums.EncounterContactLevel.FACILITY_CONTACT;
+import static de.ukbonn.mwtek.utilities.enums.EncounterContactLevel.SUPPLY_CONTACT;
+
+import de.ukbonn.mwtek.utilities.enums.EncounterContactLevel;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiCondition;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiLocation;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiObservation;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiPatient;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiProcedure;
+import java.util.List;
+
+/**
+ * The resources of a cohort created by the {@link SyntheticCohortGenerator}. The lists are
+ * mutable, since the data item generation adds extensions and removes resources from its inputs.
+ */
+public record SyntheticCohort(
+    List<MiiPatient> patients,
+    List<MiiEncounter> encounters,
+    List<MiiObservation> observations,
+    List<MiiCondition> conditions,
+    List<MiiProcedure> procedures,
+    List<MiiLocation> locations) {
+
+  /** All facility contacts ("Einrichtungskontakte") of the cohort. */
+  public List<MiiEncounter> facilityContacts() {
+    return byContactLevel(FACILITY_CONTACT);
+  }
+
+  /** All supply contacts ("Versorgungsstellenkontakte") of the cohort. */
+  public List<MiiEncounter> supplyContacts() {
+    return byContactLevel(SUPPLY_CONTACT);
+  }
+
+  /** All supply contacts of the cohort that took place on an icu ward. */
+  public List<MiiEncounter> icuSupplyContacts() {
+    return supplyContacts().stream()
+        .filter(
+            encounter ->
+                encounter.getLocation().stream()
+                    .anyMatch(x -> x.getLocation().getReference().startsWith("Location/ICU-")))
+        .toList();
+  }
+
+  private List<MiiEncounter> byContactLevel(EncounterContactLevel contactLevel) {
+    return encounters.stream()
+        .filter(
+            encounter ->
+                encounter.getType().stream()
+                    .flatMap(type -> type.getCoding().stream())
+                    .anyMatch(
+                        coding ->
+                            EncounterContactLevel.SYSTEM.equals(coding.getSystem())
+                                && contactLevel.getCode().equals(coding.getCode())))
+        .toList();
+  }
+}
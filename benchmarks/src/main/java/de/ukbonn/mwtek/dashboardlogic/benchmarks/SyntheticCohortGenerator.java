@@ -0,0 +1,469 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+package de.ukbonn.mwtek.dashboardlogic.benchmarks;
+
+import static de.ukbonn.mwtek.dashboardlogic.enums.DashboardLogicFixedValues.ICD_SYSTEM;
+import static de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels.ICU;
+import static de.ukbonn.mwtek.utilities.enums.EncounterContactLevel.FACILITY_CONTACT;
+import static de.ukbonn.mwtek.utilities.enums.EncounterContactLevel.SUPPLY_CONTACT;
+import static de.ukbonn.mwtek.utilities.enums.TerminologySystems.LOINC;
+import static de.ukbonn.mwtek.utilities.enums.TerminologySystems.SNOMED;
+import static de.ukbonn.mwtek.utilities.fhir.mapping.kdscase.valuesets.KdsEncounterFixedValues.IDENTIFIER_TYPE_VISIT_NUMBER_CC;
+
+import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
+import de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality;
+import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData;
+import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData.AdmissionStatus;
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters;
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CoreBaseDataItem;
+import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
+import de.ukbonn.mwtek.dashboardlogic.settings.QualitativeLabCodesSettings;
+import de.ukbonn.mwtek.utilities.enums.EncounterContactLevel;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiCondition;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiLocation;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiObservation;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiPatient;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiProcedure;
+import de.ukbonn.mwtek.utilities.generic.time.DateTools;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.hl7.fhir.r4.model.Address;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Encounter.EncounterLocationComponent;
+import org.hl7.fhir.r4.model.Encounter.EncounterStatus;
+import org.hl7.fhir.r4.model.Enumeration;
+import org.hl7.fhir.r4.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r4.model.HumanName;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Observation.ObservationStatus;
+import org.hl7.fhir.r4.model.Observation.ObservationStatusEnumFactory;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.Procedure.ProcedureStatus;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.codesystems.LocationPhysicalType;
+
+/**
+ * Seeded generator of synthetic cohorts for the benchmarks. The same case count and seed always
+ * result in the same resources, so the benchmark runs are comparable with each other.
+ *
+ * <p>Each case consists of a facility contact and (for inpatient cases) one to three supply
+ * contacts with a ward or icu location, lab findings, optional diagnoses and, for icu stays,
+ * ventilation and ECMO procedures.
+ */
+public class SyntheticCohortGenerator {
+
+  public static final long DEFAULT_SEED = 42L;
+
+  static final String PCR_LOINC_CODE = "94306-8";
+  static final String VARIANT_LOINC_CODE = "96741-4";
+  static final String COVID_ICD_CODE = "U07.1";
+  static final String VENTILATION_SNOMED_CODE = "40617009";
+  static final String ECMO_SNOMED_CODE = "265764009";
+  static final String KJP_ICD_CODE = "F32.1";
+
+  private static final int ICU_WARD_COUNT = 10;
+  private static final int NORMAL_WARD_COUNT = 40;
+  private static final long HOUR_IN_MILLIS = 3_600_000L;
+  private static final long DAY_IN_MILLIS = 24 * HOUR_IN_MILLIS;
+
+  private final SplittableRandom random;
+  private final long kickOffMillis;
+  private final long nowMillis;
+
+  private SyntheticCohortGenerator(long seed) {
+    this.random = new SplittableRandom(seed);
+    this.kickOffMillis =
+        DiseaseResultFunctionality.getKickOffDateInSeconds(DataItemContext.COVID) * 1000L;
+    this.nowMillis = DateTools.getCurrentDateTime().getTime();
+  }
+
+  /**
+   * Creates a cohort with the given number of cases and the {@link #DEFAULT_SEED}.
+   *
+   * @param caseCount The number of cases (facility contacts), e.g. 1k up to 1M.
+   */
+  public static SyntheticCohort generate(int caseCount) {
+    return generate(caseCount, DEFAULT_SEED);
+  }
+
+  /**
+   * Creates a cohort with the given number of cases.
+   *
+   * @param caseCount The number of cases (facility contacts), e.g. 1k up to 1M.
+   * @param seed The seed of the random generator.
+   */
+  public static SyntheticCohort generate(int caseCount, long seed) {
+    if (caseCount < 1) {
+      throw new IllegalArgumentException("The case count must be positive: " + caseCount);
+    }
+    return new SyntheticCohortGenerator(seed).createCohort(caseCount);
+  }
+
+  /** The input code settings that match the codes used by the generator. */
+  public static InputCodeSettings createInputCodeSettings() {
+    return new InputCodeSettings(
+        List.of(PCR_LOINC_CODE),
+        List.of(VARIANT_LOINC_CODE),
+        List.of(COVID_ICD_CODE),
+        List.of(),
+        List.of(),
+        List.of(VENTILATION_SNOMED_CODE),
+        List.of(ECMO_SNOMED_CODE),
+        List.of(),
+        List.of(),
+        Map.of("depression", List.of(KJP_ICD_CODE)),
+        Map.of(),
+        Map.of(),
+        null);
+  }
+
+  private SyntheticCohort createCohort(int caseCount) {
+    List<MiiLocation> locations = createLocations();
+    List<MiiPatient> patients = new ArrayList<>();
+    // Roughly two cases per patient, so re-admissions and case merges occur
+    int patientCount = Math.max(1, caseCount / 2);
+    for (int i = 0; i < patientCount; i++) {
+      patients.add(createPatient(i));
+    }
+
+    List<MiiEncounter> encounters = new ArrayList<>();
+    List<MiiObservation> observations = new ArrayList<>();
+    List<MiiCondition> conditions = new ArrayList<>();
+    List<MiiProcedure> procedures = new ArrayList<>();
+    for (int i = 0; i < caseCount; i++) {
+      String patientId = patients.get(random.nextInt(patientCount)).getId();
+      createCase(i, patientId, encounters, observations, conditions, procedures);
+    }
+    return new SyntheticCohort(
+        patients, encounters, observations, conditions, procedures, locations);
+  }
+
+  private List<MiiLocation> createLocations() {
+    List<MiiLocation> locations = new ArrayList<>();
+    for (int i = 0; i < ICU_WARD_COUNT + NORMAL_WARD_COUNT; i++) {
+      String locationId = (i < ICU_WARD_COUNT ? "ICU-" : "WARD-") + i;
+      List<Identifier> identifiers = new ArrayList<>();
+      identifiers.add(new Identifier().setValue(locationId));
+      MiiLocation location =
+          new MiiLocation(
+              identifiers,
+              new CodeableConcept()
+                  .addCoding(
+                      new Coding(
+                          LocationPhysicalType.WA.getSystem(),
+                          LocationPhysicalType.WA.toCode(),
+                          LocationPhysicalType.WA.getDisplay())));
+      if (i < ICU_WARD_COUNT) {
+        location.addType(new CodeableConcept().addCoding(new Coding(null, ICU.getValue(), null)));
+      }
+      location.setId(locationId);
+      locations.add(location);
+    }
+    return locations;
+  }
+
+  private MiiPatient createPatient(int index) {
+    List<Identifier> identifiers = new ArrayList<>();
+    identifiers.add(new Identifier().setValue("PID-" + index));
+    List<HumanName> names = new ArrayList<>();
+    names.add(new HumanName().setFamily("Patient" + index));
+    List<Address> addresses = new ArrayList<>();
+    addresses.add(
+        new Address()
+            .setPostalCode(String.format("%05d", 10000 + random.nextInt(89999)))
+            .setCountry("DE"));
+    AdministrativeGender gender =
+        switch (random.nextInt(100)) {
+          case 0 -> AdministrativeGender.OTHER;
+          case int value when value < 50 -> AdministrativeGender.MALE;
+          default -> AdministrativeGender.FEMALE;
+        };
+    MiiPatient patient = new MiiPatient(identifiers, names, gender, addresses);
+    patient.setId("PID-" + index);
+    // Ages between 0 and 99 years
+    patient.setBirthDate(new Date(nowMillis - random.nextLong(100 * 365 * DAY_IN_MILLIS)));
+    return patient;
+  }
+
+  private void createCase(
+      int index,
+      String patientId,
+      List<MiiEncounter> encounters,
+      List<MiiObservation> observations,
+      List<MiiCondition> conditions,
+      List<MiiProcedure> procedures) {
+    String caseId = "CASE-" + index;
+    boolean inpatient = random.nextInt(100) < 70;
+    long start = kickOffMillis + random.nextLong(nowMillis - kickOffMillis);
+    long end = Math.min(start + (1 + random.nextInt(30)) * DAY_IN_MILLIS, nowMillis);
+    // About 5 percent of the cases are still ongoing
+    boolean inProgress = end == nowMillis || random.nextInt(100) < 5;
+
+    MiiEncounter facilityContact =
+        createEncounter(caseId, patientId, inpatient, inProgress, FACILITY_CONTACT);
+    facilityContact.setPeriod(createPeriod(start, end, inProgress));
+    encounters.add(facilityContact);
+
+    if (inpatient) {
+      createSupplyContacts(caseId, patientId, start, end, inProgress, encounters, procedures);
+    }
+
+    int findings = 1 + random.nextInt(3);
+    for (int i = 0; i < findings; i++) {
+      long effective = start + random.nextLong(Math.max(1, end - start));
+      observations.add(createObservation(caseId + "-OBS-" + i, caseId, patientId, effective));
+    }
+    if (random.nextInt(100) < 15) {
+      conditions.add(createCondition(caseId + "-COND", caseId, patientId, COVID_ICD_CODE, start));
+    }
+    if (random.nextInt(100) < 5) {
+      conditions.add(createCondition(caseId + "-KJP", caseId, patientId, KJP_ICD_CODE, start));
+    }
+  }
+
+  private void createSupplyContacts(
+      String caseId,
+      String patientId,
+      long start,
+      long end,
+      boolean inProgress,
+      List<MiiEncounter> encounters,
+      List<MiiProcedure> procedures) {
+    int transfers = 1 + random.nextInt(3);
+    long sliceLength = Math.max(HOUR_IN_MILLIS, (end - start) / transfers);
+    for (int i = 0; i < transfers; i++) {
+      long sliceStart = start + i * sliceLength;
+      long sliceEnd = i == transfers - 1 ? end : sliceStart + sliceLength;
+      boolean icu = random.nextInt(100) < 20;
+      String locationId =
+          icu
+              ? "ICU-" + random.nextInt(ICU_WARD_COUNT)
+              : "WARD-" + (ICU_WARD_COUNT + random.nextInt(NORMAL_WARD_COUNT));
+      boolean lastAndOngoing = inProgress && i == transfers - 1;
+
+      MiiEncounter supplyContact =
+          createEncounter(caseId, patientId, true, lastAndOngoing, SUPPLY_CONTACT);
+      supplyContact.setId(caseId + "-SC-" + i);
+      supplyContact.setPartOf(new Reference("Encounter/" + caseId));
+      supplyContact.setPeriod(createPeriod(sliceStart, sliceEnd, lastAndOngoing));
+      supplyContact.addLocation(
+          new EncounterLocationComponent(new Reference("Location/" + locationId))
+              .setPeriod(createPeriod(sliceStart, sliceEnd, lastAndOngoing)));
+      encounters.add(supplyContact);
+
+      if (icu) {
+        int roll = random.nextInt(100);
+        if (roll < 40) {
+          procedures.add(
+              createProcedure(
+                  caseId + "-VENT-" + i,
+                  caseId,
+                  patientId,
+                  roll < 10 ? ECMO_SNOMED_CODE : VENTILATION_SNOMED_CODE,
+                  createPeriod(sliceStart, sliceEnd, lastAndOngoing)));
+        }
+      }
+    }
+  }
+
+  private MiiEncounter createEncounter(
+      String caseId,
+      String patientId,
+      boolean inpatient,
+      boolean inProgress,
+      EncounterContactLevel contactLevel) {
+    EncounterStatus status = inProgress ? EncounterStatus.INPROGRESS : EncounterStatus.FINISHED;
+    MiiEncounter encounter =
+        new MiiEncounter(
+            caseId,
+            new Encounter.EncounterStatusEnumFactory().fromType(new StringType(status.toCode())),
+            new Coding(
+                "http://terminology.hl7.org/CodeSystem/v3-ActCode",
+                inpatient ? "IMP" : "AMB",
+                null));
+    encounter.setId(caseId);
+    encounter.setSubject(new Reference("Patient/" + patientId));
+    encounter.addIdentifier(
+        new Identifier().setType(IDENTIFIER_TYPE_VISIT_NUMBER_CC).setValue(caseId));
+    encounter.setType(
+        List.of(
+            new CodeableConcept()
+                .addCoding(
+                    new Coding(
+                        EncounterContactLevel.SYSTEM,
+                        contactLevel.getCode(),
+                        contactLevel.getDisplay()))));
+    return encounter;
+  }
+
+  private MiiObservation createObservation(
+      String id, String caseId, String patientId, long effective) {
+    Enumeration<ObservationStatus> status = new Enumeration<>(new ObservationStatusEnumFactory());
+    status.setValue(ObservationStatus.FINAL);
+    MiiObservation observation = new MiiObservation(patientId, caseId, status, null);
+    observation.setId(id);
+    observation.setCode(new CodeableConcept().addCoding(new Coding(LOINC, PCR_LOINC_CODE, null)));
+    QualitativeLabCodesSettings labCodes = new QualitativeLabCodesSettings();
+    // About 20 percent of the findings are positive
+    String resultCode =
+        random.nextInt(100) < 20
+            ? labCodes.getPositiveCodes().getFirst()
+            : labCodes.getNegativeCodes().getFirst();
+    observation.setValue(new CodeableConcept().addCoding(new Coding(SNOMED, resultCode, null)));
+    observation.setEffective(new DateTimeType(new Date(effective)));
+    return observation;
+  }
+
+  private MiiCondition createCondition(
+      String id, String caseId, String patientId, String icdCode, long recorded) {
+    MiiCondition condition = new MiiCondition();
+    condition.setId(id);
+    condition.setSubject(new Reference("Patient/" + patientId));
+    condition.setEncounter(new Reference("Encounter/" + caseId));
+    condition.setCode(
+        new CodeableConcept().addCoding(new Coding(ICD_SYSTEM.getValue(), icdCode, null)));
+    condition.setRecordedDate(new Date(recorded));
+    return condition;
+  }
+
+  private MiiProcedure createProcedure(
+      String id, String caseId, String patientId, String snomedCode, Period period) {
+    MiiProcedure procedure =
+        new MiiProcedure(
+            id,
+            caseId,
+            period.hasEnd() ? ProcedureStatus.COMPLETED : ProcedureStatus.INPROGRESS,
+            new CodeableConcept().addCoding(new Coding(SNOMED, snomedCode, null)),
+            period);
+    procedure.setSubject(new Reference("Patient/" + patientId));
+    return procedure;
+  }
+
+  private static Period createPeriod(long start, long end, boolean open) {
+    Period period = new Period().setStart(new Date(start));
+    if (!open) {
+      period.setEnd(new Date(end));
+    }
+    return period;
+  }
+
+  /**
+   * Creates the {@link CoreCaseData} of the facility contacts, as used by the KiRa case merge.
+   *
+   * @param cohort The generated cohort.
+   * @return Map of facility encounter ids to their case data.
+   */
+  public static Map<String, CoreCaseData> createCoreCaseDataByEncounterId(SyntheticCohort cohort) {
+    Map<String, MiiPatient> patientsById = new HashMap<>();
+    cohort.patients().forEach(patient -> patientsById.put(patient.getId(), patient));
+    Map<String, CoreCaseData> result = new HashMap<>();
+    for (MiiEncounter encounter : cohort.facilityContacts()) {
+      Period period = encounter.getPeriod();
+      MiiPatient patient = patientsById.get(encounter.getPatientId());
+      Date birthDate = patient.getBirthDate();
+      result.put(
+          encounter.getId(),
+          new CoreCaseData(
+              period.getStart(),
+              period.getEnd(),
+              encounter.getId(),
+              encounter.getPatientId(),
+              patient,
+              DateTools.calcYearsBetweenDates(period.getStart(), birthDate),
+              DateTools.calcMonthsBetweenDates(period.getStart(), birthDate),
+              new ArrayList<>(),
+              AdmissionStatus.NEW_ADMISSION,
+              new ArrayList<>(),
+              new ArrayList<>()));
+    }
+    return result;
+  }
+
+  /**
+   * Creates the input parameters of the renal replacement risk model for the icu stays of the
+   * cohort. Each stay gets a body weight, a creatinine series, urea and lactate values and a urine
+   * output every 3 hours; about 10 percent of the stays get a renal replacement therapy.
+   *
+   * @param cohort The generated cohort.
+   * @param seed The seed of the random generator.
+   */
+  public static Map<RenalReplacementRiskParameters, List<CoreBaseDataItem>>
+      createRenalReplacementParameters(SyntheticCohort cohort, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    Map<RenalReplacementRiskParameters, List<CoreBaseDataItem>> parameters =
+        new EnumMap<>(RenalReplacementRiskParameters.class);
+    for (RenalReplacementRiskParameters parameter : RenalReplacementRiskParameters.values()) {
+      parameters.put(parameter, new ArrayList<>());
+    }
+    for (MiiEncounter supplyContact : cohort.icuSupplyContacts()) {
+      String caseId = supplyContact.getPartOf().getReferenceElement().getIdPart();
+      Date from = supplyContact.getPeriod().getStart();
+      Date to = supplyContact.getPeriod().hasEnd() ? supplyContact.getPeriod().getEnd() : null;
+      long fromMillis = from.getTime();
+      long toMillis = to != null ? to.getTime() : System.currentTimeMillis();
+
+      parameters
+          .get(RenalReplacementRiskParameters.ENCOUNTER)
+          .add(new CoreBaseDataItem(caseId, null, null, from, to, "encounter"));
+      parameters
+          .get(RenalReplacementRiskParameters.EPISODES)
+          .add(new CoreBaseDataItem(caseId, supplyContact.getId(), null, from, to, "episode"));
+      parameters
+          .get(RenalReplacementRiskParameters.BODY_WEIGHT)
+          .add(item(caseId, 50 + random.nextInt(60), fromMillis, "bodyWeight"));
+      for (long t = fromMillis; t < toMillis; t += 3 * HOUR_IN_MILLIS) {
+        parameters
+            .get(RenalReplacementRiskParameters.URINE_OUTPUT)
+            .add(item(caseId, random.nextInt(300), t, "urineOutput"));
+        if ((t - fromMillis) % (12 * HOUR_IN_MILLIS) == 0) {
+          parameters
+              .get(RenalReplacementRiskParameters.CREATININE)
+              .add(item(caseId, 0.5 + random.nextDouble() * 3, t, "creatinine"));
+          parameters
+              .get(RenalReplacementRiskParameters.UREA)
+              .add(item(caseId, 10 + random.nextDouble() * 90, t, "urea"));
+          parameters
+              .get(RenalReplacementRiskParameters.LACTATE)
+              .add(item(caseId, 0.5 + random.nextDouble() * 5, t, "lactate"));
+        }
+      }
+      if (random.nextInt(100) < 10) {
+        long therapyStart = fromMillis + random.nextLong(Math.max(1, toMillis - fromMillis));
+        parameters
+            .get(RenalReplacementRiskParameters.START_REPLACEMENT)
+            .add(item(caseId, 1, therapyStart, "cvvh"));
+      }
+    }
+    return parameters;
+  }
+
+  private static CoreBaseDataItem item(String caseId, double value, long time, String debugKey) {
+    Date date = new Date(time);
+    return new CoreBaseDataItem(caseId, null, value, date, date, debugKey);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+package de.ukbonn.mwtek.dashboardlogic.benchmarks;
+
+import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
+import de.ukbonn.mwtek.dashboardlogic.enums.MaxTreatmentTimelineEngine;
+import de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels;
+import de.ukbonn.mwtek.dashboardlogic.logic.DiseaseDetectionManagement;
+import de.ukbonn.mwtek.dashboardlogic.logic.timeline.TimelineMaxTreatmentLevel;
+import de.ukbonn.mwtek.dashboardlogic.models.CaseProcedureIndex;
+import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
+import de.ukbonn.mwtek.dashboardlogic.settings.QualitativeLabCodesSettings;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link MaxTreatmentTimelineEngine engines} of the timeline.maxtreatmentlevel data
+ * item. The timeline creation does not modify its inputs, so the cohort is flagged once per trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TimelineMaxTreatmentLevelBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  public int caseCount;
+
+  @Param({"DAY_LOOP", "SWEEP_LINE"})
+  public MaxTreatmentTimelineEngine engine;
+
+  private final InputCodeSettings inputCodeSettings =
+      SyntheticCohortGenerator.createInputCodeSettings();
+  private SyntheticCohort cohort;
+  private List<MiiEncounter> facilityContacts;
+  private List<MiiEncounter> supplyContacts;
+  private CaseProcedureIndex caseProcedureIndex;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    cohort = SyntheticCohortGenerator.generate(caseCount);
+    DiseaseDetectionManagement.flagEncounters(
+        cohort.encounters(),
+        cohort.conditions(),
+        cohort.observations(),
+        inputCodeSettings,
+        new QualitativeLabCodesSettings(),
+        DataItemContext.COVID);
+    facilityContacts = cohort.facilityContacts();
+    supplyContacts = cohort.supplyContacts();
+    caseProcedureIndex = new CaseProcedureIndex(cohort.procedures(), inputCodeSettings);
+  }
+
+  @Benchmark
+  public Map<TreatmentLevels, Map<Long, Set<String>>> createMaxTreatmentTimeline() {
+    return TimelineMaxTreatmentLevel.createMaxTreatmentTimeline(
+        DataItemContext.COVID,
+        facilityContacts,
+        supplyContacts,
+        caseProcedureIndex,
+        cohort.locations(),
+        inputCodeSettings,
+        false,
+        engine);
+  }
+}
@@ -23,12 +23,11 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_DEBUG;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_LIST;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_STACKED_BAR_CHARTS;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItems.CURRENT_DISCHARGEDIAGS_COHORTS;
+import static de.ukbonn.mwtek.dashboardlogic.enums.DataItems.CURRENT_DISCHARGEDIAGS_COHORTS_OVERLAP;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItems.CURRENT_RECRUITMENT;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItems.TIMELINE_DISCHARGEDIAGS_COHORTS;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItems.TIMELINE_RECRUITMENT;
-import static de.ukbonn.mwtek.dashboardlogic.logic.CohortLogic.getCohort1;
-import static de.ukbonn.mwtek.dashboardlogic.logic.CohortLogic.getCohort2;
-import static de.ukbonn.mwtek.dashboardlogic.logic.CohortLogic.getCohort3;
+import static de.ukbonn.mwtek.dashboardlogic.logic.CohortLogic.evaluateCohorts;
 import static de.ukbonn.mwtek.utilities.enums.TerminologySystems.OPS;
 import static de.ukbonn.mwtek.utilities.generic.time.DateTools.calcYearsBetweenDates;
 import static de.ukbonn.mwtek.utilities.generic.time.DateTools.getCurrentDateTime;
@@ -36,13 +35,14 @@ import static de.ukbonn.mwtek.utilities.generic.time.DateTools.getCurrentDateTim
 import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
 import de.ukbonn.mwtek.dashboardlogic.logic.current.AcribisCurrentDischargeDiags;
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.AcribisTimelineDischargeDiags;
+import de.ukbonn.mwtek.dashboardlogic.models.CohortAssignment;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
-import de.ukbonn.mwtek.dashboardlogic.models.PidTimestampCohortMap;
 import de.ukbonn.mwtek.dashboardlogic.models.StackedBarChartsItem;
 import de.ukbonn.mwtek.dashboardlogic.settings.GlobalConfiguration;
 import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
 import de.ukbonn.mwtek.dashboardlogic.settings.QualitativeLabCodesSettings;
 import de.ukbonn.mwtek.dashboardlogic.settings.VariantSettings;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
 import de.ukbonn.mwtek.dashboardlogic.tools.DataBuilder;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiCondition;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiConsent;
@@ -152,6 +152,7 @@ public class AcribisDataItemGenerator extends DataItemGenerator {
                   .questionnaireResponses(questionnaireResponses)
                   .consents(consents)
                   .dataItemContext(ACRIBIS)
+                  .clock(DashboardClock.of(globalConfiguration))
                   .buildTimelineRecruitmentMap()));
     }
 
@@ -166,31 +167,45 @@ public class AcribisDataItemGenerator extends DataItemGenerator {
       Map<String, Set<String>> pidDischargeDiagnosisList =
           getDischargeDiagnosisList(pidsAdults, conditions, encounters);
       Map<String, Set<String>> pidOpsList = getOpsList(pidsAdults, procedures);
-      PidTimestampCohortMap cohort1ByTimestamp = getCohort1(pidDischargeDiagnosisList, consents);
-      PidTimestampCohortMap cohort2ByTimestamp = getCohort2(pidDischargeDiagnosisList, consents);
-      PidTimestampCohortMap cohort3ByTimestamp =
-          getCohort3(pidDischargeDiagnosisList, pidOpsList, consents);
+      // All cohorts are evaluated in one pass, sharing the consent join
+      CohortAssignment cohortAssignment =
+          evaluateCohorts(pidDischargeDiagnosisList, pidOpsList, consents);
 
-      logPatientsWithoutCohort(
-          pidsAdults, cohort1ByTimestamp, cohort2ByTimestamp, cohort3ByTimestamp);
+      logPatientsWithoutCohort(pidsAdults, cohortAssignment);
 
+      var dischargeDiags = new AcribisCurrentDischargeDiags(cohortAssignment);
       // acr.current.dischargediags.kohorts
       String currentDischargeDiagsLabel = determineLabel(ACRIBIS, CURRENT_DISCHARGEDIAGS_COHORTS);
       if (isItemNotExcluded(mapExcludeDataItems, currentDischargeDiagsLabel, false)) {
-        var dataItem =
-            new AcribisCurrentDischargeDiags(
-                cohort1ByTimestamp, cohort2ByTimestamp, cohort3ByTimestamp);
         currentDataList.add(
             new DiseaseDataItem(
                 currentDischargeDiagsLabel,
                 ITEMTYPE_STACKED_BAR_CHARTS,
-                dataItem.createStackedBarCharts()));
+                dischargeDiags.createStackedBarCharts()));
         if (debug) {
           currentDataList.add(
               new DiseaseDataItem(
                   addDebugLabel(currentDischargeDiagsLabel),
                   ITEMTYPE_DEBUG,
-                  dataItem.getDebugData()));
+                  dischargeDiags.getDebugData()));
+        }
+      }
+
+      // acr.current.dischargediags.cohorts.overlap (not part of the default output)
+      String currentCohortsOverlapLabel =
+          determineLabel(ACRIBIS, CURRENT_DISCHARGEDIAGS_COHORTS_OVERLAP);
+      if (isItemNotExcluded(mapExcludeDataItems, currentCohortsOverlapLabel, true)) {
+        currentDataList.add(
+            new DiseaseDataItem(
+                currentCohortsOverlapLabel,
+                ITEMTYPE_STACKED_BAR_CHARTS,
+                dischargeDiags.createOverlapStackedBarCharts()));
+        if (debug) {
+          currentDataList.add(
+              new DiseaseDataItem(
+                  addDebugLabel(currentCohortsOverlapLabel),
+                  ITEMTYPE_DEBUG,
+                  dischargeDiags.getOverlapDebugData()));
         }
       }
 
@@ -200,9 +215,7 @@ public class AcribisDataItemGenerator extends DataItemGenerator {
             new DiseaseDataItem(
                 timelineDischargeDiagsLabel,
                 ITEMTYPE_LIST,
-                new AcribisTimelineDischargeDiags()
-                    .generateDailyCohortTimeline(
-                        cohort1ByTimestamp, cohort2ByTimestamp, cohort3ByTimestamp)));
+                new AcribisTimelineDischargeDiags().generateDailyCohortTimeline(cohortAssignment)));
       }
     } else {
       log.warn(
@@ -242,18 +255,9 @@ public class AcribisDataItemGenerator extends DataItemGenerator {
   }
 
   private void logPatientsWithoutCohort(
-      List<String> pidsAdults,
-      PidTimestampCohortMap cohort1ByTimestamp,
-      PidTimestampCohortMap cohort2ByTimestamp,
-      PidTimestampCohortMap cohort3ByTimestamp) {
-
-    Set<String> allCohortPids = new HashSet<>();
-    allCohortPids.addAll(cohort1ByTimestamp.keySet());
-    allCohortPids.addAll(cohort2ByTimestamp.keySet());
-    allCohortPids.addAll(cohort3ByTimestamp.keySet());
-
+      List<String> pidsAdults, CohortAssignment cohortAssignment) {
     pidsAdults.stream()
-        .filter(pid -> !allCohortPids.contains(pid))
+        .filter(pid -> cohortAssignment.getCohortMask(pid) == 0)
         .forEach(pid -> log.trace("Patient without cohort: {}", pid));
   }
 
@@ -265,9 +269,9 @@ public class AcribisDataItemGenerator extends DataItemGenerator {
    * <ol>
    *   <li>Filters encounters to only those involving adult patients.
    *   <li>Collects all referenced discharge diagnosis condition IDs.
-   *   <li>Filters conditions by these IDs.
-   *   <li>Extracts all ICD codes (not just the first) from matching conditions.
-   *   <li>Groups them per patient ID.
+   *   <li>Groups the ICD codes (not just the first) of the conditions with these IDs by patient ID
+   *       in a single pass.
+   *   <li>Looks up the ICD codes of each adult patient.
    * </ol>
    *
    * @param pidsAdults list of adult patient IDs
@@ -287,22 +291,25 @@ public class AcribisDataItemGenerator extends DataItemGenerator {
             .flatMap(e -> e.getDischargeDiagnosisReferenceIds().stream())
             .collect(Collectors.toSet());
 
-    // Step 2: Filter conditions that match discharge diagnosis IDs
-    List<MiiCondition> relevantConditions =
-        conditions.stream().filter(c -> dischargeDiagnosisIds.contains(c.getId())).toList();
+    // Step 2: Group the ICD codes of the discharge diagnoses by patient ID
+    Map<String, Set<String>> icdCodesByPid = new HashMap<>();
+    for (MiiCondition condition : conditions) {
+      if (dischargeDiagnosisIds.contains(condition.getId())) {
+        Set<String> icdCodes =
+            icdCodesByPid.computeIfAbsent(condition.getPatientId(), _ -> new HashSet<>());
+        condition.getCode().getCoding().stream()
+            .filter(coding -> ICD_SYSTEM.getValue().equals(coding.getSystem()))
+            .map(Coding::getCode)
+            .forEach(icdCodes::add);
+      }
+    }
 
     // Step 3: Build patientId → list of ICD codes
-    return pidsAdults.parallelStream()
-        .collect(
-            Collectors.toMap(
-                pid -> pid,
-                pid ->
-                    relevantConditions.stream()
-                        .filter(c -> pid.equals(c.getPatientId()))
-                        .flatMap(c -> c.getCode().getCoding().stream())
-                        .filter(coding -> ICD_SYSTEM.getValue().equals(coding.getSystem()))
-                        .map(Coding::getCode)
-                        .collect(Collectors.toSet())));
+    Map<String, Set<String>> result = new HashMap<>();
+    for (String pid : pidsAdults) {
+      result.put(pid, icdCodesByPid.getOrDefault(pid, new HashSet<>()));
+    }
+    return result;
   }
 
   private Map<String, Set<String>> getOpsList(
@@ -26,12 +26,12 @@ import de.ukbonn.mwtek.dashboardlogic.enums.KiraAgeCluster;
 import de.ukbonn.mwtek.dashboardlogic.enums.KiraAgeKjpCluster;
 import de.ukbonn.mwtek.dashboardlogic.enums.KiraAgePedCluster;
 import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock.DayRange;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiObservation;
 import java.time.LocalDate;
 import java.time.YearMonth;
-import java.time.ZoneId;
-import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedHashMap;
@@ -78,10 +78,37 @@ public class DashboardDataItemLogic {
    * @return true if {@code date} is in that year-month
    */
   protected static boolean isDateInYearMonth(LocalDate date, String yearMonthString) {
-    String[] parts = yearMonthString.split("-");
-    int year = Integer.parseInt(parts[0]);
-    int month = Integer.parseInt(parts[1]);
-    return date.getYear() == year && date.getMonthValue() == month;
+    return YearMonth.from(date).equals(YearMonth.parse(yearMonthString));
+  }
+
+  /**
+   * Parses a year-month (e.g. {@code "2020-04"}) once into its range of epoch days, so dates can be
+   * checked against it via {@link DashboardClock#toEpochDay}.
+   *
+   * @param yearMonthString year-month in format {@code yyyy-MM}
+   */
+  protected static DayRange parseMonthRange(String yearMonthString) {
+    return DayRange.ofMonth(YearMonth.parse(yearMonthString));
+  }
+
+  /**
+   * Parses a year-quarter (e.g. {@code "2020-Q4"}) once into its range of epoch days.
+   *
+   * @param yearQuarterString year-quarter in format {@code yyyy-Qn}
+   * @throws IllegalArgumentException if {@code yearQuarterString} is not in {@code yyyy-Qn} format
+   */
+  protected static DayRange parseQuarterRange(String yearQuarterString) {
+    YearQuarter yq = parseYearQuarter(yearQuarterString);
+    return DayRange.ofQuarter(yq.year, yq.quarter);
+  }
+
+  /**
+   * Parses a year (e.g. {@code "2020"}) once into its range of epoch days.
+   *
+   * @param yearString year in format {@code yyyy}
+   */
+  protected static DayRange parseYearRange(String yearString) {
+    return DayRange.ofYear(Integer.parseInt(yearString));
   }
 
   /**
@@ -91,23 +118,14 @@ public class DashboardDataItemLogic {
    *
    * @param date the date to check (non-null)
    * @param yearQuarterString target year-quarter in format {@code yyyy-Qn}, e.g., {@code "2020-Q4"}
+   * @param clock clock whose zone assigns the date to a calendar day
    * @return {@code true} if {@code date} is inside that year/quarter, otherwise {@code false}
    * @throws IllegalArgumentException if {@code yearQuarterString} is not in {@code yyyy-Qn} format
    */
-  protected static boolean isDateInQuarter(Date date, String yearQuarterString) {
+  protected static boolean isDateInQuarter(
+      Date date, String yearQuarterString, DashboardClock clock) {
     Objects.requireNonNull(date, "date must not be null");
-    YearQuarter yq = parseYearQuarter(yearQuarterString);
-
-    Calendar cal = Calendar.getInstance(); // or Calendar.getInstance(TimeZone.getTimeZone("UTC"))
-    cal.setTime(date);
-    int year = cal.get(Calendar.YEAR);
-    int month = cal.get(Calendar.MONTH) + 1; // 1..12
-
-    if (year != yq.year) return false;
-
-    int startMonth = (yq.quarter - 1) * 3 + 1; // 1, 4, 7, 10
-    int endMonth = startMonth + 2; // 3, 6, 9, 12
-    return month >= startMonth && month <= endMonth;
+    return parseQuarterRange(yearQuarterString).contains(clock.toEpochDay(date));
   }
 
   private record YearQuarter(int year, int quarter) {}
@@ -148,24 +166,23 @@ public class DashboardDataItemLogic {
    *
    * @param date date to check
    * @param yearString target year in format {@code yyyy}
+   * @param clock clock whose zone assigns the date to a calendar day
    * @return true if {@code date} is in that year
    */
-  protected static boolean isDateInYear(Date date, String yearString) {
+  protected static boolean isDateInYear(Date date, String yearString, DashboardClock clock) {
     Objects.requireNonNull(date, "date must not be null");
-    int year = Integer.parseInt(yearString);
-    Calendar cal = Calendar.getInstance();
-    cal.setTime(date);
-    return cal.get(Calendar.YEAR) == year;
+    return parseYearRange(yearString).contains(clock.toEpochDay(date));
   }
 
   /**
-   * Converts a {@link Date} to a {@link LocalDate} using the system default timezone.
+   * Converts a {@link Date} to a {@link LocalDate} in the zone of the given clock.
    *
    * @param date date to convert (non-null)
+   * @param clock clock whose zone assigns the date to a calendar day
    * @return corresponding {@link LocalDate}
    */
-  protected static LocalDate convertToLocalDate(Date date) {
-    return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+  protected static LocalDate convertToLocalDate(Date date, DashboardClock clock) {
+    return clock.toLocalDate(date);
   }
 
   /**
@@ -201,17 +218,28 @@ public class DashboardDataItemLogic {
    * @param kidsRadarDataItemContext KJP or PED
    * @param admissionDate date to check
    * @param period string period (e.g. {@code yyyy-MM})
+   * @param clock clock whose zone assigns the date to a calendar day
    * @return true if the date matches the period per the current rules
    */
   protected boolean isDateInPeriod(
-      KidsRadarDataItemContext kidsRadarDataItemContext, Date admissionDate, String period) {
+      KidsRadarDataItemContext kidsRadarDataItemContext,
+      Date admissionDate,
+      String period,
+      DashboardClock clock) {
+    return hasMonthlyPeriods(kidsRadarDataItemContext)
+        && isDateInYearMonth(convertToLocalDate(admissionDate, clock), period);
+  }
+
+  /**
+   * Determines whether the periods of the given KidsRadar item are months ({@code yyyy-MM}), as
+   * checked by {@link #isDateInPeriod}.
+   */
+  protected static boolean hasMonthlyPeriods(KidsRadarDataItemContext kidsRadarDataItemContext) {
     // Currently both items check the date by month; another option was/could be 'isDateInYear'
-    switch (kidsRadarDataItemContext) {
-      case KJP, PED -> {
-        return isDateInYearMonth(convertToLocalDate(admissionDate), period);
-      }
-    }
-    return false;
+    return switch (kidsRadarDataItemContext) {
+      case KJP, PED -> true;
+      default -> false;
+    };
   }
 
   /**
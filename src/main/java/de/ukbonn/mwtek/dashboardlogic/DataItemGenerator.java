@@ -26,7 +26,6 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.DashboardLogicFixedValues.NEG
 import static de.ukbonn.mwtek.dashboardlogic.enums.DashboardLogicFixedValues.POSITIVE;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext.INFLUENZA;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_AGGREGATED;
-import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_DEBUG;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_LIST;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.SUBITEMTYPE_DATE;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItems.BCT_PREFIX;
@@ -91,11 +90,11 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.VitalStatus.DEAD;
 import static de.ukbonn.mwtek.dashboardlogic.logic.CoronaResultFunctionality.generateCrosstabList;
 import static de.ukbonn.mwtek.dashboardlogic.logic.CoronaResultFunctionality.getDatesOutputList;
 import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.assignSupplyEncountersToFacilityEncounter;
-import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.createCumulativeMaxDebug;
 import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.createCurrentIcuMap;
 import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.createEncounterMapByClass;
 import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.createIcuMap;
 import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.generateSupplyContactToFacilityContactMap;
+import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.getCaseIdsByPatient;
 import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.isLocationReferenceExisting;
 import static de.ukbonn.mwtek.dashboardlogic.logic.cumulative.gender.CumulativeGender.translateGenderSpecIntoEnum;
 import static de.ukbonn.mwtek.dashboardlogic.logic.cumulative.lengthofstay.CumulativeLengthOfStayHospital.createLengthOfStayHospitalByVitalstatus;
@@ -116,16 +115,27 @@ import de.ukbonn.mwtek.dashboardlogic.logic.DiseaseDetectionManagement;
 import de.ukbonn.mwtek.dashboardlogic.logic.cumulative.age.CumulativeAge;
 import de.ukbonn.mwtek.dashboardlogic.logic.cumulative.results.CumulativeVariantTestResults;
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.TimelineVariantTestResults;
+import de.ukbonn.mwtek.dashboardlogic.models.CaseProcedureIndex;
+import de.ukbonn.mwtek.dashboardlogic.models.DebugSink;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
+import de.ukbonn.mwtek.dashboardlogic.models.EncounterHierarchyIndex;
+import de.ukbonn.mwtek.dashboardlogic.models.EncounterPatientIndex;
 import de.ukbonn.mwtek.dashboardlogic.models.FacilityEncounterToIcuSupplyContactsMap;
+import de.ukbonn.mwtek.dashboardlogic.models.IcuLocationRegistry;
+import de.ukbonn.mwtek.dashboardlogic.models.IdInterner;
+import de.ukbonn.mwtek.dashboardlogic.models.PatientBitmap;
 import de.ukbonn.mwtek.dashboardlogic.models.TimestampedListPair;
 import de.ukbonn.mwtek.dashboardlogic.settings.GlobalConfiguration;
 import de.ukbonn.mwtek.dashboardlogic.settings.GlobalConfiguration.CheckInProgressPeriodStart;
 import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
 import de.ukbonn.mwtek.dashboardlogic.settings.QualitativeLabCodesSettings;
 import de.ukbonn.mwtek.dashboardlogic.settings.VariantSettings;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
 import de.ukbonn.mwtek.dashboardlogic.tools.DataBuilder;
-import de.ukbonn.mwtek.dashboardlogic.tools.LocationFilter;
+import de.ukbonn.mwtek.dashboardlogic.tools.DataItemSectionGraph;
+import de.ukbonn.mwtek.dashboardlogic.tools.DataItemSectionGraph.Intermediate;
+import de.ukbonn.mwtek.dashboardlogic.tools.DateWindowFilter;
+import de.ukbonn.mwtek.dashboardlogic.tools.DateWindowFilter.Partition;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiCondition;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiLocation;
@@ -138,6 +148,7 @@ import java.time.ZoneId;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
@@ -147,11 +158,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.Encounter.EncounterStatus;
 import org.hl7.fhir.r4.model.Enumerations.FHIRAllTypes;
+import org.hl7.fhir.r4.model.Resource;
 
 /**
  * Class in which the individual {@link DiseaseDataItem DataItems} of the Json specification are
@@ -164,6 +178,10 @@ import org.hl7.fhir.r4.model.Enumerations.FHIRAllTypes;
 @SuppressWarnings("rawtypes")
 public class DataItemGenerator {
 
+  // Names of the shared intermediates that are read by the data item sections
+  private static final String ICU_LENGTH_OF_STAY = "icuLengthOfStay";
+  private static final String HOSPITAL_DAYS = "hospitalDays";
+
   // Initialization of the fhir resource lists
   List<MiiCondition> conditions;
   List<MiiObservation> observations;
@@ -280,13 +298,17 @@ public class DataItemGenerator {
     // there should be at least one dummy icu location.
     boolean supplyContactsFound = isSupplyContactFound(supplyContactEncounters);
     boolean locationsFound = locations != null && !locations.isEmpty();
+    // Supply contact -> facility contact hierarchy, resolved once for all data items
+    EncounterHierarchyIndex encounterHierarchyIndex = null;
     if (supplyContactsFound && locationsFound) {
-      Map<String, String> supplyContactIdFacilityContactId =
-          generateSupplyContactToFacilityContactMap(
+      encounterHierarchyIndex =
+          new EncounterHierarchyIndex(
               supplyContactEncounters,
               departmentContactEncounters,
               facilityContactEncountersInpatient,
               globalConfiguration.getUsePartOfInsteadOfIdentifier());
+      Map<String, String> supplyContactIdFacilityContactId =
+          generateSupplyContactToFacilityContactMap(encounterHierarchyIndex);
     } else {
       log.warn(
           "No encounter with level 'Versorgungsstellenkontakt' and/or location resources were"
@@ -304,11 +326,12 @@ public class DataItemGenerator {
         qualitativeLabCodesSettings,
         dataItemContext);
 
+    // The icu locations are determined once and shared by all data items of this run
+    IcuLocationRegistry icuLocationRegistry = new IcuLocationRegistry(locations);
+
     // the icu information is part of the supply contact
     List<MiiEncounter> icuSupplyContactEncounters =
-        supplyContactEncounters.stream()
-            .filter(x -> x.isIcuCase(LocationFilter.getIcuLocationIds(locations), false))
-            .toList();
+        supplyContactEncounters.stream().filter(icuLocationRegistry::isIcuEncounter).toList();
 
     if (globalConfiguration.getCheckProceduresIcuStays())
       procedures = filterProceduresByIcuWardCheck(procedures, icuSupplyContactEncounters);
@@ -321,15 +344,18 @@ public class DataItemGenerator {
         encounters.parallelStream().filter(MiiEncounter::isCaseClassInpatientOrShortStay).toList();
 
     FacilityEncounterToIcuSupplyContactsMap facilityEncounterIdToIcuSupplyContactsMap =
-        assignSupplyEncountersToFacilityEncounter(icuSupplyContactEncounters, inpatientEncounters);
+        assignSupplyEncountersToFacilityEncounter(
+            icuSupplyContactEncounters, inpatientEncounters, encounterHierarchyIndex);
+
+    // Ventilation and ECMO procedures per case, shared by all icu related data items
+    CaseProcedureIndex caseProcedureIndex = new CaseProcedureIndex(procedures, inputCodeSettings);
 
     Map<TreatmentLevels, List<MiiEncounter>> mapIcuDiseasePositiveOverall =
         createIcuMap(
             encounters,
             icuSupplyContactEncounters,
-            locations,
-            procedures,
-            inputCodeSettings,
+            icuLocationRegistry,
+            caseProcedureIndex,
             useIcuUndiff);
 
     /* used for current logic */
@@ -348,7 +374,8 @@ public class DataItemGenerator {
                 conditions,
                 locations,
                 procedures,
-                dataItemContext);
+                dataItemContext)
+            .withIcuLocationRegistry(icuLocationRegistry);
 
     // Partial lists of current cases broken down by case status
     List<MiiEncounter> currentStandardWardEncounters = new ArrayList<>();
@@ -396,8 +423,10 @@ public class DataItemGenerator {
           new DataBuilder()
               .treatmentLevel(ICU_UNDIFF)
               .icuDiseaseMap(mapIcuDiseasePositiveOverall)
+              .caseProcedureIndex(caseProcedureIndex)
               .buildCumulativeByIcuLevel();
       removeDuplicatePids(
+          dbData.getEncounterPatientIndex(),
           cumulativeOutpatientEncounters,
           cumulativeStandardWardEncounters,
           cumulativeIcuUndiffEncounters);
@@ -407,20 +436,24 @@ public class DataItemGenerator {
           new DataBuilder()
               .treatmentLevel(ICU)
               .icuDiseaseMap(mapIcuDiseasePositiveOverall)
+              .caseProcedureIndex(caseProcedureIndex)
               .buildCumulativeByIcuLevel();
       // initialize ICU_VENT data
       cumulativeIcuVentEncounters =
           new DataBuilder()
               .treatmentLevel(ICU_VENTILATION)
               .icuDiseaseMap(mapIcuDiseasePositiveOverall)
+              .caseProcedureIndex(caseProcedureIndex)
               .buildCumulativeByIcuLevel();
       // initialize ECMO data
       cumulativeIcuEcmoEncounters =
           new DataBuilder()
               .treatmentLevel(ICU_ECMO)
               .icuDiseaseMap(mapIcuDiseasePositiveOverall)
+              .caseProcedureIndex(caseProcedureIndex)
               .buildCumulativeByIcuLevel();
       removeDuplicatePids(
+          dbData.getEncounterPatientIndex(),
           cumulativeOutpatientEncounters,
           cumulativeStandardWardEncounters,
           cumulativeIcuEncounters,
@@ -432,48 +465,31 @@ public class DataItemGenerator {
     String currentTreatmentlevelItemName = determineLabel(dataItemContext, CURRENT_TREATMENTLEVEL);
     if (isItemNotExcluded(effExcludeDataItems, currentTreatmentlevelItemName, false)) {
       Map<String, Number> mapCurrent = new LinkedHashMap<>();
-      currentStandardWardEncounters =
+      // All current treatment levels get determined at once
+      Map<TreatmentLevels, List<MiiEncounter>> currentEncountersByTreatmentLevel =
           new DataBuilder()
               .mapCurrentIcuPositive(mapCurrentIcuDiseasePositive)
-              .treatmentLevel(NORMAL_WARD)
               .icuSupplyContactEncounters(icuSupplyContactEncounters)
+              .caseProcedureIndex(caseProcedureIndex)
               .dbData(dbData)
-              .buildCurrentEncounterByIcuLevel();
+              .buildCurrentEncountersByTreatmentLevel();
+      currentStandardWardEncounters =
+          currentEncountersByTreatmentLevel.getOrDefault(NORMAL_WARD, new ArrayList<>());
       mapCurrent.put(NORMAL_WARD.getValue(), currentStandardWardEncounters.size());
 
       if (!useIcuUndiff) {
         currentIcuEncounters =
-            new DataBuilder()
-                .mapCurrentIcuPositive(mapCurrentIcuDiseasePositive)
-                .treatmentLevel(ICU)
-                .icuSupplyContactEncounters(icuSupplyContactEncounters)
-                .dbData(dbData)
-                .buildCurrentEncounterByIcuLevel();
+            currentEncountersByTreatmentLevel.getOrDefault(ICU, new ArrayList<>());
         currentVentEncounters =
-            new DataBuilder()
-                .mapCurrentIcuPositive(mapCurrentIcuDiseasePositive)
-                .treatmentLevel(ICU_VENTILATION)
-                .icuSupplyContactEncounters(icuSupplyContactEncounters)
-                .dbData(dbData)
-                .buildCurrentEncounterByIcuLevel();
+            currentEncountersByTreatmentLevel.getOrDefault(ICU_VENTILATION, new ArrayList<>());
         currentEcmoEncounters =
-            new DataBuilder()
-                .mapCurrentIcuPositive(mapCurrentIcuDiseasePositive)
-                .treatmentLevel(ICU_ECMO)
-                .icuSupplyContactEncounters(icuSupplyContactEncounters)
-                .dbData(dbData)
-                .buildCurrentEncounterByIcuLevel();
+            currentEncountersByTreatmentLevel.getOrDefault(ICU_ECMO, new ArrayList<>());
         mapCurrent.put(ICU.getValue(), currentIcuEncounters.size());
         mapCurrent.put(ICU_VENTILATION.getValue(), currentVentEncounters.size());
         mapCurrent.put(ICU_ECMO.getValue(), currentEcmoEncounters.size());
       } else {
         currentIcuUndiffEncounters =
-            new DataBuilder()
-                .mapCurrentIcuPositive(mapCurrentIcuDiseasePositive)
-                .treatmentLevel(ICU_UNDIFF)
-                .icuSupplyContactEncounters(icuSupplyContactEncounters)
-                .dbData(dbData)
-                .buildCurrentEncounterByIcuLevel();
+            currentEncountersByTreatmentLevel.getOrDefault(ICU_UNDIFF, new ArrayList<>());
         mapCurrent.put(ICU_UNDIFF.getValue(), currentIcuUndiffEncounters.size());
       }
 
@@ -490,16 +506,13 @@ public class DataItemGenerator {
               .currentEcmoEncounters(currentEcmoEncounters)
               .currentIcuUndiffEncounters(currentIcuUndiffEncounters)
               .useIcuUndiff(useIcuUndiff)
+              .dbData(dbData)
               .buildCurrentTreatmentlevelMapCaseIds();
       this.setMapCurrentTreatmentlevelCaseIds(mapCurrentTreatmentlevelCaseIds);
 
-      if (debug) {
-        currentDataList.add(
-            new DiseaseDataItem(
-                addDebugLabel(currentTreatmentlevelItemName),
-                ITEMTYPE_DEBUG,
-                mapCurrentTreatmentlevelCaseIds));
-      }
+      DebugSink.of(globalConfiguration)
+          .putAll(mapCurrentTreatmentlevelCaseIds)
+          .addTo(currentDataList, addDebugLabel(currentTreatmentlevelItemName));
     }
 
     String currentMaxtreatmentlevelLabel =
@@ -553,35 +566,19 @@ public class DataItemGenerator {
       currentDataList.add(
           new DiseaseDataItem(currentMaxtreatmentlevelLabel, ITEMTYPE_AGGREGATED, mapCurrentMax));
 
-      if (debug) {
-        Map<String, List<String>> resultCurrentTreatmentCaseNrs = new LinkedHashMap<>();
-
-        List<String> normalWardEncounterIds =
-            currentMaxStationary.stream().map(Encounter::getId).collect(Collectors.toList());
-        resultCurrentTreatmentCaseNrs.put(NORMAL_WARD.getValue(), normalWardEncounterIds);
-
-        if (useIcuUndiff) {
-          List<String> icuUndiffEncounterIds =
-              currentMaxIcuUndiff.stream().map(Encounter::getId).collect(Collectors.toList());
-          resultCurrentTreatmentCaseNrs.put(ICU_UNDIFF.getValue(), icuUndiffEncounterIds);
-        } else {
-          resultCurrentTreatmentCaseNrs.put(
-              ICU.getValue(),
-              currentMaxIcu.stream().map(Encounter::getId).collect(Collectors.toList()));
-          resultCurrentTreatmentCaseNrs.put(
-              ICU_VENTILATION.getValue(),
-              currentMaxIcuVent.stream().map(Encounter::getId).collect(Collectors.toList()));
-          resultCurrentTreatmentCaseNrs.put(
-              ICU_ECMO.getValue(),
-              currentMaxIcuEcmo.stream().map(Encounter::getId).collect(Collectors.toList()));
-        }
-
-        currentDataList.add(
-            new DiseaseDataItem(
-                addDebugLabel(currentMaxtreatmentlevelLabel),
-                ITEMTYPE_DEBUG,
-                resultCurrentTreatmentCaseNrs));
+      // The case ids are captured right away, so the encounter lists are not retained
+      DebugSink debugSink =
+          DebugSink.of(globalConfiguration)
+              .putResolved(NORMAL_WARD.getValue(), encounterIds(currentMaxStationary));
+      if (useIcuUndiff) {
+        debugSink.putResolved(ICU_UNDIFF.getValue(), encounterIds(currentMaxIcuUndiff));
+      } else {
+        debugSink
+            .putResolved(ICU.getValue(), encounterIds(currentMaxIcu))
+            .putResolved(ICU_VENTILATION.getValue(), encounterIds(currentMaxIcuVent))
+            .putResolved(ICU_ECMO.getValue(), encounterIds(currentMaxIcuEcmo));
       }
+      debugSink.addTo(currentDataList, addDebugLabel(currentMaxtreatmentlevelLabel));
     }
 
     String currentAgeMaxtreatmentlevelNormalWard =
@@ -657,145 +654,160 @@ public class DataItemGenerator {
           true);
     }
 
+    // The remaining sections are independent of each other and can be generated in parallel
+    DataItemSectionGraph sections =
+        new DataItemSectionGraph(globalConfiguration.getDataItemThreadCount());
+    // The current encounter lists by treatment level, as used in the cross-table calculation
+    Map<TreatmentLevels, List<MiiEncounter>> currentEncountersByLevel = new LinkedHashMap<>();
+    currentEncountersByLevel.put(INPATIENT, currentStandardWardEncounters);
+    currentEncountersByLevel.put(ICU, currentIcuEncounters);
+    currentEncountersByLevel.put(ICU_VENTILATION, new ArrayList<>(currentVentEncounters));
+    currentEncountersByLevel.put(ICU_ECMO, new ArrayList<>(currentEcmoEncounters));
+
     // cumulative.results
     String cumulativeResultsLabel = determineLabel(dataItemContext, CUMULATIVE_RESULTS);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeResultsLabel, false)) {
-      Map<String, Number> cumulativeResultMap = new LinkedHashMap<>();
-      for (DashboardLogicFixedValues result : List.of(POSITIVE, BORDERLINE, NEGATIVE)) {
-        Set<MiiObservation> observations =
-            buildObservationsByResult(result, dataItemContext, dbData);
-        cumulativeResultMap.put(result.getValue(), observations.size());
-      }
-      currentDataList.add(
-          new DiseaseDataItem(cumulativeResultsLabel, ITEMTYPE_AGGREGATED, cumulativeResultMap));
+      sections.section(
+          cumulativeResultsLabel,
+          items -> {
+            Map<String, Number> cumulativeResultMap = new LinkedHashMap<>();
+            for (DashboardLogicFixedValues result : List.of(POSITIVE, BORDERLINE, NEGATIVE)) {
+              Set<MiiObservation> observations =
+                  buildObservationsByResult(result, dataItemContext, dbData);
+              cumulativeResultMap.put(result.getValue(), observations.size());
+            }
+            items.add(
+                new DiseaseDataItem(
+                    cumulativeResultsLabel, ITEMTYPE_AGGREGATED, cumulativeResultMap));
+          });
     }
 
     String cumulativeGenderLabel = determineLabel(dataItemContext, CUMULATIVE_GENDER);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeGenderLabel, false)) {
-      Map<String, Number> cumulativeGenderMap = new LinkedHashMap<>();
-      Map<String, Set<String>> cumulativeGenderPids = debug ? new LinkedHashMap<>() : null;
-
-      for (DashboardLogicFixedValues gender :
-          List.of(MALE_SPECIFICATION, FEMALE_SPECIFICATION, DIVERSE_SPECIFICATION)) {
-        // Compute the list of patient IDs ONCE per gender
-        Set<String> genderPids =
-            new DataBuilder()
-                .dbData(dbData)
-                .gender(translateGenderSpecIntoEnum(gender))
-                .buildGenderList();
-        // Store the count derived from the list size
-        cumulativeGenderMap.put(gender.getValue(), genderPids.size());
-        if (debug) {
-          cumulativeGenderPids.put(gender.getValue(), genderPids);
-        }
-      }
-      currentDataList.add(
-          new DiseaseDataItem(cumulativeGenderLabel, ITEMTYPE_AGGREGATED, cumulativeGenderMap));
-
-      if (debug) {
-        currentDataList.add(
-            new DiseaseDataItem(
-                addDebugLabel(cumulativeGenderLabel), ITEMTYPE_DEBUG, cumulativeGenderPids));
-      }
+      sections.section(
+          cumulativeGenderLabel,
+          items -> {
+            Map<String, Number> cumulativeGenderMap = new LinkedHashMap<>();
+            DebugSink debugSink = DebugSink.of(globalConfiguration);
+
+            for (DashboardLogicFixedValues gender :
+                List.of(MALE_SPECIFICATION, FEMALE_SPECIFICATION, DIVERSE_SPECIFICATION)) {
+              // Compute the patient bitmap ONCE per gender
+              PatientBitmap genderPatients =
+                  new DataBuilder()
+                      .dbData(dbData)
+                      .gender(translateGenderSpecIntoEnum(gender))
+                      .buildGenderPatientBitmap();
+              // Store the count derived from the bitmap cardinality
+              cumulativeGenderMap.put(gender.getValue(), genderPatients.cardinality());
+              // The patient ids are only restored while the debug item gets written
+              debugSink.put(gender.getValue(), patientIds(genderPatients, dbData));
+            }
+            items.add(
+                new DiseaseDataItem(
+                    cumulativeGenderLabel, ITEMTYPE_AGGREGATED, cumulativeGenderMap));
+            debugSink.addTo(items, addDebugLabel(cumulativeGenderLabel));
+          });
     }
 
     // cumulative.age
     String cumulativeAgeLabel = determineLabel(dataItemContext, CUMULATIVE_AGE);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeAgeLabel, false)) {
-      currentDataList.add(
-          new DiseaseDataItem(
-              cumulativeAgeLabel,
-              ITEMTYPE_LIST,
-              CumulativeAge.getAgeDistributionsByCaseClass(
-                  dbData.getFacilityContactEncounters(),
-                  dbData.getPatients(),
-                  TreatmentLevels.ALL)));
+      sections.section(
+          cumulativeAgeLabel,
+          items -> {
+            items.add(
+                new DiseaseDataItem(
+                    cumulativeAgeLabel,
+                    ITEMTYPE_LIST,
+                    CumulativeAge.getAgeDistributionsByCaseClass(
+                        dbData.getFacilityContactEncounters(),
+                        dbData.getPatients(),
+                        TreatmentLevels.ALL)));
+          });
     }
 
     // cumulative.maxtreatmentlevel
     String cumulativeMaxTreatmentLevelLabel =
         determineLabel(dataItemContext, CUMULATIVE_MAXTREATMENTLEVEL);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeMaxTreatmentLevelLabel, false)) {
-      Map<String, Number> mapCumulativeMaxtreatmentlevel =
-          getStringNumberMap(
-              cumulativeOutpatientEncounters, cumulativeStandardWardEncounters, useIcuUndiff);
-      currentDataList.add(
-          new DiseaseDataItem(
-              cumulativeMaxTreatmentLevelLabel,
-              ITEMTYPE_AGGREGATED,
-              mapCumulativeMaxtreatmentlevel));
-
-      // adding case ids on demand
-      if (debug) {
-        Map<String, Map<String, List<String>>> resultMaxTreatmentCaseNrs = new LinkedHashMap<>();
-
-        resultMaxTreatmentCaseNrs.put(OUTPATIENT.getValue(), new HashMap<>());
-        resultMaxTreatmentCaseNrs.put(NORMAL_WARD.getValue(), new HashMap<>());
-        createCumulativeMaxDebug(
-            cumulativeOutpatientEncounters, OUTPATIENT.getValue(), resultMaxTreatmentCaseNrs);
-        createCumulativeMaxDebug(
-            cumulativeStandardWardEncounters, NORMAL_WARD.getValue(), resultMaxTreatmentCaseNrs);
-
-        if (!useIcuUndiff) {
-          resultMaxTreatmentCaseNrs.put(ICU.getValue(), new HashMap<>());
-          resultMaxTreatmentCaseNrs.put(ICU_VENTILATION.getValue(), new HashMap<>());
-          resultMaxTreatmentCaseNrs.put(ICU_ECMO.getValue(), new HashMap<>());
-          createCumulativeMaxDebug(
-              cumulativeIcuEncounters, ICU.getValue(), resultMaxTreatmentCaseNrs);
-          createCumulativeMaxDebug(
-              cumulativeIcuVentEncounters, ICU_VENTILATION.getValue(), resultMaxTreatmentCaseNrs);
-          createCumulativeMaxDebug(
-              cumulativeIcuEcmoEncounters, ICU_ECMO.getValue(), resultMaxTreatmentCaseNrs);
-        } else {
-          resultMaxTreatmentCaseNrs.put(ICU_UNDIFF.getValue(), new HashMap<>());
-          createCumulativeMaxDebug(
-              cumulativeIcuUndiffEncounters, ICU_UNDIFF.getValue(), resultMaxTreatmentCaseNrs);
-        }
-
-        currentDataList.add(
-            new DiseaseDataItem(
-                addDebugLabel(cumulativeMaxTreatmentLevelLabel),
-                ITEMTYPE_DEBUG,
-                resultMaxTreatmentCaseNrs));
-      }
+      sections.section(
+          cumulativeMaxTreatmentLevelLabel,
+          items -> {
+            Map<String, Number> mapCumulativeMaxtreatmentlevel =
+                getStringNumberMap(
+                    cumulativeOutpatientEncounters, cumulativeStandardWardEncounters, useIcuUndiff);
+            items.add(
+                new DiseaseDataItem(
+                    cumulativeMaxTreatmentLevelLabel,
+                    ITEMTYPE_AGGREGATED,
+                    mapCumulativeMaxtreatmentlevel));
+
+            // adding case ids on demand
+            DebugSink debugSink =
+                DebugSink.of(globalConfiguration)
+                    .putResolved(
+                        OUTPATIENT.getValue(), caseIdsByPatient(cumulativeOutpatientEncounters))
+                    .putResolved(
+                        NORMAL_WARD.getValue(), caseIdsByPatient(cumulativeStandardWardEncounters));
+            if (!useIcuUndiff) {
+              debugSink
+                  .putResolved(ICU.getValue(), caseIdsByPatient(cumulativeIcuEncounters))
+                  .putResolved(
+                      ICU_VENTILATION.getValue(), caseIdsByPatient(cumulativeIcuVentEncounters))
+                  .putResolved(ICU_ECMO.getValue(), caseIdsByPatient(cumulativeIcuEcmoEncounters));
+            } else {
+              debugSink.putResolved(
+                  ICU_UNDIFF.getValue(), caseIdsByPatient(cumulativeIcuUndiffEncounters));
+            }
+            debugSink.addTo(items, addDebugLabel(cumulativeMaxTreatmentLevelLabel));
+          });
     }
     String cumulativeAgeMaxTreatmentlevelOutpatientLabel =
         determineLabel(dataItemContext, CUMULATIVE_AGE_MAXTREATMENTLEVEL_OUTPATIENT);
     // cumulative.age.maxtreatmentlevel.outpatient
     if (isItemNotExcluded(
         effExcludeDataItems, cumulativeAgeMaxTreatmentlevelOutpatientLabel, false)) {
-      List<Integer> cumulativeMaxtreatmentlevelOutpatientAgeList =
-          new DataBuilder()
-              .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
-              .icuDiseaseMap(mapIcuDiseasePositiveOverall)
-              .dbData(dbData)
-              .useIcuUndiff(useIcuUndiff)
-              .treatmentLevel(OUTPATIENT)
-              .buildCumMaxtreatmentlevelAgeList();
-      currentDataList.add(
-          new DiseaseDataItem(
-              cumulativeAgeMaxTreatmentlevelOutpatientLabel,
-              ITEMTYPE_LIST,
-              cumulativeMaxtreatmentlevelOutpatientAgeList));
+      sections.section(
+          cumulativeAgeMaxTreatmentlevelOutpatientLabel,
+          items -> {
+            List<Integer> cumulativeMaxtreatmentlevelOutpatientAgeList =
+                new DataBuilder()
+                    .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
+                    .icuDiseaseMap(mapIcuDiseasePositiveOverall)
+                    .dbData(dbData)
+                    .useIcuUndiff(useIcuUndiff)
+                    .treatmentLevel(OUTPATIENT)
+                    .buildCumMaxtreatmentlevelAgeList();
+            items.add(
+                new DiseaseDataItem(
+                    cumulativeAgeMaxTreatmentlevelOutpatientLabel,
+                    ITEMTYPE_LIST,
+                    cumulativeMaxtreatmentlevelOutpatientAgeList));
+          });
     }
     String cumulativeAgeMaxTreatmentlevelNormalWardLabel =
         determineLabel(dataItemContext, CUMULATIVE_AGE_MAXTREATMENTLEVEL_NORMAL_WARD);
     // cumulative.age.maxtreatmentlevel.normal_ward
     if (isItemNotExcluded(
         effExcludeDataItems, cumulativeAgeMaxTreatmentlevelNormalWardLabel, false)) {
-      List<Integer> cumulativeMaxtreatmentlevelNormalWardAgeList =
-          new DataBuilder()
-              .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
-              .icuDiseaseMap(mapIcuDiseasePositiveOverall)
-              .dbData(dbData)
-              .useIcuUndiff(useIcuUndiff)
-              .treatmentLevel(NORMAL_WARD)
-              .buildCumMaxtreatmentlevelAgeList();
-      currentDataList.add(
-          new DiseaseDataItem(
-              cumulativeAgeMaxTreatmentlevelNormalWardLabel,
-              ITEMTYPE_LIST,
-              cumulativeMaxtreatmentlevelNormalWardAgeList));
+      sections.section(
+          cumulativeAgeMaxTreatmentlevelNormalWardLabel,
+          items -> {
+            List<Integer> cumulativeMaxtreatmentlevelNormalWardAgeList =
+                new DataBuilder()
+                    .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
+                    .icuDiseaseMap(mapIcuDiseasePositiveOverall)
+                    .dbData(dbData)
+                    .useIcuUndiff(useIcuUndiff)
+                    .treatmentLevel(NORMAL_WARD)
+                    .buildCumMaxtreatmentlevelAgeList();
+            items.add(
+                new DiseaseDataItem(
+                    cumulativeAgeMaxTreatmentlevelNormalWardLabel,
+                    ITEMTYPE_LIST,
+                    cumulativeMaxtreatmentlevelNormalWardAgeList));
+          });
     }
     // cumulative.age.maxtreatmentlevel.icu
 
@@ -803,328 +815,370 @@ public class DataItemGenerator {
       String cumulativeAgeMaxTreatmentlevelIcuLabel =
           determineLabel(dataItemContext, CUMULATIVE_AGE_MAXTREATMENTLEVEL_ICU);
       if (isItemNotExcluded(effExcludeDataItems, cumulativeAgeMaxTreatmentlevelIcuLabel, false)) {
-        List<Integer> cumulativeMaxtreatmentlevelIcuAgeList =
-            new DataBuilder()
-                .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
-                .icuDiseaseMap(mapIcuDiseasePositiveOverall)
-                .dbData(dbData)
-                .useIcuUndiff(false)
-                .treatmentLevel(ICU)
-                .buildCumMaxtreatmentlevelAgeList();
-        currentDataList.add(
-            new DiseaseDataItem(
-                cumulativeAgeMaxTreatmentlevelIcuLabel,
-                ITEMTYPE_LIST,
-                cumulativeMaxtreatmentlevelIcuAgeList));
+        sections.section(
+            cumulativeAgeMaxTreatmentlevelIcuLabel,
+            items -> {
+              List<Integer> cumulativeMaxtreatmentlevelIcuAgeList =
+                  new DataBuilder()
+                      .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
+                      .icuDiseaseMap(mapIcuDiseasePositiveOverall)
+                      .dbData(dbData)
+                      .useIcuUndiff(false)
+                      .treatmentLevel(ICU)
+                      .buildCumMaxtreatmentlevelAgeList();
+              items.add(
+                  new DiseaseDataItem(
+                      cumulativeAgeMaxTreatmentlevelIcuLabel,
+                      ITEMTYPE_LIST,
+                      cumulativeMaxtreatmentlevelIcuAgeList));
+            });
       }
       String cumulativeAgeMaxTreatmentlevelVentLabel =
           determineLabel(dataItemContext, CUMULATIVE_AGE_MAXTREATMENTLEVEL_ICU_WITH_VENTILATION);
       // cumulative.age.maxtreatmentlevel.icu_with_ventilation
       if (isItemNotExcluded(effExcludeDataItems, cumulativeAgeMaxTreatmentlevelVentLabel, false)) {
-        List<Integer> cumulativeMaxtreatmentlevelIcuVentAgeList =
-            new DataBuilder()
-                .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
-                .icuDiseaseMap(mapIcuDiseasePositiveOverall)
-                .dbData(dbData)
-                .useIcuUndiff(false)
-                .treatmentLevel(ICU_VENTILATION)
-                .buildCumMaxtreatmentlevelAgeList();
-        currentDataList.add(
-            new DiseaseDataItem(
-                cumulativeAgeMaxTreatmentlevelVentLabel,
-                ITEMTYPE_LIST,
-                cumulativeMaxtreatmentlevelIcuVentAgeList));
+        sections.section(
+            cumulativeAgeMaxTreatmentlevelVentLabel,
+            items -> {
+              List<Integer> cumulativeMaxtreatmentlevelIcuVentAgeList =
+                  new DataBuilder()
+                      .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
+                      .icuDiseaseMap(mapIcuDiseasePositiveOverall)
+                      .dbData(dbData)
+                      .useIcuUndiff(false)
+                      .treatmentLevel(ICU_VENTILATION)
+                      .buildCumMaxtreatmentlevelAgeList();
+              items.add(
+                  new DiseaseDataItem(
+                      cumulativeAgeMaxTreatmentlevelVentLabel,
+                      ITEMTYPE_LIST,
+                      cumulativeMaxtreatmentlevelIcuVentAgeList));
+            });
       }
       // cumulative.age.maxtreatmentlevel.icu_with_ecmo
       String cumulativeAgeMaxTreatmentlevelEcmoLabel =
           determineLabel(dataItemContext, CUMULATIVE_AGE_MAXTREATMENTLEVEL_ICU_WITH_ECMO);
       if (isItemNotExcluded(effExcludeDataItems, cumulativeAgeMaxTreatmentlevelEcmoLabel, false)) {
-        List<Integer> cumulativeMaxtreatmentlevelIcuEcmoAgeList =
-            new DataBuilder()
-                .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
-                .icuDiseaseMap(mapIcuDiseasePositiveOverall)
-                .dbData(dbData)
-                .useIcuUndiff(false)
-                .treatmentLevel(ICU_ECMO)
-                .buildCumMaxtreatmentlevelAgeList();
-        currentDataList.add(
-            new DiseaseDataItem(
-                cumulativeAgeMaxTreatmentlevelEcmoLabel,
-                ITEMTYPE_LIST,
-                cumulativeMaxtreatmentlevelIcuEcmoAgeList));
+        sections.section(
+            cumulativeAgeMaxTreatmentlevelEcmoLabel,
+            items -> {
+              List<Integer> cumulativeMaxtreatmentlevelIcuEcmoAgeList =
+                  new DataBuilder()
+                      .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
+                      .icuDiseaseMap(mapIcuDiseasePositiveOverall)
+                      .dbData(dbData)
+                      .useIcuUndiff(false)
+                      .treatmentLevel(ICU_ECMO)
+                      .buildCumMaxtreatmentlevelAgeList();
+              items.add(
+                  new DiseaseDataItem(
+                      cumulativeAgeMaxTreatmentlevelEcmoLabel,
+                      ITEMTYPE_LIST,
+                      cumulativeMaxtreatmentlevelIcuEcmoAgeList));
+            });
       }
     } else {
       String cumulativeAgeMaxTreatmentlevelIcuUndiffLabel =
           determineLabel(dataItemContext, CUMULATIVE_AGE_MAXTREATMENTLEVEL_ICU_UNDIFF);
       if (isItemNotExcluded(
           effExcludeDataItems, cumulativeAgeMaxTreatmentlevelIcuUndiffLabel, false)) {
-        List<Integer> cumMtlIcuUndiffAgeList =
-            new DataBuilder()
-                .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
-                .icuDiseaseMap(mapIcuDiseasePositiveOverall)
-                .dbData(dbData)
-                .useIcuUndiff(true)
-                .treatmentLevel(ICU_UNDIFF)
-                .buildCumMaxtreatmentlevelAgeList();
-        currentDataList.add(
-            new DiseaseDataItem(
-                cumulativeAgeMaxTreatmentlevelIcuUndiffLabel,
-                ITEMTYPE_LIST,
-                cumMtlIcuUndiffAgeList));
+        sections.section(
+            cumulativeAgeMaxTreatmentlevelIcuUndiffLabel,
+            items -> {
+              List<Integer> cumMtlIcuUndiffAgeList =
+                  new DataBuilder()
+                      .mapPositiveEncounterByClass(mapPositiveEncounterByClass)
+                      .icuDiseaseMap(mapIcuDiseasePositiveOverall)
+                      .dbData(dbData)
+                      .useIcuUndiff(true)
+                      .treatmentLevel(ICU_UNDIFF)
+                      .buildCumMaxtreatmentlevelAgeList();
+              items.add(
+                  new DiseaseDataItem(
+                      cumulativeAgeMaxTreatmentlevelIcuUndiffLabel,
+                      ITEMTYPE_LIST,
+                      cumMtlIcuUndiffAgeList));
+            });
       }
     }
     // cumulative zip code
     String cumulativeZipCodeLabel = determineLabel(dataItemContext, CUMULATIVE_ZIPCODE);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeZipCodeLabel, false)) {
-      currentDataList.add(
-          new DiseaseDataItem(
-              cumulativeZipCodeLabel,
-              ITEMTYPE_LIST,
-              new DataBuilder().dbData(dbData).buildCumulativeZipCodeList()));
+      sections.section(
+          cumulativeZipCodeLabel,
+          items -> {
+            items.add(
+                new DiseaseDataItem(
+                    cumulativeZipCodeLabel,
+                    ITEMTYPE_LIST,
+                    new DataBuilder().dbData(dbData).buildCumulativeZipCodeList()));
+          });
     }
 
     // timeline tests
     String timelineTestsLabel = determineLabel(dataItemContext, TIMELINE_TESTS);
     if (isItemNotExcluded(effExcludeDataItems, timelineTestsLabel, false)) {
-      currentDataList.add(
-          new DiseaseDataItem(
-              timelineTestsLabel,
-              ITEMTYPE_LIST,
-              new DataBuilder()
-                  .dataItemContext(dataItemContext)
-                  .dbData(dbData)
-                  .buildTimelineTestsMap()));
+      sections.section(
+          timelineTestsLabel,
+          items -> {
+            items.add(
+                new DiseaseDataItem(
+                    timelineTestsLabel,
+                    ITEMTYPE_LIST,
+                    new DataBuilder()
+                        .dataItemContext(dataItemContext)
+                        .dbData(dbData)
+                        .timelineBucketStrategy(globalConfiguration.getTimelineBucketStrategy())
+                        .clock(DashboardClock.of(globalConfiguration))
+                        .buildTimelineTestsMap()));
+          });
     }
 
     // timeline.test.positive
     String timelineTestPositiveLabel = determineLabel(dataItemContext, TIMELINE_TEST_POSITIVE);
     if (isItemNotExcluded(effExcludeDataItems, timelineTestPositiveLabel, false)) {
-      TimestampedListPair timelineTestPositivePair =
-          new DataBuilder()
-              .dataItemContext(dataItemContext)
-              .dbData(dbData)
-              .buildTimelineTestsPositiveMap();
-      currentDataList.add(
-          new DiseaseDataItem(timelineTestPositiveLabel, ITEMTYPE_LIST, timelineTestPositivePair));
+      sections.section(
+          timelineTestPositiveLabel,
+          items -> {
+            TimestampedListPair timelineTestPositivePair =
+                new DataBuilder()
+                    .dataItemContext(dataItemContext)
+                    .dbData(dbData)
+                    .timelineBucketStrategy(globalConfiguration.getTimelineBucketStrategy())
+                    .clock(DashboardClock.of(globalConfiguration))
+                    .buildTimelineTestsPositiveMap();
+            items.add(
+                new DiseaseDataItem(
+                    timelineTestPositiveLabel, ITEMTYPE_LIST, timelineTestPositivePair));
+          });
     }
 
     // timeline.maxtreatmentlevel
     String timelineMaxtreatmentlevelLabel =
         determineLabel(dataItemContext, TIMELINE_MAXTREATMENTLEVEL);
     if (isItemNotExcluded(effExcludeDataItems, timelineMaxtreatmentlevelLabel, false)) {
-      Map<TreatmentLevels, Map<Long, Set<String>>> resultMaxTreatmentTimeline;
-      Map<String, List<Long>> mapResultTreatment = new LinkedHashMap<>();
-
-      // The result contains the case numbers for debugging and the sums by date
-      resultMaxTreatmentTimeline =
-          new DataBuilder()
-              .dataItemContext(dataItemContext)
-              .dbData(dbData)
-              .useIcuUndiff(useIcuUndiff)
-              .buildMaxTreatmentTimeline();
-      mapResultTreatment.put(SUBITEMTYPE_DATE, getDatesOutputList(dataItemContext));
-
-      for (Entry<TreatmentLevels, Map<Long, Set<String>>> entry :
-          resultMaxTreatmentTimeline.entrySet()) {
-        for (Entry<Long, Set<String>> secondEntry : entry.getValue().entrySet()) {
-          addValuesToTimelineMaxMap(
-              entry.getKey().getValue(), secondEntry.getValue(), mapResultTreatment);
-        }
-      }
-      currentDataList.add(
-          new DiseaseDataItem(timelineMaxtreatmentlevelLabel, ITEMTYPE_LIST, mapResultTreatment));
-
-      // timeline maxtreatmentlevel
-      // case ids can be shown for plausibility checks
-      if (debug) {
-        Map<String, Map<Long, Set<String>>> resultMaxTreatmentCaseNrs = new LinkedHashMap<>();
-        // Iterate over the resultMaxTreatmentTimeline while preserving order
-        for (Entry<TreatmentLevels, Map<Long, Set<String>>> entry :
-            resultMaxTreatmentTimeline.entrySet()) {
-          resultMaxTreatmentCaseNrs.put(entry.getKey().getValue(), entry.getValue());
-        }
-        // Add an empty date map, as required by the REST endpoint (maintaining order)
-        resultMaxTreatmentCaseNrs.put(SUBITEMTYPE_DATE, new LinkedHashMap<>());
-        // Create a new DiseaseDataItem and add it to the current data list
-        currentDataList.add(
-            new DiseaseDataItem(
-                addDebugLabel(timelineMaxtreatmentlevelLabel),
-                ITEMTYPE_DEBUG,
-                resultMaxTreatmentCaseNrs));
-      } // if
+      sections.section(
+          timelineMaxtreatmentlevelLabel,
+          items -> {
+            Map<TreatmentLevels, Map<Long, Set<String>>> resultMaxTreatmentTimeline;
+            Map<String, List<Long>> mapResultTreatment = new LinkedHashMap<>();
+
+            // The result contains the case numbers for debugging and the sums by date
+            resultMaxTreatmentTimeline =
+                new DataBuilder()
+                    .dataItemContext(dataItemContext)
+                    .dbData(dbData)
+                    .useIcuUndiff(useIcuUndiff)
+                    .maxTreatmentTimelineEngine(globalConfiguration.getMaxTreatmentTimelineEngine())
+                    .caseProcedureIndex(caseProcedureIndex)
+                    .buildMaxTreatmentTimeline();
+            mapResultTreatment.put(SUBITEMTYPE_DATE, getDatesOutputList(dataItemContext));
+
+            for (Entry<TreatmentLevels, Map<Long, Set<String>>> entry :
+                resultMaxTreatmentTimeline.entrySet()) {
+              for (Entry<Long, Set<String>> secondEntry : entry.getValue().entrySet()) {
+                addValuesToTimelineMaxMap(
+                    entry.getKey().getValue(), secondEntry.getValue(), mapResultTreatment);
+              }
+            }
+            items.add(
+                new DiseaseDataItem(
+                    timelineMaxtreatmentlevelLabel, ITEMTYPE_LIST, mapResultTreatment));
+
+            // timeline maxtreatmentlevel
+            // case ids can be shown for plausibility checks
+            DebugSink debugSink = DebugSink.of(globalConfiguration);
+            // Iterate over the resultMaxTreatmentTimeline while preserving order
+            for (Entry<TreatmentLevels, Map<Long, Set<String>>> entry :
+                resultMaxTreatmentTimeline.entrySet()) {
+              debugSink.put(entry.getKey().getValue(), entry::getValue);
+            }
+            // Add an empty date map, as required by the REST endpoint (maintaining order)
+            debugSink.put(SUBITEMTYPE_DATE, LinkedHashMap::new);
+            debugSink.addTo(items, addDebugLabel(timelineMaxtreatmentlevelLabel));
+          });
     }
 
     // cumulative inpatient gender
     String cumulativeInpatientGenderLabel =
         determineLabel(dataItemContext, CUMULATIVE_INPATIENT_GENDER);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeInpatientGenderLabel, false)) {
-      Map<String, Number> cumulativeInpatientGenderMap = new HashMap<>();
-      Map<String, Set<String>> cumulativeInpatientGenderPids = debug ? new HashMap<>() : null;
-
-      for (DashboardLogicFixedValues gender :
-          List.of(MALE_SPECIFICATION, FEMALE_SPECIFICATION, DIVERSE_SPECIFICATION)) {
-        // Gather all the patient ids for debug item and count it for the regular item
-        Set<String> genderPids =
-            new DataBuilder()
-                .dbData(dbData)
-                .gender(translateGenderSpecIntoEnum(gender))
-                .treatmentLevel(INPATIENT)
-                .buildGenderPidsByCaseClass();
-        cumulativeInpatientGenderMap.put(gender.getValue(), genderPids.size());
-
-        if (debug) {
-          cumulativeInpatientGenderPids.put(gender.getValue(), genderPids);
-        }
-      }
-      currentDataList.add(
-          new DiseaseDataItem(
-              cumulativeInpatientGenderLabel, ITEMTYPE_AGGREGATED, cumulativeInpatientGenderMap));
-      if (debug) {
-        currentDataList.add(
-            new DiseaseDataItem(
-                addDebugLabel(cumulativeInpatientGenderLabel),
-                ITEMTYPE_DEBUG,
-                cumulativeInpatientGenderPids));
-      }
+      sections.section(
+          cumulativeInpatientGenderLabel,
+          items -> {
+            Map<String, Number> cumulativeInpatientGenderMap = new HashMap<>();
+            DebugSink debugSink = DebugSink.of(globalConfiguration);
+
+            for (DashboardLogicFixedValues gender :
+                List.of(MALE_SPECIFICATION, FEMALE_SPECIFICATION, DIVERSE_SPECIFICATION)) {
+              // Gather the patients for the count; the ids are only restored for the debug item
+              PatientBitmap genderPatients =
+                  new DataBuilder()
+                      .dbData(dbData)
+                      .gender(translateGenderSpecIntoEnum(gender))
+                      .treatmentLevel(INPATIENT)
+                      .buildGenderPatientBitmapByCaseClass();
+              cumulativeInpatientGenderMap.put(gender.getValue(), genderPatients.cardinality());
+              debugSink.put(gender.getValue(), patientIds(genderPatients, dbData));
+            }
+            items.add(
+                new DiseaseDataItem(
+                    cumulativeInpatientGenderLabel,
+                    ITEMTYPE_AGGREGATED,
+                    cumulativeInpatientGenderMap));
+            debugSink.addTo(items, addDebugLabel(cumulativeInpatientGenderLabel));
+          });
     }
 
     // cumulative outpatient gender
     String cumulativeOutpatientGenderLabel =
         determineLabel(dataItemContext, CUMULATIVE_OUTPATIENT_GENDER);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeOutpatientGenderLabel, false)) {
-      Map<String, Number> cumulativeOutpatientGender = new HashMap<>();
-      Set<String> outpatientsMale =
-          new DataBuilder()
-              .dbData(dbData)
-              .gender(MALE)
-              .treatmentLevel(OUTPATIENT)
-              .buildGenderPidsByCaseClass();
-      Set<String> outpatientsFemale =
-          new DataBuilder()
-              .dbData(dbData)
-              .gender(FEMALE)
-              .treatmentLevel(OUTPATIENT)
-              .buildGenderPidsByCaseClass();
-      Set<String> outpatientsDiverse =
-          new DataBuilder()
-              .dbData(dbData)
-              .gender(DIVERSE)
-              .treatmentLevel(OUTPATIENT)
-              .buildGenderPidsByCaseClass();
-      cumulativeOutpatientGender.put(MALE_SPECIFICATION.getValue(), outpatientsMale.size());
-      cumulativeOutpatientGender.put(FEMALE_SPECIFICATION.getValue(), outpatientsFemale.size());
-      cumulativeOutpatientGender.put(DIVERSE_SPECIFICATION.getValue(), outpatientsDiverse.size());
-      currentDataList.add(
-          new DiseaseDataItem(
-              cumulativeOutpatientGenderLabel, ITEMTYPE_AGGREGATED, cumulativeOutpatientGender));
-      if (debug) {
-        Map<String, Set<String>> outpatientDebugMap =
-            Map.of(
-                MALE_SPECIFICATION.getValue(), outpatientsMale,
-                FEMALE_SPECIFICATION.getValue(), outpatientsFemale,
-                DIVERSE_SPECIFICATION.getValue(), outpatientsDiverse);
-        currentDataList.add(
-            new DiseaseDataItem(
-                addDebugLabel(cumulativeOutpatientGenderLabel),
-                ITEMTYPE_DEBUG,
-                outpatientDebugMap));
-      }
+      sections.section(
+          cumulativeOutpatientGenderLabel,
+          items -> {
+            Map<String, Number> cumulativeOutpatientGender = new HashMap<>();
+            PatientBitmap outpatientsMale =
+                new DataBuilder()
+                    .dbData(dbData)
+                    .gender(MALE)
+                    .treatmentLevel(OUTPATIENT)
+                    .buildGenderPatientBitmapByCaseClass();
+            PatientBitmap outpatientsFemale =
+                new DataBuilder()
+                    .dbData(dbData)
+                    .gender(FEMALE)
+                    .treatmentLevel(OUTPATIENT)
+                    .buildGenderPatientBitmapByCaseClass();
+            PatientBitmap outpatientsDiverse =
+                new DataBuilder()
+                    .dbData(dbData)
+                    .gender(DIVERSE)
+                    .treatmentLevel(OUTPATIENT)
+                    .buildGenderPatientBitmapByCaseClass();
+            cumulativeOutpatientGender.put(
+                MALE_SPECIFICATION.getValue(), outpatientsMale.cardinality());
+            cumulativeOutpatientGender.put(
+                FEMALE_SPECIFICATION.getValue(), outpatientsFemale.cardinality());
+            cumulativeOutpatientGender.put(
+                DIVERSE_SPECIFICATION.getValue(), outpatientsDiverse.cardinality());
+            items.add(
+                new DiseaseDataItem(
+                    cumulativeOutpatientGenderLabel,
+                    ITEMTYPE_AGGREGATED,
+                    cumulativeOutpatientGender));
+            DebugSink.of(globalConfiguration)
+                .put(MALE_SPECIFICATION.getValue(), patientIds(outpatientsMale, dbData))
+                .put(FEMALE_SPECIFICATION.getValue(), patientIds(outpatientsFemale, dbData))
+                .put(DIVERSE_SPECIFICATION.getValue(), patientIds(outpatientsDiverse, dbData))
+                .addTo(items, addDebugLabel(cumulativeOutpatientGenderLabel));
+          });
     }
 
     String cumulativeInpatientAge = determineLabel(dataItemContext, CUMULATIVE_INPATIENT_AGE);
     // cumulative inpatient age
     if (isItemNotExcluded(effExcludeDataItems, cumulativeInpatientAge, false)) {
-      currentDataList.add(
-          new DiseaseDataItem(
-              cumulativeInpatientAge,
-              ITEMTYPE_LIST,
-              new DataBuilder()
-                  .dbData(dbData)
-                  .treatmentLevel(INPATIENT)
-                  .buildAgeDistributionByCaseClass()));
+      sections.section(
+          cumulativeInpatientAge,
+          items -> {
+            items.add(
+                new DiseaseDataItem(
+                    cumulativeInpatientAge,
+                    ITEMTYPE_LIST,
+                    new DataBuilder()
+                        .dbData(dbData)
+                        .treatmentLevel(INPATIENT)
+                        .buildAgeDistributionByCaseClass()));
+          });
     }
 
     // cumulative outpatient age
     String cumulativeOutpatientAgeLabel =
         determineLabel(dataItemContext, CUMULATIVE_OUTPATIENT_AGE);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeOutpatientAgeLabel, false)) {
-      currentDataList.add(
-          new DiseaseDataItem(
-              cumulativeOutpatientAgeLabel,
-              ITEMTYPE_LIST,
-              new DataBuilder()
-                  .dbData(dbData)
-                  .treatmentLevel(OUTPATIENT)
-                  .buildAgeDistributionByCaseClass()));
+      sections.section(
+          cumulativeOutpatientAgeLabel,
+          items -> {
+            items.add(
+                new DiseaseDataItem(
+                    cumulativeOutpatientAgeLabel,
+                    ITEMTYPE_LIST,
+                    new DataBuilder()
+                        .dbData(dbData)
+                        .treatmentLevel(OUTPATIENT)
+                        .buildAgeDistributionByCaseClass()));
+          });
     }
 
     // timeline deaths
     String timelineDeathsLabel = determineLabel(dataItemContext, TIMELINE_DEATHS);
     if (isItemNotExcluded(effExcludeDataItems, timelineDeathsLabel, false)) {
-      currentDataList.add(
-          new DiseaseDataItem(
-              timelineDeathsLabel,
-              ITEMTYPE_LIST,
-              new DataBuilder()
-                  .dbData(dbData)
-                  .dataItemContext(dataItemContext)
-                  .buildTimelineDeathMap()));
+      sections.section(
+          timelineDeathsLabel,
+          items -> {
+            items.add(
+                new DiseaseDataItem(
+                    timelineDeathsLabel,
+                    ITEMTYPE_LIST,
+                    new DataBuilder()
+                        .dbData(dbData)
+                        .dataItemContext(dataItemContext)
+                        .usePatientDeceased(globalConfiguration.getUsePatientDeceased())
+                        .clock(DashboardClock.of(globalConfiguration))
+                        .buildTimelineDeathMap()));
+          });
     }
 
     // Bonn cross-table calculation; currently just needed in the covid-19-context
     if (dataItemContext == DataItemContext.COVID) {
       if (isItemNotExcluded(effExcludeDataItems, CURRENT_TREATMENTLEVEL_CROSSTAB, true)) {
-        Map<String, List> aggData = new HashMap<>();
-        aggData.put(
-            "columnname",
-            Arrays.asList(
-                CITY_BONN.getValue(),
-                ICU.getValue(),
-                ICU_VENTILATION.getValue(),
-                ICU_ECMO.getValue()));
-        aggData.put(
-            "state", Arrays.asList("0000", "0100", "0110", "0111", "1000", "1100", "1110", "1111"));
-        aggData.put("value", new ArrayList<>());
-        Map<TreatmentLevels, List<MiiEncounter>> crosstabMaxtreatmentlevels = new LinkedHashMap<>();
-        crosstabMaxtreatmentlevels.put(INPATIENT, currentStandardWardEncounters);
-        crosstabMaxtreatmentlevels.put(ICU, currentIcuEncounters);
-        List<MiiEncounter> ventEncounters = new ArrayList<>(currentVentEncounters);
-        crosstabMaxtreatmentlevels.put(ICU_VENTILATION, ventEncounters);
-        List<MiiEncounter> ecmoEncounters = new ArrayList<>(currentEcmoEncounters);
-        crosstabMaxtreatmentlevels.put(ICU_ECMO, ecmoEncounters);
-
-        Set<MiiEncounter> allCurrentEncounters = new HashSet<>();
-
-        allCurrentEncounters.addAll(currentStandardWardEncounters);
-        allCurrentEncounters.addAll(currentIcuEncounters);
-        allCurrentEncounters.addAll(ventEncounters);
-        allCurrentEncounters.addAll(ecmoEncounters);
-
-        Set<String> encounterPids =
-            allCurrentEncounters.stream()
-                .map(MiiEncounter::getPatientId)
-                .collect(Collectors.toSet());
-
-        List<MiiPatient> currentPatients =
-            patients.stream()
-                .filter(patient -> encounterPids.contains(patient.getId()))
-                .collect(Collectors.toList());
-        List<String[]> ukbCrossTabList =
-            generateCrosstabList(crosstabMaxtreatmentlevels, currentPatients);
-        if (debug) {
-          aggData.put("casenrs", ukbCrossTabList);
-        }
-
-        List<String> values = new ArrayList<>();
-        for (String[] nr : ukbCrossTabList) {
-          values.add(String.valueOf(nr.length));
-        }
-        aggData.put("value", values);
-        currentDataList.add(
-            new DiseaseDataItem(
-                determineLabel(dataItemContext, CURRENT_TREATMENTLEVEL_CROSSTAB),
-                ITEMTYPE_AGGREGATED,
-                aggData));
+        sections.section(
+            CURRENT_TREATMENTLEVEL_CROSSTAB,
+            items -> {
+              Map<String, List> aggData = new HashMap<>();
+              aggData.put(
+                  "columnname",
+                  Arrays.asList(
+                      CITY_BONN.getValue(),
+                      ICU.getValue(),
+                      ICU_VENTILATION.getValue(),
+                      ICU_ECMO.getValue()));
+              aggData.put(
+                  "state",
+                  Arrays.asList("0000", "0100", "0110", "0111", "1000", "1100", "1110", "1111"));
+              aggData.put("value", new ArrayList<>());
+              Map<TreatmentLevels, List<MiiEncounter>> crosstabMaxtreatmentlevels =
+                  new LinkedHashMap<>(currentEncountersByLevel);
+
+              Set<MiiEncounter> allCurrentEncounters = new HashSet<>();
+              crosstabMaxtreatmentlevels.values().forEach(allCurrentEncounters::addAll);
+
+              Set<String> encounterPids =
+                  allCurrentEncounters.stream()
+                      .map(MiiEncounter::getPatientId)
+                      .collect(Collectors.toSet());
+
+              List<MiiPatient> currentPatients =
+                  patients.stream()
+                      .filter(patient -> encounterPids.contains(patient.getId()))
+                      .collect(Collectors.toList());
+              List<String[]> ukbCrossTabList =
+                  generateCrosstabList(crosstabMaxtreatmentlevels, currentPatients);
+              if (debug) {
+                aggData.put("casenrs", ukbCrossTabList);
+              }
+
+              List<String> values = new ArrayList<>();
+              for (String[] nr : ukbCrossTabList) {
+                values.add(String.valueOf(nr.length));
+              }
+              aggData.put("value", values);
+              items.add(
+                  new DiseaseDataItem(
+                      determineLabel(dataItemContext, CURRENT_TREATMENTLEVEL_CROSSTAB),
+                      ITEMTYPE_AGGREGATED,
+                      aggData));
+            });
       }
     }
 
@@ -1132,105 +1186,154 @@ public class DataItemGenerator {
     // cumulative.lengthofstay.icu
     String cumulativeLengthOfStayIcuLabel =
         determineLabel(dataItemContext, CUMULATIVE_LENGTHOFSTAY_ICU);
-    Map<String, Map<Long, Set<String>>> mapIcuLengthList =
-        createIcuLengthOfStayList(icuSupplyContactEncounters, dbData.getLocations());
+    Intermediate<Map<String, Map<Long, Set<String>>>> mapIcuLengthList =
+        sections.intermediate(
+            ICU_LENGTH_OF_STAY,
+            () -> createIcuLengthOfStayList(icuSupplyContactEncounters, icuLocationRegistry));
     if (isItemNotExcluded(effExcludeDataItems, cumulativeLengthOfStayIcuLabel, false)) {
-      createCumulativeLengthOfStayIcuData(
+      sections.section(
           cumulativeLengthOfStayIcuLabel,
-          mapIcuDiseasePositiveOverall,
-          debug,
-          null,
-          currentDataList,
-          mapIcuLengthList);
+          List.of(mapIcuLengthList),
+          items -> {
+            createCumulativeLengthOfStayIcuData(
+                cumulativeLengthOfStayIcuLabel,
+                mapIcuDiseasePositiveOverall,
+                DebugSink.of(globalConfiguration),
+                null,
+                items,
+                mapIcuLengthList.get());
+          });
     }
     // list with all lengths of icu stays (in h)
     String cumulativeLengthOfStayIcuAliveLabel =
         determineLabel(dataItemContext, CUMULATIVE_LENGTHOFSTAY_ICU_ALIVE);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeLengthOfStayIcuAliveLabel, false)) {
-      createCumulativeLengthOfStayIcuData(
+      sections.section(
           cumulativeLengthOfStayIcuAliveLabel,
-          mapIcuDiseasePositiveOverall,
-          debug,
-          ALIVE,
-          currentDataList,
-          mapIcuLengthList);
+          List.of(mapIcuLengthList),
+          items -> {
+            createCumulativeLengthOfStayIcuData(
+                cumulativeLengthOfStayIcuAliveLabel,
+                mapIcuDiseasePositiveOverall,
+                DebugSink.of(globalConfiguration),
+                ALIVE,
+                items,
+                mapIcuLengthList.get());
+          });
     }
 
     // list with all lengths of icu stays (in h)
     String cumulativeLengthOfStayIcuDeadLabel =
         determineLabel(dataItemContext, CUMULATIVE_LENGTHOFSTAY_ICU_DEAD);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeLengthOfStayIcuDeadLabel, false)) {
-      createCumulativeLengthOfStayIcuData(
+      sections.section(
           cumulativeLengthOfStayIcuDeadLabel,
-          mapIcuDiseasePositiveOverall,
-          debug,
-          DEAD,
-          currentDataList,
-          mapIcuLengthList);
+          List.of(mapIcuLengthList),
+          items -> {
+            createCumulativeLengthOfStayIcuData(
+                cumulativeLengthOfStayIcuDeadLabel,
+                mapIcuDiseasePositiveOverall,
+                DebugSink.of(globalConfiguration),
+                DEAD,
+                items,
+                mapIcuLengthList.get());
+          });
     }
 
     // cumulative length of stays
     String cumulativeLengthOfStayHospitalLabel =
         determineLabel(dataItemContext, CUMULATIVE_LENGTHOFSTAY_HOSPITAL);
-    Map<String, Map<Long, Set<String>>> mapDays =
-        createMapDaysHospitalList(dbData.getFacilityContactEncounters());
+    Intermediate<Map<String, Map<Long, Set<String>>>> mapDays =
+        sections.intermediate(
+            HOSPITAL_DAYS, () -> createMapDaysHospitalList(dbData.getFacilityContactEncounters()));
     if (isItemNotExcluded(effExcludeDataItems, cumulativeLengthOfStayHospitalLabel, false)) {
-      createCumulativeLengthOfStayHospitalData(
-          dbData.getFacilityContactEncounters(),
+      sections.section(
           cumulativeLengthOfStayHospitalLabel,
-          mapDays,
-          debug,
-          null,
-          currentDataList);
+          List.of(mapDays),
+          items -> {
+            createCumulativeLengthOfStayHospitalData(
+                dbData.getFacilityContactEncounters(),
+                cumulativeLengthOfStayHospitalLabel,
+                mapDays.get(),
+                DebugSink.of(globalConfiguration),
+                null,
+                items);
+          });
     }
     // cumulative length of stays ALIVE
     String cumulativeLengthOfStayHospitalAliveLabel =
         determineLabel(dataItemContext, CUMULATIVE_LENGTHOFSTAY_HOSPITAL_ALIVE);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeLengthOfStayHospitalAliveLabel, false)) {
-      createCumulativeLengthOfStayHospitalData(
-          dbData.getFacilityContactEncounters(),
+      sections.section(
           cumulativeLengthOfStayHospitalAliveLabel,
-          mapDays,
-          debug,
-          ALIVE,
-          currentDataList);
+          List.of(mapDays),
+          items -> {
+            createCumulativeLengthOfStayHospitalData(
+                dbData.getFacilityContactEncounters(),
+                cumulativeLengthOfStayHospitalAliveLabel,
+                mapDays.get(),
+                DebugSink.of(globalConfiguration),
+                ALIVE,
+                items);
+          });
     }
     // cumulative.lengthofstay.dead
     String cumulativeLengthOfStayHospitalDeadLabel =
         determineLabel(dataItemContext, CUMULATIVE_LENGTHOFSTAY_HOSPITAL_DEAD);
     if (isItemNotExcluded(effExcludeDataItems, cumulativeLengthOfStayHospitalDeadLabel, false)) {
-      createCumulativeLengthOfStayHospitalData(
-          dbData.getFacilityContactEncounters(),
+      sections.section(
           cumulativeLengthOfStayHospitalDeadLabel,
-          mapDays,
-          debug,
-          DEAD,
-          currentDataList);
+          List.of(mapDays),
+          items -> {
+            createCumulativeLengthOfStayHospitalData(
+                dbData.getFacilityContactEncounters(),
+                cumulativeLengthOfStayHospitalDeadLabel,
+                mapDays.get(),
+                DebugSink.of(globalConfiguration),
+                DEAD,
+                items);
+          });
     }
 
     // Handling of items that restricted to covid-19 context
     if (dataItemContext == DataItemContext.COVID) {
       // cumulative varianttestresults
       if (isItemNotExcluded(effExcludeDataItems, CUMULATIVE_VARIANTTESTRESULTS, false)) {
-        Map<String, Integer> resultMap =
-            new CumulativeVariantTestResults()
-                .createVariantTestResultMap(
-                    dbData.getVariantObservations(), variantSettings, inputCodeSettings);
-        currentDataList.add(
-            new DiseaseDataItem(CUMULATIVE_VARIANTTESTRESULTS, ITEMTYPE_AGGREGATED, resultMap));
+        sections.section(
+            CUMULATIVE_VARIANTTESTRESULTS,
+            items -> {
+              Map<String, Integer> resultMap =
+                  new CumulativeVariantTestResults()
+                      .createVariantTestResultMap(
+                          dbData.getVariantObservations(), variantSettings, inputCodeSettings);
+              items.add(
+                  new DiseaseDataItem(
+                      CUMULATIVE_VARIANTTESTRESULTS, ITEMTYPE_AGGREGATED, resultMap));
+            });
       }
 
       // timeline.varianttestresults
       if (isItemNotExcluded(effExcludeDataItems, TIMELINE_VARIANTTESTRESULTS, false)) {
-        currentDataList.add(
-            new DiseaseDataItem(
-                TIMELINE_VARIANTTESTRESULTS,
-                ITEMTYPE_LIST,
-                new TimelineVariantTestResults()
-                    .createTimelineVariantsTests(
-                        dbData.getVariantObservations(), variantSettings, inputCodeSettings)));
+        sections.section(
+            TIMELINE_VARIANTTESTRESULTS,
+            items -> {
+              items.add(
+                  new DiseaseDataItem(
+                      TIMELINE_VARIANTTESTRESULTS,
+                      ITEMTYPE_LIST,
+                      new TimelineVariantTestResults()
+                          .createTimelineVariantsTests(
+                              dbData.getVariantObservations(),
+                              variantSettings,
+                              inputCodeSettings)));
+            });
       }
     } // if
+    currentDataList.addAll(sections.run());
+    log.debug(
+        "DataBuilder cache: {} hits, {} misses",
+        dbData.getDataBuilderCache().getHitCount(),
+        dbData.getDataBuilderCache().getMissCount());
     return currentDataList;
   }
 
@@ -1341,40 +1444,30 @@ public class DataItemGenerator {
             ? Influenza.QUALIFYING_DATE_MILLISECONDS
             : Covid.QUALIFYING_DATE_MILLISECONDS;
 
-    String firstRemovedEncounterId = "";
-    String firstRemovedConditionId = "";
-    String firstRemovedObservationId = "";
-
-    List<MiiEncounter> encountersFilteredByDate =
-        filterEncountersAfterDate(encounters, cutOffDateMillis);
-    int encounterDiff = encounters.size() - encountersFilteredByDate.size();
+    Partition<MiiEncounter> encountersByDate =
+        DateWindowFilter.filterFrom(encounters, DateWindowFilter::encounterStart, cutOffDateMillis);
+    int encounterDiff = encountersByDate.dropped().size();
+    String firstRemovedEncounterId = getIdOrEmpty(encountersByDate.firstDropped());
     if (encounterDiff > 0) {
-      MiiEncounter firstRemovedEncounter =
-          findFirstRemovedElement(encounters, encountersFilteredByDate);
-      firstRemovedEncounterId = firstRemovedEncounter != null ? firstRemovedEncounter.getId() : "";
       encounters.clear();
-      encounters.addAll(encountersFilteredByDate);
+      encounters.addAll(encountersByDate.kept());
     }
 
-    List<MiiCondition> conditionsFilteredByDate =
-        filterConditionsAfterDate(conditions, cutOffDateMillis);
-    int condDiff = conditions.size() - conditionsFilteredByDate.size();
-    if (condDiff > 0) {
-      MiiCondition firstRemovedCondition =
-          findFirstRemovedElement(conditions, conditionsFilteredByDate);
-      firstRemovedConditionId = firstRemovedCondition != null ? firstRemovedCondition.getId() : "";
-    }
-
-    List<MiiObservation> observationsFilteredByDate =
-        filterObservationsAfterDate(observations, cutOffDateMillis);
-    int obsDiff = observations.size() - observationsFilteredByDate.size();
+    // Conditions are just counted for the logging; the list itself stays unchanged
+    Partition<MiiCondition> conditionsByDate =
+        DateWindowFilter.filterFrom(
+            conditions, DateWindowFilter::conditionRecordedDate, cutOffDateMillis);
+    int condDiff = conditionsByDate.dropped().size();
+    String firstRemovedConditionId = getIdOrEmpty(conditionsByDate.firstDropped());
+
+    Partition<MiiObservation> observationsByDate =
+        DateWindowFilter.filterAfter(
+            observations, DateWindowFilter::observationEffective, cutOffDateMillis);
+    int obsDiff = observationsByDate.dropped().size();
+    String firstRemovedObservationId = getIdOrEmpty(observationsByDate.firstDropped());
     if (obsDiff > 0) {
-      MiiObservation firstRemovedObservation =
-          findFirstRemovedElement(observations, observationsFilteredByDate);
-      firstRemovedObservationId =
-          firstRemovedObservation != null ? firstRemovedObservation.getId() : "";
       observations.clear();
-      observations.addAll(observationsFilteredByDate);
+      observations.addAll(observationsByDate.kept());
     }
 
     logFilteredCounts(
@@ -1386,71 +1479,8 @@ public class DataItemGenerator {
         firstRemovedObservationId);
   }
 
-  /**
-   * Finds the first element removed during filtering by comparing the original and filtered lists.
-   *
-   * @param originalList The original list before filtering.
-   * @param filteredList The list after filtering.
-   * @param <T> The type of elements in the lists.
-   * @return The first removed element, or null if no elements were removed.
-   */
-  private <T> T findFirstRemovedElement(List<T> originalList, List<T> filteredList) {
-    for (T item : originalList) {
-      if (!filteredList.contains(item)) {
-        return item;
-      }
-    }
-    return null;
-  }
-
-  /**
-   * Filters encounters to include only those with a start date after the given cutoff date.
-   *
-   * @param encounters List of UkbEncounter resources to filter.
-   * @param cutOffDateMillis The cutoff date for filtering.
-   * @return A list of encounters that occur after the cutoff date.
-   */
-  private List<MiiEncounter> filterEncountersAfterDate(
-      List<MiiEncounter> encounters, Long cutOffDateMillis) {
-
-    return encounters.parallelStream()
-        .filter(
-            e ->
-                e.hasPeriod()
-                    && e.getPeriod().hasStart()
-                    && e.getPeriod().getStart().getTime() >= cutOffDateMillis)
-        .toList();
-  }
-
-  /**
-   * Filters conditions to include only those recorded after the given cutoff date.
-   *
-   * @param conditions List of UkbCondition resources to filter.
-   * @param cutOffDateMillis The cutoff date for filtering.
-   * @return A list of conditions recorded after the cutoff date.
-   */
-  private List<MiiCondition> filterConditionsAfterDate(
-      List<MiiCondition> conditions, Long cutOffDateMillis) {
-    return conditions.parallelStream()
-        .filter(c -> c.hasRecordedDate() && c.getRecordedDate().getTime() >= cutOffDateMillis)
-        .toList();
-  }
-
-  /**
-   * Filters observations to include only those with an effective date after the given cutoff date.
-   *
-   * @param observations List of UkbObservation resources to filter.
-   * @param cutOffDateMillis The cutoff date for filtering.
-   * @return A list of observations effective after the cutoff date.
-   */
-  private List<MiiObservation> filterObservationsAfterDate(
-      List<MiiObservation> observations, Long cutOffDateMillis) {
-    return observations.parallelStream()
-        .filter(
-            o ->
-                o.hasEffective()
-                    && o.getEffectiveDateTimeType().getValue().getTime() > cutOffDateMillis)
-        .toList();
+  private static String getIdOrEmpty(Resource resource) {
+    return resource != null ? resource.getId() : "";
   }
 
   private void logFilteredCounts(
@@ -1519,6 +1549,26 @@ public class DataItemGenerator {
     return dataItem + "." + DEBUG;
   }
 
+  /** Debug entry with the case ids of the given encounters. */
+  private static Supplier<String[]> encounterIds(List<MiiEncounter> encounters) {
+    return () -> encounters.stream().map(Encounter::getId).toArray(String[]::new);
+  }
+
+  /** Debug entry with the case ids of the given encounters, grouped by patient id. */
+  private static Supplier<Map<String, List<String>>> caseIdsByPatient(
+      List<MiiEncounter> encounters) {
+    return () -> getCaseIdsByPatient(encounters);
+  }
+
+  /**
+   * Lazy debug entry with the patient ids of the given patient bitmap. Only the bitmap and the
+   * interned patient ids are captured.
+   */
+  private static Supplier<Set<String>> patientIds(PatientBitmap patients, DashboardData dbData) {
+    IdInterner patientIds = dbData.getEncounterPatientIndex().getPatientIds();
+    return () -> patients.toIds(patientIds);
+  }
+
   protected void reportMissingFields(List<MiiEncounter> encounters) {
     // Encounter.period.start is mandatory and critical for many data items
     List<String> casesWithoutPeriodStart =
@@ -1673,6 +1723,7 @@ public class DataItemGenerator {
    * Removes duplicate patient IDs (pids) from treatment levels, keeping only valid entries in each
    * list.
    *
+   * @param encounterPatientIndex The patient index of the run that holds the interned patient ids
    * @param cumulativeOutpatientEncounter List of outpatient cases for cumulative logic
    * @param cumulativeStandardWardEncounter List of standard ward cases for cumulative logic
    * @param cumulativeIcuEncounter List of ICU cases for cumulative logic
@@ -1680,18 +1731,20 @@ public class DataItemGenerator {
    * @param cumulativeIcuEcmoEncounter List of ECMO cases for cumulative logic
    */
   private void removeDuplicatePids(
+      EncounterPatientIndex encounterPatientIndex,
       List<MiiEncounter> cumulativeOutpatientEncounter,
       List<MiiEncounter> cumulativeStandardWardEncounter,
       List<MiiEncounter> cumulativeIcuEncounter,
       List<MiiEncounter> cumulativeIcuVentEncounter,
       List<MiiEncounter> cumulativeIcuEcmoEncounter) {
 
-    // Create sets of patient IDs for each encounter type
-    Set<String> pidsOutpatient = createPidList(cumulativeOutpatientEncounter);
-    Set<String> pidsStandardWard = createPidList(cumulativeStandardWardEncounter);
-    Set<String> pidsIcu = createPidList(cumulativeIcuEncounter);
-    Set<String> pidsVent = createPidList(cumulativeIcuVentEncounter);
-    Set<String> pidsEcmo = createPidList(cumulativeIcuEcmoEncounter);
+    // Create bitsets of the patient indexes for each encounter type
+    ToIntFunction<String> patientIndexes = createPatientIndexLookup(encounterPatientIndex);
+    BitSet pidsOutpatient = createPidBitSet(cumulativeOutpatientEncounter, patientIndexes);
+    BitSet pidsStandardWard = createPidBitSet(cumulativeStandardWardEncounter, patientIndexes);
+    BitSet pidsIcu = createPidBitSet(cumulativeIcuEncounter, patientIndexes);
+    BitSet pidsVent = createPidBitSet(cumulativeIcuVentEncounter, patientIndexes);
+    BitSet pidsEcmo = createPidBitSet(cumulativeIcuEcmoEncounter, patientIndexes);
 
     // Helper method to remove duplicate patient IDs across levels
     removeDuplicates(pidsOutpatient, pidsStandardWard, pidsIcu, pidsVent, pidsEcmo);
@@ -1700,49 +1753,71 @@ public class DataItemGenerator {
     removeDuplicates(pidsVent, pidsEcmo);
 
     // Filter each encounter list based on updated patient IDs
-    filterEncounters(cumulativeOutpatientEncounter, pidsOutpatient);
-    filterEncounters(cumulativeStandardWardEncounter, pidsStandardWard);
-    filterEncounters(cumulativeIcuEncounter, pidsIcu);
-    filterEncounters(cumulativeIcuVentEncounter, pidsVent);
-    filterEncounters(cumulativeIcuEcmoEncounter, pidsEcmo);
+    filterEncounters(cumulativeOutpatientEncounter, pidsOutpatient, patientIndexes);
+    filterEncounters(cumulativeStandardWardEncounter, pidsStandardWard, patientIndexes);
+    filterEncounters(cumulativeIcuEncounter, pidsIcu, patientIndexes);
+    filterEncounters(cumulativeIcuVentEncounter, pidsVent, patientIndexes);
+    filterEncounters(cumulativeIcuEcmoEncounter, pidsEcmo, patientIndexes);
   }
 
   private void removeDuplicatePids(
+      EncounterPatientIndex encounterPatientIndex,
       List<MiiEncounter> cumulativeOutpatientEncounter,
       List<MiiEncounter> cumulativeStandardWardEncounter,
       List<MiiEncounter> cumulativeIcuUndiffEncounter) {
 
-    // Create sets of patient IDs for each encounter type
-    Set<String> pidsOutpatient = createPidList(cumulativeOutpatientEncounter);
-    Set<String> pidsStandardWard = createPidList(cumulativeStandardWardEncounter);
-    Set<String> pidsIcuUndiff = createPidList(cumulativeIcuUndiffEncounter);
+    // Create bitsets of the patient indexes for each encounter type
+    ToIntFunction<String> patientIndexes = createPatientIndexLookup(encounterPatientIndex);
+    BitSet pidsOutpatient = createPidBitSet(cumulativeOutpatientEncounter, patientIndexes);
+    BitSet pidsStandardWard = createPidBitSet(cumulativeStandardWardEncounter, patientIndexes);
+    BitSet pidsIcuUndiff = createPidBitSet(cumulativeIcuUndiffEncounter, patientIndexes);
 
     // Helper method to remove duplicate patient IDs across levels
     removeDuplicates(pidsOutpatient, pidsStandardWard, pidsIcuUndiff);
     removeDuplicates(pidsStandardWard, pidsIcuUndiff);
 
     // Filter each encounter list based on updated patient IDs
-    filterEncounters(cumulativeOutpatientEncounter, pidsOutpatient);
-    filterEncounters(cumulativeStandardWardEncounter, pidsStandardWard);
+    filterEncounters(cumulativeOutpatientEncounter, pidsOutpatient, patientIndexes);
+    filterEncounters(cumulativeStandardWardEncounter, pidsStandardWard, patientIndexes);
   }
 
-  /** Removes duplicate patient IDs from a base set compared to other sets. */
-  @SafeVarargs
-  private void removeDuplicates(Set<String> baseSet, Set<String>... otherSets) {
-    for (Set<String> otherSet : otherSets) {
-      baseSet.removeAll(otherSet);
+  /** Removes duplicate patient indexes from a base set compared to other sets. */
+  private void removeDuplicates(BitSet baseSet, BitSet... otherSets) {
+    for (BitSet otherSet : otherSets) {
+      baseSet.andNot(otherSet);
     }
   }
 
-  /** Filters the given encounter list by retaining only entries with valid patient IDs. */
-  private void filterEncounters(List<MiiEncounter> encounters, Set<String> validPids) {
-    encounters.removeIf(e -> !validPids.contains(e.getPatientId()));
+  /** Filters the given encounter list by retaining only entries with valid patient indexes. */
+  private void filterEncounters(
+      List<MiiEncounter> encounters, BitSet validPids, ToIntFunction<String> patientIndexes) {
+    encounters.removeIf(e -> !validPids.get(patientIndexes.applyAsInt(e.getPatientId())));
   }
 
-  private Set<String> createPidList(List<MiiEncounter> listCumulativeEncounter) {
-    return listCumulativeEncounter.parallelStream()
-        .map(MiiEncounter::getPatientId)
-        .collect(Collectors.toSet());
+  private BitSet createPidBitSet(
+      List<MiiEncounter> listCumulativeEncounter, ToIntFunction<String> patientIndexes) {
+    BitSet result = new BitSet();
+    listCumulativeEncounter.forEach(e -> result.set(patientIndexes.applyAsInt(e.getPatientId())));
+    return result;
+  }
+
+  /**
+   * Maps patient ids to the indexes of the {@link EncounterPatientIndex}. Ids the index doesn't
+   * know, including {@code null}, get local indexes after them, so encounters without a known
+   * patient get deduplicated across the levels like all others.
+   */
+  private static ToIntFunction<String> createPatientIndexLookup(
+      EncounterPatientIndex encounterPatientIndex) {
+    IdInterner patientIds = encounterPatientIndex.getPatientIds();
+    Map<String, Integer> unknownPatientIndexes = new HashMap<>();
+    return patientId -> {
+      int patientIndex = patientIds.indexOf(patientId);
+      if (patientIndex != IdInterner.UNKNOWN) {
+        return patientIndex;
+      }
+      return unknownPatientIndexes.computeIfAbsent(
+          patientId, _ -> patientIds.size() + unknownPatientIndexes.size());
+    };
   }
 
   private void setMapCurrentTreatmentlevelCaseIds(
@@ -1793,7 +1868,7 @@ public class DataItemGenerator {
       List<MiiEncounter> facilityEncounters,
       String label,
       Map<String, Map<Long, Set<String>>> mapDays,
-      boolean debug,
+      DebugSink debugSink,
       VitalStatus vitalStatus,
       List<DiseaseDataItem> currentDataList) {
 
@@ -1801,9 +1876,8 @@ public class DataItemGenerator {
     Map<String, Map<Long, Set<String>>> mapDaysFiltered =
         createLengthOfStayHospitalByVitalstatus(facilityEncounters, mapDays, vitalStatus);
 
-    // Sum days per patient and keep case ids for debug
+    // Sum days per patient
     Map<String, Long> totalDaysPerPatient = new HashMap<>();
-    Map<String, Set<String>> caseIdsPerPatient = new HashMap<>();
     mapDaysFiltered.forEach(
         (patientId, daysMap) -> {
           long totalDays =
@@ -1811,10 +1885,7 @@ public class DataItemGenerator {
                   // multiplication needed because cases can have the same length of stay
                   .mapToLong(e -> e.getKey() * e.getValue().size())
                   .sum();
-          Set<String> allCaseIds =
-              daysMap.values().stream().flatMap(Set::stream).collect(Collectors.toSet());
           totalDaysPerPatient.put(patientId, totalDays);
-          caseIdsPerPatient.put(patientId, allCaseIds);
         });
 
     // Keep sorted output
@@ -1824,24 +1895,27 @@ public class DataItemGenerator {
     List<Long> hospitalDays =
         sortedPatients.stream().map(Map.Entry::getValue).collect(Collectors.toList());
 
-    List<Map<String, Set<String>>> debugPerPatient =
-        sortedPatients.stream()
-            .map(e -> Map.of(e.getKey(), caseIdsPerPatient.get(e.getKey())))
-            .collect(Collectors.toList());
-
-    // Add data to currentDataList
+    // Add data to currentDataList; the case ids per patient are only collected for the debug item
     currentDataList.add(new DiseaseDataItem(label, ITEMTYPE_LIST, hospitalDays));
-    if (debug) {
-      currentDataList.add(
-          new DiseaseDataItem(addDebugLabel(label), ITEMTYPE_DEBUG, debugPerPatient));
-    }
+    debugSink
+        .addAll(
+            () ->
+                sortedPatients.stream()
+                    .map(
+                        e ->
+                            Map.of(
+                                e.getKey(),
+                                mapDaysFiltered.get(e.getKey()).values().stream()
+                                    .flatMap(Set::stream)
+                                    .collect(Collectors.toSet()))))
+        .addTo(currentDataList, addDebugLabel(label));
   }
 
   // Method to create cumulative length of stay ICU data for different vital statuses
   private void createCumulativeLengthOfStayIcuData(
       String label,
       Map<TreatmentLevels, List<MiiEncounter>> mapIcuDiseasePositiveOverall,
-      boolean debug,
+      DebugSink debugSink,
       VitalStatus vitalStatus,
       List<DiseaseDataItem> currentDataList,
       Map<String, Map<Long, Set<String>>> mapIcuLengthList) {
@@ -1864,17 +1938,14 @@ public class DataItemGenerator {
     // Sort ICU entries based on ICU hours
     icuEntries.sort(Comparator.comparingLong(Entry::getKey));
 
-    // Extract ICU hours and case IDs maintaining the association
+    // Extract ICU hours maintaining the association with the case IDs
     List<Long> listHours = icuEntries.stream().map(Entry::getKey).collect(Collectors.toList());
-    List<String> caseIds = new ArrayList<>();
-    // Ensure case IDs are ordered according to listHours
-    icuEntries.forEach(entry -> caseIds.addAll(entry.getValue()));
 
-    // Add data to currentDataList
+    // Add data to currentDataList; the case IDs are ordered according to listHours
     currentDataList.add(new DiseaseDataItem(label, ITEMTYPE_LIST, listHours));
-    if (debug) {
-      currentDataList.add(new DiseaseDataItem(addDebugLabel(label), ITEMTYPE_DEBUG, caseIds));
-    }
+    debugSink
+        .addAll(() -> icuEntries.stream().flatMap(entry -> entry.getValue().stream()))
+        .addTo(currentDataList, addDebugLabel(label));
   }
 
   private void processIcuTreatmentLevel(
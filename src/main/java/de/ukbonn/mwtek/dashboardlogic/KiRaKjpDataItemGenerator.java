@@ -17,7 +17,6 @@
  */
 package de.ukbonn.mwtek.dashboardlogic;
 
-import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_DEBUG;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_GROUPED_BAR_CHARTS_CALC;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_STACKED_BAR_CHARTS;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_STACKED_BAR_CHARTS_UNIFORM;
@@ -55,11 +54,13 @@ import de.ukbonn.mwtek.dashboardlogic.logic.KiraHandlingLogic;
 import de.ukbonn.mwtek.dashboardlogic.logic.KiraHandlingLogic.MergeResult;
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.KiraTimelineDisorders;
 import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData;
+import de.ukbonn.mwtek.dashboardlogic.models.DebugSink;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
 import de.ukbonn.mwtek.dashboardlogic.settings.GlobalConfiguration;
 import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
 import de.ukbonn.mwtek.dashboardlogic.settings.QualitativeLabCodesSettings;
 import de.ukbonn.mwtek.dashboardlogic.settings.VariantSettings;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
 import de.ukbonn.mwtek.dashboardlogic.tools.DataBuilder;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiCondition;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
@@ -128,7 +129,6 @@ public class KiRaKjpDataItemGenerator extends DataItemGenerator {
     if (mapExcludeDataItems == null) {
       mapExcludeDataItems = new HashMap<>();
     }
-    boolean debug = globalConfiguration.getDebug();
 
     // If there are resources with unfilled mandatory attributes, report them immediately (may give
     // partially reduced result sets)
@@ -290,7 +290,12 @@ public class KiRaKjpDataItemGenerator extends DataItemGenerator {
     // timeline.diags.occurrence
     String tlKjpOccurrenceLabel = determineKiRaLabel(KJP, TIMELINE_DIAGS_OCCURRENCE);
     if (isItemNotExcluded(mapExcludeDataItems, tlKjpOccurrenceLabel, false)) {
-      KiraTimelineDisorders item = new DataBuilder().buildKiraTimelineDisorders();
+      DebugSink debugSink = DebugSink.of(globalConfiguration);
+      KiraTimelineDisorders item =
+          new DataBuilder()
+              .debugSink(debugSink)
+              .clock(DashboardClock.of(globalConfiguration))
+              .buildKiraTimelineDisorders();
       currentDataList.add(
           new DiseaseDataItem(
               tlKjpOccurrenceLabel,
@@ -299,11 +304,7 @@ public class KiRaKjpDataItemGenerator extends DataItemGenerator {
                   .kidsRadarDataItemContext(KJP)
                   .coreCaseDataByGroups(coreCaseDataByKjpDiagnosis)
                   .buildKiraTimelineDisordersItem(item)));
-      if (debug) {
-        currentDataList.add(
-            new DiseaseDataItem(
-                addDebugLabel(tlKjpOccurrenceLabel), ITEMTYPE_DEBUG, item.getDebugData()));
-      }
+      debugSink.addTo(currentDataList, addDebugLabel(tlKjpOccurrenceLabel));
     }
 
     // timeline.age
@@ -317,6 +318,7 @@ public class KiRaKjpDataItemGenerator extends DataItemGenerator {
                   .dbData(kiraData)
                   .kidsRadarDataItemContext(KJP)
                   .coreCaseDataByGroups(coreCaseDataByKjpDiagnosis)
+                  .clock(DashboardClock.of(globalConfiguration))
                   .buildTimelineAgeKjp()));
     }
 
@@ -390,6 +392,7 @@ public class KiRaKjpDataItemGenerator extends DataItemGenerator {
                   .dbData(kiraData)
                   .kidsRadarDataItemContext(KJP)
                   .coreCaseDataByGroups(coreCaseDataByKjpDiagnosis)
+                  .clock(DashboardClock.of(globalConfiguration))
                   .buildTimelineAdmission()));
     }
 
@@ -404,6 +407,7 @@ public class KiRaKjpDataItemGenerator extends DataItemGenerator {
                   .dbData(kiraData)
                   .kidsRadarDataItemContext(KJP)
                   .coreCaseDataByGroups(coreCaseDataByKjpDiagnosis)
+                  .clock(DashboardClock.of(globalConfiguration))
                   .buildTimelineDiagsAdmission()));
     }
 
@@ -19,7 +19,6 @@ package de.ukbonn.mwtek.dashboardlogic;
 
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_AGGREGATED;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_CHART_LIST;
-import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_DEBUG;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_LIST;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_STACKED_BAR_CHARTS;
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItems.CUMULATIVE_DIAGS_AGE;
@@ -51,12 +50,15 @@ import de.ukbonn.mwtek.dashboardlogic.enums.KidsRadarDataItemContext;
 import de.ukbonn.mwtek.dashboardlogic.logic.KiraData;
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.KiraTimelineDisorders;
 import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData;
+import de.ukbonn.mwtek.dashboardlogic.models.DebugSink;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
 import de.ukbonn.mwtek.dashboardlogic.models.FacilityContactIcuLocationMap;
+import de.ukbonn.mwtek.dashboardlogic.models.IcuLocationRegistry;
 import de.ukbonn.mwtek.dashboardlogic.settings.GlobalConfiguration;
 import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
 import de.ukbonn.mwtek.dashboardlogic.settings.QualitativeLabCodesSettings;
 import de.ukbonn.mwtek.dashboardlogic.settings.VariantSettings;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
 import de.ukbonn.mwtek.dashboardlogic.tools.DataBuilder;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiCondition;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
@@ -127,7 +129,6 @@ public class KiRaPedDataItemGenerator extends DataItemGenerator {
       mapExcludeDataItems = new HashMap<>();
     }
     boolean useIcuUndiff = globalConfiguration.getUseIcuUndifferentiated();
-    boolean debug = globalConfiguration.getDebug();
 
     // If there are resources with unfilled mandatory attributes, report them immediately (may give
     // partially reduced result sets)
@@ -164,8 +165,9 @@ public class KiRaPedDataItemGenerator extends DataItemGenerator {
               + " filtered.");
     }
 
+    IcuLocationRegistry icuLocationRegistry = new IcuLocationRegistry(locations);
     FacilityContactIcuLocationMap facilityContactIcuLocationMap =
-        new FacilityContactIcuLocationMap(supplyContacts, locations);
+        new FacilityContactIcuLocationMap(supplyContacts, icuLocationRegistry);
 
     // Logging of unexpected attribute assignments within the resources.
     reportAttributeArtifacts(facilityContactEncountersInpatient);
@@ -235,6 +237,7 @@ public class KiRaPedDataItemGenerator extends DataItemGenerator {
         locations,
         procedures,
         dataItemContext);
+    kiraData.withIcuLocationRegistry(icuLocationRegistry);
     // The rsv data items rely on less filter (and merging steps) than the items that are based
     // on disorder groups.
     kiraData.setFacilityEncountersRsv(
@@ -425,7 +428,12 @@ public class KiRaPedDataItemGenerator extends DataItemGenerator {
 
     String tlRsvOccurrenceLabel = determineKiRaLabel(PED_RSV, TIMELINE_DIAGS_OCCURRENCE);
     if (isItemNotExcluded(mapExcludeDataItems, tlRsvOccurrenceLabel, false)) {
-      KiraTimelineDisorders item = new DataBuilder().buildKiraTimelineDisorders();
+      DebugSink debugSink = DebugSink.of(globalConfiguration);
+      KiraTimelineDisorders item =
+          new DataBuilder()
+              .debugSink(debugSink)
+              .clock(DashboardClock.of(globalConfiguration))
+              .buildKiraTimelineDisorders();
       resultDataItems.add(
           new DiseaseDataItem(
               tlRsvOccurrenceLabel,
@@ -434,11 +442,7 @@ public class KiRaPedDataItemGenerator extends DataItemGenerator {
                   .kidsRadarDataItemContext(KidsRadarDataItemContext.PED)
                   .coreCaseDataByGroups(coreCaseDataByRsvDiagnosis)
                   .buildKiraRsvTimelineDiagsItem(item)));
-      if (debug) {
-        resultDataItems.add(
-            new DiseaseDataItem(
-                addDebugLabel(tlRsvOccurrenceLabel), ITEMTYPE_DEBUG, item.getDebugData()));
-      }
+      debugSink.addTo(resultDataItems, addDebugLabel(tlRsvOccurrenceLabel));
     }
 
     // kira.ped.rsv.timeline.age
@@ -116,6 +116,8 @@ public class DataItems {
   public static final String CURRENT_RECRUITMENT = "current.recruitment";
   public static final String TIMELINE_RECRUITMENT = "timeline.recruitment";
   public static final String CURRENT_DISCHARGEDIAGS_COHORTS = "current.dischargediags.cohorts";
+  public static final String CURRENT_DISCHARGEDIAGS_COHORTS_OVERLAP =
+      CURRENT_DISCHARGEDIAGS_COHORTS + ".overlap";
   public static final String TIMELINE_DISCHARGEDIAGS_COHORTS = "timeline.dischargediags.cohorts";
 
   public static final String CURRENT_ZIPCODE = "current.zipcode";
@@ -21,13 +21,18 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.AcribisCohortIcdCodes.EXCLUSI
 import static de.ukbonn.mwtek.dashboardlogic.enums.AcribisCohortIcdCodes.EXCLUSION_CRITERIA_COHORT_3;
 import static de.ukbonn.mwtek.dashboardlogic.enums.AcribisCohortIcdCodes.INCLUSION_CRITERIA_COHORT_1;
 import static de.ukbonn.mwtek.dashboardlogic.enums.AcribisCohortIcdCodes.INCLUSION_CRITERIA_COHORT_2;
+import static de.ukbonn.mwtek.dashboardlogic.logic.CohortLogic.CohortCriterion.COHORT_1_EXCLUSION;
+import static de.ukbonn.mwtek.dashboardlogic.logic.CohortLogic.CohortCriterion.COHORT_1_INCLUSION;
+import static de.ukbonn.mwtek.dashboardlogic.logic.CohortLogic.CohortCriterion.COHORT_2_EXCLUSION;
+import static de.ukbonn.mwtek.dashboardlogic.logic.CohortLogic.CohortCriterion.COHORT_2_INCLUSION;
+import static de.ukbonn.mwtek.dashboardlogic.logic.CohortLogic.CohortCriterion.COHORT_3_EXCLUSION;
+import static de.ukbonn.mwtek.dashboardlogic.logic.CohortLogic.CohortCriterion.COHORT_3_INCLUSION;
 
 import de.ukbonn.mwtek.dashboardlogic.enums.AcribisCohortIcdCodes;
 import de.ukbonn.mwtek.dashboardlogic.enums.AcribisCohortOpsCodes;
-import de.ukbonn.mwtek.dashboardlogic.models.PidTimestampCohortMap;
+import de.ukbonn.mwtek.dashboardlogic.models.CohortAssignment;
+import de.ukbonn.mwtek.dashboardlogic.tools.CodePrefixMatcher;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiConsent;
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,53 +40,61 @@ import java.util.stream.Collectors;
 
 public class CohortLogic {
 
-  public static PidTimestampCohortMap getCohort1(
-      Map<String, Set<String>> pidDiagnoses, List<MiiConsent> consents) {
-
-    return buildCohort(
-        pidDiagnoses,
-        null,
-        consents,
-        INCLUSION_CRITERIA_COHORT_1,
-        null,
-        EXCLUSION_CRITERIA_COHORT_1);
-  }
-
-  public static PidTimestampCohortMap getCohort2(
-      Map<String, Set<String>> pidDiagnoses, List<MiiConsent> consents) {
-
-    return buildCohort(
-        pidDiagnoses,
-        null,
-        consents,
-        INCLUSION_CRITERIA_COHORT_2,
-        null,
-        EXCLUSION_CRITERIA_COHORT_2);
+  /** The code lists that decide about the membership in the acribis cohorts. */
+  public enum CohortCriterion {
+    COHORT_1_INCLUSION,
+    COHORT_1_EXCLUSION,
+    COHORT_2_INCLUSION,
+    COHORT_2_EXCLUSION,
+    COHORT_3_INCLUSION,
+    COHORT_3_EXCLUSION
   }
 
-  public static PidTimestampCohortMap getCohort3(
+  /** All ICD cohort criteria, compiled once into a prefix trie. */
+  private static final CodePrefixMatcher<CohortCriterion> ICD_CRITERIA_MATCHER =
+      CodePrefixMatcher.of(
+          Map.of(
+              COHORT_1_INCLUSION, INCLUSION_CRITERIA_COHORT_1,
+              COHORT_1_EXCLUSION, EXCLUSION_CRITERIA_COHORT_1,
+              COHORT_2_INCLUSION, INCLUSION_CRITERIA_COHORT_2,
+              COHORT_2_EXCLUSION, EXCLUSION_CRITERIA_COHORT_2,
+              COHORT_3_INCLUSION, AcribisCohortIcdCodes.INCLUSION_CRITERIA_COHORT_3,
+              COHORT_3_EXCLUSION, EXCLUSION_CRITERIA_COHORT_3));
+
+  /** All OPS cohort criteria, compiled once into a prefix trie. */
+  private static final CodePrefixMatcher<CohortCriterion> OPS_CRITERIA_MATCHER =
+      CodePrefixMatcher.of(
+          Map.of(COHORT_3_INCLUSION, AcribisCohortOpsCodes.INCLUSION_CRITERIA_COHORT_3));
+
+  /**
+   * The inclusion and exclusion criterion of each cohort; the position in the list is the cohort
+   * index in the {@link CohortAssignment}.
+   */
+  private static final List<CohortRule> COHORT_RULES =
+      List.of(
+          new CohortRule(COHORT_1_INCLUSION, COHORT_1_EXCLUSION),
+          new CohortRule(COHORT_2_INCLUSION, COHORT_2_EXCLUSION),
+          new CohortRule(COHORT_3_INCLUSION, COHORT_3_EXCLUSION));
+
+  private record CohortRule(CohortCriterion inclusion, CohortCriterion exclusion) {}
+
+  /**
+   * Evaluates all cohort rules in one pass over the patients. A patient belongs to a cohort if at
+   * least one diagnosis or procedure code matches the inclusion criterion, no diagnosis code
+   * matches the exclusion criterion and an acribis consent exists. The permit start date of the
+   * first acribis consent is used as entry date into the cohorts.
+   *
+   * @param pidDiagnoses The ICD codes by patient id.
+   * @param pidProcedures The OPS codes by patient id (optional).
+   * @param consents The consents that deliver the timestamp of the cohort entry.
+   * @return The cohorts of each patient, with the cohort index {@code n - 1} for cohort {@code n}.
+   */
+  public static CohortAssignment evaluateCohorts(
       Map<String, Set<String>> pidDiagnoses,
       Map<String, Set<String>> pidProcedures,
       List<MiiConsent> consents) {
 
-    return buildCohort(
-        pidDiagnoses,
-        pidProcedures,
-        consents,
-        AcribisCohortIcdCodes.INCLUSION_CRITERIA_COHORT_3,
-        AcribisCohortOpsCodes.INCLUSION_CRITERIA_COHORT_3,
-        EXCLUSION_CRITERIA_COHORT_3);
-  }
-
-  public static PidTimestampCohortMap buildCohort(
-      Map<String, Set<String>> pidDiagnoses,
-      Map<String, Set<String>> pidProcedures,
-      List<MiiConsent> consents,
-      List<String> inclusionDiagnoses,
-      List<String> inclusionProcedures,
-      List<String> exclusionDiagnoses) {
-
-    PidTimestampCohortMap pidTimestampCohortMap = new PidTimestampCohortMap();
+    CohortAssignment cohortAssignment = new CohortAssignment(COHORT_RULES.size());
 
     Map<String, MiiConsent> firstConsentByPid =
         consents.stream()
@@ -92,32 +105,29 @@ public class CohortLogic {
                     c -> c,
                     (existing, replacement) -> existing)); // Keep first
 
-    for (String pid : pidDiagnoses.keySet()) {
-      Set<String> diagnoses = pidDiagnoses.getOrDefault(pid, new HashSet<>());
-      Set<String> procedures =
-          pidProcedures != null
-              ? pidProcedures.getOrDefault(pid, new HashSet<>())
-              : new HashSet<>();
-
-      boolean hasInclusion =
-          matchesInclusionCriteria(diagnoses, inclusionDiagnoses)
-              || matchesInclusionCriteria(procedures, inclusionProcedures);
+    for (Map.Entry<String, Set<String>> entry : pidDiagnoses.entrySet()) {
+      String pid = entry.getKey();
+      MiiConsent firstConsent = firstConsentByPid.get(pid);
+      if (firstConsent == null) {
+        continue;
+      }
+      // All criteria that are matched by any diagnosis or procedure code of the patient
+      Set<CohortCriterion> matchedCriteria = ICD_CRITERIA_MATCHER.getMatches(entry.getValue());
+      if (pidProcedures != null) {
+        matchedCriteria.addAll(OPS_CRITERIA_MATCHER.getMatches(pidProcedures.get(pid)));
+      }
 
-      if (hasInclusion && firstConsentByPid.containsKey(pid)) {
-        boolean hasExclusion = matchesInclusionCriteria(diagnoses, exclusionDiagnoses);
-        if (!hasExclusion) {
-          pidTimestampCohortMap.put(pid, firstConsentByPid.get(pid).getAcribisPermitStartDate());
+      int cohortMask = 0;
+      for (int i = 0; i < COHORT_RULES.size(); i++) {
+        CohortRule rule = COHORT_RULES.get(i);
+        if (matchedCriteria.contains(rule.inclusion())
+            && !matchedCriteria.contains(rule.exclusion())) {
+          cohortMask |= 1 << i;
         }
       }
+      cohortAssignment.assign(pid, cohortMask, firstConsent.getAcribisPermitStartDate());
     }
 
-    return pidTimestampCohortMap;
-  }
-
-  private static boolean matchesInclusionCriteria(
-      Collection<String> codes, Collection<String> criteriaPrefixes) {
-    return codes != null
-        && criteriaPrefixes != null
-        && codes.stream().anyMatch(code -> criteriaPrefixes.stream().anyMatch(code::startsWith));
+    return cohortAssignment;
   }
 }
@@ -23,10 +23,15 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.KidsRadarConstants.MEAN_LENGT
 import static de.ukbonn.mwtek.dashboardlogic.enums.KidsRadarConstants.RSV_PREFIX;
 import static de.ukbonn.mwtek.dashboardlogic.tools.ObservationFilter.getObservationsByContext;
 import static de.ukbonn.mwtek.dashboardlogic.tools.ObservationFilter.getVariantObservationsByContext;
+import static de.ukbonn.mwtek.dashboardlogic.tools.PatientFilter.indexPatientsById;
 
 import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
+import de.ukbonn.mwtek.dashboardlogic.models.EncounterPatientIndex;
+import de.ukbonn.mwtek.dashboardlogic.models.IcuLocationRegistry;
 import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
 import de.ukbonn.mwtek.dashboardlogic.settings.QualitativeLabCodesSettings;
+import de.ukbonn.mwtek.dashboardlogic.tools.DataBuilder;
+import de.ukbonn.mwtek.dashboardlogic.tools.DataBuilderCache;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiCondition;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiLocation;
@@ -61,6 +66,18 @@ public class DashboardData {
   @Getter private List<MiiEncounter> supplyContactEncounters;
   @Getter private List<MiiEncounter> facilityContactEncounters;
 
+  /** The patients above by their id; created in {@link #initializeData}. */
+  @Getter private Map<String, MiiPatient> patientsById;
+
+  /** ICU location lookup of the run; created from the locations on first access. */
+  private IcuLocationRegistry icuLocationRegistry;
+
+  /** Patient index of the facility contacts; created on first access. */
+  private EncounterPatientIndex encounterPatientIndex;
+
+  /** Memo cache for the {@link DataBuilder} results; invalidated by {@link #initializeData}. */
+  @Getter private final DataBuilderCache dataBuilderCache = new DataBuilderCache();
+
   private static Map<String, Integer> encounterAgeMap = null;
   private static boolean encounterAgeMapInitialized = false; // Flag to check if map is initialized
   private static AtomicReference<Map<String, Integer>> encounterAgeMapRef =
@@ -82,6 +99,8 @@ public class DashboardData {
       List<MiiLocation> locations,
       List<MiiProcedure> icuProcedures,
       DataItemContext dataItemContext) {
+    // Results that got calculated on the former input lists are no longer valid
+    dataBuilderCache.invalidate();
     this.inputCodeSettings = inputCodeSettings;
     this.qualitativeLabCodesSettings = qualitativeLabCodesSettings;
     this.encounters = encounters;
@@ -99,12 +118,43 @@ public class DashboardData {
       }
     }
     this.locations = locations;
+    this.icuLocationRegistry = null;
     if (encounters != null) {
       this.facilityContactEncounters =
           encounters.parallelStream().filter(MiiEncounter::isFacilityContact).toList();
       this.supplyContactEncounters =
           encounters.parallelStream().filter(MiiEncounter::isSupplyContact).toList();
     }
+    this.patientsById = indexPatientsById(patients);
+    this.encounterPatientIndex = null;
+    return this;
+  }
+
+  /**
+   * Hands over an {@link IcuLocationRegistry} that the caller already built from the same locations
+   * as given to {@link #initializeData}, so it doesn't get built a second time.
+   */
+  public DashboardData withIcuLocationRegistry(IcuLocationRegistry icuLocationRegistry) {
+    this.icuLocationRegistry = icuLocationRegistry;
     return this;
   }
+
+  /** Returns the {@link IcuLocationRegistry} of the locations of the run. */
+  public synchronized IcuLocationRegistry getIcuLocationRegistry() {
+    if (icuLocationRegistry == null) {
+      icuLocationRegistry = new IcuLocationRegistry(locations);
+    }
+    return icuLocationRegistry;
+  }
+
+  /**
+   * Returns the {@link EncounterPatientIndex} of the facility contacts and patients of the run.
+   * It's built on first access, so generator runs that don't need it skip its creation.
+   */
+  public synchronized EncounterPatientIndex getEncounterPatientIndex() {
+    if (encounterPatientIndex == null) {
+      encounterPatientIndex = new EncounterPatientIndex(facilityContactEncounters, patients);
+    }
+    return encounterPatientIndex;
+  }
 }
@@ -25,11 +25,9 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels.ICU_UNDIFF;
 import static de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels.ICU_VENTILATION;
 import static de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels.INPATIENT;
 import static de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels.OUTPATIENT;
-import static de.ukbonn.mwtek.dashboardlogic.tools.LocationFilter.getIcuLocationIds;
 import static de.ukbonn.mwtek.dashboardlogic.tools.ObservationFilter.getObservationsByContext;
 import static de.ukbonn.mwtek.dashboardlogic.tools.ObservationFilter.getPatientIdsByObsInterpretation;
 import static de.ukbonn.mwtek.dashboardlogic.tools.ObservationFilter.getPatientIdsByObsValue;
-import static de.ukbonn.mwtek.utilities.enums.TerminologySystems.SNOMED;
 import static de.ukbonn.mwtek.utilities.fhir.mapping.kdscase.valuesets.KdsEncounterFixedValues.IDENTIFIER_TYPE_VISIT_NUMBER_CC;
 
 import de.ukbonn.mwtek.dashboardlogic.enums.DashboardLogicFixedValues;
@@ -41,7 +39,10 @@ import de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants.Covid;
 import de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants.Influenza;
 import de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants.KidsRadar;
 import de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels;
+import de.ukbonn.mwtek.dashboardlogic.models.CaseProcedureIndex;
+import de.ukbonn.mwtek.dashboardlogic.models.EncounterHierarchyIndex;
 import de.ukbonn.mwtek.dashboardlogic.models.FacilityEncounterToIcuSupplyContactsMap;
+import de.ukbonn.mwtek.dashboardlogic.models.IcuLocationRegistry;
 import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
 import de.ukbonn.mwtek.dashboardlogic.settings.QualitativeLabCodesSettings;
 import de.ukbonn.mwtek.dashboardlogic.tools.EncounterFilter;
@@ -107,6 +108,32 @@ public class DiseaseResultFunctionality {
       List<MiiProcedure> icuProcedures,
       InputCodeSettings inputCodeSettings,
       boolean useIcuUndiff) {
+    return createIcuMap(
+        encounters,
+        supplyContactEncounters,
+        new IcuLocationRegistry(locations),
+        new CaseProcedureIndex(icuProcedures, inputCodeSettings),
+        useIcuUndiff);
+  }
+
+  /**
+   * same procedure as createCurrentIcuMap, just for everything besides the current logic
+   *
+   * @param encounters A list with {@linkplain MiiEncounter} resources.
+   * @param icuLocationRegistry The {@link IcuLocationRegistry} to figure out which supply contact
+   *     took place on an icu location.
+   * @param caseProcedureIndex The {@link CaseProcedureIndex} with the ECMO / artificial
+   *     ventilation procedures per case.
+   * @param useIcuUndiff If {@code true}, all ICU-related cases (ICU, ventilation, ECMO) are merged
+   *     into the {@link TreatmentLevels#ICU_UNDIFF} category.
+   * @return Map on which ICU cases are separated according to ICU, ventilation and Ecmo
+   */
+  public static Map<TreatmentLevels, List<MiiEncounter>> createIcuMap(
+      List<MiiEncounter> encounters,
+      List<MiiEncounter> supplyContactEncounters,
+      IcuLocationRegistry icuLocationRegistry,
+      CaseProcedureIndex caseProcedureIndex,
+      boolean useIcuUndiff) {
     log.debug("started createIcuMap");
 
     // List of stationary Cases
@@ -122,14 +149,9 @@ public class DiseaseResultFunctionality {
     Instant start = TimerTools.startTimer();
 
     // checking location = icu location via location id
-    Set<String> icuLocationIds = locations != null ? getIcuLocationIds(locations) : new HashSet<>();
-
-    // Filter procedure resources to usable ones (e.g. encounter id must be set)
-    List<MiiProcedure> icuProceduresWithEncRef =
-        icuProcedures.stream().filter(x -> x.getCaseId() != null).toList();
     Set<String> facilityContactsOnIcu =
         supplyContactEncountersPositive.stream()
-            .filter(x -> x.isIcuCase(icuLocationIds, false))
+            .filter(icuLocationRegistry::isIcuEncounter)
             .map(MiiEncounter::getFacilityContactId)
             .collect(Collectors.toSet());
 
@@ -138,28 +160,14 @@ public class DiseaseResultFunctionality {
             .filter(x -> facilityContactsOnIcu.contains(x.getId()))
             .toList();
 
-    Set<String> facilityContactsWithVent =
-        icuProceduresWithEncRef.stream()
-            .filter(
-                x ->
-                    x.isCodeExistingInValueSet(
-                        inputCodeSettings.getProcedureVentilationCodes(), SNOMED, false))
-            .map(MiiProcedure::getCaseId)
-            .collect(Collectors.toSet());
+    Set<String> facilityContactsWithVent = caseProcedureIndex.getVentilationCaseIds();
 
     List<MiiEncounter> ventEncounters =
         inpatientPositiveEncounters.stream()
             .filter(x -> facilityContactsWithVent.contains(x.getId()))
             .toList();
 
-    Set<String> facilityContactsWithEcmo =
-        icuProceduresWithEncRef.stream()
-            .filter(
-                x ->
-                    x.isCodeExistingInValueSet(
-                        inputCodeSettings.getProcedureEcmoCodes(), SNOMED, false))
-            .map(MiiProcedure::getCaseId)
-            .collect(Collectors.toSet());
+    Set<String> facilityContactsWithEcmo = caseProcedureIndex.getEcmoCaseIds();
 
     List<MiiEncounter> ecmoEncounters =
         inpatientPositiveEncounters.stream()
@@ -188,22 +196,43 @@ public class DiseaseResultFunctionality {
 
   public static FacilityEncounterToIcuSupplyContactsMap assignSupplyEncountersToFacilityEncounter(
       List<MiiEncounter> icuSupplyContactEncounters, List<MiiEncounter> inpatientEncounters) {
+    return assignSupplyEncountersToFacilityEncounter(
+        icuSupplyContactEncounters, inpatientEncounters, null);
+  }
+
+  /**
+   * Assigns the icu supply contacts to their facility contacts.
+   *
+   * @param icuSupplyContactEncounters The supply contacts with an icu location.
+   * @param inpatientEncounters The inpatient encounters, whose facility contacts are the keys of
+   *     the output.
+   * @param encounterHierarchyIndex The resolved encounter hierarchy, which covers both the visit
+   *     number and the partOf mode. If {@code null}, the supply contacts are grouped by their visit
+   *     number identifier.
+   * @return Map of facility contact ids to their icu supply contacts.
+   */
+  public static FacilityEncounterToIcuSupplyContactsMap assignSupplyEncountersToFacilityEncounter(
+      List<MiiEncounter> icuSupplyContactEncounters,
+      List<MiiEncounter> inpatientEncounters,
+      EncounterHierarchyIndex encounterHierarchyIndex) {
 
     // Initialize output map
     FacilityEncounterToIcuSupplyContactsMap output = new FacilityEncounterToIcuSupplyContactsMap();
 
-    // Group ICU supply contacts by official identifier value
+    // Group ICU supply contacts by their facility contact id (or official identifier value)
     Map<String, List<MiiEncounter>> icuSupplyContactsMap =
-        icuSupplyContactEncounters.stream()
-            .filter(
-                enc -> {
-                  boolean hasValue = enc.hasVisitNumberIdentifierValue();
-                  if (!hasValue) {
-                    log.warn("Encounter {} has no valid visit number identifier", enc.getId());
-                  }
-                  return hasValue;
-                })
-            .collect(Collectors.groupingBy(MiiEncounter::getVisitNumberIdentifierValue));
+        encounterHierarchyIndex != null
+            ? groupByFacilityContactId(icuSupplyContactEncounters, encounterHierarchyIndex)
+            : icuSupplyContactEncounters.stream()
+                .filter(
+                    enc -> {
+                      boolean hasValue = enc.hasVisitNumberIdentifierValue();
+                      if (!hasValue) {
+                        log.warn("Encounter {} has no valid visit number identifier", enc.getId());
+                      }
+                      return hasValue;
+                    })
+                .collect(Collectors.groupingBy(MiiEncounter::getVisitNumberIdentifierValue));
 
     List<MiiEncounter> facilityContacts =
         inpatientEncounters.parallelStream().filter(MiiEncounter::isFacilityContact).toList();
@@ -211,15 +240,19 @@ public class DiseaseResultFunctionality {
     // Iterate over facility contacts and map supply contacts
     for (MiiEncounter facilityContact : facilityContacts) {
       try {
-        String visitNumber = facilityContact.getVisitNumberIdentifierValue();
-        // Skipping element if visit number is empty
-        if (visitNumber == null) {
+        String key =
+            encounterHierarchyIndex != null
+                ? facilityContact.getId()
+                : facilityContact.getVisitNumberIdentifierValue();
+        // Skipping element if visit number is empty and the hierarchy doesn't know the contact
+        if (facilityContact.getVisitNumberIdentifierValue() == null
+            && !icuSupplyContactsMap.containsKey(key)) {
           log.warn("Facility contact {} has no visit number identifier", facilityContact.getId());
           continue;
         }
         // Get supply contacts for the facility contact
         List<MiiEncounter> supplyContacts =
-            icuSupplyContactsMap.getOrDefault(visitNumber, Collections.emptyList());
+            icuSupplyContactsMap.getOrDefault(key, Collections.emptyList());
         // Add the mapping to the output, using an empty list if no supply contacts are present
         output
             .computeIfAbsent(facilityContact.getId(), k -> new ArrayList<>())
@@ -233,6 +266,21 @@ public class DiseaseResultFunctionality {
     return output;
   }
 
+  private static Map<String, List<MiiEncounter>> groupByFacilityContactId(
+      List<MiiEncounter> supplyContacts, EncounterHierarchyIndex encounterHierarchyIndex) {
+    Map<String, List<MiiEncounter>> result = new HashMap<>();
+    for (MiiEncounter supplyContact : supplyContacts) {
+      MiiEncounter facilityContact =
+          encounterHierarchyIndex.getFacilityContact(supplyContact.getId());
+      if (facilityContact != null) {
+        result.computeIfAbsent(facilityContact.getId(), _ -> new ArrayList<>()).add(supplyContact);
+      } else {
+        log.warn("Encounter {} could not be assigned to a facility contact", supplyContact.getId());
+      }
+    }
+    return result;
+  }
+
   /**
    * This method generates a mapping from supply contacts to facility contacts. The input sets are
    * lists of UkbEncounter objects.
@@ -250,104 +298,43 @@ public class DiseaseResultFunctionality {
       List<MiiEncounter> departmentEncounters,
       List<MiiEncounter> facilityEncounters,
       boolean usePartOf) {
+    return generateSupplyContactToFacilityContactMap(
+        new EncounterHierarchyIndex(
+            supplyContactEncounters, departmentEncounters, facilityEncounters, usePartOf));
+  }
 
-    // Initialize output map
-    Map<String, String> output = new ConcurrentHashMap<>();
-
-    // Index facility encounters by visit number
-    Map<String, MiiEncounter> facilityEncounterMap = new ConcurrentHashMap<>();
-    facilityEncounters.forEach(
-        facilityEncounter -> {
-          String visitNumber = facilityEncounter.getVisitNumberIdentifierValue();
-          if (visitNumber != null) {
-            facilityEncounterMap.put(visitNumber, facilityEncounter);
-          } else {
-            log.warn(
-                "No identifier with slice 'Aufnahmenummer' was found for encounter with id {}",
-                facilityEncounter.getId());
-          }
-        });
-
-    // Process supply contacts and map them to facility contacts
-    supplyContactEncounters.parallelStream()
+  /**
+   * Sets the facility contact id of all supply contacts of the given hierarchy. Supply contacts
+   * that got resolved via {@link MiiEncounter#getPartOf()} and their facility contacts additionally
+   * get the facility contact id as visit number identifier, for easier usage in the further
+   * workflow.
+   *
+   * @param encounterHierarchyIndex The resolved encounter hierarchy.
+   * @return A mapping from supply contacts to facility contacts.
+   * @throws RuntimeException if no supply contact could be assigned to a facility contact.
+   */
+  public static Map<String, String> generateSupplyContactToFacilityContactMap(
+      EncounterHierarchyIndex encounterHierarchyIndex) {
+    Map<String, String> output = new HashMap<>();
+    Set<String> facilityContactIdsWithIdentifier = new HashSet<>();
+    encounterHierarchyIndex
+        .getSupplyContactsByFacilityContactId()
         .forEach(
-            supplyContactEncounter -> {
-              try {
-                String visitNumber = supplyContactEncounter.getVisitNumberIdentifierValue();
-                if (visitNumber != null) {
-                  MiiEncounter facilityEncounter = facilityEncounterMap.get(visitNumber);
-                  if (facilityEncounter != null) {
-                    supplyContactEncounter.setFacilityContactId(facilityEncounter.getId());
-                    output.put(supplyContactEncounter.getId(), facilityEncounter.getId());
+            (facilityContactId, supplyContacts) -> {
+              for (MiiEncounter supplyContact : supplyContacts) {
+                MiiEncounter facilityContact =
+                    encounterHierarchyIndex.getFacilityContact(supplyContact.getId());
+                supplyContact.setFacilityContactId(facilityContactId);
+                output.put(supplyContact.getId(), facilityContactId);
+                if (encounterHierarchyIndex.isResolvedViaPartOf(supplyContact.getId())) {
+                  supplyContact.addIdentifier(createIdentifierVisitNumber(facilityContact));
+                  if (facilityContactIdsWithIdentifier.add(facilityContactId)) {
+                    facilityContact.addIdentifier(createIdentifierVisitNumber(facilityContact));
                   }
-                } else {
-                  log.warn(
-                      "No visit number identifier found for supply contact encounter with id {}",
-                      supplyContactEncounter.getId());
                 }
-              } catch (Exception ex) {
-                log.error("Error processing supply contact: {}", ex.getMessage());
               }
             });
 
-    // If no facility encounters were found, try hierarchical determination via Encounter.partOf
-    if (usePartOf) {
-      log.info("Encounter hierarchy resolution via .partOf was activated in the config.");
-      supplyContactEncounters.forEach(
-          supplyContact -> {
-            if (supplyContact.hasPartOf()) {
-              if (supplyContact.getPartOf().hasReference()) {
-                String supplyContactPartOf = extractIdFromReference(supplyContact.getPartOf());
-                if (supplyContactPartOf != null) {
-                  MiiEncounter departmentContact =
-                      departmentEncounters.stream()
-                          .filter(x -> x.getId().equals(supplyContactPartOf))
-                          .findFirst()
-                          .orElse(null);
-                  if (departmentContact != null) {
-                    String departmentContactPartOf =
-                        extractIdFromReference(departmentContact.getPartOf());
-                    if (departmentContactPartOf != null) {
-                      MiiEncounter facilityContact =
-                          facilityEncounters.stream()
-                              .filter(x -> x.getId().equals(departmentContactPartOf))
-                              .findFirst()
-                              .orElse(null);
-                      if (facilityContact != null) {
-                        supplyContact.setFacilityContactId(facilityContact.getId());
-                        output.put(supplyContact.getId(), facilityContact.getId());
-                        // Using the facility contact id as Encounter.identifier for easier usage in
-                        // the
-                        // further workflow
-                        supplyContact.addIdentifier(createIdentifierVisitNumber(facilityContact));
-                        facilityContact.addIdentifier(createIdentifierVisitNumber(facilityContact));
-                      }
-                    } else {
-                      log.warn(
-                          "No partOf identifier found for 'Encounter.abteilungskontakt' with id {}",
-                          departmentContact.getId());
-                    }
-                  } else {
-                    log.warn(
-                        "No department reference found for 'Encounter.versorgungsstellenkontakt'"
-                            + " with id {}",
-                        supplyContact.getId());
-                  }
-                } else {
-                  log.warn(
-                      "No partOf identifier found for 'Encounter.versorgungsstellenkontakt' with id"
-                          + " {}",
-                      supplyContact.getId());
-                }
-              } else {
-                log.warn(
-                    "Encounter with id {} holds a .partOf element but no literal reference",
-                    supplyContact.getId());
-              }
-            }
-          });
-    }
-
     if (output.isEmpty()) {
       throw new RuntimeException(
           "No encounter with an identifier.slice 'Aufnahmenummer' was found.");
@@ -455,31 +442,21 @@ public class DiseaseResultFunctionality {
   }
 
   /**
-   * Fills the given map for debugging purposes, associating encounter case IDs with patients and
-   * treatment levels.
+   * Groups the encounter case IDs by patient for debugging purposes.
    *
    * @param listCumulativeEncounter Sublist with encounters that have already been used in the
    *     "cumulative.treatmentlevel" data item.
-   * @param treatmentLevel TreatmentLevel (e.g., {@link TreatmentLevels#OUTPATIENT}).
-   * @param resultMaxTreatmentCaseNrs Map with the output, associating treatment levels with
-   *     patients and their encounter case IDs. This map is modified and populated during the
-   *     execution of the method.
+   * @return Map that associates the patient IDs with their encounter case IDs.
    */
-  public static void createCumulativeMaxDebug(
-      List<MiiEncounter> listCumulativeEncounter,
-      String treatmentLevel,
-      Map<String, Map<String, List<String>>> resultMaxTreatmentCaseNrs) {
-    listCumulativeEncounter.forEach(
-        e -> {
-          String pid = e.getPatientId();
-          if (resultMaxTreatmentCaseNrs.get(treatmentLevel).containsKey(pid)) {
-            resultMaxTreatmentCaseNrs.get(treatmentLevel).get(pid).add(e.getId());
-          } else {
-            List<String> caseList = new ArrayList<>();
-            caseList.add(e.getId());
-            resultMaxTreatmentCaseNrs.get(treatmentLevel).put(pid, caseList);
-          }
-        });
+  public static Map<String, List<String>> getCaseIdsByPatient(
+      List<MiiEncounter> listCumulativeEncounter) {
+    Map<String, List<String>> caseIdsByPatient = new HashMap<>();
+    for (MiiEncounter encounter : listCumulativeEncounter) {
+      caseIdsByPatient
+          .computeIfAbsent(encounter.getPatientId(), _ -> new ArrayList<>())
+          .add(encounter.getId());
+    }
+    return caseIdsByPatient;
   }
 
   /**
@@ -545,19 +522,20 @@ public class DiseaseResultFunctionality {
     return ChronoUnit.HOURS.between(start, end);
   }
 
-  private static List<Long> datesOutput;
+  private static volatile List<Long> datesOutput;
 
   private static List<Long> createDateList(DataItemContext dataItemContext) {
-    // Initialization of the output list
-    datesOutput = new ArrayList<>();
+    // Initialization of the output list; only published once it is complete since the data item
+    // sections may read it concurrently
+    List<Long> dates = new ArrayList<>();
     long currentDate = getKickOffDateInSeconds(dataItemContext);
     long currentDayUnix = DateTools.getCurrentUnixTime();
 
     while (currentDate <= currentDayUnix) {
-      datesOutput.add(currentDate);
+      dates.add(currentDate);
       currentDate += NumDashboardConstants.DAY_IN_SECONDS;
     }
-    return datesOutput;
+    return dates;
   }
 
   public static long getKickOffDateInSeconds(DataItemContext dataItemContext) {
@@ -601,7 +579,7 @@ public class DiseaseResultFunctionality {
    *
    * @return List of 24-hour timestamps for the entries in the data items with "date" attribute.
    */
-  public static List<Long> getDatesOutputList(DataItemContext dataItemContext) {
+  public static synchronized List<Long> getDatesOutputList(DataItemContext dataItemContext) {
     // Generate the date output list if needed (initially or when its outdated since the
     // server ran over 2 days)
     if (datesOutput == null || (DateTools.getCurrentUnixTime() > datesOutput.getLast())) {
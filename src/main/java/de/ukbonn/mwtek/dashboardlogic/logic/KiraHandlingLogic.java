@@ -22,6 +22,7 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.KidsRadarConstants.UPPER_AGE_
 import static de.ukbonn.mwtek.dashboardlogic.tools.EncounterFilter.filterEncountersByIds;
 import static de.ukbonn.mwtek.dashboardlogic.tools.EncounterFilter.isEncounterValidByAge;
 import static de.ukbonn.mwtek.dashboardlogic.tools.KidsRadarTools.getIcdCodesAsString;
+import static de.ukbonn.mwtek.dashboardlogic.tools.PatientFilter.indexPatientsById;
 import static de.ukbonn.mwtek.utilities.fhir.misc.FhirConditionTools.getEncounterIdsByIcdCodes;
 import static de.ukbonn.mwtek.utilities.generic.time.DateTools.calcWholeDaysBetweenDates;
 
@@ -29,6 +30,7 @@ import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData;
 import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData.AdmissionStatus;
 import de.ukbonn.mwtek.dashboardlogic.models.FacilityContactIcuLocationMap;
 import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
+import de.ukbonn.mwtek.dashboardlogic.tools.CodePrefixMatcher;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiCondition;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiPatient;
@@ -41,14 +43,15 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.r4.model.Coding;
 import org.hl7.fhir.r4.model.Encounter;
 import org.hl7.fhir.r4.model.Period;
 
@@ -79,18 +82,20 @@ public class KiraHandlingLogic {
         registryByEncounterId.entrySet().stream()
             .collect(Collectors.groupingBy(e -> e.getValue().getPatientId(), Collectors.toList()));
 
+    CaseMerges caseMerges = new CaseMerges();
     for (var entry : byPatient.entrySet()) {
       List<Map.Entry<String, CoreCaseData>> cases = new ArrayList<>(entry.getValue());
       if (cases.size() > 1) {
-        mergeCases(
-            conditionsFiltered,
-            proceduresFiltered,
-            facilityContactEncountersPreFiltered,
+        mergeCasesOfPatient(
             cases,
             casesDeletedByDiagnosis,
-            registryByEncounterId); // <-- mutate canonical instances + delete merged keys
+            registryByEncounterId, // <-- mutate canonical instances + delete merged keys
+            caseMerges);
       }
     }
+    // Update the encounters, conditions and procedures of all patients at once
+    applyCaseMerges(
+        conditionsFiltered, proceduresFiltered, facilityContactEncountersPreFiltered, caseMerges);
 
     // Build merged encounter list consistent with registry keys
     List<MiiEncounter> mergedEncounters =
@@ -152,30 +157,68 @@ public class KiraHandlingLogic {
       List<Entry<String, CoreCaseData>> caseDataEntries,
       Set<String> casesDeletedByDiagnosis,
       Map<String, CoreCaseData> coreCaseDataByEncounterIdMap) {
-    // Sort the case data entries by admission date
-    caseDataEntries.sort(Comparator.comparing(e -> e.getValue().getAdmissionDate()));
+    CaseMerges caseMerges = new CaseMerges();
+    mergeCasesOfPatient(
+        caseDataEntries, casesDeletedByDiagnosis, coreCaseDataByEncounterIdMap, caseMerges);
+    applyCaseMerges(conditions, procedures, facilityEncounters, caseMerges);
+  }
 
-    // Currently merging is just necessary for the disorders-only encounters
-    List<CoreCaseData> sortedCoreCaseData =
-        caseDataEntries.stream()
-            //            .filter(x -> x.getValue().isKjpDiagnosis())
-            .map(Entry::getValue)
-            .collect(Collectors.toList());
+  /**
+   * The merges of one or more patients. The resources that reference merged cases are updated once
+   * via {@link #applyCaseMerges} instead of being scanned again for each merge.
+   *
+   * @param survivingIdByMergedId The id of the case a merged case got merged into.
+   * @param dischargeDatesBySurvivingId The discharge dates of the cases that got merged into a
+   *     case, in the order of the merges.
+   */
+  private record CaseMerges(
+      Map<String, String> survivingIdByMergedId,
+      Map<String, List<Date>> dischargeDatesBySurvivingId) {
 
-    Set<String> encountersToBeDeleted = new HashSet<>();
-    int i = 0;
+    CaseMerges() {
+      this(new HashMap<>(), new HashMap<>());
+    }
 
-    // Iterate through the sorted list and perform the merge checks
-    while (i < sortedCoreCaseData.size() - 1) {
-      CoreCaseData currentCase = sortedCoreCaseData.get(i);
-      CoreCaseData nextCase = sortedCoreCaseData.get(i + 1);
+    void add(CoreCaseData survivingCase, CoreCaseData mergedCase) {
+      survivingIdByMergedId.put(
+          mergedCase.getFacilityEncounterId(), survivingCase.getFacilityEncounterId());
+      dischargeDatesBySurvivingId
+          .computeIfAbsent(survivingCase.getFacilityEncounterId(), _ -> new ArrayList<>())
+          .add(mergedCase.getDischargeDate());
+    }
+  }
+
+  /**
+   * Merges the cases of a single patient in one sweep over the cases sorted by admission date. A
+   * case gets merged into the preceding surviving case if it got admitted within {@code
+   * THRESHOLD_DAYS_CASE_MERGE} days after the discharge of the surviving case.
+   * Since a merge only extends the discharge date of the surviving case, the cases before it don't
+   * need to be checked again.
+   */
+  private static void mergeCasesOfPatient(
+      List<Entry<String, CoreCaseData>> caseDataEntries,
+      Set<String> casesDeletedByDiagnosis,
+      Map<String, CoreCaseData> coreCaseDataByEncounterIdMap,
+      CaseMerges caseMerges) {
+    // Sort the case data entries by admission date
+    caseDataEntries.sort(Comparator.comparing(e -> e.getValue().getAdmissionDate()));
 
+    Set<String> encountersToBeDeleted = new HashSet<>();
+    boolean aborted = false;
+    CoreCaseData currentCase = null;
+    for (Entry<String, CoreCaseData> entry : caseDataEntries) {
+      CoreCaseData nextCase = entry.getValue();
+      if (currentCase == null) {
+        currentCase = nextCase;
+        continue;
+      }
       if (currentCase.getDischargeDate() == null) {
         log.warn(
             "No discharge date found for case {}. Case merging aborted.",
             currentCase.getFacilityEncounterId());
         // Stop merging completely
-        return;
+        aborted = true;
+        break;
       }
 
       // Calculate the number of days between the discharge date of the current case and the
@@ -184,32 +227,25 @@ public class KiraHandlingLogic {
           DateTools.calcWholeDaysBetweenDates(
               currentCase.getDischargeDate(), nextCase.getAdmissionDate());
       if (daysBetween <= THRESHOLD_DAYS_CASE_MERGE) {
-        // Merge the two cases
+        // Merge the two cases; the current case stays the surviving one
         mergeTwoCases(
-            conditions,
-            procedures,
-            facilityEncounters,
-            currentCase,
-            nextCase,
-            encountersToBeDeleted,
-            coreCaseDataByEncounterIdMap);
-
-        // Remove the merged case from the list
-        sortedCoreCaseData.remove(i + 1);
-        caseDataEntries.remove(i + 1);
-
-        // Restart the loop to ensure all merges are handled
-        i = 0;
+            currentCase, nextCase, encountersToBeDeleted, coreCaseDataByEncounterIdMap, caseMerges);
       } else {
-        i++;
+        currentCase = nextCase;
       }
     }
 
+    // Remove the merged cases from the list
     if (!encountersToBeDeleted.isEmpty()) {
+      caseDataEntries.removeIf(
+          entry -> encountersToBeDeleted.contains(entry.getValue().getFacilityEncounterId()));
+    }
+
+    if (!aborted && !encountersToBeDeleted.isEmpty()) {
       casesDeletedByDiagnosis.addAll(encountersToBeDeleted);
       log.info(
           "{} got {} encounter(s) removed",
-          caseDataEntries.get(0).getValue().getPatientId(),
+          caseDataEntries.getFirst().getValue().getPatientId(),
           encountersToBeDeleted.size());
     }
   }
@@ -217,21 +253,18 @@ public class KiraHandlingLogic {
   /**
    * Merges two specific cases.
    *
-   * @param conditions Condition resources where the reference needs to be updated.
-   * @param procedures Procedure resources where the reference needs to be updated.
    * @param currentCase The current case to be merged.
    * @param nextCase The next case to be merged.
    * @param encountersToBeDeleted Set of IDs of cases that have been merged.
    * @param coreCaseDataByEncounterIdMap Map of encounter IDs to CoreCaseData.
+   * @param caseMerges The merges whose resource updates are still pending.
    */
   private static void mergeTwoCases(
-      List<MiiCondition> conditions,
-      List<MiiProcedure> procedures,
-      List<MiiEncounter> encounters,
       CoreCaseData currentCase,
       CoreCaseData nextCase,
       Set<String> encountersToBeDeleted,
-      Map<String, CoreCaseData> coreCaseDataByEncounterIdMap) {
+      Map<String, CoreCaseData> coreCaseDataByEncounterIdMap,
+      CaseMerges caseMerges) {
 
     // Null checks for essential inputs
     if (currentCase == null || nextCase == null) {
@@ -249,54 +282,64 @@ public class KiraHandlingLogic {
         currentCase.getDischargeDate(),
         nextCase.getDischargeDate());
 
-    // Try to find the encounter and update it
-    updateUkbEncounter(encounters, currentCase, nextCase);
+    // The encounter and the references get updated once all merges are known
+    caseMerges.add(currentCase, nextCase);
+
+    // Update the discharge date of the current case
+    updateCase(currentCase, nextCase, coreCaseDataByEncounterIdMap);
+  }
+
+  /**
+   * Applies the merges to the resources: The surviving facility encounters get the latest
+   * discharge date and a merged extension per merge, and the conditions and procedures of merged
+   * cases get referenced to the surviving case. Each resource list is only iterated once.
+   */
+  private static void applyCaseMerges(
+      List<MiiCondition> conditions,
+      List<MiiProcedure> procedures,
+      List<MiiEncounter> facilityEncounters,
+      CaseMerges caseMerges) {
+    if (caseMerges.survivingIdByMergedId().isEmpty()) {
+      return;
+    }
+
+    Set<String> updatedEncounterIds = new HashSet<>();
+    for (MiiEncounter encounter : facilityEncounters) {
+      List<Date> dischargeDates = caseMerges.dischargeDatesBySurvivingId().get(encounter.getId());
+      // Just the first encounter with the id gets updated
+      if (dischargeDates == null || !updatedEncounterIds.add(encounter.getId())) {
+        continue;
+      }
+      for (Date dischargeDate : dischargeDates) {
+        updateUkbEncounter(encounter, dischargeDate);
+      }
+    }
+    caseMerges.dischargeDatesBySurvivingId().keySet().stream()
+        .filter(id -> !updatedEncounterIds.contains(id))
+        .forEach(id -> log.warn("Encounter with id {} not found in facilityContactEncounters", id));
 
-    // Update references and discharge date of the current case
-    updateCaseAndReferences(
-        conditions, procedures, currentCase, nextCase, coreCaseDataByEncounterIdMap);
+    remapEncounterReferences(conditions, procedures, caseMerges.survivingIdByMergedId());
   }
 
   /** Updates the corresponding UkbEncounter's discharge date and adds a merged extension. */
-  private static void updateUkbEncounter(
-      List<MiiEncounter> encounters, CoreCaseData currentCase, CoreCaseData nextCase) {
-    Optional<MiiEncounter> encounter =
-        encounters.stream()
-            .filter(x -> x.getId().equals(currentCase.getFacilityEncounterId()))
-            .findFirst();
-
-    encounter.ifPresentOrElse(
-        enc -> {
-          Date currentEncounterEnd = enc.getPeriod().getEnd();
-
-          // Only update if the next case's discharge date is later
-          if (shouldUpdateDate(currentEncounterEnd, nextCase.getDischargeDate())) {
-            enc.getPeriod().setEnd(nextCase.getDischargeDate());
-          }
+  private static void updateUkbEncounter(MiiEncounter encounter, Date nextDischargeDate) {
+    Date currentEncounterEnd = encounter.getPeriod().getEnd();
+
+    // Only update if the next case's discharge date is later
+    if (shouldUpdateDate(currentEncounterEnd, nextDischargeDate)) {
+      encounter.getPeriod().setEnd(nextDischargeDate);
+    }
 
-          // Add the extension indicating this case was merged
-          enc.addExtension(CASE_MERGED);
-        },
-        () ->
-            log.warn(
-                "Encounter with id {} not found in facilityContactEncounters",
-                currentCase.getFacilityEncounterId()));
+    // Add the extension indicating this case was merged
+    encounter.addExtension(CASE_MERGED);
   }
 
-  /** Updates the encounter references and possibly the discharge date for the merged case. */
-  private static void updateCaseAndReferences(
-      List<MiiCondition> conditions,
-      List<MiiProcedure> procedures,
+  /** Updates the discharge date for the merged case and removes the next case from the map. */
+  private static void updateCase(
       CoreCaseData currentCase,
       CoreCaseData nextCase,
       Map<String, CoreCaseData> coreCaseDataByEncounterIdMap) {
 
-    // Update encounter references
-    updateConditionEncounterReferences(
-        conditions, nextCase.getFacilityEncounterId(), currentCase.getFacilityEncounterId());
-    updateProcedureEncounterReferences(
-        procedures, nextCase.getFacilityEncounterId(), currentCase.getFacilityEncounterId());
-
     // Update the discharge date if necessary
     if (shouldUpdateDate(currentCase.getDischargeDate(), nextCase.getDischargeDate())) {
       // Store the gap period between both cases since we need to exclude the gaps in some charts
@@ -324,7 +367,52 @@ public class KiraHandlingLogic {
   }
 
   /**
-   * Updates the encounter references for conditions of the cases that get merged.
+   * Updates the encounter references of the conditions and procedures of merged cases in a single
+   * pass over each list.
+   *
+   * @param conditions The conditions to update; may be empty.
+   * @param procedures The procedures to update; may be {@code null} or empty.
+   * @param survivingIdByMergedId Map of merged encounter ids to the ids of the cases they got
+   *     merged into.
+   */
+  public static void remapEncounterReferences(
+      List<MiiCondition> conditions,
+      List<MiiProcedure> procedures,
+      Map<String, String> survivingIdByMergedId) {
+    if (survivingIdByMergedId.isEmpty()) {
+      return;
+    }
+    for (MiiCondition condition : conditions) {
+      String newEncounterId = survivingIdByMergedId.get(condition.getCaseId());
+      if (newEncounterId != null) {
+        log.info(
+            "Updated condition {} encounter id from {} to {}",
+            condition.getId(),
+            condition.getCaseId(),
+            newEncounterId);
+        condition.setCaseId(newEncounterId);
+      }
+    }
+    if (procedures == null) {
+      return;
+    }
+    for (MiiProcedure procedure : procedures) {
+      String newEncounterId =
+          procedure != null ? survivingIdByMergedId.get(procedure.getCaseId()) : null;
+      if (newEncounterId != null) {
+        log.info(
+            "Updated procedure {} encounter id from {} to {}",
+            procedure.getId(),
+            procedure.getCaseId(),
+            newEncounterId);
+        procedure.setCaseId(newEncounterId);
+      }
+    }
+  }
+
+  /**
+   * Updates the encounter references for conditions of the cases that get merged. Shortcut of
+   * {@link #remapEncounterReferences} for a single merge.
    *
    * @param oldEncounterId the old encounter ID to be replaced, must not be null
    * @param newEncounterId the new encounter ID to replace with, must not be null
@@ -335,47 +423,24 @@ public class KiraHandlingLogic {
     if (oldEncounterId == null || newEncounterId == null) {
       throw new IllegalArgumentException("Encounter IDs must not be null");
     }
-    conditions.stream()
-        .filter(condition -> condition.getCaseId().equals(oldEncounterId))
-        .forEach(
-            condition -> {
-              condition.setCaseId(newEncounterId);
-              log.info(
-                  "Updated condition {} encounter id from {} to {}",
-                  condition.getId(),
-                  oldEncounterId,
-                  newEncounterId);
-            });
+    remapEncounterReferences(conditions, null, Map.of(oldEncounterId, newEncounterId));
   }
 
   /**
-   * Updates the encounter references for procedures of the cases that get merged.
+   * Updates the encounter references for procedures of the cases that get merged. Shortcut of
+   * {@link #remapEncounterReferences} for a single merge.
    *
-   * @param procedures the list of procedures to update; may be empty but not null-safe if method is
-   *     called with null
+   * @param procedures the list of procedures to update; may be {@code null} or empty
    * @param oldEncounterId the old encounter ID to be replaced, must not be null
    * @param newEncounterId the new encounter ID to replace with, must not be null
+   * @throws IllegalArgumentException if either oldEncounterId or newEncounterId is null
    */
   public static void updateProcedureEncounterReferences(
       List<MiiProcedure> procedures, String oldEncounterId, String newEncounterId) {
-
     if (oldEncounterId == null || newEncounterId == null) {
       throw new IllegalArgumentException("Encounter IDs must not be null");
     }
-    if (procedures == null || procedures.isEmpty()) return;
-
-    procedures.stream()
-        .filter(Objects::nonNull)
-        .filter(p -> oldEncounterId.equals(p.getCaseId()))
-        .forEach(
-            p -> {
-              p.setCaseId(newEncounterId);
-              log.info(
-                  "Updated procedure {} encounter id from {} to {}",
-                  p.getId(),
-                  oldEncounterId,
-                  newEncounterId);
-            });
+    remapEncounterReferences(List.of(), procedures, Map.of(oldEncounterId, newEncounterId));
   }
 
   private static Map<String, CoreCaseData> generateCoreCaseDataByEncounterIdMap(
@@ -419,9 +484,11 @@ public class KiraHandlingLogic {
       return;
     }
 
+    Map<String, Set<String>> encounterIdsByDiag =
+        getEncounterIdsByDiagnosisGroup(conditions, icdCodesByDiag);
     icdCodesByDiag.forEach(
-        (name, icdCodes) -> {
-          Set<String> encounterIds = getEncounterIdsByIcdCodes(conditions, icdCodes);
+        (name, _) -> {
+          Set<String> encounterIds = encounterIdsByDiag.getOrDefault(name, Set.of());
           Set<MiiEncounter> relevantEncounters =
               filterEncountersByIds(facilityContactEncountersFiltered, encounterIds);
 
@@ -437,6 +504,56 @@ public class KiraHandlingLogic {
         });
   }
 
+  /**
+   * Determines the case ids of each diagnosis group via the library's {@code
+   * getEncounterIdsByIcdCodes}, so the groups share the ICD semantics (code system, exact and
+   * prefix matches) of {@link #prepareCasesByDiagnosisType}. The conditions are scanned once with a
+   * {@link CodePrefixMatcher} of all group codes beforehand; each group then only passes the
+   * conditions with a code that starts with one of its codes (ignoring case and system), which
+   * covers all conditions the library can match.
+   *
+   * @param conditions The conditions to check.
+   * @param icdCodesByDiag The ICD codes by diagnosis group name.
+   * @return The case ids by diagnosis group name; groups without any candidate are absent.
+   */
+  static Map<String, Set<String>> getEncounterIdsByDiagnosisGroup(
+      List<MiiCondition> conditions, Map<String, List<String>> icdCodesByDiag) {
+    Map<String, List<String>> upperCaseCodesByDiag = new HashMap<>();
+    icdCodesByDiag.forEach(
+        (group, icdCodes) ->
+            upperCaseCodesByDiag.put(
+                group,
+                icdCodes == null
+                    ? List.of()
+                    : icdCodes.stream().map(KiraHandlingLogic::toUpperCase).toList()));
+    CodePrefixMatcher<String> icdMatcher = CodePrefixMatcher.of(upperCaseCodesByDiag);
+
+    Map<String, List<MiiCondition>> candidatesByDiag = new HashMap<>();
+    Set<String> matchedGroups = new HashSet<>();
+    for (MiiCondition condition : conditions) {
+      if (!condition.hasCode()) {
+        continue;
+      }
+      matchedGroups.clear();
+      for (Coding coding : condition.getCode().getCoding()) {
+        icdMatcher.collectMatches(toUpperCase(coding.getCode()), matchedGroups);
+      }
+      for (String group : matchedGroups) {
+        candidatesByDiag.computeIfAbsent(group, _ -> new ArrayList<>()).add(condition);
+      }
+    }
+
+    Map<String, Set<String>> result = new HashMap<>();
+    candidatesByDiag.forEach(
+        (group, candidates) ->
+            result.put(group, getEncounterIdsByIcdCodes(candidates, icdCodesByDiag.get(group))));
+    return result;
+  }
+
+  private static String toUpperCase(String code) {
+    return code == null ? null : code.toUpperCase(Locale.ROOT);
+  }
+
   private static void prepareCasesByDiagnosisType(
       Map<String, CoreCaseData> result,
       List<MiiCondition> conditions,
@@ -501,15 +618,11 @@ public class KiraHandlingLogic {
    */
   public static Map<MiiEncounter, MiiPatient> mapEncountersToPatients(
       Set<MiiEncounter> encounters, List<MiiPatient> patients) {
+    Map<String, MiiPatient> patientsById = indexPatientsById(patients);
     return encounters.parallelStream()
         .collect(
             Collectors.toMap(
-                encounter -> encounter,
-                encounter ->
-                    patients.stream()
-                        .filter(patient -> patient.getId().equals(encounter.getPatientId()))
-                        .findFirst()
-                        .orElse(null)));
+                encounter -> encounter, encounter -> patientsById.get(encounter.getPatientId())));
   }
 
   /**
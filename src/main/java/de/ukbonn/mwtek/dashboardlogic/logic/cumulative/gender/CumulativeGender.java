@@ -30,6 +30,8 @@ import de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic;
 import de.ukbonn.mwtek.dashboardlogic.enums.DashboardLogicFixedValues;
 import de.ukbonn.mwtek.dashboardlogic.enums.Gender;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
+import de.ukbonn.mwtek.dashboardlogic.models.EncounterPatientIndex;
+import de.ukbonn.mwtek.dashboardlogic.models.PatientBitmap;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiPatient;
 import de.ukbonn.mwtek.utilities.generic.time.TimerTools;
@@ -97,6 +99,63 @@ public class CumulativeGender extends DashboardDataItemLogic {
     return resultSet;
   }
 
+  /**
+   * Determines the disease-positive patients of the given gender as bitmap over the patient
+   * indexes of the {@link EncounterPatientIndex}.
+   *
+   * <p>called by "cumulative.gender"
+   *
+   * @param encounterPatientIndex The facility contacts and patients of the run
+   * @param gender The gender type (e.g. male) to be counted
+   * @return The disease-positive patients with the given gender.
+   */
+  public static PatientBitmap getGenderPatientBitmap(
+      EncounterPatientIndex encounterPatientIndex, Gender gender) {
+    log.debug("Started genderCounting for gender: " + gender);
+    Instant startTimer = TimerTools.startTimer();
+
+    PatientBitmap result =
+        PatientBitmap.of(encounterPatientIndex.getPositivePatientIndexes())
+            .and(getPatientBitmapByGender(encounterPatientIndex, gender));
+
+    TimerTools.stopTimerAndLog(startTimer, "Finished genderCounting");
+    return result;
+  }
+
+  /**
+   * Determines the patients of the given gender with at least one disease-positive encounter in
+   * the given list.
+   *
+   * @param filteredEncounters A list with {@link MiiEncounter} resources (e.g. of one case class)
+   * @param encounterPatientIndex The facility contacts and patients of the run
+   * @param gender The gender type (e.g. male) to be counted
+   * @return The matching patients as bitmap over the patient indexes of the run.
+   */
+  public static PatientBitmap getGenderPatientBitmap(
+      List<MiiEncounter> filteredEncounters,
+      EncounterPatientIndex encounterPatientIndex,
+      Gender gender) {
+    List<MiiEncounter> positiveEncounters =
+        filteredEncounters.stream()
+            .filter(x -> x.hasExtension(POSITIVE_RESULT.getValue()))
+            .toList();
+    return PatientBitmap.of(encounterPatientIndex.getPatientIndexes(positiveEncounters))
+        .and(getPatientBitmapByGender(encounterPatientIndex, gender));
+  }
+
+  /** All patients (with a patient resource) of the given gender. */
+  private static PatientBitmap getPatientBitmapByGender(
+      EncounterPatientIndex encounterPatientIndex, Gender gender) {
+    PatientBitmap result = new PatientBitmap();
+    for (int index = 0; index < encounterPatientIndex.getPatientIds().size(); index++) {
+      MiiPatient patient = encounterPatientIndex.getPatient(index);
+      if (patient != null && matchesGender(patient, gender)) {
+        result.add(index);
+      }
+    }
+    return result;
+  }
+
   private static boolean matchesGender(MiiPatient patient, Gender gender) {
     if (!patient.hasGender()) {
       return false;
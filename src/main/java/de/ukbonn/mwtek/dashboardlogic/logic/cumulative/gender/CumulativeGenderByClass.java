@@ -23,6 +23,8 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels.OUTPATIENT;
 import de.ukbonn.mwtek.dashboardlogic.enums.Gender;
 import de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
+import de.ukbonn.mwtek.dashboardlogic.models.EncounterPatientIndex;
+import de.ukbonn.mwtek.dashboardlogic.models.PatientBitmap;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiPatient;
 import de.ukbonn.mwtek.utilities.generic.time.TimerTools;
@@ -30,6 +32,7 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 
@@ -60,6 +63,29 @@ public class CumulativeGenderByClass extends CumulativeGender {
       Gender gender,
       TreatmentLevels encounterClass,
       BiFunction<List<MiiEncounter>, List<MiiPatient>, T> resultFunction) {
+    return processGenderByCaseClass(
+        miiEncounters,
+        gender,
+        encounterClass,
+        filteredEncounters -> resultFunction.apply(filteredEncounters, miiPatients));
+  }
+
+  /**
+   * Generic method to process the encounters of a case class, for result functions that don't need
+   * the patient resources.
+   *
+   * @param miiEncounters List of encounters.
+   * @param gender The gender to filter by.
+   * @param encounterClass The case class to filter by.
+   * @param resultFunction Function that processes the filtered encounters.
+   * @param <T> Return type.
+   * @return Result of processing.
+   */
+  public static <T> T processGenderByCaseClass(
+      List<MiiEncounter> miiEncounters,
+      Gender gender,
+      TreatmentLevels encounterClass,
+      Function<List<MiiEncounter>, T> resultFunction) {
 
     log.debug(
         "Started processGenderByCaseClass for class: {} and gender: {}", encounterClass, gender);
@@ -80,7 +106,7 @@ public class CumulativeGenderByClass extends CumulativeGender {
                 })
             .collect(Collectors.toList());
 
-    T result = resultFunction.apply(filteredEncounterList, miiPatients);
+    T result = resultFunction.apply(filteredEncounterList);
 
     TimerTools.stopTimerAndLog(startTimer, "Finished processGenderByCaseClass");
     return result;
@@ -120,4 +146,22 @@ public class CumulativeGenderByClass extends CumulativeGender {
         (filteredEncounters, patients) ->
             getGenderPatientIdList(filteredEncounters, patients, gender));
   }
+
+  /**
+   * Determines the disease-positive patients of the given gender and case class as bitmap over the
+   * patient indexes of the {@link EncounterPatientIndex}.
+   */
+  public static PatientBitmap getGenderPatientBitmapByCaseClass(
+      List<MiiEncounter> miiEncounters,
+      EncounterPatientIndex encounterPatientIndex,
+      Gender gender,
+      TreatmentLevels encounterClass) {
+
+    return processGenderByCaseClass(
+        miiEncounters,
+        gender,
+        encounterClass,
+        filteredEncounters ->
+            getGenderPatientBitmap(filteredEncounters, encounterPatientIndex, gender));
+  }
 }
@@ -25,8 +25,8 @@ import de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic;
 import de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels;
 import de.ukbonn.mwtek.dashboardlogic.enums.VitalStatus;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
+import de.ukbonn.mwtek.dashboardlogic.models.IcuLocationRegistry;
 import de.ukbonn.mwtek.dashboardlogic.tools.EncounterFilter;
-import de.ukbonn.mwtek.dashboardlogic.tools.LocationFilter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiLocation;
 import de.ukbonn.mwtek.utilities.generic.time.TimerTools;
@@ -67,19 +67,38 @@ public class CumulativeLengthOfStayIcu extends DashboardDataItemLogic {
    */
   public static Map<String, Map<Long, Set<String>>> createIcuLengthOfStayList(
       List<MiiEncounter> icuSupplyContactEncounters, List<MiiLocation> locations) {
+    if (locations == null) {
+      log.warn("Missing data: Locations or ICU encounters are null.");
+      return Collections.emptyMap();
+    }
+    return createIcuLengthOfStayList(
+        icuSupplyContactEncounters, new IcuLocationRegistry(locations));
+  }
+
+  /**
+   * Creates a map containing the length of stay in hours for every patient/encounter who was in
+   * intensive care
+   *
+   * <p>Used for cumulative.lengthofstay.icu
+   *
+   * @param icuSupplyContactEncounters The icu information can be found on the Encounter.location of
+   *     the supply contact.
+   * @param icuLocationRegistry The {@link IcuLocationRegistry} of the current run.
+   * @return A Map that links a patient id to a map that containing the length of stay in the
+   *     hospital and all the case ids from which this total was calculated
+   */
+  public static Map<String, Map<Long, Set<String>>> createIcuLengthOfStayList(
+      List<MiiEncounter> icuSupplyContactEncounters, IcuLocationRegistry icuLocationRegistry) {
 
     log.debug("Started createIcuLengthOfStayList");
     Instant startTimer = TimerTools.startTimer();
 
     // If locations or ICU encounters are missing, return an empty map
-    if (locations == null || icuSupplyContactEncounters == null) {
+    if (icuLocationRegistry == null || icuSupplyContactEncounters == null) {
       log.warn("Missing data: Locations or ICU encounters are null.");
       return Collections.emptyMap();
     }
 
-    // Get all ICU location IDs
-    Set<String> icuLocationIds = LocationFilter.getIcuLocationIds(locations);
-
     // Filter positive encounters and pre-filter ICU locations
     Map<String, List<Encounter.EncounterLocationComponent>> encounterLocationMap =
         icuSupplyContactEncounters.stream()
@@ -92,7 +111,7 @@ public class CumulativeLengthOfStayIcu extends DashboardDataItemLogic {
                             .filter(
                                 loc ->
                                     isLocationReferenceExisting(loc)
-                                        && icuLocationIds.contains(
+                                        && icuLocationRegistry.isIcuLocation(
                                             extractIdFromReference(loc.getLocation())))
                             .toList()));
 
@@ -28,6 +28,7 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels.OUTPATIENT;
 
 import de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels;
 import de.ukbonn.mwtek.dashboardlogic.logic.DashboardData;
+import de.ukbonn.mwtek.dashboardlogic.models.CaseProcedureIndex;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.generic.time.TimerTools;
@@ -175,9 +176,27 @@ public class CumulativeMaxTreatmentLevel extends DashboardData {
    *     be checked as a separation criterion.
    * @return List of all encounters that have the given treatment level as maximum treatment level.
    */
-  @SuppressWarnings("incomplete-switch")
   public List<MiiEncounter> getCumulativeByIcuLevel(
       Map<TreatmentLevels, List<MiiEncounter>> mapIcu, TreatmentLevels treatmentLevel) {
+    return getCumulativeByIcuLevel(mapIcu, treatmentLevel, null);
+  }
+
+  /**
+   * Creates a list which contains encounters who have or had icu, ventilation or ecmo as highest
+   * treatmentlevel. [needed in data item: cumulative.maxtreatmentlevel]
+   *
+   * @param mapIcu Map that assigns a list of case numbers to an ICU treatment level class.
+   * @param treatmentLevel The treatmentlevel (e.g. {@link TreatmentLevels#ICU}) which is going to
+   *     be checked as a separation criterion.
+   * @param caseProcedureIndex The {@link CaseProcedureIndex} that was used to create the icu map.
+   *     If {@code null}, the ECMO cases are derived from the icu map.
+   * @return List of all encounters that have the given treatment level as maximum treatment level.
+   */
+  @SuppressWarnings("incomplete-switch")
+  public List<MiiEncounter> getCumulativeByIcuLevel(
+      Map<TreatmentLevels, List<MiiEncounter>> mapIcu,
+      TreatmentLevels treatmentLevel,
+      CaseProcedureIndex caseProcedureIndex) {
 
     List<MiiEncounter> resultList = new ArrayList<>();
     HashMap<String, List<MiiEncounter>> mapPidCases = new HashMap<>();
@@ -225,8 +244,11 @@ public class CumulativeMaxTreatmentLevel extends DashboardData {
             setEncounterToBeRemoved);
         break;
       case ICU_VENTILATION:
-        processVentilationEncounters(
-            ventilationEncounters, ecmoEncounters, mapPidCases, resultList);
+        Set<String> ecmoCaseIds =
+            caseProcedureIndex != null
+                ? caseProcedureIndex.getEcmoCaseIds()
+                : ecmoEncounters.stream().map(MiiEncounter::getId).collect(Collectors.toSet());
+        processVentilationEncounters(ventilationEncounters, ecmoCaseIds, mapPidCases, resultList);
         break;
       case ICU_ECMO:
         processEcmoEncounters(ecmoEncounters, mapPidCases, resultList);
@@ -306,17 +328,17 @@ public class CumulativeMaxTreatmentLevel extends DashboardData {
    * patient to the result list.
    *
    * @param ventilationEncounters List of ICU_VENTILATION encounters.
-   * @param ecmoEncounters List of ICU_ECMO encounters.
+   * @param ecmoCaseIds Ids of the cases with an ECMO procedure.
    * @param mapPidCases A map to store encounters by patient ID.
    * @param resultList The list to store the result encounters.
    */
   private void processVentilationEncounters(
       List<MiiEncounter> ventilationEncounters,
-      List<MiiEncounter> ecmoEncounters,
+      Set<String> ecmoCaseIds,
       Map<String, List<MiiEncounter>> mapPidCases,
       List<MiiEncounter> resultList) {
     ventilationEncounters.stream()
-        .filter(ventEncounter -> !ecmoEncounters.contains(ventEncounter))
+        .filter(ventEncounter -> !ecmoCaseIds.contains(ventEncounter.getId()))
         .forEach(encounter -> addPidToMap(mapPidCases, encounter));
 
     // Add first disease-positive encounter for each patient
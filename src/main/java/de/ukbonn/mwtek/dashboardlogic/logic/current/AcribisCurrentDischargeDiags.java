@@ -18,7 +18,7 @@
 package de.ukbonn.mwtek.dashboardlogic.logic.current;
 
 import de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic;
-import de.ukbonn.mwtek.dashboardlogic.models.PidTimestampCohortMap;
+import de.ukbonn.mwtek.dashboardlogic.models.CohortAssignment;
 import de.ukbonn.mwtek.dashboardlogic.models.StackedBarChartsItem;
 import de.ukbonn.mwtek.utilities.generic.time.TimerTools;
 import java.time.Instant;
@@ -38,17 +38,12 @@ public class AcribisCurrentDischargeDiags extends DashboardDataItemLogic {
 
   public static final String ACR_ALL_COHORTS = "acr_all_cohorts";
   public static final String ACR_NUMBER_PATIENTS_COHORT = "acr_number_patients_cohort";
-  private final PidTimestampCohortMap cohort1Map;
-  private final PidTimestampCohortMap cohort2Map;
-  private final PidTimestampCohortMap cohort3Map;
+  public static final String ACR_COHORT_PREFIX = "acr_cohort";
+  public static final String ACR_COHORT_OVERLAP = ACR_COHORT_PREFIX + "_overlap";
+  private final CohortAssignment cohortAssignment;
 
-  public AcribisCurrentDischargeDiags(
-      PidTimestampCohortMap cohort1Map,
-      PidTimestampCohortMap cohort2Map,
-      PidTimestampCohortMap cohort3Map) {
-    this.cohort1Map = cohort1Map;
-    this.cohort2Map = cohort2Map;
-    this.cohort3Map = cohort3Map;
+  public AcribisCurrentDischargeDiags(CohortAssignment cohortAssignment) {
+    this.cohortAssignment = cohortAssignment;
   }
 
   /**
@@ -60,15 +55,16 @@ public class AcribisCurrentDischargeDiags extends DashboardDataItemLogic {
     log.debug("started AcribisCurrentDischargeDiags.createStackedBarCharts");
     Instant startTimer = TimerTools.startTimer();
 
-    StackedBarChartsItem<Integer> result = new StackedBarChartsItem();
+    StackedBarChartsItem<Integer> result = new StackedBarChartsItem<>();
     result.setCharts(new ArrayList<>(List.of(ACR_ALL_COHORTS)));
     result.setBars(List.of(List.of(ACR_COHORT_K_1, ACR_COHORT_K_2, ACR_COHORT_K_3)));
     result.setStacks(List.of(List.of(ACR_NUMBER_PATIENTS_COHORT)));
 
+    int[] countPerCohort = cohortAssignment.countPerCohort();
     List<List<Integer>> resultList = new ArrayList<>();
-    resultList.add(List.of(cohort1Map.size()));
-    resultList.add(List.of(cohort2Map.size()));
-    resultList.add(List.of(cohort3Map.size()));
+    resultList.add(List.of(countPerCohort[0]));
+    resultList.add(List.of(countPerCohort[1]));
+    resultList.add(List.of(countPerCohort[2]));
     result.setValues(List.of(resultList));
     TimerTools.stopTimerAndLog(
         startTimer, "finished AcribisCurrentDischargeDiags.createStackedBarCharts");
@@ -76,11 +72,58 @@ public class AcribisCurrentDischargeDiags extends DashboardDataItemLogic {
     return result;
   }
 
+  /**
+   * Creates a StackedBarChartsItem with the number of patients per cohort combination (e.g.
+   * {@code acr_cohort_k1_k3} for the patients that are in cohort 1 and 3 but not in cohort 2). The
+   * combinations are ordered by their cohort bitmask.
+   */
+  public StackedBarChartsItem<Integer> createOverlapStackedBarCharts() {
+
+    log.debug("started AcribisCurrentDischargeDiags.createOverlapStackedBarCharts");
+    Instant startTimer = TimerTools.startTimer();
+
+    StackedBarChartsItem<Integer> result = new StackedBarChartsItem<>();
+    result.setCharts(new ArrayList<>(List.of(ACR_COHORT_OVERLAP)));
+    result.setStacks(List.of(List.of(ACR_NUMBER_PATIENTS_COHORT)));
+
+    int[] countPerCombination = cohortAssignment.countPerCombination();
+    List<String> bars = new ArrayList<>();
+    List<List<Integer>> resultList = new ArrayList<>();
+    // Patients without any cohort (mask 0) are not part of the assignment
+    for (int mask = 1; mask < countPerCombination.length; mask++) {
+      bars.add(getCombinationLabel(mask));
+      resultList.add(List.of(countPerCombination[mask]));
+    }
+    result.setBars(List.of(bars));
+    result.setValues(List.of(resultList));
+    TimerTools.stopTimerAndLog(
+        startTimer, "finished AcribisCurrentDischargeDiags.createOverlapStackedBarCharts");
+    return result;
+  }
+
   public Map<String, List<String>> getDebugData() {
     Map<String, List<String>> output = new LinkedHashMap<>();
-    output.put(ACR_COHORT_K_1, new ArrayList<>(cohort1Map.keySet()));
-    output.put(ACR_COHORT_K_2, new ArrayList<>(cohort2Map.keySet()));
-    output.put(ACR_COHORT_K_3, new ArrayList<>(cohort3Map.keySet()));
+    output.put(ACR_COHORT_K_1, new ArrayList<>(cohortAssignment.getCohort(0).keySet()));
+    output.put(ACR_COHORT_K_2, new ArrayList<>(cohortAssignment.getCohort(1).keySet()));
+    output.put(ACR_COHORT_K_3, new ArrayList<>(cohortAssignment.getCohort(2).keySet()));
     return output;
   }
+
+  public Map<String, List<String>> getOverlapDebugData() {
+    Map<String, List<String>> output = new LinkedHashMap<>();
+    List<List<String>> patientIdsPerCombination = cohortAssignment.getPatientIdsPerCombination();
+    for (int mask = 1; mask < patientIdsPerCombination.size(); mask++) {
+      output.put(getCombinationLabel(mask), patientIdsPerCombination.get(mask));
+    }
+    return output;
+  }
+
+  /** Builds the label of a cohort combination, e.g. {@code acr_cohort_k1_k2} for 0b011. */
+  private static String getCombinationLabel(int cohortMask) {
+    StringBuilder label = new StringBuilder(ACR_COHORT_PREFIX);
+    for (int bits = cohortMask; bits != 0; bits &= bits - 1) {
+      label.append("_k").append(Integer.numberOfTrailingZeros(bits) + 1);
+    }
+    return label.toString();
+  }
 }
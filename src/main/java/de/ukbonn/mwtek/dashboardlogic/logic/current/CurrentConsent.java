@@ -17,7 +17,11 @@
  */
 package de.ukbonn.mwtek.dashboardlogic.logic.current;
 
+import static de.ukbonn.mwtek.dashboardlogic.tools.BctModuleRule.MODULE_KEYS;
 import static de.ukbonn.mwtek.dashboardlogic.tools.BctModuleRule.getBctModuleRules;
+import static de.ukbonn.mwtek.dashboardlogic.tools.BctModuleRule.getLevelTwoCodes;
+import static de.ukbonn.mwtek.dashboardlogic.tools.BctModuleRule.getModuleIndex;
+import static de.ukbonn.mwtek.dashboardlogic.tools.BctModuleRule.getModuleMask;
 import static de.ukbonn.mwtek.utilities.generic.time.DateTools.getCurrentDateTime;
 
 import de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic;
@@ -30,11 +34,11 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.function.Predicate;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -77,84 +81,52 @@ public class CurrentConsent extends DashboardDataItemLogic {
     Date validationDate = getCurrentDateTime();
 
     List<BctModuleRule> moduleRules = getBctModuleRules();
-
-    Map<String, List<String>> debugData = new LinkedHashMap<>();
-    List<List<Integer>> resultList = new ArrayList<>();
-
-    Map<String, List<String>> patientsByModule = new LinkedHashMap<>();
-    // Iterate over all the module and their determination rule logic
-    for (BctModuleRule rule : moduleRules) {
-      List<String> patientIds =
-          getPatientIdsByConsent(
-              consents, consent -> matchesModuleRule(consent, rule.levelTwoKeys(), validationDate));
-
-      patientsByModule.put(rule.levelOneKey(), patientIds);
+    // Each code of the module rules is checked once per consent instead of once per rule
+    Set<String> ruleCodes = getLevelTwoCodes(moduleRules);
+
+    // Patient ID -> bitmask of all modules with a currently valid permit
+    Map<String, Integer> moduleMaskByPatient = new LinkedHashMap<>();
+    for (MiiConsent consent : consents) {
+      if (consent.getPatientId() == null || consent.getProvision() == null) {
+        continue;
+      }
+      Set<String> permitCodes = new HashSet<>();
+      for (String code : ruleCodes) {
+        if (consent.hasPermitWithCode(code, validationDate)) {
+          permitCodes.add(code);
+        }
+      }
+      int moduleMask = getModuleMask(moduleRules, permitCodes);
+      if (moduleMask != 0) {
+        moduleMaskByPatient.merge(consent.getPatientId(), moduleMask, (a, b) -> a | b);
+      }
     }
 
-    result.setValues(List.of(resultList));
-    result.setDebugData(debugData);
-    List<String> bctMod1Patients = patientsByModule.getOrDefault(BCT_MOD_1, List.of());
-    List<String> bctMod2Patients = patientsByModule.getOrDefault(BCT_MOD_2, List.of());
-    List<String> bctMod3Patients = patientsByModule.getOrDefault(BCT_MOD_3, List.of());
-    List<String> bctMod4Patients = patientsByModule.getOrDefault(BCT_MOD_4, List.of());
-    List<String> bctMod5Patients = patientsByModule.getOrDefault(BCT_MOD_5, List.of());
-    List<String> bctMod6Patients = patientsByModule.getOrDefault(BCT_MOD_6, List.of());
-    List<String> bctMod7Patients = patientsByModule.getOrDefault(BCT_MOD_7, List.of());
-    List<String> bctMod8Patients = patientsByModule.getOrDefault(BCT_MOD_8, List.of());
-    List<String> bctMod9Patients = patientsByModule.getOrDefault(BCT_MOD_9, List.of());
-
-    resultList.add(List.of(bctMod1Patients.size()));
-    resultList.add(List.of(bctMod2Patients.size()));
-    resultList.add(List.of(bctMod3Patients.size()));
-    resultList.add(List.of(bctMod4Patients.size()));
-    resultList.add(List.of(bctMod5Patients.size()));
-    resultList.add(List.of(bctMod6Patients.size()));
-    resultList.add(List.of(bctMod7Patients.size()));
-    resultList.add(List.of(bctMod8Patients.size()));
-    resultList.add(List.of(bctMod9Patients.size()));
-    result.setValues(List.of(resultList));
+    int[] patientCountByModule = new int[MODULE_KEYS.size()];
+    List<List<String>> patientsByModule = new ArrayList<>(MODULE_KEYS.size());
+    MODULE_KEYS.forEach(_ -> patientsByModule.add(new ArrayList<>()));
+    moduleMaskByPatient.forEach(
+        (patientId, moduleMask) -> {
+          // Visit the set bits only
+          for (int bits = moduleMask; bits != 0; bits &= bits - 1) {
+            int moduleIndex = Integer.numberOfTrailingZeros(bits);
+            patientCountByModule[moduleIndex]++;
+            patientsByModule.get(moduleIndex).add(patientId);
+          }
+        });
 
+    List<List<Integer>> resultList = new ArrayList<>();
     // Saving ids to generate debug items
-    debugData.put(BCT_MOD_1, bctMod1Patients);
-    debugData.put(BCT_MOD_2, bctMod2Patients);
-    debugData.put(BCT_MOD_3, bctMod3Patients);
-    debugData.put(BCT_MOD_4, bctMod4Patients);
-    debugData.put(BCT_MOD_5, bctMod5Patients);
-    debugData.put(BCT_MOD_6, bctMod6Patients);
-    debugData.put(BCT_MOD_7, bctMod7Patients);
-    debugData.put(BCT_MOD_8, bctMod8Patients);
-    debugData.put(BCT_MOD_9, bctMod9Patients);
+    Map<String, List<String>> debugData = new LinkedHashMap<>();
+    for (String moduleKey : MODULE_KEYS) {
+      int moduleIndex = getModuleIndex(moduleKey);
+      resultList.add(List.of(patientCountByModule[moduleIndex]));
+      debugData.put(moduleKey, patientsByModule.get(moduleIndex));
+    }
+    result.setValues(List.of(resultList));
     result.setDebugData(debugData);
 
     TimerTools.stopTimerAndLog(startTimer, "finished CurrentConsent.createStackedBarCharts");
     return result;
   }
-
-  /** Checks whether the consent matches at least one module rule combination. */
-  private boolean matchesModuleRule(
-      MiiConsent consent, List<List<String>> levelTwoKeys, Date validationDate) {
-    // Check all alternative rule combinations
-    for (List<String> requiredCodes : levelTwoKeys) {
-      // All required codes must match
-      boolean matches =
-          requiredCodes.stream().allMatch(code -> consent.hasPermitWithCode(code, validationDate));
-      // Stop on first matching rule combination
-      if (matches) {
-        return true;
-      }
-    }
-    return false;
-  }
-
-  /** Extracts distinct patient IDs for consents matching the given filter. */
-  private static List<String> getPatientIdsByConsent(
-      Collection<MiiConsent> consents, Predicate<MiiConsent> consentFilter) {
-    return consents.stream()
-        .filter(consentFilter)
-        .map(MiiConsent::getPatientId)
-        .filter(Objects::nonNull)
-        .distinct()
-        .map(String::valueOf)
-        .toList();
-  }
 }
@@ -24,21 +24,22 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels.ICU_UNDIFF;
 import static de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels.ICU_VENTILATION;
 import static de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels.NORMAL_WARD;
 import static de.ukbonn.mwtek.dashboardlogic.tools.EncounterFilter.getPositiveCurrentlyOnIcuWardEncounters;
-import static de.ukbonn.mwtek.utilities.enums.TerminologySystems.SNOMED;
 
 import de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic;
 import de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels;
+import de.ukbonn.mwtek.dashboardlogic.models.CaseProcedureIndex;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
-import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
+import de.ukbonn.mwtek.dashboardlogic.models.IcuLocationRegistry;
 import de.ukbonn.mwtek.dashboardlogic.tools.EncounterFilter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
-import de.ukbonn.mwtek.utilities.fhir.resources.MiiLocation;
-import de.ukbonn.mwtek.utilities.fhir.resources.MiiProcedure;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -58,6 +59,10 @@ public class CurrentTreatmentLevel extends DashboardDataItemLogic {
    *     treatment level.
    * @param icuTreatmentLevel The icu treatment level for which the encounter is to be retrieved
    *     (e.g. {@link TreatmentLevels#ICU}).
+   * @param caseProcedureIndex The {@link CaseProcedureIndex} that contains the cases with ongoing
+   *     ventilation and ECMO procedures.
+   * @param icuLocationRegistry The {@link IcuLocationRegistry} to check which supply contacts are
+   *     currently on an icu ward.
    * @return Returns a list of ongoing icu encounter.
    */
   public static List<MiiEncounter> getCurrentEncounterByIcuLevel(
@@ -65,122 +70,123 @@ public class CurrentTreatmentLevel extends DashboardDataItemLogic {
       TreatmentLevels icuTreatmentLevel,
       List<MiiEncounter> icuSupplyContactEncounters,
       List<MiiEncounter> facilityEncounters,
-      List<MiiProcedure> icuProcedures,
-      List<MiiLocation> locations,
-      InputCodeSettings inputCodeSettings) {
+      CaseProcedureIndex caseProcedureIndex,
+      IcuLocationRegistry icuLocationRegistry) {
+    Map<TreatmentLevels, List<MiiEncounter>> encountersByLevel =
+        getCurrentEncountersByTreatmentLevel(
+            mapCurrentIcu,
+            icuSupplyContactEncounters,
+            facilityEncounters,
+            caseProcedureIndex,
+            icuLocationRegistry);
+    if (!encountersByLevel.containsKey(icuTreatmentLevel)) {
+      log.error(
+          "Invalid treatment level ({}) used in getCurrentEncounterByIcuLevel.", icuTreatmentLevel);
+      return new ArrayList<>();
+    }
+    return encountersByLevel.get(icuTreatmentLevel);
+  }
+
+  /**
+   * Calculates the current treatment level of all active disease-positive cases at once, used in
+   * the data item 'current.treatmentlevel'.
+   *
+   * <p>The ids of the cases on an icu ward and with active ventilation / ECMO are collected into
+   * hash sets once, each case is then assigned to its highest current treatment level via
+   * constant-time lookups.
+   *
+   * @param mapCurrentIcu A list of all current inpatient disease-positive cases separated by
+   *     treatment level.
+   * @param icuSupplyContactEncounters The supply contacts with an icu location.
+   * @param facilityEncounters All facility contacts.
+   * @param caseProcedureIndex The {@link CaseProcedureIndex} that contains the cases with ongoing
+   *     ventilation and ECMO procedures.
+   * @param icuLocationRegistry The {@link IcuLocationRegistry} to check which supply contacts are
+   *     currently on an icu ward.
+   * @return The current encounters per treatment level; {@link TreatmentLevels#NORMAL_WARD} and
+   *     {@link TreatmentLevels#ICU_UNDIFF} if the map contains undifferentiated icu cases,
+   *     otherwise {@link TreatmentLevels#NORMAL_WARD}, {@link TreatmentLevels#ICU}, {@link
+   *     TreatmentLevels#ICU_VENTILATION} and {@link TreatmentLevels#ICU_ECMO}.
+   */
+  public static Map<TreatmentLevels, List<MiiEncounter>> getCurrentEncountersByTreatmentLevel(
+      Map<TreatmentLevels, List<MiiEncounter>> mapCurrentIcu,
+      List<MiiEncounter> icuSupplyContactEncounters,
+      List<MiiEncounter> facilityEncounters,
+      CaseProcedureIndex caseProcedureIndex,
+      IcuLocationRegistry icuLocationRegistry) {
+    Map<TreatmentLevels, List<MiiEncounter>> result = new EnumMap<>(TreatmentLevels.class);
 
-    // Further processing for encounters based on ICU treatment levels
     List<MiiEncounter> positiveCurrentlyOnIcuWardSupplyContacts =
-        getPositiveCurrentlyOnIcuWardEncounters(icuSupplyContactEncounters, locations);
-    List<String> positiveCurrentlyOnIcuWardFacilityContactIds =
+        getPositiveCurrentlyOnIcuWardEncounters(icuSupplyContactEncounters, icuLocationRegistry);
+    Set<String> positiveCurrentlyOnIcuWardFacilityContactIds =
         positiveCurrentlyOnIcuWardSupplyContacts.stream()
             .map(MiiEncounter::getFacilityContactId)
-            .toList();
+            .collect(Collectors.toSet());
 
-    // Check if ICU_UNDIFFERENTIATED exists
+    // If ICU_UNDIFFERENTIATED exists, only the normal ward and the icu cases are separated
     if (mapCurrentIcu.containsKey(ICU_UNDIFF)) {
-      // If ICU_UNDIFFERENTIATED exists, only process those encounters
-      switch (icuTreatmentLevel) {
-        case NORMAL_WARD:
-          // Process encounters for normal ward, excluding ICU, Ventilation, and ECMO encounters
-          return facilityEncounters.parallelStream()
-              .filter(EncounterFilter::isDiseasePositive)
-              .filter(MiiEncounter::isCaseClassInpatientOrShortStay)
-              .filter(MiiEncounter::isActive)
+      result.put(
+          NORMAL_WARD,
+          getActivePositiveInpatientEncounters(facilityEncounters)
               // No higher treatmentlevel found
               .filter(x -> !positiveCurrentlyOnIcuWardFacilityContactIds.contains(x.getId()))
-              .toList();
-        case ICU_UNDIFF:
-          return positiveCurrentlyOnIcuWardSupplyContacts;
-      }
+              .toList());
+      result.put(ICU_UNDIFF, positiveCurrentlyOnIcuWardSupplyContacts);
+      return result;
     }
 
-    // Continue with normal processing for other ICU levels
     List<MiiEncounter> currentIcuEncounters = mapCurrentIcu.get(ICU);
     List<MiiEncounter> currentVentEncounters = mapCurrentIcu.get(ICU_VENTILATION);
     List<MiiEncounter> currentEcmoEncounters = mapCurrentIcu.get(ICU_ECMO);
 
-    // If no ICU, ICU_VENTILATION, or ICU_ECMO encounters exist, return an empty list
+    // If no ICU, ICU_VENTILATION, or ICU_ECMO encounters exist, all levels stay empty
     if (currentIcuEncounters == null
         || currentVentEncounters == null
         || currentEcmoEncounters == null) {
-      return new ArrayList<>();
+      List.of(NORMAL_WARD, ICU, ICU_VENTILATION, ICU_ECMO)
+          .forEach(level -> result.put(level, new ArrayList<>()));
+      return result;
     }
 
-    // Find the corresponding facility encounters for positive ICU ward contacts
-    List<MiiEncounter> currentPositiveIcuFacilityContactEncounter =
-        currentIcuEncounters.stream()
-            .filter(x -> positiveCurrentlyOnIcuWardFacilityContactIds.contains(x.getId()))
-            .toList();
-
-    // Active ventilation and ECMO procedures
-    List<MiiProcedure> currentActiveIcuVentProcedures =
-        icuProcedures.stream()
-            .filter(
-                x ->
-                    x.isCodeExistingInValueSet(
-                        inputCodeSettings.getProcedureVentilationCodes(), SNOMED, false))
-            .filter(MiiProcedure::isInProgress)
-            .toList();
-    Set<String> currentActiveVentFacilityContactIds =
-        currentActiveIcuVentProcedures.stream()
-            .map(MiiProcedure::getCaseId)
-            .collect(Collectors.toSet());
-    List<MiiEncounter> currentEncountersWithActiveVent =
-        currentVentEncounters.stream()
-            .filter(x -> currentActiveVentFacilityContactIds.contains(x.getId()))
-            .toList();
-
-    List<MiiProcedure> currentActiveIcuEcmoProcedures =
-        icuProcedures.stream()
-            .filter(
-                x ->
-                    x.isCodeExistingInValueSet(
-                        inputCodeSettings.getProcedureEcmoCodes(), SNOMED, false))
-            .filter(MiiProcedure::isInProgress)
-            .toList();
-    Set<String> currentActiveEcmoFacilityContactIds =
-        currentActiveIcuEcmoProcedures.stream()
-            .map(MiiProcedure::getCaseId)
-            .collect(Collectors.toSet());
-    List<MiiEncounter> currentEncountersWithActiveEcmo =
-        currentEcmoEncounters.stream()
-            .filter(x -> currentActiveEcmoFacilityContactIds.contains(x.getId()))
-            .toList();
+    Set<String> activeVentFacilityContactIds = caseProcedureIndex.getActiveVentilationCaseIds();
+    Set<String> activeEcmoFacilityContactIds = caseProcedureIndex.getActiveEcmoCaseIds();
+
+    // The highest current treatment level of a case: ECMO > ventilation > icu > normal ward
+    Function<MiiEncounter, TreatmentLevels> currentTreatmentLevel =
+        encounter -> {
+          String id = encounter.getId();
+          if (activeEcmoFacilityContactIds.contains(id)) {
+            return ICU_ECMO;
+          } else if (activeVentFacilityContactIds.contains(id)) {
+            return ICU_VENTILATION;
+          } else if (positiveCurrentlyOnIcuWardFacilityContactIds.contains(id)) {
+            return ICU;
+          }
+          return NORMAL_WARD;
+        };
+
+    result.put(
+        NORMAL_WARD,
+        getActivePositiveInpatientEncounters(facilityEncounters)
+            .filter(x -> currentTreatmentLevel.apply(x) == NORMAL_WARD)
+            .toList());
+    // A case only counts for an icu level if it got assigned to it in the current icu map
+    for (TreatmentLevels level : List.of(ICU, ICU_VENTILATION, ICU_ECMO)) {
+      result.put(
+          level,
+          mapCurrentIcu.get(level).stream()
+              .filter(x -> currentTreatmentLevel.apply(x) == level)
+              .toList());
+    }
+    return result;
+  }
 
-    // Handling the encounters according to ICU treatment level
-    return switch (icuTreatmentLevel) {
-      case NORMAL_WARD ->
-          // Process encounters for normal ward, excluding ICU, Ventilation, and ECMO encounters
-          facilityEncounters.parallelStream()
-              .filter(EncounterFilter::isDiseasePositive)
-              .filter(MiiEncounter::isCaseClassInpatientOrShortStay)
-              .filter(MiiEncounter::isActive)
-              .filter(x -> !positiveCurrentlyOnIcuWardFacilityContactIds.contains(x.getId()))
-              .filter(x -> !currentActiveVentFacilityContactIds.contains(x.getId()))
-              .filter(x -> !currentActiveEcmoFacilityContactIds.contains(x.getId()))
-              .toList();
-      case ICU ->
-          // Process encounters for ICU level, excluding active Vent and ECMO
-          currentPositiveIcuFacilityContactEncounter.stream()
-              .filter(x -> !currentActiveVentFacilityContactIds.contains(x.getId()))
-              .filter(x -> !currentActiveEcmoFacilityContactIds.contains(x.getId()))
-              .toList();
-      case ICU_VENTILATION ->
-          // Process encounters for ICU Ventilation, excluding active ECMO
-          currentEncountersWithActiveVent.stream()
-              .filter(x -> !currentActiveEcmoFacilityContactIds.contains(x.getId()))
-              .toList();
-      case ICU_ECMO ->
-          // Process encounters for ECMO treatment level
-          currentEncountersWithActiveEcmo;
-      default -> {
-        log.error(
-            "Invalid treatment level ({}) used in getCurrentEncounterByIcuLevel.",
-            icuTreatmentLevel);
-        yield new ArrayList<>();
-      }
-    };
+  private static Stream<MiiEncounter> getActivePositiveInpatientEncounters(
+      List<MiiEncounter> facilityEncounters) {
+    return facilityEncounters.parallelStream()
+        .filter(EncounterFilter::isDiseasePositive)
+        .filter(MiiEncounter::isCaseClassInpatientOrShortStay)
+        .filter(MiiEncounter::isActive);
   }
 
   /**
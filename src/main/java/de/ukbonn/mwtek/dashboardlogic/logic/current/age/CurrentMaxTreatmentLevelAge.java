@@ -17,6 +17,8 @@
  */
 package de.ukbonn.mwtek.dashboardlogic.logic.current.age;
 
+import static de.ukbonn.mwtek.dashboardlogic.tools.PatientFilter.indexPatientsById;
+
 import de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels;
 import de.ukbonn.mwtek.dashboardlogic.logic.CoronaResultFunctionality;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
@@ -29,6 +31,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -39,7 +42,14 @@ import java.util.stream.Collectors;
  * @author <a href="mailto:berke_enes.dincel@ukbonn.de">Berke Enes Dincel</a>
  */
 public record CurrentMaxTreatmentLevelAge(
-    List<MiiPatient> patients, List<MiiEncounter> currentMaxEncounters) {
+    List<MiiPatient> patients,
+    List<MiiEncounter> currentMaxEncounters,
+    Map<String, MiiPatient> patientsById) {
+
+  public CurrentMaxTreatmentLevelAge(
+      List<MiiPatient> patients, List<MiiEncounter> currentMaxEncounters) {
+    this(patients, currentMaxEncounters, null);
+  }
 
   /**
    * Creates a list of ages for patients with encounters in the current maximum encounter list.
@@ -69,7 +79,10 @@ public record CurrentMaxTreatmentLevelAge(
                     encounter, currentMaxPidAdmissionMap));
 
     // Calculate and check the age group for patients in the current maximum encounter list
-    calculateAndCheckAgeGroup(currentMaxPidAdmissionMap, resultList, patients);
+    // Resolve the patients via the index of the run if present, otherwise index them once here
+    Map<String, MiiPatient> patientById =
+        patientsById != null ? patientsById : indexPatientsById(patients);
+    calculateAndCheckAgeGroup(currentMaxPidAdmissionMap, resultList, patientById::get);
 
     // Sort the result list in ascending order
     resultList.sort(Comparator.naturalOrder());
@@ -83,19 +96,15 @@ public record CurrentMaxTreatmentLevelAge(
    *
    * @param pidAdmissionMap Map of patient IDs to their first admission encounters.
    * @param resultList List to store the calculated ages.
-   * @param listPatients List of patients for additional information.
+   * @param patientById Lookup of the patient resources by their id.
    */
   private static void calculateAndCheckAgeGroup(
       Map<String, MiiEncounter> pidAdmissionMap,
       List<Long> resultList,
-      List<MiiPatient> listPatients) {
-    // Filter the patients with a valid birthday
-    List<MiiPatient> validPatientsWithBirthday =
-        listPatients.stream().filter(MiiPatient::hasBirthDate).toList();
-
+      Function<String, MiiPatient> patientById) {
     pidAdmissionMap.forEach(
         (pid, encounter) -> {
-          Date birthdayPatient = findBirthdayForPatient(pid, validPatientsWithBirthday);
+          Date birthdayPatient = findBirthdayForPatient(patientById.apply(pid));
           if (encounter.isPeriodStartExistent() && birthdayPatient != null) {
             // Calculate the age based on the birthday and the encounter's start period
             int age =
@@ -108,18 +117,12 @@ public record CurrentMaxTreatmentLevelAge(
   }
 
   /**
-   * Finds the birthday for a given patient ID in the list of valid patients with a birthday.
+   * Returns the birthday of the given patient.
    *
-   * @param patientId The ID of the patient.
-   * @param validPatientsWithBirthday List of valid patients with a birthday.
+   * @param patient The patient resource (may be {@code null}).
    * @return The birthday of the patient or {@code null} if not found.
    */
-  private static Date findBirthdayForPatient(
-      String patientId, List<MiiPatient> validPatientsWithBirthday) {
-    return validPatientsWithBirthday.stream()
-        .filter(patient -> patientId.equals(patient.getId()))
-        .map(MiiPatient::getBirthDate)
-        .findFirst()
-        .orElseGet(() -> null);
+  private static Date findBirthdayForPatient(MiiPatient patient) {
+    return patient != null && patient.hasBirthDate() ? patient.getBirthDate() : null;
   }
 }
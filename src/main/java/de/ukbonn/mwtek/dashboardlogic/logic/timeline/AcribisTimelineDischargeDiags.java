@@ -21,16 +21,15 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext.ACRIBIS;
 import static de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants.DAY_IN_SECONDS;
 import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.getDatesOutputList;
 import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.getKickOffDateInSeconds;
+import static de.ukbonn.mwtek.utilities.generic.collections.ListTools.toList;
 
 import de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic;
-import de.ukbonn.mwtek.dashboardlogic.models.PidTimestampCohortMap;
+import de.ukbonn.mwtek.dashboardlogic.models.CohortAssignment;
 import de.ukbonn.mwtek.utilities.generic.time.DateTools;
 import de.ukbonn.mwtek.utilities.generic.time.TimerTools;
 import java.time.Instant;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -41,59 +40,37 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class AcribisTimelineDischargeDiags extends DashboardDataItemLogic
     implements TimelineFunctionalities {
-  // Debug output
-  static Map<String, Map<String, Set<String>>> patientIdsByPeriod = new LinkedHashMap<>();
-
   /**
    * Generates a timeline of daily cohort counts based on consent dates.
    *
-   * <p>Each cohort contains consent timestamps, which are aggregated by day into counts. The method
-   * returns a map of daily labels and per-day counts for each cohort.
+   * <p>The entry date of each patient is assigned once to its timeline day, which gets counted for
+   * every cohort of the patient. The method returns a map of daily labels and per-day counts for
+   * each cohort.
    *
-   * @param cohort1 the first cohort map of consent dates
-   * @param cohort2 the second cohort map of consent dates
-   * @param cohort3 the third cohort map of consent dates
+   * @param cohortAssignment the cohorts and entry (consent) dates of the patients
    * @return a map containing daily timestamps and daily consent counts for each cohort
    */
-  public Map<String, List<Long>> generateDailyCohortTimeline(
-      PidTimestampCohortMap cohort1, PidTimestampCohortMap cohort2, PidTimestampCohortMap cohort3) {
+  public Map<String, List<Long>> generateDailyCohortTimeline(CohortAssignment cohortAssignment) {
 
     log.debug("started AcribisTimelineDischargeDiags.generateDailyCohortTimeline");
     Instant startTimer = TimerTools.startTimer();
 
     Map<String, List<Long>> resultMap;
     try {
-      // Prepare and sort consent timestamps
-      var cohort1ConsentTimestamps =
-          cohort1.values().stream().map(DateTools::dateToUnixTime).sorted().toList();
-
-      var cohort2ConsentTimestamps =
-          cohort2.values().stream().map(DateTools::dateToUnixTime).sorted().toList();
-
-      var cohort3ConsentTimestamps =
-          cohort3.values().stream().map(DateTools::dateToUnixTime).sorted().toList();
-
       long currentUnixTime = DateTools.getCurrentUnixTime();
       long startDateUnix = getKickOffDateInSeconds(ACRIBIS);
+      // Total number of timeline days
+      int dayCount = (int) ((currentUnixTime - startDateUnix) / DAY_IN_SECONDS) + 1;
 
-      // Count daily consents using sliding window logic
-      var cohort1DailyCounts =
-          countPerDayLinear(cohort1ConsentTimestamps, startDateUnix, currentUnixTime);
-      var cohort2DailyCounts =
-          countPerDayLinear(cohort2ConsentTimestamps, startDateUnix, currentUnixTime);
-      var cohort3DailyCounts =
-          countPerDayLinear(cohort3ConsentTimestamps, startDateUnix, currentUnixTime);
-
-      var cohort1Values = divideMapValuesToLists(cohort1DailyCounts);
-      var cohort2Values = divideMapValuesToLists(cohort2DailyCounts);
-      var cohort3Values = divideMapValuesToLists(cohort3DailyCounts);
+      // Daily consent counts of all cohorts, indexed by the cohort index
+      long[][] dailyCounts = cohortAssignment.countPerDay(startDateUnix, dayCount);
 
       resultMap =
           Map.of(
               DATE, getDatesOutputList(ACRIBIS),
-              ACR_COHORT_K_1, cohort1Values,
-              ACR_COHORT_K_2, cohort2Values,
-              ACR_COHORT_K_3, cohort3Values);
+              ACR_COHORT_K_1, toList(dailyCounts[0]),
+              ACR_COHORT_K_2, toList(dailyCounts[1]),
+              ACR_COHORT_K_3, toList(dailyCounts[2]));
 
     } catch (Exception e) {
       log.error("Error generating consent timeline: ", e);
@@ -104,41 +81,4 @@ public class AcribisTimelineDischargeDiags extends DashboardDataItemLogic
         startTimer, "finished AcribisTimelineDischargeDiags.generateDailyCohortTimeline");
     return resultMap;
   }
-
-  public Map<String, Map<String, Set<String>>> getDebugData() {
-    return patientIdsByPeriod;
-  }
-
-  /**
-   * Counts the number of consent events per day in a sorted list of timestamps.
-   *
-   * @param timestamps a sorted list of Unix timestamps (consent dates)
-   * @param startUnix the start of the timeline (inclusive)
-   * @param endUnix the end of the timeline (inclusive)
-   * @return a map of day start timestamps to consent counts for that day
-   */
-  private LinkedHashMap<Long, Long> countPerDayLinear(
-      List<Long> timestamps, long startUnix, long endUnix) {
-    var result = new LinkedHashMap<Long, Long>();
-    int index = 0;
-    int size = timestamps.size();
-
-    while (startUnix <= endUnix) {
-      final long dayStart = startUnix;
-      final long dayEnd = dayStart + DAY_IN_SECONDS;
-      long count = 0;
-
-      while (index < size && timestamps.get(index) < dayEnd) {
-        if (timestamps.get(index) >= dayStart) {
-          count++;
-        }
-        index++;
-      }
-
-      result.put(dayStart, count);
-      startUnix = dayEnd;
-    }
-
-    return result;
-  }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.logic.timeline;
+
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
+import de.ukbonn.mwtek.utilities.generic.time.DateTools;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts events (e.g. deaths) per timeline day in a single pass: the date of each event is
+ * converted once to its calendar day in the zone of the {@link DashboardClock} and the counter of
+ * that day gets incremented. Events can be tied to a key (e.g. a patient id); only the earliest
+ * event of each key is counted, and only if its day is part of the timeline.
+ *
+ * <p>Instances are not thread-safe.
+ */
+public class DailyEventCounter {
+
+  private final DashboardClock clock;
+  private final long firstEpochDay;
+  private final int[] counts;
+  private final Map<String, Long> earliestEpochDayByKey = new HashMap<>();
+
+  /**
+   * @param clock The clock whose zone determines the calendar day of an event.
+   * @param kickOffDate The first day of the timeline [unix time].
+   * @param dayCount The number of days in the timeline.
+   */
+  public DailyEventCounter(DashboardClock clock, long kickOffDate, int dayCount) {
+    this.clock = clock;
+    this.firstEpochDay = clock.toEpochDay(DateTools.unixTimeSecondsToDate(kickOffDate));
+    this.counts = new int[Math.max(0, dayCount)];
+  }
+
+  /**
+   * Counts an event on the calendar day of the given date.
+   *
+   * @return {@code true} if the date is inside the timeline and got counted.
+   */
+  public boolean add(Date eventDate) {
+    if (eventDate == null) {
+      return false;
+    }
+    int dayIndex = getDayIndex(clock.toEpochDay(eventDate));
+    if (dayIndex < 0) {
+      return false;
+    }
+    counts[dayIndex]++;
+    return true;
+  }
+
+  /**
+   * Registers an event that is tied to a key. Of all events of a key, only the earliest one is
+   * counted, regardless of the order in which they are added.
+   */
+  public void add(Date eventDate, String key) {
+    if (key == null) {
+      add(eventDate);
+    } else if (eventDate != null) {
+      earliestEpochDayByKey.merge(key, clock.toEpochDay(eventDate), Math::min);
+    }
+  }
+
+  /** Checks whether the calendar day of the date is part of the timeline. */
+  public boolean isInTimeline(Date date) {
+    return date != null && getDayIndex(clock.toEpochDay(date)) >= 0;
+  }
+
+  /** The counter per timeline day. */
+  public int[] getCounts() {
+    int[] result = counts.clone();
+    for (long epochDay : earliestEpochDayByKey.values()) {
+      int dayIndex = getDayIndex(epochDay);
+      if (dayIndex >= 0) {
+        result[dayIndex]++;
+      }
+    }
+    return result;
+  }
+
+  /** The counter per timeline day, in the format used by the timeline data items. */
+  public List<Long> toList() {
+    int[] dailyCounts = getCounts();
+    List<Long> result = new ArrayList<>(dailyCounts.length);
+    for (int count : dailyCounts) {
+      result.add((long) count);
+    }
+    return result;
+  }
+
+  /** Position of the epoch day in the timeline or {@code -1} if it's outside. */
+  private int getDayIndex(long epochDay) {
+    long dayIndex = epochDay - firstEpochDay;
+    return dayIndex >= 0 && dayIndex < counts.length ? (int) dayIndex : -1;
+  }
+}
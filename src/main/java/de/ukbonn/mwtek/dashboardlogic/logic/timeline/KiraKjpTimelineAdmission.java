@@ -29,6 +29,8 @@ import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData.AdmissionStatus;
 import de.ukbonn.mwtek.dashboardlogic.models.KiraInteger;
 import de.ukbonn.mwtek.dashboardlogic.models.StackedBarChartsItem;
 import de.ukbonn.mwtek.dashboardlogic.models.StackedBarChartsUniformItem;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock.DayRange;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -50,6 +52,17 @@ public class KiraKjpTimelineAdmission extends DashboardDataItemLogic
   public static final String NCS_NEW_ADMISSION = "ncs_newadmission";
   public static final String NCS_RE_ADMISSION = "ncs_readmission";
 
+  // Assigns the admission dates to the calendar days of the quarters and years
+  private final DashboardClock clock;
+
+  public KiraKjpTimelineAdmission() {
+    this(DashboardClock.systemDefault());
+  }
+
+  public KiraKjpTimelineAdmission(DashboardClock clock) {
+    this.clock = clock;
+  }
+
   /** Creates the kjp admission timeline that separates admission status by quartal. */
   public StackedBarChartsItem<KiraInteger> createKjpTimelineAdmission(
       Map<String, Map<String, CoreCaseData>> coreCaseDataByGroups) {
@@ -81,6 +94,8 @@ public class KiraKjpTimelineAdmission extends DashboardDataItemLogic
     result.setStacks(List.of(stackLabels));
 
     Map<String, CoreCaseData> allCases = flattenKjpCoreCases(coreCaseDataByGroups);
+    List<DayRange> quarterRanges =
+        validQuarters.stream().map(DashboardDataItemLogic::parseQuarterRange).toList();
 
     // Prepare an index: period -> (quartal -> distinct encounter ids)
     Map<String, Map<String, Set<String>>> resultPairByQuarter = new LinkedHashMap<>();
@@ -95,10 +110,13 @@ public class KiraKjpTimelineAdmission extends DashboardDataItemLogic
     // Fill counts: for each case in scope, use its admission date to place it into a period
     // and its age bucket to place it into a stack. Count each case once.
     for (CoreCaseData ccd : allCases.values()) {
+      if (ccd.getAdmissionDate() == null) continue;
       String encId = ccd.getFacilityEncounterId();
+      long admissionDay = clock.toEpochDay(ccd.getAdmissionDate());
       // Determine the period (bar) this case belongs to (based on your KidsRadar semantics)
-      for (String quarter : validQuarters) {
-        if (isDateInQuarter(ccd.getAdmissionDate(), quarter)) {
+      for (int i = 0; i < validQuarters.size(); i++) {
+        if (quarterRanges.get(i).contains(admissionDay)) {
+          String quarter = validQuarters.get(i);
           String labelGroup;
           if (ccd.getStatus() == AdmissionStatus.NEW_ADMISSION) labelGroup = NCS_NEW_ADMISSION;
           else labelGroup = NCS_RE_ADMISSION;
@@ -135,6 +153,8 @@ public class KiraKjpTimelineAdmission extends DashboardDataItemLogic
 
     // Build quarter bars from QUALIFYING_DATE up to the last fully completed quarter
     List<String> validYears = generateYearListToLastFullYear(KidsRadar.QUALIFYING_DATE);
+    List<DayRange> yearRanges =
+        validYears.stream().map(DashboardDataItemLogic::parseYearRange).toList();
 
     StackedBarChartsUniformItem<KiraInteger> result = new StackedBarChartsUniformItem<>();
     result.setCharts(createLabelList(coreCaseDataByGroups.keySet()));
@@ -170,10 +190,12 @@ public class KiraKjpTimelineAdmission extends DashboardDataItemLogic
           // Place each case into its admission quarter and status bucket once
           for (CoreCaseData ccd : casesMap.values()) {
             if (ccd == null || ccd.getAdmissionDate() == null) continue;
+            long admissionDay = clock.toEpochDay(ccd.getAdmissionDate());
 
             // Find the quarter that contains the admission date (exactly one)
-            for (String year : validYears) {
-              if (isDateInYear(ccd.getAdmissionDate(), year)) {
+            for (int i = 0; i < validYears.size(); i++) {
+              if (yearRanges.get(i).contains(admissionDay)) {
+                String year = validYears.get(i);
                 String labelGroup =
                     (ccd.getStatus() == AdmissionStatus.NEW_ADMISSION)
                         ? NCS_NEW_ADMISSION
@@ -27,6 +27,8 @@ import de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants.KidsRadar;
 import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData;
 import de.ukbonn.mwtek.dashboardlogic.models.KiraInteger;
 import de.ukbonn.mwtek.dashboardlogic.models.StackedBarChartsItem;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock.DayRange;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -44,6 +46,17 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class KiraKjpTimelineAge extends DashboardDataItemLogic implements TimelineFunctionalities {
 
+  // Assigns the admission dates to the calendar days of the periods
+  private final DashboardClock clock;
+
+  public KiraKjpTimelineAge() {
+    this(DashboardClock.systemDefault());
+  }
+
+  public KiraKjpTimelineAge(DashboardClock clock) {
+    this.clock = clock;
+  }
+
   /** Creates the kjp age timeline that separates age cluster by month. */
   public StackedBarChartsItem<KiraInteger> createKjpAgeTimeline(
       Map<String, Map<String, CoreCaseData>> coreCaseDataByGroups) {
@@ -85,13 +98,22 @@ public class KiraKjpTimelineAge extends DashboardDataItemLogic implements Timeli
       periodAgeToIds.put(period, ageMap);
     }
 
+    // The periods get parsed once; each admission date is converted once to its epoch day
+    List<DayRange> periodRanges =
+        hasMonthlyPeriods(KJP)
+            ? validPeriods.stream().map(DashboardDataItemLogic::parseMonthRange).toList()
+            : List.of();
+
     // Fill counts: for each case in scope, use its admission date to place it into a period
     // and its age bucket to place it into a stack. Count each case once.
     for (CoreCaseData ccd : allCases.values()) {
+      if (ccd.getAdmissionDate() == null) continue;
       String encId = ccd.getFacilityEncounterId();
+      long admissionDay = clock.toEpochDay(ccd.getAdmissionDate());
       // Determine the period (bar) this case belongs to (based on your KidsRadar semantics)
-      for (String period : validPeriods) {
-        if (isDateInPeriod(KJP, ccd.getAdmissionDate(), period)) {
+      for (int i = 0; i < periodRanges.size(); i++) {
+        if (periodRanges.get(i).contains(admissionDay)) {
+          String period = validPeriods.get(i);
           String ageLabel = resolveAgeLabel(ccd, KJP);
           // If resolveAgeLabel can return unknown labels, guard with containsKey:
           if (periodAgeToIds.get(period).containsKey(ageLabel)) {
@@ -30,14 +30,15 @@ import de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic;
 import de.ukbonn.mwtek.dashboardlogic.enums.KidsRadarDataItemContext;
 import de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants.KidsRadar;
 import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData;
+import de.ukbonn.mwtek.dashboardlogic.models.DebugSink;
 import de.ukbonn.mwtek.dashboardlogic.models.KiraInteger;
 import de.ukbonn.mwtek.dashboardlogic.models.StackedBarChartsItem;
 import de.ukbonn.mwtek.dashboardlogic.models.StackedBarChartsUniformItem;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
 import de.ukbonn.mwtek.utilities.generic.time.TimerTools;
 import java.time.Instant;
+import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -48,8 +49,15 @@ import lombok.extern.slf4j.Slf4j;
 public class KiraTimelineDisorders extends DashboardDataItemLogic
     implements TimelineFunctionalities {
 
-  // Debug map: holds patients and case IDs per period and group
-  static Map<String, Map<String, Set<String>>> patientIdsByPeriod = new LinkedHashMap<>();
+  // Debug output: receives the patients and case IDs per period and group if debug is enabled
+  private final DebugSink debugSink;
+  // Assigns the admission dates to the calendar months of the periods
+  private final DashboardClock clock;
+
+  public KiraTimelineDisorders(DebugSink debugSink, DashboardClock clock) {
+    this.debugSink = debugSink;
+    this.clock = clock;
+  }
 
   /**
    * Generates a GroupedBarChartsItem with patient counts per diagnostic group and monthly period.
@@ -78,59 +86,47 @@ public class KiraTimelineDisorders extends DashboardDataItemLogic
     result.setBars(validPeriods);
     result.setStacks(List.of(IN_GROUP, OUT_GROUP));
 
+    // Bucket every case once by group and month
+    List<String> groups = new ArrayList<>(coreCaseDataByGroups.keySet());
+    List<List<Map<String, Set<String>>>> patientCaseIdsByGroupAndPeriod =
+        bucketByGroupAndPeriod(
+            kidsRadarDataItemContext, coreCaseDataByGroups.values(), validPeriods);
+
     // Precompute: all patients per period (across all diagnostic groups)
-    Map<String, Set<String>> allPatientsByPeriod = new HashMap<>();
-    for (String period : validPeriods) {
-      Set<String> allPatients =
-          coreCaseDataByGroups.values().stream()
-              .flatMap(groupCases -> groupCases.values().stream())
-              .filter(x -> isDateInPeriod(kidsRadarDataItemContext, x.getAdmissionDate(), period))
-              .map(CoreCaseData::getPatientId)
-              .collect(Collectors.toSet());
-      allPatientsByPeriod.put(period, allPatients);
+    List<Set<String>> allPatientsByPeriod = new ArrayList<>(validPeriods.size());
+    for (int periodIndex = 0; periodIndex < validPeriods.size(); periodIndex++) {
+      Set<String> allPatients = new HashSet<>();
+      for (List<Map<String, Set<String>>> byPeriod : patientCaseIdsByGroupAndPeriod) {
+        if (byPeriod != null) allPatients.addAll(byPeriod.get(periodIndex).keySet());
+      }
+      allPatientsByPeriod.add(allPatients);
     }
 
     // Final result structure: charts x months x [in_group, out_group]
     List<List<List<KiraInteger>>> values = new ArrayList<>();
 
-    coreCaseDataByGroups.forEach(
-        (group, caseDataItem) -> {
-          if (caseDataItem == null) return;
-
-          List<List<KiraInteger>> valuesPerPeriod = new ArrayList<>();
-
-          for (String period : validPeriods) {
-            // Get all cases with this diagnosis group in the current period
-            List<CoreCaseData> caseDataItemsByPeriod =
-                caseDataItem.values().stream()
-                    .filter(
-                        x -> isDateInPeriod(kidsRadarDataItemContext, x.getAdmissionDate(), period))
-                    .toList();
-
-            Map<String, Set<String>> patientIdCaseIdsMap =
-                caseDataItemsByPeriod.stream()
-                    .collect(
-                        Collectors.groupingBy(
-                            CoreCaseData::getPatientId,
-                            Collectors.mapping(
-                                CoreCaseData::getFacilityEncounterId, Collectors.toSet())));
-
-            patientIdsByPeriod.put(period + "_" + group, patientIdCaseIdsMap);
-            logPatientsWithMultipleCases(patientIdCaseIdsMap, period, group);
-
-            int inGroup = patientIdCaseIdsMap.size();
-            Set<String> allPatientIdsInPeriod = allPatientsByPeriod.getOrDefault(period, Set.of());
-            int outGroup =
-                (int)
-                    allPatientIdsInPeriod.stream()
-                        .filter(id -> !patientIdCaseIdsMap.containsKey(id))
-                        .count();
-
-            valuesPerPeriod.add(List.of(new KiraInteger(inGroup), new KiraInteger(outGroup)));
-          }
-
-          values.add(valuesPerPeriod);
-        });
+    for (int groupIndex = 0; groupIndex < groups.size(); groupIndex++) {
+      List<Map<String, Set<String>>> byPeriod = patientCaseIdsByGroupAndPeriod.get(groupIndex);
+      if (byPeriod == null) continue;
+      String group = groups.get(groupIndex);
+
+      List<List<KiraInteger>> valuesPerPeriod = new ArrayList<>();
+      for (int periodIndex = 0; periodIndex < validPeriods.size(); periodIndex++) {
+        String period = validPeriods.get(periodIndex);
+        Map<String, Set<String>> patientIdCaseIdsMap = byPeriod.get(periodIndex);
+
+        debugSink.put(period + "_" + group, () -> patientIdCaseIdsMap);
+        logPatientsWithMultipleCases(patientIdCaseIdsMap, period, group);
+
+        // The patients of the group are a subset of all patients of the period
+        int inGroup = patientIdCaseIdsMap.size();
+        int outGroup = allPatientsByPeriod.get(periodIndex).size() - inGroup;
+
+        valuesPerPeriod.add(List.of(new KiraInteger(inGroup), new KiraInteger(outGroup)));
+      }
+
+      values.add(valuesPerPeriod);
+    }
 
     result.setValues(values);
 
@@ -162,42 +158,35 @@ public class KiraTimelineDisorders extends DashboardDataItemLogic
     List<String> validPeriods = generateDateList(KidsRadar.QUALIFYING_DATE, YEAR_MONTH_FORMAT);
     result.setBars(List.of(validPeriods));
 
-    // Precompute: all patients per period (across all diagnostic groups)
     List<String> stackKeysOrdered = new ArrayList<>(rsvOnly.keySet());
+    // Missing groups are handled as groups without cases
+    List<List<Map<String, Set<String>>>> patientCaseIdsByGroupAndPeriod =
+        bucketByGroupAndPeriod(
+            kidsRadarDataItemContext,
+            stackKeysOrdered.stream()
+                .map(groupKey -> Objects.requireNonNullElse(rsvOnly.get(groupKey), Map.of()))
+                .toList(),
+            validPeriods);
 
     // 3) Build values: values[chartIndex][barIndex][stackIndex]
     List<List<List<? extends Number>>> values = new ArrayList<>(1);
     List<List<? extends Number>> valuesForSingleChart = new ArrayList<>(validPeriods.size());
 
-    for (String period : validPeriods) {
+    for (int periodIndex = 0; periodIndex < validPeriods.size(); periodIndex++) {
+      String period = validPeriods.get(periodIndex);
       // one row per month (bar): counts per stack in the same order as stackKeysOrdered
       List<Integer> countsPerStackThisMonth = new ArrayList<>(stackKeysOrdered.size());
 
-      for (String groupKey : stackKeysOrdered) {
-        Map<String, CoreCaseData> groupCases = rsvOnly.get(groupKey);
-
-        // 1) Filter cases by period
-        List<CoreCaseData> caseDataItemsByPeriod =
-            (groupCases == null ? Stream.<CoreCaseData>empty() : groupCases.values().stream())
-                .filter(c -> isDateInPeriod(kidsRadarDataItemContext, c.getAdmissionDate(), period))
-                .toList();
-
-        // 2) Group by patientId and collect set of encounterIds
+      for (int groupIndex = 0; groupIndex < stackKeysOrdered.size(); groupIndex++) {
         Map<String, Set<String>> patientIdCaseIdsMap =
-            caseDataItemsByPeriod.stream()
-                .collect(
-                    Collectors.groupingBy(
-                        CoreCaseData::getPatientId,
-                        Collectors.mapping(
-                            CoreCaseData::getFacilityEncounterId, Collectors.toSet())));
+            patientCaseIdsByGroupAndPeriod.get(groupIndex).get(periodIndex);
 
-        // 3) Put into debug map under key "<period>_<group>"
-        patientIdsByPeriod.put(period + "_" + groupKey, patientIdCaseIdsMap);
+        // Put into debug output under key "<period>_<group>"
+        String groupKey = stackKeysOrdered.get(groupIndex);
+        debugSink.put(period + "_" + groupKey, () -> patientIdCaseIdsMap);
 
-        // 4) Use the size of the map as the unique patient count for this stack this month
-        int uniquePatientsThisMonth = patientIdCaseIdsMap.size();
-
-        countsPerStackThisMonth.add(uniquePatientsThisMonth);
+        // Use the size of the map as the unique patient count for this stack this month
+        countsPerStackThisMonth.add(patientIdCaseIdsMap.size());
       }
 
       valuesForSingleChart.add(countsPerStackThisMonth);
@@ -209,9 +198,49 @@ public class KiraTimelineDisorders extends DashboardDataItemLogic
     return result;
   }
 
-  /** Returns internal debug data mapping periods + group to patient-case information. */
-  public Map<String, Map<String, Set<String>>> getDebugData() {
-    return patientIdsByPeriod;
+  /**
+   * Assigns each case of each group once to the period of its admission month.
+   *
+   * @param kidsRadarDataItemContext The context (e.g., KJP or RSV) determining date reference
+   * @param coreCaseDataByGroup Per group: case ID → CoreCaseData.
+   * @param validPeriods The periods in format {@code yyyy-MM}.
+   * @return Per group (in iteration order) and period (in list order): patient ID → case IDs;
+   *     {@code null} for {@code null} groups.
+   */
+  private List<List<Map<String, Set<String>>>> bucketByGroupAndPeriod(
+      KidsRadarDataItemContext kidsRadarDataItemContext,
+      Collection<Map<String, CoreCaseData>> coreCaseDataByGroup,
+      List<String> validPeriods) {
+    Map<YearMonth, Integer> periodIndexByMonth = new HashMap<>();
+    for (int i = 0; i < validPeriods.size(); i++) {
+      periodIndexByMonth.put(YearMonth.parse(validPeriods.get(i)), i);
+    }
+    boolean monthlyPeriods = hasMonthlyPeriods(kidsRadarDataItemContext);
+
+    List<List<Map<String, Set<String>>>> result = new ArrayList<>(coreCaseDataByGroup.size());
+    for (Map<String, CoreCaseData> groupCases : coreCaseDataByGroup) {
+      if (groupCases == null) {
+        result.add(null);
+        continue;
+      }
+      List<Map<String, Set<String>>> byPeriod = new ArrayList<>(validPeriods.size());
+      for (int i = 0; i < validPeriods.size(); i++) {
+        byPeriod.add(new HashMap<>());
+      }
+      for (CoreCaseData caseData : groupCases.values()) {
+        if (!monthlyPeriods || caseData.getAdmissionDate() == null) continue;
+        Integer periodIndex =
+            periodIndexByMonth.get(YearMonth.from(clock.toLocalDate(caseData.getAdmissionDate())));
+        if (periodIndex != null) {
+          byPeriod
+              .get(periodIndex)
+              .computeIfAbsent(caseData.getPatientId(), _ -> new HashSet<>())
+              .add(caseData.getFacilityEncounterId());
+        }
+      }
+      result.add(byPeriod);
+    }
+    return result;
   }
 
   /**
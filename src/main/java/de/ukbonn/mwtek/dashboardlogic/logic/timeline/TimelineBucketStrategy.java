@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+package de.ukbonn.mwtek.dashboardlogic.logic.timeline;
+
+import de.ukbonn.mwtek.dashboardlogic.models.TimestampedListPair;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Granularity of the buckets of a timeline that is based on daily counts.
+ *
+ * <p>The timeline logic counts per day in a single pass; the strategy only merges these daily
+ * counters into the requested buckets. Each bucket is labeled with the timestamp of its first day.
+ */
+public enum TimelineBucketStrategy {
+  /** One bucket per day (the default output of the timeline data items). */
+  DAILY,
+  /** Buckets of seven days, starting at the kickoff date. */
+  WEEKLY,
+  /** One bucket per calendar month. */
+  MONTHLY;
+
+  /**
+   * Merges daily counters into the buckets of this strategy.
+   *
+   * @param dailyDates The midnight timestamps [unix time] of the timeline days.
+   * @param dailyCounts The counter per day; index {@code i} belongs to {@code dailyDates.get(i)}.
+   * @param clock The clock whose zone determines the calendar months of {@link #MONTHLY}.
+   * @return The bucket start timestamps with the summed up counts.
+   */
+  public TimestampedListPair toTimestampedListPair(
+      List<Long> dailyDates, int[] dailyCounts, DashboardClock clock) {
+    List<Long> dates = new ArrayList<>();
+    List<Long> values = new ArrayList<>();
+    YearMonth currentMonth = null;
+    ZoneId zoneId = clock.getZoneId();
+    for (int i = 0; i < dailyDates.size(); i++) {
+      long count = i < dailyCounts.length ? dailyCounts[i] : 0;
+      boolean newBucket =
+          switch (this) {
+            case DAILY -> true;
+            case WEEKLY -> i % 7 == 0;
+            case MONTHLY -> {
+              YearMonth month =
+                  YearMonth.from(Instant.ofEpochSecond(dailyDates.get(i)).atZone(zoneId));
+              boolean isNewMonth = !month.equals(currentMonth);
+              currentMonth = month;
+              yield isNewMonth;
+            }
+          };
+      if (newBucket) {
+        dates.add(dailyDates.get(i));
+        values.add(count);
+      } else {
+        values.set(values.size() - 1, values.getLast() + count);
+      }
+    }
+    return new TimestampedListPair(dates, values);
+  }
+}
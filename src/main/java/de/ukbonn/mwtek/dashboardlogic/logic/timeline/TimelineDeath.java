@@ -18,7 +18,6 @@
 package de.ukbonn.mwtek.dashboardlogic.logic.timeline;
 
 import static de.ukbonn.mwtek.dashboardlogic.enums.DashboardLogicFixedValues.POSITIVE_RESULT;
-import static de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants.DAY_IN_SECONDS;
 import static de.ukbonn.mwtek.dashboardlogic.logic.CoronaResultFunctionality.getDatesOutputList;
 import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.getKickOffDateInSeconds;
 
@@ -26,15 +25,13 @@ import de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic;
 import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
 import de.ukbonn.mwtek.dashboardlogic.models.TimestampedListPair;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
-import de.ukbonn.mwtek.utilities.generic.time.DateTools;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiPatient;
 import de.ukbonn.mwtek.utilities.generic.time.TimerTools;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
 import java.util.Date;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
@@ -48,6 +45,17 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class TimelineDeath extends DashboardDataItemLogic implements TimelineFunctionalities {
 
+  // Assigns the dates of death to the calendar days of the timeline
+  private final DashboardClock clock;
+
+  public TimelineDeath() {
+    this(DashboardClock.systemDefault());
+  }
+
+  public TimelineDeath(DashboardClock clock) {
+    this.clock = clock;
+  }
+
   /**
    * Creates a ListNumberPair that contains the number of deceased patients for each day since
    * Qualifying date
@@ -56,41 +64,65 @@ public class TimelineDeath extends DashboardDataItemLogic implements TimelineFun
    */
   public TimestampedListPair createTimelineDeathMap(
       List<MiiEncounter> facilityContacts, DataItemContext dataItemContext) {
+    return createTimelineDeathMap(facilityContacts, null, false, dataItemContext);
+  }
+
+  /**
+   * Creates a ListNumberPair that contains the number of deceased patients for each day since
+   * Qualifying date. Each death is placed directly into the bucket of its day, and each patient is
+   * counted once, on the day of the earliest death found.
+   *
+   * <p>Only positive, finished, non-outpatient cases are considered. By default, a case counts as
+   * deceased if its discharge disposition says so, and the death is dated at the end of the case.
+   *
+   * @param facilityContacts All facility contacts.
+   * @param patients The patient resources; just needed if {@code usePatientDeceased} is set.
+   * @param usePatientDeceased If {@code true}, a case counts as deceased if {@code
+   *     Patient.deceasedDateTime} lies within the days of the case, and the death is dated at
+   *     {@code Patient.deceasedDateTime}. This only affects the death timeline; the other data
+   *     items keep using the discharge disposition.
+   * @return ListNumberPair Containing dates and number of deceased people
+   */
+  public TimestampedListPair createTimelineDeathMap(
+      List<MiiEncounter> facilityContacts,
+      List<MiiPatient> patients,
+      boolean usePatientDeceased,
+      DataItemContext dataItemContext) {
     log.debug("started createTimelineDeathMap");
     Instant startTimer = TimerTools.startTimer();
-    LinkedHashMap<Long, Long> dateResultMap = new LinkedHashMap<>();
-    List<Long> valueList;
     TimestampedListPair resultPair = new TimestampedListPair();
 
-    // Retrieval of the current date
-    long currentUnixTime = DateTools.getCurrentUnixTime();
-    // Retrieval of the start date
-    long tempDateUnix = getKickOffDateInSeconds(dataItemContext);
-
     try {
-      // subset with positive and completed encounters needed with discharge disposition: dead
-      // (07 on pos 1 and 2 in the Encounter.dischargeDisposition)
-      List<MiiEncounter> listPositiveDeceasedCases =
-          facilityContacts.parallelStream()
+      List<Long> dates = getDatesOutputList(dataItemContext);
+      DailyEventCounter deathsPerDay =
+          new DailyEventCounter(clock, getKickOffDateInSeconds(dataItemContext), dates.size());
+      // subset with positive and completed encounters
+      List<MiiEncounter> positiveFinishedCases =
+          facilityContacts.stream()
               .filter(x -> x.hasExtension(POSITIVE_RESULT.getValue()))
               // just finished non-outpatient cases can hold a discharge disposition
               .filter(x -> x.getPeriod().hasEnd() && !x.isCaseClassOutpatient())
-              .filter(MiiEncounter::isPatientDeceased)
               .toList();
-      // Loop through each day
-      while (tempDateUnix <= currentUnixTime) {
-
-        long countDeceased = 0;
-        // needs to be filled beforehand for daysDifferenceCheck to work
-        dateResultMap.put(tempDateUnix, countDeceased);
-
-        for (MiiEncounter encounter : listPositiveDeceasedCases) {
-          checkDaysDifference(tempDateUnix, dateResultMap, encounter);
+      if (usePatientDeceased && patients != null) {
+        Map<String, Date> deceasedDateByPid = new HashMap<>();
+        for (MiiPatient patient : patients) {
+          if (patient.hasDeceasedDateTimeType()) {
+            deceasedDateByPid.put(patient.getId(), patient.getDeceasedDateTimeType().getValue());
+          }
+        }
+        for (MiiEncounter encounter : positiveFinishedCases) {
+          Date deceasedDate = deceasedDateByPid.get(encounter.getPatientId());
+          if (isDeceasedDuringCase(deceasedDate, encounter)) {
+            deathsPerDay.add(deceasedDate, encounter.getPatientId());
+          }
         }
-        tempDateUnix += DAY_IN_SECONDS; // add one day
+      } else {
+        // discharge disposition: dead (07 on pos 1 and 2 in the Encounter.dischargeDisposition)
+        positiveFinishedCases.stream()
+            .filter(MiiEncounter::isPatientDeceased)
+            .forEach(x -> deathsPerDay.add(x.getPeriod().getEnd(), x.getPatientId()));
       }
-      valueList = divideMapValuesToLists(dateResultMap);
-      resultPair = new TimestampedListPair(getDatesOutputList(dataItemContext), valueList);
+      resultPair = new TimestampedListPair(dates, deathsPerDay.toList());
     } catch (Exception e) {
       log.debug("Error is calculating the timeline death: {}", e.getMessage());
     }
@@ -98,33 +130,13 @@ public class TimelineDeath extends DashboardDataItemLogic implements TimelineFun
     return resultPair;
   }
 
-  /**
-   * Calculation of the difference between two dates and, if the difference is less than or equal to
-   * 1, increments the value written to the map for the date checked [used by
-   * createTimelineDeathMap]
-   *
-   * @param tempDateUnix Current date [unixtime] which is checked and incremented if the reporting
-   *     date fits into the corresponding time window [date + 24 hours]
-   * @param dateResultMap Map with the result per date [unixtime]
-   * @param encounter Current {@link MiiEncounter} that is going to be checked
-   */
-  private static void checkDaysDifference(
-      long tempDateUnix, Map<Long, Long> dateResultMap, MiiEncounter encounter) {
-    Date checkDate = DateTools.unixTimeSecondsToDate(tempDateUnix);
-    Date caseDate = encounter.getPeriod().getEnd();
-    LocalDate localCheckDate = checkDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-
-    LocalDate localCaseDate = caseDate.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-
-    long dayDifference = Math.abs(ChronoUnit.DAYS.between(localCheckDate, localCaseDate));
-    // if the dayDifference is smaller than one than the value of the day can be increased by
-    // one
-    if (dayDifference < 1) {
-      // check if the dates have the same year and month
-      if (localCheckDate.getDayOfMonth() == localCaseDate.getDayOfMonth()
-          && localCheckDate.getYear() == localCaseDate.getYear()) {
-        dateResultMap.replace(tempDateUnix, dateResultMap.get(tempDateUnix) + 1);
-      }
+  /** Checks whether the date of death lies between the first and the last day of the case. */
+  private boolean isDeceasedDuringCase(Date deceasedDate, MiiEncounter encounter) {
+    if (deceasedDate == null || !encounter.getPeriod().hasStart()) {
+      return false;
     }
+    long deathDay = clock.toEpochDay(deceasedDate);
+    return deathDay >= clock.toEpochDay(encounter.getPeriod().getStart())
+        && deathDay <= clock.toEpochDay(encounter.getPeriod().getEnd());
   }
 }
@@ -49,6 +49,29 @@ public interface TimelineFunctionalities {
     return listKeys.stream().map(tempMap::get).collect(Collectors.toList());
   }
 
+  /**
+   * Counts the given timestamps per timeline day in a single pass. The day index is computed
+   * directly from the distance to the first day of the timeline; since the timeline days are
+   * anchored at the (zone-dependent) midnight of the kickoff date, no further zone correction is
+   * needed.
+   *
+   * @param kickOffDate The first day of the timeline [unix time].
+   * @param dayCount The number of days in the timeline.
+   * @param timestamps The timestamps [unix time] that are going to be counted. Timestamps outside
+   *     the timeline are ignored.
+   * @return A counter per timeline day.
+   */
+  default int[] countPerDay(long kickOffDate, int dayCount, Collection<Long> timestamps) {
+    int[] counts = new int[dayCount];
+    for (long timestamp : timestamps) {
+      long dayIndex = Math.floorDiv(timestamp - kickOffDate, DAY_IN_SECONDS);
+      if (dayIndex >= 0 && dayIndex < dayCount) {
+        counts[(int) dayIndex]++;
+      }
+    }
+    return counts;
+  }
+
   default boolean matchesCode(MiiProcedure procedure, Collection<String> codeSet) {
     return procedure.getCode().getCoding().stream()
         .map(Coding::getCode)
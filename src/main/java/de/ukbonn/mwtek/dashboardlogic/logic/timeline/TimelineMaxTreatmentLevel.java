@@ -31,12 +31,15 @@ import static de.ukbonn.mwtek.utilities.fhir.misc.FhirCodingTools.getCodeOfFirst
 
 import de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic;
 import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
+import de.ukbonn.mwtek.dashboardlogic.enums.MaxTreatmentTimelineEngine;
 import de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels;
 import de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality;
+import de.ukbonn.mwtek.dashboardlogic.models.CaseProcedureIndex;
+import de.ukbonn.mwtek.dashboardlogic.models.CaseProcedureIndex.IndexedProcedure;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
+import de.ukbonn.mwtek.dashboardlogic.models.IcuLocationRegistry;
 import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
 import de.ukbonn.mwtek.dashboardlogic.tools.EncounterFilter;
-import de.ukbonn.mwtek.dashboardlogic.tools.LocationFilter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiLocation;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiProcedure;
@@ -46,6 +49,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -86,7 +90,96 @@ public class TimelineMaxTreatmentLevel extends DashboardDataItemLogic
       List<MiiLocation> locations,
       InputCodeSettings inputCodeSettings,
       boolean useIcuUndiff) {
-    log.debug("started createMaxTreatmentTimeline");
+    return createMaxTreatmentTimeline(
+        dataItemContext,
+        facilityEncounters,
+        supplyContactEncounters,
+        icuProcedures,
+        locations,
+        inputCodeSettings,
+        useIcuUndiff,
+        MaxTreatmentTimelineEngine.DAY_LOOP);
+  }
+
+  /**
+   * Creates a map containing all maximal treatment of cases for each day, since the qualifying date
+   *
+   * @param engine The {@link MaxTreatmentTimelineEngine algorithm} that determines the supply
+   *     contacts that need to be checked per day.
+   * @return Map that assigns the cases per day to a treatment level and also contains a map with
+   *     the case ids per date
+   */
+  public static Map<TreatmentLevels, Map<Long, Set<String>>> createMaxTreatmentTimeline(
+      DataItemContext dataItemContext,
+      List<MiiEncounter> facilityEncounters,
+      List<MiiEncounter> supplyContactEncounters,
+      List<MiiProcedure> icuProcedures,
+      List<MiiLocation> locations,
+      InputCodeSettings inputCodeSettings,
+      boolean useIcuUndiff,
+      MaxTreatmentTimelineEngine engine) {
+    return createMaxTreatmentTimeline(
+        dataItemContext,
+        facilityEncounters,
+        supplyContactEncounters,
+        new CaseProcedureIndex(icuProcedures, inputCodeSettings),
+        locations,
+        inputCodeSettings,
+        useIcuUndiff,
+        engine);
+  }
+
+  /**
+   * Creates a map containing all maximal treatment of cases for each day, since the qualifying date
+   *
+   * @param caseProcedureIndex The {@link CaseProcedureIndex} with the ventilation and ECMO
+   *     procedures per case.
+   * @param engine The {@link MaxTreatmentTimelineEngine algorithm} that determines the supply
+   *     contacts that need to be checked per day.
+   * @return Map that assigns the cases per day to a treatment level and also contains a map with
+   *     the case ids per date
+   */
+  public static Map<TreatmentLevels, Map<Long, Set<String>>> createMaxTreatmentTimeline(
+      DataItemContext dataItemContext,
+      List<MiiEncounter> facilityEncounters,
+      List<MiiEncounter> supplyContactEncounters,
+      CaseProcedureIndex caseProcedureIndex,
+      List<MiiLocation> locations,
+      InputCodeSettings inputCodeSettings,
+      boolean useIcuUndiff,
+      MaxTreatmentTimelineEngine engine) {
+    return createMaxTreatmentTimeline(
+        dataItemContext,
+        facilityEncounters,
+        supplyContactEncounters,
+        caseProcedureIndex,
+        new IcuLocationRegistry(locations),
+        inputCodeSettings,
+        useIcuUndiff,
+        engine);
+  }
+
+  /**
+   * Creates a map containing all maximal treatment of cases for each day, since the qualifying date
+   *
+   * @param caseProcedureIndex The {@link CaseProcedureIndex} with the ventilation and ECMO
+   *     procedures per case.
+   * @param icuLocationRegistry The {@link IcuLocationRegistry} of the current run.
+   * @param engine The {@link MaxTreatmentTimelineEngine algorithm} that determines the supply
+   *     contacts that need to be checked per day.
+   * @return Map that assigns the cases per day to a treatment level and also contains a map with
+   *     the case ids per date
+   */
+  public static Map<TreatmentLevels, Map<Long, Set<String>>> createMaxTreatmentTimeline(
+      DataItemContext dataItemContext,
+      List<MiiEncounter> facilityEncounters,
+      List<MiiEncounter> supplyContactEncounters,
+      CaseProcedureIndex caseProcedureIndex,
+      IcuLocationRegistry icuLocationRegistry,
+      InputCodeSettings inputCodeSettings,
+      boolean useIcuUndiff,
+      MaxTreatmentTimelineEngine engine) {
+    log.debug("started createMaxTreatmentTimeline [{}]", engine);
     Instant startTimer = TimerTools.startTimer();
 
     // Map containing Lists with number of cases, sorted by their treatmentlevel, and a set of
@@ -116,154 +209,143 @@ public class TimelineMaxTreatmentLevel extends DashboardDataItemLogic
     // considered, since in the location components within an Encounter resource, at best
     // ward/room and bed are listed with identical time periods, and the stay should only be
     // evaluated once. The highest of these hierarchy levels should be sufficient.
-    Set<String> icuLocationIds = LocationFilter.getIcuLocationIds(locations);
+    Set<String> icuLocationIds = icuLocationRegistry.getIcuLocationIds();
 
     // Since kds case module profile 2024 the pre-stationary and post-stationary will now be
     // handled as outpatient cases with Encounter.class = AMB
+    // Both engines only process encounters that can be assigned to a case and a day
     Set<MiiEncounter> positiveSupplyContactEncounters =
         supplyContactEncounters.parallelStream()
             .filter(EncounterFilter::isDiseasePositive)
             .filter(MiiEncounter::isCaseClassInpatientOrShortStay)
+            .filter(TimelineMaxTreatmentLevel::isAssignableToTimeline)
             .collect(Collectors.toSet());
 
     List<MiiEncounter> positiveOutpatientEncounters =
         facilityEncounters.parallelStream()
             .filter(MiiEncounter::isCaseClassOutpatient)
             .filter(EncounterFilter::isDiseasePositive)
+            .filter(TimelineMaxTreatmentLevel::isAssignableToTimeline)
             .toList();
 
     positiveSupplyContactEncounters.addAll(positiveOutpatientEncounters);
 
-    long currentDate = getKickOffDateInSeconds(dataItemContext);
+    long kickOffDate = getKickOffDateInSeconds(dataItemContext);
     long currentDayUnix = DateTools.getCurrentUnixTime();
     // Storing the highest treatmentlevel undiff since its simpler to handle
     Map<String, TreatmentLevels> highestTreatmentLevelUndiff = new HashMap<>();
 
-    Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
-    while (currentDate <= currentDayUnix) {
-      long checkDate = currentDate;
-      mapAmbulantCaseNr.put(checkDate, ConcurrentHashMap.newKeySet());
-      mapNormalWardCaseNrs.put(checkDate, ConcurrentHashMap.newKeySet());
-      if (useIcuUndiff) {
-        mapIcuUndiffCaseNrs.put(checkDate, ConcurrentHashMap.newKeySet());
-      } else {
-        mapIcuCaseNrs.put(checkDate, ConcurrentHashMap.newKeySet());
-        mapIcuVentCaseNrs.put(checkDate, ConcurrentHashMap.newKeySet());
-        mapIcuEcmoCaseNrs.put(checkDate, ConcurrentHashMap.newKeySet());
+    if (engine == MaxTreatmentTimelineEngine.SWEEP_LINE) {
+      List<SupplyContactEvent> events =
+          createSupplyContactEvents(positiveSupplyContactEncounters, kickOffDate, currentDayUnix);
+      Set<MiiEncounter> activeSupplyContacts = new LinkedHashSet<>();
+      int eventIndex = 0;
+      int dayIndex = 0;
+      for (long checkDate = kickOffDate; checkDate <= currentDayUnix; checkDate += DAY_IN_SECONDS) {
+        initializeTimelineDay(
+            checkDate,
+            useIcuUndiff,
+            mapAmbulantCaseNr,
+            mapNormalWardCaseNrs,
+            mapIcuUndiffCaseNrs,
+            mapIcuCaseNrs,
+            mapIcuVentCaseNrs,
+            mapIcuEcmoCaseNrs);
+        // Apply all events of the current day to the set of active supply contacts
+        while (eventIndex < events.size() && events.get(eventIndex).dayIndex() == dayIndex) {
+          SupplyContactEvent event = events.get(eventIndex++);
+          if (event.isStart()) activeSupplyContacts.add(event.encounter());
+          else activeSupplyContacts.remove(event.encounter());
+        }
+        for (MiiEncounter supplyContactEncounter : activeSupplyContacts) {
+          try {
+            assignSupplyContactToTimeline(
+                supplyContactEncounter,
+                checkDate,
+                caseProcedureIndex,
+                inputCodeSettings,
+                useIcuUndiff,
+                icuLocationIds,
+                prevMaxTreatmentlevelByCaseId,
+                highestTreatmentLevelUndiff,
+                mapAmbulantCaseNr,
+                mapNormalWardCaseNrs,
+                mapIcuUndiffCaseNrs,
+                mapIcuCaseNrs,
+                mapIcuVentCaseNrs,
+                mapIcuEcmoCaseNrs);
+          } catch (Exception ex) {
+            log.error(
+                "Creation of the max treatmentlevel timeline failed for encounter {}.",
+                supplyContactEncounter.getId(),
+                ex);
+          }
+        }
+        dayIndex++;
       }
-      // Pre-filtering the encounters to ones that can have intersection with the date that is
-      // currently checked
-      try {
-        positiveSupplyContactEncounters.parallelStream()
-            .filter(
-                x -> {
-                  long start = DateTools.dateToUnixTime(x.getPeriod().getStart()) - DAY_IN_SECONDS;
-                  long end =
-                      DateTools.dateToUnixTime(
-                              x.getPeriod().getEnd() != null
-                                  ? x.getPeriod().getEnd()
-                                  : DateTools.getCurrentDateTime())
-                          + DAY_IN_SECONDS;
-                  return start < checkDate && end >= checkDate;
-                })
-            .forEach(
-                supplyContactEncounter -> {
-                  // Since a case should just count once a day and the procedure usually references
-                  // the facility contact, we need to look via top level resource
-                  String facilityContactId = supplyContactEncounter.getFacilityContactId();
-                  long caseStartUnix =
-                      DateTools.dateToUnixTime(supplyContactEncounter.getPeriod().getStart());
-
-                  // Prevent multiple cases of a patient from being processed at the same time
-                  ReentrantLock lock =
-                      locks.computeIfAbsent(facilityContactId, _ -> new ReentrantLock());
-                  lock.lock();
-                  boolean isNormalWard;
-                  boolean isIcuUndiff = false;
-                  boolean isIcu = false;
-                  boolean isVent = false;
-                  boolean isEcmo = false;
-                  try {
-                    isNormalWard =
-                        prevMaxTreatmentlevelByCaseId.get(NORMAL_WARD).contains(facilityContactId);
-                    if (useIcuUndiff) {
-                      isIcuUndiff =
-                          prevMaxTreatmentlevelByCaseId.get(ICU_UNDIFF).contains(facilityContactId);
-                    } else {
-                      isIcu = prevMaxTreatmentlevelByCaseId.get(ICU).contains(facilityContactId);
-                      isVent =
-                          prevMaxTreatmentlevelByCaseId
-                              .get(ICU_VENTILATION)
-                              .contains(facilityContactId);
-                      isEcmo =
-                          prevMaxTreatmentlevelByCaseId.get(ICU_ECMO).contains(facilityContactId);
-                    }
-                    // if the case is ambulant, check the pids of the previous maxtreatmentlevels
-                    // and if none are similar with the current case than note the case as ambulant
-                    if (supplyContactEncounter.isCaseClassOutpatient()) {
-                      Map<TreatmentLevels, List<String>> mapMaxCaseCheck = new HashMap<>();
-                      mapMaxCaseCheck.put(NORMAL_WARD, new ArrayList<>());
-                      mapMaxCaseCheck.put(ICU, new ArrayList<>());
-                      mapMaxCaseCheck.put(ICU_VENTILATION, new ArrayList<>());
-                      mapMaxCaseCheck.put(ICU_ECMO, new ArrayList<>());
-                      mapMaxCaseCheck.put(ICU_UNDIFF, new ArrayList<>());
-                      // Normal ward
-                      if (isNormalWard) mapMaxCaseCheck.get(NORMAL_WARD).add(facilityContactId);
-                      if (isIcu) mapMaxCaseCheck.get(ICU).add(facilityContactId);
-                      if (isVent) mapMaxCaseCheck.get(ICU_VENTILATION).add(facilityContactId);
-                      if (isEcmo) mapMaxCaseCheck.get(ICU_ECMO).add(facilityContactId);
-                      if (isIcuUndiff) mapMaxCaseCheck.get(ICU_UNDIFF).add(facilityContactId);
-
-                      // list containing every supplyContactEncounter with a currently higher
-                      // treatmentlevel than 'outpatient'.
-                      Set<String> listHigherTreatment =
-                          mapMaxCaseCheck.values().stream()
-                              .flatMap(List::stream)
-                              .collect(Collectors.toCollection(LinkedHashSet::new));
-                      // Exit early if the case has a higher treatment level than outpatient
-                      if (!listHigherTreatment.isEmpty()) {
-                        return;
-                      }
-                      // Check if the case falls within the same day as checkDate
-                      if (caseStartUnix >= checkDate
-                          && caseStartUnix < checkDate + DAY_IN_SECONDS) {
-                        addCaseToTimeline(mapAmbulantCaseNr, checkDate, facilityContactId);
-                        markPreviousMaxLevel(
-                            prevMaxTreatmentlevelByCaseId, OUTPATIENT, facilityContactId);
-                      }
-                    }
-                    // At this stage it is clear that it is a stationary supplyContactEncounter
-                    else if (supplyContactEncounter.isCaseClassInpatientOrShortStay()) {
-                      handleInpatientEncounter(
-                          icuProcedures,
-                          inputCodeSettings,
-                          useIcuUndiff,
+    } else {
+      Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+      long currentDate = kickOffDate;
+      while (currentDate <= currentDayUnix) {
+        long checkDate = currentDate;
+        initializeTimelineDay(
+            checkDate,
+            useIcuUndiff,
+            mapAmbulantCaseNr,
+            mapNormalWardCaseNrs,
+            mapIcuUndiffCaseNrs,
+            mapIcuCaseNrs,
+            mapIcuVentCaseNrs,
+            mapIcuEcmoCaseNrs);
+        // Pre-filtering the encounters to ones that can have intersection with the date that is
+        // currently checked
+        try {
+          positiveSupplyContactEncounters.parallelStream()
+              .filter(
+                  x -> {
+                    long start =
+                        DateTools.dateToUnixTime(x.getPeriod().getStart()) - DAY_IN_SECONDS;
+                    long end =
+                        DateTools.dateToUnixTime(
+                                x.getPeriod().getEnd() != null
+                                    ? x.getPeriod().getEnd()
+                                    : DateTools.getCurrentDateTime())
+                            + DAY_IN_SECONDS;
+                    return start < checkDate && end >= checkDate;
+                  })
+              .forEach(
+                  supplyContactEncounter -> {
+                    String facilityContactId = supplyContactEncounter.getFacilityContactId();
+                    // Prevent multiple cases of a patient from being processed at the same time
+                    ReentrantLock lock =
+                        locks.computeIfAbsent(facilityContactId, _ -> new ReentrantLock());
+                    lock.lock();
+                    try {
+                      assignSupplyContactToTimeline(
                           supplyContactEncounter,
-                          caseStartUnix,
                           checkDate,
+                          caseProcedureIndex,
+                          inputCodeSettings,
+                          useIcuUndiff,
                           icuLocationIds,
                           prevMaxTreatmentlevelByCaseId,
+                          highestTreatmentLevelUndiff,
+                          mapAmbulantCaseNr,
                           mapNormalWardCaseNrs,
                           mapIcuUndiffCaseNrs,
-                          highestTreatmentLevelUndiff,
-                          facilityContactId,
-                          isIcu,
-                          isVent,
-                          isEcmo,
                           mapIcuCaseNrs,
                           mapIcuVentCaseNrs,
                           mapIcuEcmoCaseNrs);
-                    } // else if Stationary check
-                  } // for loop of positive supplyContactEncounter
-                  finally {
-                    lock.unlock();
-                  }
-                });
-      } catch (Exception ex) {
-        log.error("Creation of the max treatmentlevel timeline failed.", ex);
-      }
-      currentDate += DAY_IN_SECONDS;
-    } // while
+                    } finally {
+                      lock.unlock();
+                    }
+                  });
+        } catch (Exception ex) {
+          log.error("Creation of the max treatmentlevel timeline failed.", ex);
+        }
+        currentDate += DAY_IN_SECONDS;
+      } // while
+    }
     resultWithCaseNrsMap.put(OUTPATIENT, mapAmbulantCaseNr);
     resultWithCaseNrsMap.put(NORMAL_WARD, mapNormalWardCaseNrs);
     if (useIcuUndiff) resultWithCaseNrsMap.put(ICU_UNDIFF, mapIcuUndiffCaseNrs);
@@ -279,8 +361,161 @@ public class TimelineMaxTreatmentLevel extends DashboardDataItemLogic
     return resultWithCaseNrsMap;
   }
 
+  /**
+   * Checks whether the given encounter can be assigned to the timeline. Encounters without a
+   * facility contact id or without a period start are skipped by both engines.
+   */
+  static boolean isAssignableToTimeline(MiiEncounter encounter) {
+    if (encounter.getFacilityContactId() == null || !encounter.getPeriod().hasStart()) {
+      log.debug(
+          "Encounter {} is skipped in the max treatmentlevel timeline since the facility contact"
+              + " or the period start is missing.",
+          encounter.getId());
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * A supply contact entering ({@code isStart}) or leaving the set of supply contacts that need to
+   * be checked at the day with the given index (relative to the kickoff date).
+   */
+  private record SupplyContactEvent(int dayIndex, boolean isStart, MiiEncounter encounter) {}
+
+  /**
+   * Converts each supply contact into a start and an end event. A supply contact is relevant for a
+   * checked date if the date lies within its period extended by one day on both sides (same
+   * condition as the pre-filter of the day loop).
+   *
+   * @return The events sorted by the day index; end events are sorted before start events of the
+   *     same day.
+   */
+  private static List<SupplyContactEvent> createSupplyContactEvents(
+      Collection<MiiEncounter> supplyContactEncounters, long kickOffDate, long currentDayUnix) {
+    int lastDayIndex = (int) Math.floorDiv(currentDayUnix - kickOffDate, DAY_IN_SECONDS);
+    List<SupplyContactEvent> events = new ArrayList<>();
+    for (MiiEncounter encounter : supplyContactEncounters) {
+      long start = DateTools.dateToUnixTime(encounter.getPeriod().getStart()) - DAY_IN_SECONDS;
+      long end =
+          DateTools.dateToUnixTime(
+                  encounter.getPeriod().getEnd() != null
+                      ? encounter.getPeriod().getEnd()
+                      : DateTools.getCurrentDateTime())
+              + DAY_IN_SECONDS;
+      // First day with start < checkDate and last day with end >= checkDate
+      long firstDay = Math.max(0, Math.floorDiv(start - kickOffDate, DAY_IN_SECONDS) + 1);
+      long lastDay = Math.min(lastDayIndex, Math.floorDiv(end - kickOffDate, DAY_IN_SECONDS));
+      if (firstDay > lastDay) {
+        continue;
+      }
+      events.add(new SupplyContactEvent((int) firstDay, true, encounter));
+      events.add(new SupplyContactEvent((int) lastDay + 1, false, encounter));
+    }
+    events.sort(
+        Comparator.comparingInt(SupplyContactEvent::dayIndex)
+            .thenComparing(SupplyContactEvent::isStart));
+    return events;
+  }
+
+  /** Adds an empty case id set for the given day to every timeline of the used treatment levels. */
+  private static void initializeTimelineDay(
+      long checkDate,
+      boolean useIcuUndiff,
+      Map<Long, Set<String>> mapAmbulantCaseNr,
+      Map<Long, Set<String>> mapNormalWardCaseNrs,
+      Map<Long, Set<String>> mapIcuUndiffCaseNrs,
+      Map<Long, Set<String>> mapIcuCaseNrs,
+      Map<Long, Set<String>> mapIcuVentCaseNrs,
+      Map<Long, Set<String>> mapIcuEcmoCaseNrs) {
+    mapAmbulantCaseNr.put(checkDate, ConcurrentHashMap.newKeySet());
+    mapNormalWardCaseNrs.put(checkDate, ConcurrentHashMap.newKeySet());
+    if (useIcuUndiff) {
+      mapIcuUndiffCaseNrs.put(checkDate, ConcurrentHashMap.newKeySet());
+    } else {
+      mapIcuCaseNrs.put(checkDate, ConcurrentHashMap.newKeySet());
+      mapIcuVentCaseNrs.put(checkDate, ConcurrentHashMap.newKeySet());
+      mapIcuEcmoCaseNrs.put(checkDate, ConcurrentHashMap.newKeySet());
+    }
+  }
+
+  /**
+   * Assigns the facility contact of the given supply contact to the timeline of the treatment
+   * level that applies at the checked date.
+   *
+   * @param caseProcedureIndex Provides the icu procedures that are linked to a given case id.
+   */
+  private static void assignSupplyContactToTimeline(
+      MiiEncounter supplyContactEncounter,
+      long checkDate,
+      CaseProcedureIndex caseProcedureIndex,
+      InputCodeSettings inputCodeSettings,
+      boolean useIcuUndiff,
+      Set<String> icuLocationIds,
+      Map<TreatmentLevels, Set<String>> prevMaxTreatmentlevelByCaseId,
+      Map<String, TreatmentLevels> highestTreatmentLevelUndiff,
+      Map<Long, Set<String>> mapAmbulantCaseNr,
+      Map<Long, Set<String>> mapNormalWardCaseNrs,
+      Map<Long, Set<String>> mapIcuUndiffCaseNrs,
+      Map<Long, Set<String>> mapIcuCaseNrs,
+      Map<Long, Set<String>> mapIcuVentCaseNrs,
+      Map<Long, Set<String>> mapIcuEcmoCaseNrs) {
+    // Since a case should just count once a day and the procedure usually references
+    // the facility contact, we need to look via top level resource
+    String facilityContactId = supplyContactEncounter.getFacilityContactId();
+    long caseStartUnix = DateTools.dateToUnixTime(supplyContactEncounter.getPeriod().getStart());
+
+    boolean isNormalWard =
+        prevMaxTreatmentlevelByCaseId.get(NORMAL_WARD).contains(facilityContactId);
+    boolean isIcuUndiff = false;
+    boolean isIcu = false;
+    boolean isVent = false;
+    boolean isEcmo = false;
+    if (useIcuUndiff) {
+      isIcuUndiff = prevMaxTreatmentlevelByCaseId.get(ICU_UNDIFF).contains(facilityContactId);
+    } else {
+      isIcu = prevMaxTreatmentlevelByCaseId.get(ICU).contains(facilityContactId);
+      isVent = prevMaxTreatmentlevelByCaseId.get(ICU_VENTILATION).contains(facilityContactId);
+      isEcmo = prevMaxTreatmentlevelByCaseId.get(ICU_ECMO).contains(facilityContactId);
+    }
+    // if the case is ambulant, check the pids of the previous maxtreatmentlevels
+    // and if none are similar with the current case than note the case as ambulant
+    if (supplyContactEncounter.isCaseClassOutpatient()) {
+      // Exit early if the case has a higher treatment level than outpatient
+      if (isNormalWard || isIcu || isVent || isEcmo || isIcuUndiff) {
+        return;
+      }
+      // Check if the case falls within the same day as checkDate
+      if (caseStartUnix >= checkDate && caseStartUnix < checkDate + DAY_IN_SECONDS) {
+        addCaseToTimeline(mapAmbulantCaseNr, checkDate, facilityContactId);
+        markPreviousMaxLevel(prevMaxTreatmentlevelByCaseId, OUTPATIENT, facilityContactId);
+      }
+    }
+    // At this stage it is clear that it is a stationary supplyContactEncounter
+    else if (supplyContactEncounter.isCaseClassInpatientOrShortStay()) {
+      handleInpatientEncounter(
+          caseProcedureIndex,
+          inputCodeSettings,
+          useIcuUndiff,
+          supplyContactEncounter,
+          caseStartUnix,
+          checkDate,
+          icuLocationIds,
+          prevMaxTreatmentlevelByCaseId,
+          mapNormalWardCaseNrs,
+          mapIcuUndiffCaseNrs,
+          highestTreatmentLevelUndiff,
+          facilityContactId,
+          isIcu,
+          isVent,
+          isEcmo,
+          mapIcuCaseNrs,
+          mapIcuVentCaseNrs,
+          mapIcuEcmoCaseNrs);
+    }
+  }
+
   private static void handleInpatientEncounter(
-      List<MiiProcedure> icuProcedures,
+      CaseProcedureIndex caseProcedureIndex,
       InputCodeSettings inputCodeSettings,
       Boolean useIcuUndiff,
       MiiEncounter supplyContactEncounter,
@@ -336,13 +571,9 @@ public class TimelineMaxTreatmentLevel extends DashboardDataItemLogic
             markPreviousMaxLevel(prevMaxTreatmentlevelByCaseId, NORMAL_WARD, facilityContactId);
           } else {
             // check if there are any icu procedures currently going on
-            List<MiiProcedure> listEncounterIcuProcedure =
-                icuProcedures.stream()
-                    .filter(icu -> facilityContactId.equals(icu.getCaseId()))
-                    .toList();
             // if there is no ICU Procedure, check if it is currently considered
             // as ICU or stationary
-            if (listEncounterIcuProcedure.isEmpty()) {
+            if (!caseProcedureIndex.hasProcedures(facilityContactId)) {
               encounterStationTypeCheckProcess(
                   encounterIcuLocations,
                   supplyContactEncounter,
@@ -354,7 +585,7 @@ public class TimelineMaxTreatmentLevel extends DashboardDataItemLogic
               // check and sort if it is a ventilation or ecmo case
               sortToVentOrEcmoTimeline(
                   supplyContactEncounter,
-                  listEncounterIcuProcedure,
+                  caseProcedureIndex.getProceduresStartedBefore(facilityContactId, checkDate),
                   encounterIcuLocations,
                   false,
                   false,
@@ -370,18 +601,13 @@ public class TimelineMaxTreatmentLevel extends DashboardDataItemLogic
         }
         // if an ICU case was found
         else if (isIcu && !isVent && !isEcmo) {
-          List<MiiProcedure> listEncounterIcuProcedure =
-              icuProcedures.stream()
-                  .filter(icu -> facilityContactId.equals(icu.getCaseId()))
-                  .collect(Collectors.toList());
-
-          if (listEncounterIcuProcedure.isEmpty()) {
+          if (!caseProcedureIndex.hasProcedures(facilityContactId)) {
             addCaseToTimeline(mapIcuCaseNrs, checkDate, facilityContactId);
             markPreviousMaxLevel(prevMaxTreatmentlevelByCaseId, ICU, facilityContactId);
           } else {
             sortToVentOrEcmoTimeline(
                 supplyContactEncounter,
-                listEncounterIcuProcedure,
+                caseProcedureIndex.getProceduresStartedBefore(facilityContactId, checkDate),
                 encounterIcuLocations,
                 false,
                 false,
@@ -396,13 +622,9 @@ public class TimelineMaxTreatmentLevel extends DashboardDataItemLogic
         }
         // if a ventilation case was found
         else if (isVent && !isEcmo) {
-          List<MiiProcedure> icuProceduresEncounter =
-              icuProcedures.stream()
-                  .filter(icu -> facilityContactId.equals(icu.getCaseId()))
-                  .toList();
           sortToVentOrEcmoTimeline(
               supplyContactEncounter,
-              icuProceduresEncounter,
+              caseProcedureIndex.getProceduresStartedBefore(facilityContactId, checkDate),
               encounterIcuLocations,
               true,
               false,
@@ -529,7 +751,8 @@ public class TimelineMaxTreatmentLevel extends DashboardDataItemLogic
    * Adds the current {@link MiiEncounter} to a list if he has had artificial respiration or ECMO
    *
    * @param listEncounterIcuProcedures The {@link MiiProcedure} resources, which include information
-   *     about ECMO / artificial ventilation periods.
+   *     about ECMO / artificial ventilation periods. Only procedures that started before the
+   *     checked date are relevant.
    * @param listEncounterHasIcuLocation List containing all icu locations of an encounter.
    * @param isVent Check if the encounter has any ventilation-related resources attached to it.
    * @param isEcmo Check if the encounter has any ecmo related resources attached to it.
@@ -546,7 +769,7 @@ public class TimelineMaxTreatmentLevel extends DashboardDataItemLogic
    */
   private static void sortToVentOrEcmoTimeline(
       MiiEncounter supplyContactEncounter,
-      List<MiiProcedure> listEncounterIcuProcedures,
+      List<IndexedProcedure> listEncounterIcuProcedures,
       List<EncounterLocationComponent> listEncounterHasIcuLocation,
       boolean isVent,
       boolean isEcmo,
@@ -559,15 +782,12 @@ public class TimelineMaxTreatmentLevel extends DashboardDataItemLogic
       InputCodeSettings inputCodeSettings) {
     String caseId = supplyContactEncounter.getFacilityContactId();
 
-    for (MiiProcedure procedure : listEncounterIcuProcedures) {
+    for (IndexedProcedure indexedProcedure : listEncounterIcuProcedures) {
+      MiiProcedure procedure = indexedProcedure.procedure();
       try {
-        Period procedurePeriod = procedure.getPerformedPeriod();
-        if (!procedurePeriod.hasEnd()) {
-          procedurePeriod.setEnd(DateTools.getCurrentDateTime());
-        }
-
-        long procedureStartUnix = DateTools.dateToUnixTime(procedurePeriod.getStart());
-        long procedureEndUnix = DateTools.dateToUnixTime(procedurePeriod.getEnd());
+        long procedureStartUnix = indexedProcedure.startUnix();
+        // Ongoing procedures are indexed with an open end
+        long procedureEndUnix = indexedProcedure.endUnix();
 
         // check if the procedure fits into the checked time span
         if (procedure.hasCode() && procedure.getCode().hasCoding()) {
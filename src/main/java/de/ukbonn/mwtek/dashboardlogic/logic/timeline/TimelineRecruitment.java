@@ -18,7 +18,6 @@
 package de.ukbonn.mwtek.dashboardlogic.logic.timeline;
 
 import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.SUBITEMTYPE_DATE;
-import static de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants.DAY_IN_SECONDS;
 import static de.ukbonn.mwtek.dashboardlogic.logic.CoronaResultFunctionality.getDatesOutputList;
 import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.getKickOffDateInSeconds;
 
@@ -26,11 +25,15 @@ import de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic;
 import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
 import de.ukbonn.mwtek.dashboardlogic.models.TimestampedListTriple;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiConsent;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiQuestionnaireResponse;
 import de.ukbonn.mwtek.utilities.generic.time.DateTools;
 import de.ukbonn.mwtek.utilities.generic.time.TimerTools;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,11 +53,25 @@ public class TimelineRecruitment extends DashboardDataItemLogic implements Timel
   public static final String ACR_RECRUITMENT_CONSENT = "acr_recruitment_consent";
   public static final String ACR_RECRUITMENT_FOLLOWUP = "acr_recruitment_followup";
 
+  // Assigns the consents and follow-ups to the calendar days of the timeline
+  private final DashboardClock clock;
+
+  public TimelineRecruitment() {
+    this(DashboardClock.systemDefault());
+  }
+
+  public TimelineRecruitment(DashboardClock clock) {
+    this.clock = clock;
+  }
+
   /**
-   * Creates a TimestampedListTriple that contains the number of deceased patients for each day
-   * since Qualifying date
+   * Creates a TimestampedListTriple that contains the number of recruited patients (consents) and
+   * follow-ups for each day since Qualifying date
+   *
+   * <p>Each entry is placed directly into the {@link DailyEventCounter counter} of its day; entries
+   * outside the timeline get reported in the same pass.
    *
-   * @return ListNumberPair Containing dates and number of deceased people
+   * @return TimestampedListTriple Containing dates, number of consents and number of follow-ups
    */
   public TimestampedListTriple createTimelineRecruitment(
       List<MiiConsent> consents,
@@ -62,69 +79,35 @@ public class TimelineRecruitment extends DashboardDataItemLogic implements Timel
       DataItemContext dataItemContext) {
     log.debug("started createTimelineRecruitment");
     Instant startTimer = TimerTools.startTimer();
-    LinkedHashMap<Long, Long> dateRecruitmentConsentMap = new LinkedHashMap<>();
-    LinkedHashMap<Long, Long> dateRecruitmentFollowUpMap = new LinkedHashMap<>();
-    List<Long> recruitmentConsentList;
-    List<Long> recruitmentFollowUpList;
     TimestampedListTriple resultTriple = new TimestampedListTriple();
 
-    // Retrieval of the current date
-    long currentUnixTime = DateTools.getCurrentUnixTime();
-    // Retrieval of the start date
-    long tempDateUnix = getKickOffDateInSeconds(dataItemContext);
-
     try {
-      List<Long> consentPermitStartDatesUnix =
-          consents.stream()
-              // Grouping consents by pid
-              .collect(Collectors.groupingBy(MiiConsent::getPatientId))
-              .values()
-              .stream()
-              // For each patient's consent list, take the first valid consent date
-              .map(
-                  patientConsents ->
-                      patientConsents.stream()
-                          // Filter valid dates
-                          .map(MiiConsent::getAcribisPermitStartDate)
-                          .filter(Objects::nonNull)
-                          // Take only the first valid date
-                          .map(DateTools::dateToUnixTime)
-                          .min(Long::compareTo)
-                          .orElse(null))
-              .filter(Objects::nonNull)
-              .toList();
+      List<Long> dates = getDatesOutputList(dataItemContext);
+      long kickOffDate = getKickOffDateInSeconds(dataItemContext);
+      DailyEventCounter consentsPerDay = new DailyEventCounter(clock, kickOffDate, dates.size());
+      for (MiiConsent consent : consents) {
+        Date permitStartDate = consent.getAcribisPermitStartDate();
+        if (permitStartDate == null) continue;
+        // Figure out if entries can't be assigned because of a timestamp out of the check period.
+        if (!consentsPerDay.isInTimeline(permitStartDate)) {
+          log.warn(
+              "Consent for patient {} with timestamp={} out of border in the recruitment"
+                  + " timeline.",
+              consent.getPatientId(),
+              DateTools.dateToUnixTime(permitStartDate));
+        }
+        // For each patient, just the first valid consent date is counted
+        consentsPerDay.add(permitStartDate, consent.getPatientId());
+      }
 
       // Follow-up entries
-      List<Long> followUpAuthoredDatesUnix = getFollowUpDatesOnlyLastOne(questionnaireResponses);
-
-      // Loop through each day
-      while (tempDateUnix <= currentUnixTime) {
-        final long dayStart = tempDateUnix;
-        final long dayEnd = tempDateUnix + DAY_IN_SECONDS;
-        long consentCount =
-            consentPermitStartDatesUnix.stream()
-                .filter(timestamp -> timestamp >= dayStart && timestamp < dayEnd)
-                .count();
-        long followUpCount =
-            followUpAuthoredDatesUnix.stream()
-                .filter(timestamp -> timestamp >= dayStart && timestamp < dayEnd)
-                .count();
-
-        dateRecruitmentConsentMap.put(dayStart, consentCount);
-        dateRecruitmentFollowUpMap.put(dayStart, followUpCount); // UNSUPPORTED ATM
-
-        tempDateUnix = dayEnd;
-      }
-      // Figure out if entries couldn't be assigned because of a timestamp out of the check period.
-      logUnassignedConsentEntries(consents, dateRecruitmentConsentMap);
+      DailyEventCounter followUpsPerDay = new DailyEventCounter(clock, kickOffDate, dates.size());
+      getFollowUpDatesOnlyLastOne(questionnaireResponses).forEach(followUpsPerDay::add);
 
-      recruitmentConsentList = divideMapValuesToLists(dateRecruitmentConsentMap);
-      recruitmentFollowUpList = divideMapValuesToLists(dateRecruitmentFollowUpMap);
       resultTriple =
-          new TimestampedListTriple(
-              getDatesOutputList(dataItemContext), recruitmentConsentList, recruitmentFollowUpList);
+          new TimestampedListTriple(dates, consentsPerDay.toList(), followUpsPerDay.toList());
     } catch (Exception e) {
-      log.debug("Error is calculating the timeline death: {}", e.getMessage());
+      log.debug("Error is calculating the timeline recruitment: {}", e.getMessage());
     }
 
     logFollowUpsWithoutConsent(consents, questionnaireResponses);
@@ -133,53 +116,18 @@ public class TimelineRecruitment extends DashboardDataItemLogic implements Timel
     return resultTriple;
   }
 
-  private static List<Long> getFollowUpDatesOnlyLastOne(
+  private static Collection<Date> getFollowUpDatesOnlyLastOne(
       List<MiiQuestionnaireResponse> questionnaireResponses) {
-    return questionnaireResponses.stream()
-        .collect(Collectors.groupingBy(MiiQuestionnaireResponse::getPatientId))
-        .values()
-        .stream()
-        .map(
-            patientResponses ->
-                patientResponses.stream()
-                    .map(MiiQuestionnaireResponse::getAuthored)
-                    .filter(Objects::nonNull)
-                    .map(DateTools::dateToUnixTime)
-                    .max(Long::compareTo)
-                    .orElse(null))
-        .filter(Objects::nonNull)
-        .toList();
-  }
-
-  private static void logUnassignedConsentEntries(
-      List<MiiConsent> consents, LinkedHashMap<Long, Long> dateRecruitmentConsentMap) {
-    // Identify consents with valid permit start dates that were not counted in any day window
-    List<Map.Entry<String, Long>> unmatchedPatientsWithTimestamps =
-        consents.stream()
-            .map(
-                c ->
-                    Map.entry(
-                        c.getPatientId(), DateTools.dateToUnixTime(c.getAcribisPermitStartDate())))
-            .filter(entry -> entry.getValue() != null)
-            .filter(
-                entry -> {
-                  long ts = entry.getValue();
-                  // Check if the timestamp was not included in any daily window
-                  return dateRecruitmentConsentMap.entrySet().stream()
-                      .noneMatch(e -> ts >= e.getKey() && ts < (e.getKey() + DAY_IN_SECONDS));
-                })
-            .toList();
-
-    // Log patient IDs and their timestamps not matched in the timeline
-    if (!unmatchedPatientsWithTimestamps.isEmpty()) {
-      unmatchedPatientsWithTimestamps.forEach(
-          entry ->
-              log.warn(
-                  "Consent for patient {} with timestamp={} out of border in the recruitment"
-                      + " timeline.",
-                  entry.getKey(),
-                  entry.getValue()));
+    // For each patient, take the last follow-up
+    Map<String, Date> lastAuthoredDateByPid = new HashMap<>();
+    for (MiiQuestionnaireResponse questionnaireResponse : questionnaireResponses) {
+      Date authored = questionnaireResponse.getAuthored();
+      if (authored != null) {
+        lastAuthoredDateByPid.merge(
+            questionnaireResponse.getPatientId(), authored, (a, b) -> a.after(b) ? a : b);
+      }
     }
+    return lastAuthoredDateByPid.values();
   }
 
   private static void logFollowUpsWithoutConsent(
@@ -216,9 +164,4 @@ public class TimelineRecruitment extends DashboardDataItemLogic implements Timel
     dataMap.put(ACR_RECRUITMENT_FOLLOWUP, timestampedListTriple.getValue2());
     return dataMap;
   }
-
-  @Override
-  public List<Long> divideMapValuesToLists(Map<Long, Long> tempMap) {
-    return TimelineFunctionalities.super.divideMapValuesToLists(tempMap);
-  }
 }
@@ -19,16 +19,14 @@ package de.ukbonn.mwtek.dashboardlogic.logic.timeline;
 
 import static de.ukbonn.mwtek.dashboardlogic.enums.DashboardLogicFixedValues.POSITIVE;
 import static de.ukbonn.mwtek.dashboardlogic.logic.CoronaResultFunctionality.getDatesOutputList;
-import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.getKickOffDateInSeconds;
 
 import de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic;
 import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
-import de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants;
-import de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants.Covid;
 import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
 import de.ukbonn.mwtek.dashboardlogic.models.TimestampedListPair;
 import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
 import de.ukbonn.mwtek.dashboardlogic.settings.QualitativeLabCodesSettings;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
 import de.ukbonn.mwtek.dashboardlogic.tools.ObservationFilter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiObservation;
 import de.ukbonn.mwtek.utilities.generic.time.DateTools;
@@ -51,6 +49,16 @@ import lombok.extern.slf4j.Slf4j;
 public class TimelineTests extends DashboardDataItemLogic implements TimelineFunctionalities {
 
   private Set<MiiObservation> diseasePositiveObservations;
+  // Determines the calendar months of the monthly buckets
+  private final DashboardClock clock;
+
+  public TimelineTests() {
+    this(DashboardClock.systemDefault());
+  }
+
+  public TimelineTests(DashboardClock clock) {
+    this.clock = clock;
+  }
 
   /**
    * To create a {@link TimestampedListPair} for each day since the qualifying date to determine the
@@ -62,10 +70,24 @@ public class TimelineTests extends DashboardDataItemLogic implements TimelineFun
       DataItemContext dataItemContext,
       List<MiiObservation> observations,
       InputCodeSettings inputCodeSettings) {
+    return createTimelineTestsMap(
+        dataItemContext, observations, inputCodeSettings, TimelineBucketStrategy.DAILY);
+  }
+
+  /**
+   * To create a {@link TimestampedListPair} with the frequency of laboratory findings per bucket
+   * (e.g. day) since the qualifying date
+   *
+   * @param bucketStrategy The {@link TimelineBucketStrategy granularity} of the output.
+   * @return ListNumberPair with all tests held from the qualifying date up to today
+   */
+  public TimestampedListPair createTimelineTestsMap(
+      DataItemContext dataItemContext,
+      List<MiiObservation> observations,
+      InputCodeSettings inputCodeSettings,
+      TimelineBucketStrategy bucketStrategy) {
     log.debug("started createTimelineTestsMap");
     Instant startTimer = TimerTools.startTimer();
-    Map<Long, Long> valueDateMap = getDateMapWithoutValues(dataItemContext);
-    List<Long> valueList;
 
     // Checking the loinc pcr codes in the observation to detect pcr findings.
     if (diseasePositiveObservations == null) {
@@ -74,9 +96,6 @@ public class TimelineTests extends DashboardDataItemLogic implements TimelineFun
               observations, inputCodeSettings, dataItemContext);
     }
 
-    long endUnixTime = DateTools.getCurrentUnixTime();
-
-    // Initialization of the map with the date entries to keep the order ascending
     List<Long> labEffectiveDates =
         diseasePositiveObservations.parallelStream()
             .filter(MiiObservation::hasEffectiveDateTimeType)
@@ -84,29 +103,10 @@ public class TimelineTests extends DashboardDataItemLogic implements TimelineFun
             .map(x -> DateTools.dateToUnixTime(x.getValue()))
             .toList();
 
-    labEffectiveDates.parallelStream()
-        .forEach(
-            effective -> {
-              // Reset of the starting date
-              long tempDate = getKickOffDateInSeconds(dataItemContext);
-
-              // If a value was found once in a time window, can be cancelled
-              Boolean labValueFound = false;
-
-              while (tempDate <= endUnixTime && !labValueFound) {
-                labValueFound = addLabTestToTimeline(effective, tempDate, valueDateMap);
-
-                // check the next day
-                tempDate += NumDashboardConstants.DAY_IN_SECONDS; // add one day
-              }
-            });
-
-    // order them by key ascending (just needed if we want to parallelize it; the first tries
-    // were not really promising tho because of too many write/read ops probably block each other)
-    valueList = divideMapValuesToLists(valueDateMap);
-
+    TimestampedListPair result =
+        countLabTestsPerBucket(dataItemContext, labEffectiveDates, bucketStrategy);
     TimerTools.stopTimerAndLog(startTimer, "finished createTimelineTestsMap");
-    return new TimestampedListPair(getDatesOutputList(dataItemContext), valueList);
+    return result;
   }
 
   /**
@@ -120,11 +120,29 @@ public class TimelineTests extends DashboardDataItemLogic implements TimelineFun
       List<MiiObservation> observations,
       InputCodeSettings inputCodeSettings,
       QualitativeLabCodesSettings qualitativeLabCodesSettings) {
+    return createTimelineTestPositiveMap(
+        dataItemContext,
+        observations,
+        inputCodeSettings,
+        qualitativeLabCodesSettings,
+        TimelineBucketStrategy.DAILY);
+  }
+
+  /**
+   * Create a ListNumberPair containing all positive lab results per bucket (e.g. day), since the
+   * qualifying date
+   *
+   * @param bucketStrategy The {@link TimelineBucketStrategy granularity} of the output.
+   * @return ListNumberPair with all positive labor results up until today
+   */
+  public TimestampedListPair createTimelineTestPositiveMap(
+      DataItemContext dataItemContext,
+      List<MiiObservation> observations,
+      InputCodeSettings inputCodeSettings,
+      QualitativeLabCodesSettings qualitativeLabCodesSettings,
+      TimelineBucketStrategy bucketStrategy) {
     log.debug("started createTimelineTestPositiveMap");
     Instant startTimer = TimerTools.startTimer();
-    Map<Long, Long> valueDateMap = getDateMapWithoutValues(dataItemContext);
-    List<Long> valueList;
-    long currentUnixTime = DateTools.getCurrentUnixTime();
     if (diseasePositiveObservations == null) {
       diseasePositiveObservations =
           ObservationFilter.getObservationsByContext(
@@ -163,23 +181,31 @@ public class TimelineTests extends DashboardDataItemLogic implements TimelineFun
             .map(x -> DateTools.dateToUnixTime(x.getValue()))
             .toList());
 
-    try {
-      labEffectiveDatesOfPositives.parallelStream()
-          .forEach(
-              labEffective -> {
-                Boolean obsFound = false;
-                long checkingDateUnix = Covid.QUALIFYING_DATE_SECONDS;
-                while (checkingDateUnix <= currentUnixTime && !obsFound) {
-                  obsFound = addLabTestToTimeline(labEffective, checkingDateUnix, valueDateMap);
-                  checkingDateUnix += NumDashboardConstants.DAY_IN_SECONDS; // add one day
-                }
-              });
-    } catch (Exception ex) {
-      log.error("Error while running createTimelineTestPositiveMap", ex);
-    }
-    valueList = divideMapValuesToLists(valueDateMap);
+    TimestampedListPair result =
+        countLabTestsPerBucket(dataItemContext, labEffectiveDatesOfPositives, bucketStrategy);
     TimerTools.stopTimerAndLog(startTimer, "finished createTimelineTestPositiveMap");
-    return new TimestampedListPair(getDatesOutputList(dataItemContext), valueList);
+    return result;
+  }
+
+  /**
+   * Assigns each laboratory result to its day {@literal [Interval: day <-> day+24h]} of the
+   * timeline and merges the daily counts into the buckets of the given strategy.
+   *
+   * @param labEffectiveDates The effective dates [unix time] of the laboratory results.
+   * @param bucketStrategy The {@link TimelineBucketStrategy granularity} of the output.
+   * @return The bucket timestamps with the number of laboratory results per bucket.
+   */
+  private TimestampedListPair countLabTestsPerBucket(
+      DataItemContext dataItemContext,
+      List<Long> labEffectiveDates,
+      TimelineBucketStrategy bucketStrategy) {
+    List<Long> dates = getDatesOutputList(dataItemContext);
+    if (dates.isEmpty()) {
+      return new TimestampedListPair(dates, List.of());
+    }
+    // The day indices are relative to the first day of the output list
+    int[] dailyCounts = countPerDay(dates.getFirst(), dates.size(), labEffectiveDates);
+    return bucketStrategy.toTimestampedListPair(dates, dailyCounts, clock);
   }
 
   /**
@@ -193,29 +219,4 @@ public class TimelineTests extends DashboardDataItemLogic implements TimelineFun
     }
     return valueDateMap;
   }
-
-  /**
-   * Check whether a laboratory result belongs to the supplied date {@literal [Interval: day <->
-   * day+24h]} and later incrementing if so.
-   *
-   * @param labFundDate Date of the laboratory result
-   * @param tempDateUnix Current day [unix time] which is checked and incremented if the reporting
-   *     date fits into the corresponding time window [day + 24 hours]
-   * @param resultMap Map that maps a frequency value to a date (unix time)
-   * @return Status information on whether the time of the laboratory test was within the reference
-   *     range and the resultMap was incremented at this point.
-   */
-  private static Boolean addLabTestToTimeline(
-      Long labFundDate, long tempDateUnix, Map<Long, Long> resultMap) {
-    long increasedUnix = tempDateUnix + NumDashboardConstants.DAY_IN_SECONDS - 1;
-    boolean obsFound = false;
-
-    // if the labResult day is after the checked date and if the difference
-    if (tempDateUnix <= labFundDate && increasedUnix >= labFundDate) {
-      obsFound = true;
-      resultMap.compute(tempDateUnix, (k, v) -> v != null ? v + 1 : null);
-    }
-
-    return obsFound;
-  }
 }
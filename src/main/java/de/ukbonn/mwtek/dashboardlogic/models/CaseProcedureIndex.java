@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+package de.ukbonn.mwtek.dashboardlogic.models;
+
+import static de.ukbonn.mwtek.utilities.enums.TerminologySystems.SNOMED;
+
+import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiProcedure;
+import de.ukbonn.mwtek.utilities.generic.time.DateTools;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.hl7.fhir.r4.model.Period;
+
+/**
+ * Index structure mapping a case (facility contact) ID to its ventilation and ECMO {@link
+ * MiiProcedure procedures}, sorted by the start of the performed period.
+ *
+ * <p>The index is built once per run and is shared by the icu map, the current treatment level,
+ * the cumulative max treatment level and the max treatment level timeline, so that none of them
+ * has to rescan the whole procedure list per case.
+ */
+@Slf4j
+public class CaseProcedureIndex {
+
+  /**
+   * A procedure with its performed period already converted to epoch seconds.
+   *
+   * @param procedure The underlying procedure resource.
+   * @param startUnix Start of the performed period [unix time].
+   * @param endUnix End of the performed period [unix time]; {@link Long#MAX_VALUE} if the
+   *     procedure is still ongoing.
+   * @param ventilation Is the procedure a ventilation procedure?
+   * @param ecmo Is the procedure an ECMO procedure?
+   */
+  public record IndexedProcedure(
+      MiiProcedure procedure, long startUnix, long endUnix, boolean ventilation, boolean ecmo) {}
+
+  /** Procedures with a usable performed period start per case id, sorted by their start. */
+  private final Map<String, List<IndexedProcedure>> proceduresByCaseId = new HashMap<>();
+
+  /** Case ids that have at least one procedure, including those without a usable period. */
+  private final Set<String> caseIds = new HashSet<>();
+
+  private final Set<String> ventilationCaseIds = new HashSet<>();
+  private final Set<String> ecmoCaseIds = new HashSet<>();
+  private final Set<String> activeVentilationCaseIds = new HashSet<>();
+  private final Set<String> activeEcmoCaseIds = new HashSet<>();
+
+  /**
+   * Creates the index from the given icu procedures. Procedures without a case reference are
+   * ignored.
+   *
+   * @param icuProcedures The ventilation and ECMO procedures of the run.
+   * @param inputCodeSettings The configuration with the ventilation and ECMO codes.
+   */
+  public CaseProcedureIndex(List<MiiProcedure> icuProcedures, InputCodeSettings inputCodeSettings) {
+    for (MiiProcedure procedure : icuProcedures) {
+      String caseId = procedure.getCaseId();
+      if (caseId == null) {
+        continue;
+      }
+      caseIds.add(caseId);
+      boolean isVent =
+          procedure.isCodeExistingInValueSet(
+              inputCodeSettings.getProcedureVentilationCodes(), SNOMED, false);
+      boolean isEcmo =
+          procedure.isCodeExistingInValueSet(
+              inputCodeSettings.getProcedureEcmoCodes(), SNOMED, false);
+      if (isVent) {
+        ventilationCaseIds.add(caseId);
+        if (procedure.isInProgress()) activeVentilationCaseIds.add(caseId);
+      }
+      if (isEcmo) {
+        ecmoCaseIds.add(caseId);
+        if (procedure.isInProgress()) activeEcmoCaseIds.add(caseId);
+      }
+      try {
+        Period period = procedure.getPerformedPeriod();
+        if (!period.hasStart()) {
+          continue;
+        }
+        long start = DateTools.dateToUnixTime(period.getStart());
+        long end = period.hasEnd() ? DateTools.dateToUnixTime(period.getEnd()) : Long.MAX_VALUE;
+        proceduresByCaseId
+            .computeIfAbsent(caseId, _ -> new ArrayList<>())
+            .add(new IndexedProcedure(procedure, start, end, isVent, isEcmo));
+      } catch (Exception ex) {
+        log.debug(
+            "Unable to retrieve the performedPeriod for Procedure: {} [{}]",
+            procedure.getId(),
+            ex.getMessage());
+      }
+    }
+    proceduresByCaseId
+        .values()
+        .forEach(list -> list.sort(Comparator.comparingLong(IndexedProcedure::startUnix)));
+  }
+
+  /**
+   * Checks whether any procedure is linked to the given case, regardless of whether its performed
+   * period is usable.
+   */
+  public boolean hasProcedures(String caseId) {
+    return caseIds.contains(caseId);
+  }
+
+  /**
+   * Returns all procedures of a case with a usable performed period, sorted by their start.
+   *
+   * @param caseId The facility contact id.
+   * @return The sorted procedures or an empty list if none found.
+   */
+  public List<IndexedProcedure> getProcedures(String caseId) {
+    return proceduresByCaseId.getOrDefault(caseId, Collections.emptyList());
+  }
+
+  /**
+   * Returns the procedures of a case that started before the given date. Since the procedures are
+   * sorted by their start, the boundary is determined via binary search.
+   *
+   * @param caseId The facility contact id.
+   * @param dateUnix The date [unix time] that is going to be checked.
+   * @return A view of the sorted procedures with a start before the given date.
+   */
+  public List<IndexedProcedure> getProceduresStartedBefore(String caseId, long dateUnix) {
+    List<IndexedProcedure> procedures = getProcedures(caseId);
+    int low = 0;
+    int high = procedures.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (procedures.get(mid).startUnix() < dateUnix) low = mid + 1;
+      else high = mid;
+    }
+    return procedures.subList(0, low);
+  }
+
+  /** Case ids with at least one ventilation procedure. */
+  public Set<String> getVentilationCaseIds() {
+    return Collections.unmodifiableSet(ventilationCaseIds);
+  }
+
+  /** Case ids with at least one ECMO procedure. */
+  public Set<String> getEcmoCaseIds() {
+    return Collections.unmodifiableSet(ecmoCaseIds);
+  }
+
+  /** Case ids with at least one ventilation procedure that is currently in progress. */
+  public Set<String> getActiveVentilationCaseIds() {
+    return Collections.unmodifiableSet(activeVentilationCaseIds);
+  }
+
+  /** Case ids with at least one ECMO procedure that is currently in progress. */
+  public Set<String> getActiveEcmoCaseIds() {
+    return Collections.unmodifiableSet(activeEcmoCaseIds);
+  }
+}
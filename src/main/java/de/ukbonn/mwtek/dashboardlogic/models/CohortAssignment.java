@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.models;
+
+import static de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants.DAY_IN_SECONDS;
+
+import de.ukbonn.mwtek.utilities.generic.time.DateTools;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Result of a single pass cohort evaluation. For each patient that belongs to at least one cohort,
+ * the cohorts are stored as bitmask (bit {@code i} is set if the patient belongs to the cohort with
+ * index {@code i}) together with the date the patient entered the cohorts.
+ */
+public class CohortAssignment {
+
+  private final int cohortCount;
+  private final Map<String, Integer> cohortMaskByPid = new LinkedHashMap<>();
+  private final Map<String, Date> entryDateByPid = new LinkedHashMap<>();
+
+  /**
+   * @param cohortCount The number of cohorts; at most 30, since the bitmask must also be usable as
+   *     array index of the {@link #countPerCombination() combinations}.
+   */
+  public CohortAssignment(int cohortCount) {
+    if (cohortCount < 0 || cohortCount > 30) {
+      throw new IllegalArgumentException("Unsupported number of cohorts: " + cohortCount);
+    }
+    this.cohortCount = cohortCount;
+  }
+
+  /**
+   * Assigns the patient to the cohorts of the given bitmask. Patients without any cohort are
+   * ignored.
+   */
+  public void assign(String pid, int cohortMask, Date entryDate) {
+    if (cohortMask == 0) {
+      return;
+    }
+    cohortMaskByPid.merge(pid, cohortMask, (a, b) -> a | b);
+    entryDateByPid.putIfAbsent(pid, entryDate);
+  }
+
+  public int getCohortCount() {
+    return cohortCount;
+  }
+
+  /** The cohorts of the patient as bitmask or {@code 0} if the patient is in none of them. */
+  public int getCohortMask(String pid) {
+    return cohortMaskByPid.getOrDefault(pid, 0);
+  }
+
+  /** The ids of all patients that belong to at least one cohort. */
+  public Set<String> getPatientIds() {
+    return Collections.unmodifiableSet(cohortMaskByPid.keySet());
+  }
+
+  /** The patients of the cohort with the given (zero-based) index and their entry dates. */
+  public PidTimestampCohortMap getCohort(int cohortIndex) {
+    PidTimestampCohortMap result = new PidTimestampCohortMap();
+    cohortMaskByPid.forEach(
+        (pid, mask) -> {
+          if ((mask & (1 << cohortIndex)) != 0) {
+            result.put(pid, entryDateByPid.get(pid));
+          }
+        });
+    return result;
+  }
+
+  /** The number of patients per cohort, indexed by the cohort index. */
+  public int[] countPerCohort() {
+    int[] result = new int[cohortCount];
+    for (int mask : cohortMaskByPid.values()) {
+      for (int bits = mask; bits != 0; bits &= bits - 1) {
+        result[Integer.numberOfTrailingZeros(bits)]++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * The number of patients per cohort combination: the array is indexed by the cohort bitmask, so
+   * e.g. index {@code 0b011} holds the number of patients that are in the first two cohorts but
+   * not in the third one.
+   */
+  public int[] countPerCombination() {
+    int[] result = new int[1 << cohortCount];
+    cohortMaskByPid.values().forEach(mask -> result[mask]++);
+    return result;
+  }
+
+  /** The ids of the patients per cohort combination, indexed by the cohort bitmask. */
+  public List<List<String>> getPatientIdsPerCombination() {
+    List<List<String>> result = new ArrayList<>(1 << cohortCount);
+    for (int mask = 0; mask < 1 << cohortCount; mask++) {
+      result.add(new ArrayList<>());
+    }
+    cohortMaskByPid.forEach((pid, mask) -> result.get(mask).add(pid));
+    return result;
+  }
+
+  /**
+   * Counts the cohort entries per timeline day for all cohorts in one pass over the patients.
+   *
+   * @param startDateUnix The start of the first timeline day [unix time in seconds].
+   * @param dayCount The number of timeline days.
+   * @return The daily entry counts, indexed by cohort index and day index.
+   */
+  public long[][] countPerDay(long startDateUnix, int dayCount) {
+    long[][] result = new long[cohortCount][Math.max(0, dayCount)];
+    cohortMaskByPid.forEach(
+        (pid, mask) -> {
+          Date entryDate = entryDateByPid.get(pid);
+          if (entryDate == null) {
+            return;
+          }
+          long timestamp = DateTools.dateToUnixTime(entryDate);
+          if (timestamp < startDateUnix) {
+            return;
+          }
+          long dayIndex = (timestamp - startDateUnix) / DAY_IN_SECONDS;
+          if (dayIndex >= dayCount) {
+            return;
+          }
+          for (int bits = mask; bits != 0; bits &= bits - 1) {
+            result[Integer.numberOfTrailingZeros(bits)][(int) dayIndex]++;
+          }
+        });
+    return result;
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.models;
+
+import static de.ukbonn.mwtek.dashboardlogic.enums.DataItemTypes.ITEMTYPE_DEBUG;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import de.ukbonn.mwtek.dashboardlogic.settings.GlobalConfiguration;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import lombok.Getter;
+
+/**
+ * Payload of a single debug data item (e.g. the case ids per treatment level).
+ *
+ * <p>If the debug output is disabled, {@link #of(GlobalConfiguration)} returns a sink that ignores
+ * all entries, so no id collections get allocated or retained. Otherwise, the entries are resolved
+ * either right away ({@link #putResolved}) or while the data item gets serialized ({@link #put}),
+ * and their ids are written one by one to the json output by the {@link DebugSinkSerializer}.
+ */
+@JsonSerialize(using = DebugSinkSerializer.class)
+public class DebugSink {
+
+  /** Sink of a disabled debug output that ignores all entries. */
+  public static final DebugSink DISABLED = new DebugSink(false, 0);
+
+  @Getter private final boolean enabled;
+
+  /** Maximum number of ids written for this item; {@code <= 0} if unlimited. */
+  @Getter private final int maxIds;
+
+  /** Keyed entries (json object) or, with a {@code null} key, array elements (json array). */
+  private final List<Entry<String, Supplier<?>>> entries = new ArrayList<>();
+
+  @Getter private String itemName;
+
+  private DebugSink(boolean enabled, int maxIds) {
+    this.enabled = enabled;
+    this.maxIds = maxIds;
+  }
+
+  /**
+   * Creates the sink of a single debug data item.
+   *
+   * @param globalConfiguration The configuration with the debug flag and the id cap per item.
+   * @return {@link #DISABLED} if the debug output is disabled, otherwise a new sink.
+   */
+  public static DebugSink of(GlobalConfiguration globalConfiguration) {
+    if (!Boolean.TRUE.equals(globalConfiguration.getDebug())) {
+      return DISABLED;
+    }
+    Integer maxIds = globalConfiguration.getDebugMaxIdsPerItem();
+    return new DebugSink(true, maxIds != null ? maxIds : 0);
+  }
+
+  /**
+   * Adds an entry to the json object of this item. The value (a map, collection, array, stream or
+   * single id) is only resolved during the serialization, so the supplier should only capture
+   * compact data (e.g. a patient bitmap).
+   */
+  public DebugSink put(String key, Supplier<?> value) {
+    if (enabled) {
+      entries.add(new SimpleEntry<>(key, value));
+    }
+    return this;
+  }
+
+  /**
+   * Adds an entry to the json object of this item whose value is resolved right away, so the sink
+   * only retains the value and not the resources it got derived from.
+   */
+  public DebugSink putResolved(String key, Supplier<?> value) {
+    if (enabled) {
+      Object resolved = value.get();
+      entries.add(new SimpleEntry<>(key, () -> resolved));
+    }
+    return this;
+  }
+
+  /** Adds the entries of an already existing map (without copying its values). */
+  public DebugSink putAll(Map<String, ?> values) {
+    if (enabled) {
+      values.forEach((key, value) -> entries.add(new SimpleEntry<>(key, () -> value)));
+    }
+    return this;
+  }
+
+  /**
+   * Adds the given elements to the json array of this item. The stream is only resolved during the
+   * serialization.
+   */
+  public DebugSink addAll(Supplier<? extends Stream<?>> elements) {
+    if (enabled) {
+      entries.add(new SimpleEntry<>(null, elements));
+    }
+    return this;
+  }
+
+  /** Adds this sink as debug data item to the given list if the debug output is enabled. */
+  public void addTo(List<DiseaseDataItem> items, String debugItemName) {
+    if (enabled) {
+      this.itemName = debugItemName;
+      items.add(new DiseaseDataItem(debugItemName, ITEMTYPE_DEBUG, this));
+    }
+  }
+
+  List<Entry<String, Supplier<?>>> getEntries() {
+    return entries;
+  }
+
+  boolean isArray() {
+    return !entries.isEmpty() && entries.getFirst().getKey() == null;
+  }
+}
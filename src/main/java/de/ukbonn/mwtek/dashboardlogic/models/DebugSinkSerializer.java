@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes the entries of a {@link DebugSink} directly to the json output, so the ids don't need to
+ * be collected in a complete payload beforehand. Once the id cap of the sink is reached, the
+ * remaining elements of arrays and maps get skipped. The keys of the sink itself are always
+ * written, so the structure of the item stays intact; a truncation only gets logged.
+ */
+@Slf4j
+class DebugSinkSerializer extends JsonSerializer<DebugSink> {
+
+  @Override
+  public void serialize(DebugSink value, JsonGenerator gen, SerializerProvider serializers)
+      throws IOException {
+    IdBudget budget = new IdBudget(value.getMaxIds());
+    if (value.isArray()) {
+      gen.writeStartArray();
+      for (Entry<String, Supplier<?>> entry : value.getEntries()) {
+        writeElements(resolveIterator(entry.getValue().get()), gen, budget);
+      }
+      gen.writeEndArray();
+    } else {
+      gen.writeStartObject();
+      for (Entry<String, Supplier<?>> entry : value.getEntries()) {
+        gen.writeFieldName(entry.getKey());
+        writeValue(entry.getValue().get(), gen, budget);
+      }
+      gen.writeEndObject();
+    }
+    if (budget.isTruncated()) {
+      log.warn(
+          "Debug item {} got truncated after {} ids (debugMaxIdsPerItem)",
+          value.getItemName(),
+          value.getMaxIds());
+    }
+  }
+
+  private static void writeValue(Object value, JsonGenerator gen, IdBudget budget)
+      throws IOException {
+    if (value instanceof Map<?, ?> map) {
+      gen.writeStartObject();
+      for (Entry<?, ?> entry : map.entrySet()) {
+        if (budget.stopIfExhausted()) break;
+        gen.writeFieldName(String.valueOf(entry.getKey()));
+        writeValue(entry.getValue(), gen, budget);
+      }
+      gen.writeEndObject();
+      return;
+    }
+    Iterator<?> elements = resolveIterator(value);
+    if (elements != null) {
+      gen.writeStartArray();
+      writeElements(elements, gen, budget);
+      gen.writeEndArray();
+    } else {
+      budget.consume();
+      gen.writeObject(value);
+    }
+  }
+
+  private static void writeElements(Iterator<?> elements, JsonGenerator gen, IdBudget budget)
+      throws IOException {
+    while (elements != null && elements.hasNext()) {
+      if (budget.stopIfExhausted()) break;
+      writeValue(elements.next(), gen, budget);
+    }
+  }
+
+  /** Returns an iterator for collections, arrays and streams or {@code null} for single values. */
+  private static Iterator<?> resolveIterator(Object value) {
+    return switch (value) {
+      case Iterable<?> iterable -> iterable.iterator();
+      case Stream<?> stream -> stream.iterator();
+      case Object[] array -> Arrays.asList(array).iterator();
+      case null, default -> null;
+    };
+  }
+
+  /** Number of ids that can still be written for the current item. */
+  private static final class IdBudget {
+    private final boolean limited;
+    private int remaining;
+    private boolean truncated;
+
+    IdBudget(int maxIds) {
+      this.limited = maxIds > 0;
+      this.remaining = maxIds;
+    }
+
+    void consume() {
+      remaining--;
+    }
+
+    /** Checks the budget before the next element gets written and marks the item as truncated. */
+    boolean stopIfExhausted() {
+      if (limited && remaining <= 0) {
+        truncated = true;
+      }
+      return truncated;
+    }
+
+    boolean isTruncated() {
+      return truncated;
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.models;
+
+import static de.ukbonn.mwtek.dashboardlogic.logic.DiseaseResultFunctionality.extractIdFromReference;
+
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index structure that resolves each supply contact ("Versorgungsstellenkontakt") to its facility
+ * contact ("Einrichtungskontakt") once, using id-keyed hash maps.
+ *
+ * <p>The supply contacts are linked to the facility contacts by their visit number identifier. If
+ * the {@code Encounter.partOf} resolution is activated, the supply contact → department contact →
+ * facility contact chain is followed additionally, and a link found this way takes precedence.
+ * Dangling references and cycles in the chain get reported while the chain is resolved.
+ */
+@Slf4j
+public class EncounterHierarchyIndex {
+
+  private final Map<String, MiiEncounter> facilityContactBySupplyContactId = new HashMap<>();
+  private final Map<String, List<MiiEncounter>> supplyContactsByFacilityContactId =
+      new HashMap<>();
+  private final Set<String> supplyContactIdsResolvedViaPartOf = new HashSet<>();
+
+  /**
+   * @param supplyContacts All supply contacts.
+   * @param departmentContacts All department contacts; just needed for the partOf resolution.
+   * @param facilityContacts The facility contacts the supply contacts should be linked to.
+   * @param usePartOf Follow the {@link MiiEncounter#getPartOf()} chain in addition to the visit
+   *     number in {@link MiiEncounter#getIdentifier()}.
+   */
+  public EncounterHierarchyIndex(
+      List<MiiEncounter> supplyContacts,
+      List<MiiEncounter> departmentContacts,
+      List<MiiEncounter> facilityContacts,
+      boolean usePartOf) {
+
+    // Index facility encounters by visit number
+    Map<String, MiiEncounter> facilityContactsByVisitNumber = new HashMap<>();
+    for (MiiEncounter facilityContact : facilityContacts) {
+      String visitNumber = facilityContact.getVisitNumberIdentifierValue();
+      if (visitNumber != null) {
+        facilityContactsByVisitNumber.put(visitNumber, facilityContact);
+      } else {
+        log.warn(
+            "No identifier with slice 'Aufnahmenummer' was found for encounter with id {}",
+            facilityContact.getId());
+      }
+    }
+
+    Map<String, MiiEncounter> facilityContactsById = new HashMap<>();
+    Map<String, MiiEncounter> departmentContactsById = new HashMap<>();
+    if (usePartOf) {
+      facilityContacts.forEach(x -> facilityContactsById.putIfAbsent(x.getId(), x));
+      departmentContacts.forEach(x -> departmentContactsById.putIfAbsent(x.getId(), x));
+    }
+
+    for (MiiEncounter supplyContact : supplyContacts) {
+      MiiEncounter facilityContact = null;
+      String visitNumber = supplyContact.getVisitNumberIdentifierValue();
+      if (visitNumber != null) {
+        facilityContact = facilityContactsByVisitNumber.get(visitNumber);
+      } else {
+        log.warn(
+            "No visit number identifier found for supply contact encounter with id {}",
+            supplyContact.getId());
+      }
+      if (usePartOf) {
+        MiiEncounter facilityContactViaPartOf =
+            resolveViaPartOf(supplyContact, departmentContactsById, facilityContactsById);
+        if (facilityContactViaPartOf != null) {
+          facilityContact = facilityContactViaPartOf;
+          supplyContactIdsResolvedViaPartOf.add(supplyContact.getId());
+        }
+      }
+      if (facilityContact != null) {
+        facilityContactBySupplyContactId.put(supplyContact.getId(), facilityContact);
+        supplyContactsByFacilityContactId
+            .computeIfAbsent(facilityContact.getId(), _ -> new ArrayList<>())
+            .add(supplyContact);
+      }
+    }
+  }
+
+  /**
+   * Follows the partOf references of a supply contact via department contacts up to a facility
+   * contact.
+   *
+   * @return The facility contact or {@code null} if the chain is incomplete or cyclic.
+   */
+  private static MiiEncounter resolveViaPartOf(
+      MiiEncounter supplyContact,
+      Map<String, MiiEncounter> departmentContactsById,
+      Map<String, MiiEncounter> facilityContactsById) {
+    if (!supplyContact.hasPartOf()) {
+      return null;
+    }
+    String parentId = getPartOfId(supplyContact);
+    if (parentId == null) {
+      log.warn(
+          "Encounter with id {} holds a .partOf element but no literal reference",
+          supplyContact.getId());
+      return null;
+    }
+
+    Set<String> visitedIds = new HashSet<>();
+    visitedIds.add(supplyContact.getId());
+    while (true) {
+      MiiEncounter facilityContact = facilityContactsById.get(parentId);
+      if (facilityContact != null) {
+        return facilityContact;
+      }
+      MiiEncounter departmentContact = departmentContactsById.get(parentId);
+      if (departmentContact == null) {
+        log.warn(
+            "Dangling partOf reference 'Encounter/{}' in the hierarchy of supply contact {}",
+            parentId,
+            supplyContact.getId());
+        return null;
+      }
+      if (!visitedIds.add(departmentContact.getId())) {
+        log.warn(
+            "Cyclic partOf references found in the hierarchy of supply contact {} at encounter {}",
+            supplyContact.getId(),
+            departmentContact.getId());
+        return null;
+      }
+      parentId = getPartOfId(departmentContact);
+      if (parentId == null) {
+        log.warn(
+            "No partOf identifier found for 'Encounter.abteilungskontakt' with id {}",
+            departmentContact.getId());
+        return null;
+      }
+    }
+  }
+
+  private static String getPartOfId(MiiEncounter encounter) {
+    if (!encounter.hasPartOf() || !encounter.getPartOf().hasReference()) {
+      return null;
+    }
+    return extractIdFromReference(encounter.getPartOf());
+  }
+
+  /**
+   * @return The facility contact of the given supply contact or {@code null} if it could not be
+   *     resolved.
+   */
+  public MiiEncounter getFacilityContact(String supplyContactId) {
+    return facilityContactBySupplyContactId.get(supplyContactId);
+  }
+
+  /**
+   * @return All supply contacts that belong to the given facility contact, or an empty list.
+   */
+  public List<MiiEncounter> getSupplyContacts(String facilityContactId) {
+    return supplyContactsByFacilityContactId.getOrDefault(
+        facilityContactId, Collections.emptyList());
+  }
+
+  /** Whether the facility contact of the supply contact got determined via its partOf chain. */
+  public boolean isResolvedViaPartOf(String supplyContactId) {
+    return supplyContactIdsResolvedViaPartOf.contains(supplyContactId);
+  }
+
+  /**
+   * @return Unmodifiable map of all facility contact ids to their resolved supply contacts.
+   */
+  public Map<String, List<MiiEncounter>> getSupplyContactsByFacilityContactId() {
+    return Collections.unmodifiableMap(supplyContactsByFacilityContactId);
+  }
+}
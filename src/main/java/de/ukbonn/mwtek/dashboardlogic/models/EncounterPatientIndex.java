@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.models;
+
+import static de.ukbonn.mwtek.dashboardlogic.enums.DashboardLogicFixedValues.POSITIVE_RESULT;
+
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiPatient;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read-only index from the facility contacts of a run to their patients. Patients are referenced by
+ * the dense indexes of an {@link IdInterner}, so aggregations over patients can use bitsets instead
+ * of sets of string ids. Per encounter only the patient index and the disease-positive flag are
+ * kept; all other attributes are still read from the resources.
+ *
+ * <p>The patients of the run get interned first, so the patient index {@code i} of a patient with
+ * a resource refers to {@link #getPatient(int) the patient resource}; patient ids that are only
+ * referenced by encounters get the indexes after them.
+ */
+public class EncounterPatientIndex {
+
+  private final IdInterner encounterIds = new IdInterner();
+  private final IdInterner patientIds = new IdInterner();
+  private final MiiPatient[] patients;
+
+  private final int[] patientIndex;
+  private final BitSet positive;
+
+  /**
+   * @param facilityContactEncounters The facility contacts, one row each (duplicate ids are
+   *     ignored); {@code null} is handled as an empty list.
+   * @param patients All patient resources; {@code null} is handled as an empty list.
+   */
+  public EncounterPatientIndex(
+      Collection<MiiEncounter> facilityContactEncounters, Collection<MiiPatient> patients) {
+    facilityContactEncounters =
+        facilityContactEncounters != null ? facilityContactEncounters : List.of();
+    patients = patients != null ? patients : List.of();
+
+    for (MiiPatient patient : patients) {
+      patientIds.intern(patient.getId());
+    }
+    this.patients = new MiiPatient[patientIds.size()];
+    for (MiiPatient patient : patients) {
+      int index = patientIds.indexOf(patient.getId());
+      // On duplicate ids the first resource wins
+      if (index != IdInterner.UNKNOWN && this.patients[index] == null) {
+        this.patients[index] = patient;
+      }
+    }
+
+    int capacity = facilityContactEncounters.size();
+    this.patientIndex = new int[capacity];
+    this.positive = new BitSet(capacity);
+
+    for (MiiEncounter encounter : facilityContactEncounters) {
+      int row = encounterIds.size();
+      if (encounter.getId() == null || encounterIds.intern(encounter.getId()) != row) {
+        continue;
+      }
+      patientIndex[row] = patientIds.intern(encounter.getPatientId());
+      positive.set(row, encounter.hasExtension(POSITIVE_RESULT.getValue()));
+    }
+  }
+
+  /** The number of rows (encounters). */
+  public int size() {
+    return encounterIds.size();
+  }
+
+  /** The interned patient ids. */
+  public IdInterner getPatientIds() {
+    return patientIds;
+  }
+
+  /** The patient resource with the given index or {@code null} if the patient has none. */
+  public MiiPatient getPatient(int patientIndex) {
+    return patientIndex >= 0 && patientIndex < patients.length ? patients[patientIndex] : null;
+  }
+
+  /** The patient index of the encounter or {@link IdInterner#UNKNOWN} if it has no patient. */
+  public int getPatientIndex(int row) {
+    return patientIndex[row];
+  }
+
+  /** Whether the encounter is flagged as disease-positive. */
+  public boolean isPositive(int row) {
+    return positive.get(row);
+  }
+
+  /** The indexes of all patients with at least one disease-positive encounter. */
+  public BitSet getPositivePatientIndexes() {
+    BitSet result = new BitSet(patientIds.size());
+    positive.stream()
+        .map(row -> patientIndex[row])
+        .filter(index -> index != IdInterner.UNKNOWN)
+        .forEach(result::set);
+    return result;
+  }
+
+  /**
+   * The indexes of the patients of the given encounters. Patient ids that weren't interned while
+   * building the index are ignored.
+   */
+  public BitSet getPatientIndexes(Collection<MiiEncounter> encounters) {
+    BitSet result = new BitSet(patientIds.size());
+    for (MiiEncounter encounter : encounters) {
+      int index = patientIds.indexOf(encounter.getPatientId());
+      if (index != IdInterner.UNKNOWN) {
+        result.set(index);
+      }
+    }
+    return result;
+  }
+}
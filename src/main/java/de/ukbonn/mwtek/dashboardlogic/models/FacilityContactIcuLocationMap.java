@@ -18,11 +18,9 @@
 
 package de.ukbonn.mwtek.dashboardlogic.models;
 
-import de.ukbonn.mwtek.dashboardlogic.tools.LocationFilter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiLocation;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -40,14 +38,24 @@ public class FacilityContactIcuLocationMap {
    */
   public FacilityContactIcuLocationMap(
       List<MiiEncounter> encounters, List<MiiLocation> allLocations) {
-    Collection<String> icuLocationIds = LocationFilter.getIcuLocationIds(allLocations);
+    this(encounters, new IcuLocationRegistry(allLocations));
+  }
+
+  /**
+   * Index structure mapping a facility contact (encounter) ID to all of its ICU {@link
+   * EncounterLocationComponent}s.
+   *
+   * @param icuLocationRegistry The {@link IcuLocationRegistry} of the current run.
+   */
+  public FacilityContactIcuLocationMap(
+      List<MiiEncounter> encounters, IcuLocationRegistry icuLocationRegistry) {
     this.map =
         encounters.stream()
-            .filter(enc -> enc.isIcuCase(icuLocationIds, false))
+            .filter(icuLocationRegistry::isIcuEncounter)
             .collect(
                 Collectors.toMap(
                     MiiEncounter::getFacilityContactId,
-                    enc -> enc.getIcuLocationComponents(icuLocationIds, false),
+                    icuLocationRegistry::getIcuLocationComponents,
                     (list1, list2) -> {
                       List<MiiEncounter.EncounterLocationComponent> merged = new ArrayList<>(list1);
                       merged.addAll(list2);
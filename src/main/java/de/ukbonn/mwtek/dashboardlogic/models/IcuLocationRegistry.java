@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.models;
+
+import de.ukbonn.mwtek.dashboardlogic.tools.LocationFilter;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiLocation;
+import java.util.List;
+import java.util.Set;
+import org.hl7.fhir.r4.model.Encounter.EncounterLocationComponent;
+
+/**
+ * Run-scoped registry of the ICU locations, so the ICU location ids are determined once per data
+ * item generation instead of once per consumer (or even once per encounter).
+ *
+ * <p>An encounter counts as ICU encounter if one of its {@code Encounter.location} entries
+ * references an ICU ward.
+ */
+public class IcuLocationRegistry {
+
+  private final Set<String> icuLocationIds;
+
+  /**
+   * @param locations All location resources; {@code null} is handled as an empty list.
+   */
+  public IcuLocationRegistry(List<MiiLocation> locations) {
+    // Only the wards are considered, since in the location components within an Encounter
+    // resource, at best ward/room and bed are listed with identical time periods.
+    this.icuLocationIds =
+        locations != null ? Set.copyOf(LocationFilter.getIcuLocationIds(locations)) : Set.of();
+  }
+
+  /** The ids of all ICU ward locations (unmodifiable). */
+  public Set<String> getIcuLocationIds() {
+    return icuLocationIds;
+  }
+
+  /** Is the location with the given id an ICU ward? */
+  public boolean isIcuLocation(String locationId) {
+    return locationId != null && icuLocationIds.contains(locationId);
+  }
+
+  /**
+   * Determines whether the encounter took place (at least partially) on an ICU ward, according to
+   * its {@code Encounter.location} entries.
+   */
+  public boolean isIcuEncounter(MiiEncounter encounter) {
+    return encounter.isIcuCase(icuLocationIds, false);
+  }
+
+  /** Determines whether the encounter is currently located on an ICU ward. */
+  public boolean isCurrentlyOnIcuWard(MiiEncounter encounter) {
+    return encounter.isCurrentlyOnIcuWard(icuLocationIds);
+  }
+
+  /** All {@code Encounter.location} entries of the encounter that reference an ICU ward. */
+  public List<EncounterLocationComponent> getIcuLocationComponents(MiiEncounter encounter) {
+    return encounter.getIcuLocationComponents(icuLocationIds, false);
+  }
+}
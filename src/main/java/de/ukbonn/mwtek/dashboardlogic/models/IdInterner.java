@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.models;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assigns dense {@code int} indexes (0, 1, 2, ...) to string ids (e.g. patient or encounter ids),
+ * so that the logic classes can work on primitive arrays and {@link BitSet bitsets} instead of
+ * hashing the strings over and over again. The string ids only need to be restored when the output
+ * gets created.
+ *
+ * <p>The interning is not thread-safe; after the build phase the lookups can be shared between
+ * threads.
+ */
+public class IdInterner {
+
+  /** Index of unknown or {@code null} ids. */
+  public static final int UNKNOWN = -1;
+
+  private final Map<String, Integer> indexById = new HashMap<>();
+  private final List<String> ids = new ArrayList<>();
+
+  /**
+   * Returns the index of the id and assigns the next free index if the id is unknown yet.
+   *
+   * @return The index of the id or {@link #UNKNOWN} if the id is {@code null}.
+   */
+  public int intern(String id) {
+    if (id == null) {
+      return UNKNOWN;
+    }
+    return indexById.computeIfAbsent(
+        id,
+        _ -> {
+          ids.add(id);
+          return ids.size() - 1;
+        });
+  }
+
+  /** The index of the id or {@link #UNKNOWN} if it wasn't interned. */
+  public int indexOf(String id) {
+    if (id == null) {
+      return UNKNOWN;
+    }
+    return indexById.getOrDefault(id, UNKNOWN);
+  }
+
+  /** The id with the given index. */
+  public String getId(int index) {
+    return ids.get(index);
+  }
+
+  /** The number of interned ids. */
+  public int size() {
+    return ids.size();
+  }
+
+  /** Restores the string ids of all indexes that are set in the bitset. */
+  public Set<String> toIds(BitSet indexes) {
+    Set<String> result = new HashSet<>(indexes.cardinality());
+    indexes.stream().forEach(index -> result.add(ids.get(index)));
+    return result;
+  }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.models;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Compressed bitmap over the interned patient indexes (see {@link IdInterner}), meant for
+ * aggregates that only need the number of distinct patients.
+ *
+ * <p>The index space is split into chunks of 65536 indexes. A sparse chunk stores its indexes as
+ * sorted {@code char} array, a dense one (more than {@value #ARRAY_MAX_SIZE} indexes) as plain
+ * bitmap of 1024 words. Unions, intersections and differences work chunk by chunk: two sparse
+ * chunks get merged as sorted arrays, a sparse chunk is checked against a dense one by lookups and
+ * only two dense chunks are combined word by word. The cardinality is maintained per chunk. The
+ * string ids only get restored on demand via {@link #toIds}, e.g. for the debug output.
+ *
+ * <p>Instances are not thread-safe; the set operations return new instances and leave the operands
+ * untouched.
+ */
+public final class PatientBitmap {
+
+  /** Maximum number of indexes of a chunk that is stored as sorted array. */
+  private static final int ARRAY_MAX_SIZE = 4096;
+
+  /** Number of words of a dense chunk (65536 bits). */
+  private static final int CHUNK_WORDS = 1024;
+
+  /** The non-empty chunks by the upper 16 bits of their indexes. */
+  private final TreeMap<Integer, Chunk> chunks = new TreeMap<>();
+
+  /** Creates a bitmap with the indexes that are set in the given bitset. */
+  public static PatientBitmap of(BitSet indexes) {
+    PatientBitmap result = new PatientBitmap();
+    indexes.stream().forEach(result::add);
+    return result;
+  }
+
+  /**
+   * Adds the patient index.
+   *
+   * @throws IllegalArgumentException If the index is negative (e.g. {@link IdInterner#UNKNOWN}).
+   */
+  public void add(int index) {
+    if (index < 0) {
+      throw new IllegalArgumentException("Invalid patient index: " + index);
+    }
+    chunks.computeIfAbsent(index >>> 16, _ -> new Chunk()).add((char) index);
+  }
+
+  /** Checks whether the patient index is part of the bitmap. */
+  public boolean contains(int index) {
+    if (index < 0) {
+      return false;
+    }
+    Chunk chunk = chunks.get(index >>> 16);
+    return chunk != null && chunk.contains((char) index);
+  }
+
+  /** The number of patient indexes in the bitmap. */
+  public int cardinality() {
+    int result = 0;
+    for (Chunk chunk : chunks.values()) {
+      result += chunk.size;
+    }
+    return result;
+  }
+
+  public boolean isEmpty() {
+    return chunks.isEmpty();
+  }
+
+  /** Returns the union of both bitmaps. */
+  public PatientBitmap or(PatientBitmap other) {
+    PatientBitmap result = new PatientBitmap();
+    Set<Integer> keys = new TreeSet<>(chunks.keySet());
+    keys.addAll(other.chunks.keySet());
+    for (int key : keys) {
+      result.putChunk(key, combine(chunks.get(key), other.chunks.get(key), Operation.OR));
+    }
+    return result;
+  }
+
+  /** Returns the intersection of both bitmaps. */
+  public PatientBitmap and(PatientBitmap other) {
+    PatientBitmap result = new PatientBitmap();
+    for (Map.Entry<Integer, Chunk> entry : chunks.entrySet()) {
+      Chunk otherChunk = other.chunks.get(entry.getKey());
+      if (otherChunk != null) {
+        result.putChunk(entry.getKey(), combine(entry.getValue(), otherChunk, Operation.AND));
+      }
+    }
+    return result;
+  }
+
+  /** Returns the patient indexes of this bitmap that are not part of the other one. */
+  public PatientBitmap andNot(PatientBitmap other) {
+    PatientBitmap result = new PatientBitmap();
+    for (Map.Entry<Integer, Chunk> entry : chunks.entrySet()) {
+      result.putChunk(
+          entry.getKey(),
+          combine(entry.getValue(), other.chunks.get(entry.getKey()), Operation.AND_NOT));
+    }
+    return result;
+  }
+
+  /** Calls the consumer for each patient index in ascending order. */
+  public void forEach(IntConsumer consumer) {
+    chunks.forEach((key, chunk) -> chunk.forEach(key << 16, consumer));
+  }
+
+  /** Restores the string ids of all patient indexes of the bitmap. */
+  public Set<String> toIds(IdInterner patientIds) {
+    Set<String> result = new HashSet<>(cardinality());
+    forEach(index -> result.add(patientIds.getId(index)));
+    return result;
+  }
+
+  private void putChunk(int key, Chunk chunk) {
+    if (chunk != null) {
+      chunks.put(key, chunk);
+    }
+  }
+
+  private enum Operation {
+    OR((a, b) -> a | b),
+    AND((a, b) -> a & b),
+    AND_NOT((a, b) -> a & ~b);
+
+    private final LongBinaryOperator wordOperator;
+
+    Operation(LongBinaryOperator wordOperator) {
+      this.wordOperator = wordOperator;
+    }
+  }
+
+  /**
+   * Combines both chunks into a new chunk or returns {@code null} if the result is empty; a missing
+   * chunk counts as empty.
+   */
+  private static Chunk combine(Chunk left, Chunk right, Operation operation) {
+    if (left == null || right == null) {
+      boolean keepPresent =
+          switch (operation) {
+            case OR -> true;
+            case AND -> false;
+            case AND_NOT -> left != null;
+          };
+      Chunk present = left != null ? left : right;
+      return keepPresent && present != null ? present.copy() : null;
+    }
+    if (left.words == null && right.words == null) {
+      return mergeArrays(left, right, operation);
+    }
+    // The result of an intersection or difference is a subset of a sparse left operand
+    if (left.words == null && operation != Operation.OR) {
+      return filterArray(left, right, operation == Operation.AND);
+    }
+    if (right.words == null && operation == Operation.AND) {
+      return filterArray(right, left, true);
+    }
+    long[] leftWords = left.toWords();
+    long[] rightWords = right.toWords();
+    for (int i = 0; i < CHUNK_WORDS; i++) {
+      leftWords[i] = operation.wordOperator.applyAsLong(leftWords[i], rightWords[i]);
+    }
+    return Chunk.fromWords(leftWords);
+  }
+
+  /** Merges the sorted arrays of two sparse chunks in a single pass. */
+  private static Chunk mergeArrays(Chunk left, Chunk right, Operation operation) {
+    char[] result = new char[operation == Operation.OR ? left.size + right.size : left.size];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < left.size && j < right.size) {
+      char leftValue = left.values[i];
+      char rightValue = right.values[j];
+      if (leftValue < rightValue) {
+        if (operation != Operation.AND) {
+          result[size++] = leftValue;
+        }
+        i++;
+      } else if (leftValue > rightValue) {
+        if (operation == Operation.OR) {
+          result[size++] = rightValue;
+        }
+        j++;
+      } else {
+        if (operation != Operation.AND_NOT) {
+          result[size++] = leftValue;
+        }
+        i++;
+        j++;
+      }
+    }
+    if (operation != Operation.AND) {
+      while (i < left.size) {
+        result[size++] = left.values[i++];
+      }
+    }
+    if (operation == Operation.OR) {
+      while (j < right.size) {
+        result[size++] = right.values[j++];
+      }
+    }
+    return Chunk.fromValues(result, size);
+  }
+
+  /**
+   * Keeps the values of the sparse chunk that are ({@code keepContained}) or aren't part of the
+   * other chunk.
+   */
+  private static Chunk filterArray(Chunk sparse, Chunk other, boolean keepContained) {
+    char[] result = new char[sparse.size];
+    int size = 0;
+    for (int i = 0; i < sparse.size; i++) {
+      if (other.contains(sparse.values[i]) == keepContained) {
+        result[size++] = sparse.values[i];
+      }
+    }
+    return Chunk.fromValues(result, size);
+  }
+
+  /** The indexes of a 65536 wide range: sorted array while sparse, bitmap when dense. */
+  private static final class Chunk {
+    private char[] values = new char[4];
+    private long[] words;
+    private int size;
+
+    private void add(char value) {
+      if (words != null) {
+        long mask = 1L << value;
+        if ((words[value >>> 6] & mask) == 0) {
+          words[value >>> 6] |= mask;
+          size++;
+        }
+        return;
+      }
+      int position = Arrays.binarySearch(values, 0, size, value);
+      if (position >= 0) {
+        return;
+      }
+      if (size == ARRAY_MAX_SIZE) {
+        // Too dense for the array: switch to the bitmap representation
+        words = toWords();
+        values = null;
+        add(value);
+        return;
+      }
+      int insertAt = -position - 1;
+      if (size == values.length) {
+        values = Arrays.copyOf(values, Math.min(ARRAY_MAX_SIZE, size * 2));
+      }
+      System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+      values[insertAt] = value;
+      size++;
+    }
+
+    private boolean contains(char value) {
+      return words != null
+          ? (words[value >>> 6] & (1L << value)) != 0
+          : Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    private Chunk copy() {
+      Chunk chunk = new Chunk();
+      chunk.values = values != null ? Arrays.copyOf(values, Math.max(size, 1)) : null;
+      chunk.words = words != null ? words.clone() : null;
+      chunk.size = size;
+      return chunk;
+    }
+
+    /** A (modifiable) copy of the indexes as words. */
+    private long[] toWords() {
+      if (words != null) {
+        return words.clone();
+      }
+      long[] result = new long[CHUNK_WORDS];
+      for (int i = 0; i < size; i++) {
+        result[values[i] >>> 6] |= 1L << values[i];
+      }
+      return result;
+    }
+
+    /** Creates a chunk from the words or returns {@code null} if no bit is set. */
+    private static Chunk fromWords(long[] words) {
+      int cardinality = 0;
+      for (long word : words) {
+        cardinality += Long.bitCount(word);
+      }
+      if (cardinality == 0) {
+        return null;
+      }
+      Chunk chunk = new Chunk();
+      chunk.size = cardinality;
+      if (cardinality > ARRAY_MAX_SIZE) {
+        chunk.words = words;
+        chunk.values = null;
+        return chunk;
+      }
+      chunk.values = new char[cardinality];
+      int position = 0;
+      for (int i = 0; i < words.length; i++) {
+        for (long word = words[i]; word != 0; word &= word - 1) {
+          chunk.values[position++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+        }
+      }
+      return chunk;
+    }
+
+    /**
+     * Creates a chunk from the first {@code size} entries of the sorted values or returns {@code
+     * null} if there are none.
+     */
+    private static Chunk fromValues(char[] values, int size) {
+      if (size == 0) {
+        return null;
+      }
+      Chunk chunk = new Chunk();
+      chunk.values = Arrays.copyOf(values, size);
+      chunk.size = size;
+      if (size > ARRAY_MAX_SIZE) {
+        chunk.words = chunk.toWords();
+        chunk.values = null;
+      }
+      return chunk;
+    }
+
+    private void forEach(int offset, IntConsumer consumer) {
+      if (words == null) {
+        for (int i = 0; i < size; i++) {
+          consumer.accept(offset + values[i]);
+        }
+        return;
+      }
+      for (int i = 0; i < words.length; i++) {
+        for (long word = words[i]; word != 0; word &= word - 1) {
+          consumer.accept(offset + i * 64 + Long.numberOfTrailingZeros(word));
+        }
+      }
+    }
+  }
+}
@@ -26,6 +26,7 @@ import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CoreBaseDataItem;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CumulativeRenalReplacementData;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.ROCItem;
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.RenalReplacementCaseIndex;
 import de.ukbonn.mwtek.utilities.generic.time.DateTools;
 import java.util.ArrayList;
 import java.util.List;
@@ -52,6 +53,8 @@ public class CumulativeRenalReplacementRiskROC {
                     o.dateTo() != null
                         && DateTools.dateToUnixTime(o.dateTo()) >= responseStartingTimestamp)
             .toList();
+    // Grouping all parameters by case id once for all threads
+    RenalReplacementCaseIndex caseIndex = new RenalReplacementCaseIndex(mapModelParameter);
     // Getting number of cores available in the machine
     int numCores = Runtime.getRuntime().availableProcessors();
 
@@ -70,7 +73,7 @@ public class CumulativeRenalReplacementRiskROC {
       Thread thread =
           new Thread(
               new CumulativeRenalReplacementRiskROCThread(
-                  mapModelParameter,
+                  caseIndex,
                   encounterSublist,
                   responseStartingTimestamp,
                   rocItemsBlockingQueue));
@@ -28,33 +28,32 @@ import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement
 import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters.UREA;
 import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters.URINE_OUTPUT;
 
-import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.misc.ValueOperations;
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CaseTimeSeries;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CoreBaseDataItem;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.ROCItem;
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.RenalReplacementCaseIndex;
 import de.ukbonn.mwtek.utilities.generic.time.DateTools;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.BlockingQueue;
-import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class CumulativeRenalReplacementRiskROCThread implements Runnable {
 
-  private final Map<RenalReplacementRiskParameters, List<CoreBaseDataItem>> mapModelParameter;
+  private final RenalReplacementCaseIndex caseIndex;
   private final List<CoreBaseDataItem> encounters;
   private final Long responseStartingTimestamp;
   private final BlockingQueue<List<ROCItem>> rocItemsBlockingQueue;
 
   public CumulativeRenalReplacementRiskROCThread(
-      Map<RenalReplacementRiskParameters, List<CoreBaseDataItem>> mapModelParameter,
+      RenalReplacementCaseIndex caseIndex,
       List<CoreBaseDataItem> encounters,
       Long responseStartingTimestamp,
       BlockingQueue<List<ROCItem>> rocItemsBlockingQueue) {
-    this.mapModelParameter = mapModelParameter;
+    this.caseIndex = caseIndex;
     this.encounters = encounters;
     this.responseStartingTimestamp = responseStartingTimestamp;
     this.rocItemsBlockingQueue = rocItemsBlockingQueue;
@@ -67,46 +66,20 @@ public class CumulativeRenalReplacementRiskROCThread implements Runnable {
 
     List<ROCItem> rocItems = new ArrayList<>();
 
-    Map<String, List<CoreBaseDataItem>> ureaByCaseId =
-        mapModelParameter.get(UREA).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
-    Map<String, List<CoreBaseDataItem>> lactatesByCaseId =
-        mapModelParameter.get(LACTATE).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
-    Map<String, List<CoreBaseDataItem>> urineOutputsByCaseId =
-        mapModelParameter.get(URINE_OUTPUT).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
-    Map<String, List<CoreBaseDataItem>> renalReplacementsByCaseId =
-        mapModelParameter.get(START_REPLACEMENT).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
-    Map<String, List<CoreBaseDataItem>> bodyWeightByCaseId =
-        mapModelParameter.get(BODY_WEIGHT).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
-    Map<String, List<CoreBaseDataItem>> creatineByCaseIds =
-        mapModelParameter.get(CREATININE).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
     for (CoreBaseDataItem encounter : this.encounters) {
       String caseId = encounter.hisCaseId();
       log.trace("START: calculation for caseId: {}", caseId);
 
-      List<CoreBaseDataItem> currentCvvhItems =
-          renalReplacementsByCaseId.getOrDefault(caseId, null);
-      List<CoreBaseDataItem> currentUrineOutputItems =
-          urineOutputsByCaseId.getOrDefault(caseId, null);
-      List<CoreBaseDataItem> currentLactateItems = lactatesByCaseId.getOrDefault(caseId, null);
-      List<CoreBaseDataItem> currentUreaItems = ureaByCaseId.getOrDefault(caseId, null);
-      List<CoreBaseDataItem> currentBodyWeightItems = bodyWeightByCaseId.getOrDefault(caseId, null);
-      List<CoreBaseDataItem> currentCreatineItems = creatineByCaseIds.getOrDefault(caseId, null);
+      List<CoreBaseDataItem> currentCvvhItems = caseIndex.get(START_REPLACEMENT, caseId);
+      CaseTimeSeries currentUrineOutputSeries = caseIndex.getSeries(URINE_OUTPUT, caseId);
+      CaseTimeSeries currentLactateSeries = caseIndex.getSeries(LACTATE, caseId);
+      CaseTimeSeries currentUreaSeries = caseIndex.getSeries(UREA, caseId);
+      List<CoreBaseDataItem> currentBodyWeightItems = caseIndex.get(BODY_WEIGHT, caseId);
+      CaseTimeSeries currentCreatinineSeries = caseIndex.getSeries(CREATININE, caseId);
 
       // Getting the first ever recorded Creatinine for this case. Dependent on case. Not on
       // episodes.
-      Double firstCreatinine = ValueOperations.getFirstValueInPeriod(currentCreatineItems);
+      Double firstCreatinine = ValueOperations.getFirstValueInPeriod(currentCreatinineSeries);
       // If null value is found then risk can't be calculated. So skipping further steps for this
       // case.
       if (firstCreatinine == null) {
@@ -150,14 +123,14 @@ public class CumulativeRenalReplacementRiskROCThread implements Runnable {
         while (periodTo > startTimestamp) {
           // Calculating renal replacement risk
           Double currentCreatinine =
-              ValueOperations.getClosestValueToMid(currentCreatineItems, periodFrom, periodTo);
+              ValueOperations.getClosestValueToMid(currentCreatinineSeries, periodFrom, periodTo);
           Double currentUrea =
-              ValueOperations.getClosestValueToMid(currentUreaItems, periodFrom, periodTo);
+              ValueOperations.getClosestValueToMid(currentUreaSeries, periodFrom, periodTo);
           Double currentLactate =
-              ValueOperations.getLatestValueInPeriod(currentLactateItems, periodFrom, periodTo);
+              ValueOperations.getLatestValueInPeriod(currentLactateSeries, periodFrom, periodTo);
           Double meanUrineOutput =
               ValueOperations.getMeanUrineValueInPeriod(
-                  currentUrineOutputItems, bodyWeight, periodFrom, periodTo);
+                  currentUrineOutputSeries, bodyWeight, periodFrom, periodTo);
           Double risk =
               ValueOperations.getDiscriminantValue(
                   currentCreatinine, firstCreatinine, currentUrea, currentLactate, meanUrineOutput);
@@ -231,10 +204,7 @@ public class CumulativeRenalReplacementRiskROCThread implements Runnable {
       // If there is no CVHH for a case then look for admission date
       else {
         // Getting Episodes
-        List<CoreBaseDataItem> episodes =
-            this.mapModelParameter.get(EPISODES).stream()
-                .filter(o -> o.hisCaseId().equals(caseId))
-                .toList();
+        List<CoreBaseDataItem> episodes = caseIndex.getOrEmpty(EPISODES, caseId);
         for (CoreBaseDataItem episode : episodes) {
           // Getting episode start and end timestamps
           Long admissionTimestamp = DateTools.dateToUnixTime(episode.dateFrom());
@@ -259,14 +229,14 @@ public class CumulativeRenalReplacementRiskROCThread implements Runnable {
           while (periodTo < releaseTimestamp) {
             // Calculating renal replacement risk
             Double currentCreatinine =
-                ValueOperations.getClosestValueToMid(currentCreatineItems, periodFrom, periodTo);
+                ValueOperations.getClosestValueToMid(currentCreatinineSeries, periodFrom, periodTo);
             Double currentUrea =
-                ValueOperations.getClosestValueToMid(currentUreaItems, periodFrom, periodTo);
+                ValueOperations.getClosestValueToMid(currentUreaSeries, periodFrom, periodTo);
             Double currentLactate =
-                ValueOperations.getLatestValueInPeriod(currentLactateItems, periodFrom, periodTo);
+                ValueOperations.getLatestValueInPeriod(currentLactateSeries, periodFrom, periodTo);
             Double meanUrineOutput =
                 ValueOperations.getMeanUrineValueInPeriod(
-                    currentUrineOutputItems, bodyWeight, periodFrom, periodTo);
+                    currentUrineOutputSeries, bodyWeight, periodFrom, periodTo);
             Double risk =
                 ValueOperations.getDiscriminantValue(
                     currentCreatinine,
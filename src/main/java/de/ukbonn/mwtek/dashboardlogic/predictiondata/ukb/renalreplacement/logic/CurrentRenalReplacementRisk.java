@@ -25,7 +25,7 @@ import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement
 import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters.START_REPLACEMENT;
 import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters.UREA;
 import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters.URINE_OUTPUT;
-import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.logic.TimeLineRenalReplacementRiskThread.logRiskData;
+import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.logic.TimeLineRenalReplacementRiskTask.logRiskData;
 
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.misc.ValueOperations;
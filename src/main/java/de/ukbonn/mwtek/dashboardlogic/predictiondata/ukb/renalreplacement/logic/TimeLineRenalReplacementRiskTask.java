@@ -29,9 +29,10 @@ import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement
 import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters.URINE_OUTPUT;
 import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.misc.ValueOperations.getMaxValueLowerThan;
 
-import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.misc.ValueOperations;
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CaseTimeSeries;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CoreBaseDataItem;
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.RenalReplacementCaseIndex;
 import de.ukbonn.mwtek.utilities.generic.time.DateTools;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -41,49 +42,53 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Calculates the renal replacement risk and therapy counts of one partition of cases for each
+ * timestamp of the timeline. All encounters of a case need to be part of the same partition, since
+ * each case is only counted once per timestamp.
+ */
 @Slf4j
-public class TimeLineRenalReplacementRiskThread implements Runnable {
+public class TimeLineRenalReplacementRiskTask
+    implements Supplier<TimeLineRenalReplacementRiskTask.PartialResult> {
 
-  private final Map<RenalReplacementRiskParameters, List<CoreBaseDataItem>> mapModelParameter;
+  private final RenalReplacementCaseIndex caseIndex;
   private final List<CoreBaseDataItem> encounters;
   private final List<Long> timestamps;
   private final Long currentTimestamp;
   private final Long responseStartingTimestamp;
-  private final BlockingQueue<Map<Long, Integer>>
-      timestampToRenalReplacementTherapyMapBlockingQueue;
-  private final BlockingQueue<Map<Long, List<Double>>>
-      timestampToRenalReplacementRiskMapBlockingQueue;
-  private final BlockingQueue<Map<Long, Set<String>>> timestampToCaseIdForRiskMapBlockingQueue;
-  private final BlockingQueue<Map<Long, Set<String>>> timestampToCaseIdForTherapyMapBlockingQueue;
-
-  public TimeLineRenalReplacementRiskThread(
-      Map<RenalReplacementRiskParameters, List<CoreBaseDataItem>> mapModelParameter,
+
+  /**
+   * The results of a single partition, keyed by the timestamps of the timeline.
+   *
+   * @param timestampToRenalReplacementTherapyMap Number of cases with a therapy per timestamp.
+   * @param timestampToRenalReplacementRiskMap Calculated risks per timestamp.
+   * @param timestampToCaseIdForRiskMap Case ids that contributed a risk (debug purpose).
+   * @param timestampToCaseIdForTherapyMap Case ids that got counted for a therapy (debug purpose).
+   */
+  public record PartialResult(
+      Map<Long, Integer> timestampToRenalReplacementTherapyMap,
+      Map<Long, List<Double>> timestampToRenalReplacementRiskMap,
+      Map<Long, Set<String>> timestampToCaseIdForRiskMap,
+      Map<Long, Set<String>> timestampToCaseIdForTherapyMap) {}
+
+  public TimeLineRenalReplacementRiskTask(
+      RenalReplacementCaseIndex caseIndex,
       List<CoreBaseDataItem> encounters,
       List<Long> timestamps,
       Long currentTimestamp,
-      Long responseStartingTimestamp,
-      BlockingQueue<Map<Long, Integer>> timestampToRenalReplacementTherapyMapBlockingQueue,
-      BlockingQueue<Map<Long, List<Double>>> timestampToRenalReplacementRiskMapBlockingQueue,
-      BlockingQueue<Map<Long, Set<String>>> timestampToCaseIdForRiskMapBlockingQueue,
-      BlockingQueue<Map<Long, Set<String>>> timestampToCaseIdForTherapyMapBlockingQueue) {
-    this.mapModelParameter = mapModelParameter;
+      Long responseStartingTimestamp) {
+    this.caseIndex = caseIndex;
     this.encounters = encounters;
     this.timestamps = timestamps;
     this.currentTimestamp = currentTimestamp;
     this.responseStartingTimestamp = responseStartingTimestamp;
-    this.timestampToRenalReplacementRiskMapBlockingQueue =
-        timestampToRenalReplacementRiskMapBlockingQueue;
-    this.timestampToRenalReplacementTherapyMapBlockingQueue =
-        timestampToRenalReplacementTherapyMapBlockingQueue;
-    this.timestampToCaseIdForRiskMapBlockingQueue = timestampToCaseIdForRiskMapBlockingQueue;
-    this.timestampToCaseIdForTherapyMapBlockingQueue = timestampToCaseIdForTherapyMapBlockingQueue;
   }
 
-  public void run() {
+  @Override
+  public PartialResult get() {
     long periodTo;
     long periodFrom;
     Double bodyWeight;
@@ -104,46 +109,20 @@ public class TimeLineRenalReplacementRiskThread implements Runnable {
       timestampToCaseIdForTherapyMap.put(timestamp, new HashSet<>());
     }
 
-    Map<String, List<CoreBaseDataItem>> ureaByCaseId =
-        mapModelParameter.get(UREA).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
-    Map<String, List<CoreBaseDataItem>> lactatesByCaseId =
-        mapModelParameter.get(LACTATE).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
-    Map<String, List<CoreBaseDataItem>> urineOutputsByCaseId =
-        mapModelParameter.get(URINE_OUTPUT).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
-    Map<String, List<CoreBaseDataItem>> renalReplacementsByCaseId =
-        mapModelParameter.get(START_REPLACEMENT).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
-    Map<String, List<CoreBaseDataItem>> bodyWeightByCaseId =
-        mapModelParameter.get(BODY_WEIGHT).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
-    Map<String, List<CoreBaseDataItem>> creatineByCaseIds =
-        mapModelParameter.get(CREATININE).stream()
-            .collect(Collectors.groupingBy(CoreBaseDataItem::hisCaseId));
-
     for (CoreBaseDataItem encounter : this.encounters) {
       String caseId = encounter.hisCaseId();
       log.trace("START: calculation for caseId: {}", caseId);
 
-      List<CoreBaseDataItem> currentCvvhItems =
-          renalReplacementsByCaseId.getOrDefault(caseId, null);
-      List<CoreBaseDataItem> currentUrineOutputItems =
-          urineOutputsByCaseId.getOrDefault(caseId, null);
-      List<CoreBaseDataItem> currentLactateItems = lactatesByCaseId.getOrDefault(caseId, null);
-      List<CoreBaseDataItem> currentUreaItems = ureaByCaseId.getOrDefault(caseId, null);
-      List<CoreBaseDataItem> currentBodyWeightItems = bodyWeightByCaseId.getOrDefault(caseId, null);
-      List<CoreBaseDataItem> currentCreatineItems = creatineByCaseIds.getOrDefault(caseId, null);
+      List<CoreBaseDataItem> currentCvvhItems = caseIndex.get(START_REPLACEMENT, caseId);
+      CaseTimeSeries currentUrineOutputSeries = caseIndex.getSeries(URINE_OUTPUT, caseId);
+      CaseTimeSeries currentLactateSeries = caseIndex.getSeries(LACTATE, caseId);
+      CaseTimeSeries currentUreaSeries = caseIndex.getSeries(UREA, caseId);
+      List<CoreBaseDataItem> currentBodyWeightItems = caseIndex.get(BODY_WEIGHT, caseId);
+      CaseTimeSeries currentCreatinineSeries = caseIndex.getSeries(CREATININE, caseId);
 
       // Getting the first ever recorded Creatinine for this case. Dependent on case. Not on
       // episodes.
-      Double firstCreatinine = ValueOperations.getFirstValueInPeriod(currentCreatineItems);
+      Double firstCreatinine = ValueOperations.getFirstValueInPeriod(currentCreatinineSeries);
       // If null value is found then risk can't be calculated. So skipping further steps for this
       // case.
       if (firstCreatinine == null) {
@@ -189,14 +168,16 @@ public class TimeLineRenalReplacementRiskThread implements Runnable {
             if (maxTimestamp >= startTimestamp && maxTimestamp <= endTimestamp) {
               // Calculating renal replacement risk
               Double currentCreatinine =
-                  ValueOperations.getClosestValueToMid(currentCreatineItems, periodFrom, periodTo);
+                  ValueOperations.getClosestValueToMid(
+                      currentCreatinineSeries, periodFrom, periodTo);
               Double currentUrea =
-                  ValueOperations.getClosestValueToMid(currentUreaItems, periodFrom, periodTo);
+                  ValueOperations.getClosestValueToMid(currentUreaSeries, periodFrom, periodTo);
               Double currentLactate =
-                  ValueOperations.getLatestValueInPeriod(currentLactateItems, periodFrom, periodTo);
+                  ValueOperations.getLatestValueInPeriod(
+                      currentLactateSeries, periodFrom, periodTo);
               Double meanUrineOutput =
                   ValueOperations.getMeanUrineValueInPeriod(
-                      currentUrineOutputItems, bodyWeight, periodFrom, periodTo);
+                      currentUrineOutputSeries, bodyWeight, periodFrom, periodTo);
               Double risk =
                   ValueOperations.getDiscriminantValue(
                       currentCreatinine,
@@ -355,10 +336,7 @@ public class TimeLineRenalReplacementRiskThread implements Runnable {
       // If there is no CVVH for a case then look for admission date
       else {
         // Getting Episodes
-        List<CoreBaseDataItem> episodes =
-            this.mapModelParameter.get(EPISODES).stream()
-                .filter(o -> o.hisCaseId().equals(caseId))
-                .toList();
+        List<CoreBaseDataItem> episodes = caseIndex.getOrEmpty(EPISODES, caseId);
         for (CoreBaseDataItem episode : episodes) {
           // Getting episode start and end timestamps
           Long admissionTimestamp = DateTools.dateToUnixTime(episode.dateFrom());
@@ -387,15 +365,15 @@ public class TimeLineRenalReplacementRiskThread implements Runnable {
                 // Calculating renal replacement risk
                 Double currentCreatinine =
                     ValueOperations.getClosestValueToMid(
-                        currentCreatineItems, periodFrom, periodTo);
+                        currentCreatinineSeries, periodFrom, periodTo);
                 Double currentUrea =
-                    ValueOperations.getClosestValueToMid(currentUreaItems, periodFrom, periodTo);
+                    ValueOperations.getClosestValueToMid(currentUreaSeries, periodFrom, periodTo);
                 Double currentLactate =
                     ValueOperations.getLatestValueInPeriod(
-                        currentLactateItems, periodFrom, periodTo);
+                        currentLactateSeries, periodFrom, periodTo);
                 Double meanUrineOutput =
                     ValueOperations.getMeanUrineValueInPeriod(
-                        currentUrineOutputItems, bodyWeight, periodFrom, periodTo);
+                        currentUrineOutputSeries, bodyWeight, periodFrom, periodTo);
                 Double risk =
                     ValueOperations.getDiscriminantValue(
                         currentCreatinine,
@@ -496,17 +474,11 @@ public class TimeLineRenalReplacementRiskThread implements Runnable {
       log.trace("END: calculation for caseId: " + caseId);
     }
 
-    try {
-      // Providing data back to main thread
-      this.timestampToRenalReplacementRiskMapBlockingQueue.put(timestampToRenalReplacementRiskMap);
-      this.timestampToRenalReplacementTherapyMapBlockingQueue.put(
-          timestampToRenalReplacementTherapyMap);
-      // Debug purpose
-      this.timestampToCaseIdForRiskMapBlockingQueue.put(timestampToCaseIdForRiskMap);
-      this.timestampToCaseIdForTherapyMapBlockingQueue.put(timestampToCaseIdForTherapyMap);
-    } catch (InterruptedException e) {
-      Thread.currentThread().interrupt();
-    }
+    return new PartialResult(
+        timestampToRenalReplacementTherapyMap,
+        timestampToRenalReplacementRiskMap,
+        timestampToCaseIdForRiskMap,
+        timestampToCaseIdForTherapyMap);
   }
 
   private static String logNoTimeStampFound(long periodTo, long periodFrom, String caseId) {
@@ -15,7 +15,6 @@
  * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
  * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
  */
-
 package de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.logic;
 
 import static de.ukbonn.mwtek.dashboardlogic.logic.CoronaResultFunctionality.getDatesOutputList;
@@ -23,91 +22,78 @@ import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement
 
 import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters;
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.logic.TimeLineRenalReplacementRiskTask.PartialResult;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CoreBaseDataItem;
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.RenalReplacementCaseIndex;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.TimeLineRenalReplacementData;
 import de.ukbonn.mwtek.utilities.generic.time.DateTools;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class TimelineRenalReplacementRisk {
 
+  /**
+   * Number of partitions per available processor. Using more partitions than threads evens out
+   * cases with very long stays.
+   */
+  private static final int PARTITIONS_PER_PROCESSOR = 4;
+
   public static TimeLineRenalReplacementData createData(
       Map<RenalReplacementRiskParameters, List<CoreBaseDataItem>> mapModelParameter)
       throws InterruptedException {
-    // Getting timestamps
-    List<Long> timestamps = getDatesOutputList(DataItemContext.COVID);
+    // Getting timestamps; the list is cached and shared with other data items, so it's copied
+    List<Long> timestamps = List.copyOf(getDatesOutputList(DataItemContext.COVID));
     // Getting current timestamp
     Long currentTimestamp = DateTools.getCurrentUnixTime();
     // Dates in the response json is starting from this timestamp
-    Long responseStartingTimestamp = timestamps.get(0);
-    // Get all the encounters
-    List<CoreBaseDataItem> encounters = mapModelParameter.get(ENCOUNTER);
+    Long responseStartingTimestamp = timestamps.getFirst();
+    // Grouping all parameters by case id once for all partitions
+    RenalReplacementCaseIndex caseIndex = new RenalReplacementCaseIndex(mapModelParameter);
     // Getting number of cores available in the machine
     int numCores = Runtime.getRuntime().availableProcessors();
 
-    List<Map<Long, Integer>> timestampToRenalReplacementTherapyMapList = new ArrayList<>();
-    List<Map<Long, List<Double>>> timestampToRenalReplacementRiskMapList = new ArrayList<>();
-    // Debug purpose
-    List<Map<Long, Set<String>>> timestampToCaseIdForRiskMapSet = new ArrayList<>();
-    List<Map<Long, Set<String>>> timestampToCaseIdForTherapyMapSet = new ArrayList<>();
-
-    // Concurrent variable to access data among different threads
-    BlockingQueue<Map<Long, Integer>> timestampToRenalReplacementTherapyMapBlockingQueue =
-        new LinkedBlockingQueue<>();
-    BlockingQueue<Map<Long, List<Double>>> timestampToRenalReplacementRiskMapBlockingQueue =
-        new LinkedBlockingQueue<>();
-    // Debug purpose
-    BlockingQueue<Map<Long, Set<String>>> timestampToCaseIdForRiskMapBlockingQueue =
-        new LinkedBlockingQueue<>();
-    BlockingQueue<Map<Long, Set<String>>> timestampToCaseIdForTherapyMapBlockingQueue =
-        new LinkedBlockingQueue<>();
-
-    int numberOfEncounters = encounters.size();
-    int sublistSize = (int) Math.ceil((double) numberOfEncounters / numCores);
-
-    int startIndex = 0;
-    for (int i = 0; i < numCores; i++) {
-      int endIndex = Math.min(startIndex + sublistSize, numberOfEncounters);
-      List<CoreBaseDataItem> encounterSublist = encounters.subList(startIndex, endIndex);
-      startIndex = endIndex;
-
-      Thread thread =
-          new Thread(
-              new TimeLineRenalReplacementRiskThread(
-                  mapModelParameter,
-                  encounterSublist,
-                  timestamps,
-                  currentTimestamp,
-                  responseStartingTimestamp,
-                  timestampToRenalReplacementTherapyMapBlockingQueue,
-                  timestampToRenalReplacementRiskMapBlockingQueue,
-                  timestampToCaseIdForRiskMapBlockingQueue,
-                  timestampToCaseIdForTherapyMapBlockingQueue));
-      thread.start();
-    }
-
-    // Wait for all threads to finish and collect the results
-    for (int i = 0; i < numCores; i++) {
-      timestampToRenalReplacementTherapyMapList.add(
-          timestampToRenalReplacementTherapyMapBlockingQueue.take());
-      timestampToRenalReplacementRiskMapList.add(
-          timestampToRenalReplacementRiskMapBlockingQueue.take());
-      // Debug purpose
-      timestampToCaseIdForRiskMapSet.add(timestampToCaseIdForRiskMapBlockingQueue.take());
-      timestampToCaseIdForTherapyMapSet.add(timestampToCaseIdForTherapyMapBlockingQueue.take());
+    List<List<CoreBaseDataItem>> partitions =
+        partitionByCase(mapModelParameter.get(ENCOUNTER), numCores * PARTITIONS_PER_PROCESSOR);
+
+    List<PartialResult> partialResults = new ArrayList<>();
+    try (ExecutorService executor = Executors.newFixedThreadPool(numCores)) {
+      List<CompletableFuture<PartialResult>> futures =
+          partitions.stream()
+              .map(
+                  partition ->
+                      CompletableFuture.supplyAsync(
+                          new TimeLineRenalReplacementRiskTask(
+                              caseIndex,
+                              partition,
+                              timestamps,
+                              currentTimestamp,
+                              responseStartingTimestamp),
+                          executor))
+              .toList();
+      CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).get();
+      // Merging in partition order keeps the order of the risk values deterministic
+      futures.forEach(future -> partialResults.add(future.join()));
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(e.getCause());
     }
 
     TimeLineRenalReplacementData timeLineRenalReplacementData = new TimeLineRenalReplacementData();
-    // Dropping the last timestamp from timestamp list
-    timestamps.subList(timestamps.size() - 1, timestamps.size()).clear();
-    for (Long timestamp : timestamps) {
+    // The last timestamp is not part of the output
+    for (Long timestamp : timestamps.subList(0, timestamps.size() - 1)) {
       // Adding timestamp to the final data
       timeLineRenalReplacementData.date.add(timestamp);
 
@@ -116,15 +102,14 @@ public class TimelineRenalReplacementRisk {
       // Debug purpose
       Set<String> caseIdForRiskSet = new HashSet<>();
       Set<String> caseIdForTherapySet = new HashSet<>();
-      for (int i = 0; i < numCores; i++) {
-        renalReplacementTherapyCounter =
-            renalReplacementTherapyCounter
-                + timestampToRenalReplacementTherapyMapList.get(i).get(timestamp);
+      for (PartialResult partialResult : partialResults) {
+        renalReplacementTherapyCounter +=
+            partialResult.timestampToRenalReplacementTherapyMap().get(timestamp);
         renalReplacementRiskList.addAll(
-            timestampToRenalReplacementRiskMapList.get(i).get(timestamp));
+            partialResult.timestampToRenalReplacementRiskMap().get(timestamp));
         // Debug purpose
-        caseIdForRiskSet.addAll(timestampToCaseIdForRiskMapSet.get(i).get(timestamp));
-        caseIdForTherapySet.addAll(timestampToCaseIdForTherapyMapSet.get(i).get(timestamp));
+        caseIdForRiskSet.addAll(partialResult.timestampToCaseIdForRiskMap().get(timestamp));
+        caseIdForTherapySet.addAll(partialResult.timestampToCaseIdForTherapyMap().get(timestamp));
       }
 
       // Adding therapy for this timestamp to the final data
@@ -147,4 +132,34 @@ public class TimelineRenalReplacementRisk {
     }
     return timeLineRenalReplacementData;
   }
+
+  /**
+   * Splits the encounters into partitions of whole cases, so that all encounters of a case are
+   * handled by the same task and each case is counted at most once per timestamp.
+   *
+   * @param encounters The encounters of the renal replacement model.
+   * @param maxPartitions The upper limit of partitions.
+   * @return Partitions with roughly the same number of cases, in the order of the first
+   *     appearance of each case.
+   */
+  static List<List<CoreBaseDataItem>> partitionByCase(
+      List<CoreBaseDataItem> encounters, int maxPartitions) {
+    Map<String, List<CoreBaseDataItem>> encountersByCaseId = new LinkedHashMap<>();
+    for (CoreBaseDataItem encounter : encounters) {
+      encountersByCaseId
+          .computeIfAbsent(encounter.hisCaseId(), _ -> new ArrayList<>())
+          .add(encounter);
+    }
+    List<List<CoreBaseDataItem>> cases = new ArrayList<>(encountersByCaseId.values());
+    int casesPerPartition = Math.max(1, (int) Math.ceil((double) cases.size() / maxPartitions));
+
+    List<List<CoreBaseDataItem>> partitions = new ArrayList<>();
+    for (int start = 0; start < cases.size(); start += casesPerPartition) {
+      partitions.add(
+          cases.subList(start, Math.min(start + casesPerPartition, cases.size())).stream()
+              .flatMap(Collection::stream)
+              .toList());
+    }
+    return partitions;
+  }
 }
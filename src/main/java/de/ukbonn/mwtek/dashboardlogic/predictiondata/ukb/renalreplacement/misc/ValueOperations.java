@@ -18,6 +18,7 @@
 
 package de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.misc;
 
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CaseTimeSeries;
 import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CoreBaseDataItem;
 import de.ukbonn.mwtek.utilities.generic.time.DateTools;
 import java.util.Collection;
@@ -32,6 +33,7 @@ import lombok.extern.slf4j.Slf4j;
 public class ValueOperations {
 
   public static final int dayInSeconds = 24 * 60 * 60;
+  private static final int threeHoursInSeconds = 3 * 60 * 60;
 
   public static Double getDiscriminantValue(
       Double currentCreatinine,
@@ -110,7 +112,6 @@ public class ValueOperations {
     var closestObjectToMid = findClosestObject(itemsWithinTimeFrame, ((periodTo + periodFrom) / 2));
     if (closestObjectToMid != null) {
       // If the closest object is within 3 hours of periodTo then return null
-      int threeHoursInSeconds = 3 * 60 * 60;
       if ((periodTo - DateTools.dateToUnixTime(closestObjectToMid.dateFrom()))
           < threeHoursInSeconds) {
         return null;
@@ -176,7 +177,115 @@ public class ValueOperations {
             * bodyWeight);
   }
 
+  /**
+   * Returns the largest value of the list that is lower than the given value.
+   *
+   * @param list A list that is sorted in ascending order (e.g. the timestamps of the date list).
+   * @param value The exclusive upper bound.
+   * @return The largest lower value or {@code null} if there is none.
+   */
   public static Long getMaxValueLowerThan(List<Long> list, Long value) {
-    return list.stream().filter(n -> n < value).max(Long::compare).orElse(null);
+    int low = 0;
+    int high = list.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (list.get(mid) < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low > 0 ? list.get(low - 1) : null;
+  }
+
+  /**
+   * Variant of {@link #getLatestValueInPeriod(Collection, long, long)} for a presorted series.
+   */
+  public static Double getLatestValueInPeriod(
+      CaseTimeSeries timeSeries, long periodFrom, long periodTo) {
+    if (timeSeries == null || timeSeries.isEmpty()) {
+      return null;
+    }
+    int lastIndex = timeSeries.upperBound(periodTo) - 1;
+    if (lastIndex < timeSeries.lowerBound(periodFrom)) {
+      return null;
+    }
+    return timeSeries.valueAt(timeSeries.firstIndexWithSameTime(lastIndex));
+  }
+
+  /**
+   * Variant of {@link #getClosestValueToMid(Collection, long, long)} for a presorted series. Like
+   * {@link #findClosestObject}, the item that came first in the input collection is used if items
+   * are equally close to the mid of the period.
+   */
+  public static Double getClosestValueToMid(
+      CaseTimeSeries timeSeries, long periodFrom, long periodTo) {
+    if (timeSeries == null || timeSeries.isEmpty()) {
+      return null;
+    }
+    int fromIndex = timeSeries.lowerBound(periodFrom);
+    int toIndex = timeSeries.upperBound(periodTo);
+    if (fromIndex >= toIndex) {
+      return null;
+    }
+
+    // The closest item is either the first one at/after the mid or the last one before it
+    long mid = (periodTo + periodFrom) / 2;
+    int after = Math.clamp(timeSeries.lowerBound(mid), fromIndex, toIndex - 1);
+    int closest = timeSeries.firstIndexWithSameTime(after);
+    if (after > fromIndex) {
+      int before = timeSeries.firstIndexWithSameTime(after - 1);
+      long beforeDifference = Math.abs(timeSeries.epochSecondsAt(before) - mid);
+      long afterDifference = Math.abs(timeSeries.epochSecondsAt(closest) - mid);
+      if (beforeDifference < afterDifference
+          || (beforeDifference == afterDifference
+              && timeSeries.inputPositionAt(before) < timeSeries.inputPositionAt(closest))) {
+        closest = before;
+      }
+    }
+
+    // If the closest object is within 3 hours of periodTo then return null
+    if ((periodTo - timeSeries.epochSecondsAt(closest)) < threeHoursInSeconds) {
+      return null;
+    }
+    return timeSeries.valueAt(closest);
+  }
+
+  /** Variant of {@link #getFirstValueInPeriod(Collection)} for a presorted series. */
+  public static Double getFirstValueInPeriod(CaseTimeSeries timeSeries) {
+    if (timeSeries == null || timeSeries.isEmpty()) {
+      return null;
+    }
+    return timeSeries.valueAt(0);
+  }
+
+  /**
+   * Variant of {@link #getMeanUrineValueInPeriod(Collection, Double, long, long)} for a presorted
+   * series that sums up the values via prefix sums.
+   */
+  public static Double getMeanUrineValueInPeriod(
+      CaseTimeSeries timeSeries, Double bodyWeight, long periodFrom, long periodTo) {
+    if (timeSeries == null || timeSeries.isEmpty() || bodyWeight == null || bodyWeight <= 0) {
+      return null;
+    }
+    int fromIndex = timeSeries.lowerBound(periodFrom);
+    int toIndex = timeSeries.upperBound(periodTo);
+
+    // At least 2 entries has to be present for calculation
+    if (toIndex - fromIndex < 2) {
+      return null;
+    }
+
+    // The first value of the period is not part of the mean
+    Double totalValue = timeSeries.sum(fromIndex + 1, toIndex);
+    if (totalValue == null) {
+      return null;
+    }
+
+    // return value per hour per kg bodyWeight
+    return totalValue
+        / (((timeSeries.epochSecondsAt(toIndex - 1) - timeSeries.epochSecondsAt(fromIndex))
+                / 3600.0)
+            * bodyWeight);
   }
 }
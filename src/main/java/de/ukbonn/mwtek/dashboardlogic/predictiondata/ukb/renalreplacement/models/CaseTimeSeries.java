@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+package de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models;
+
+import de.ukbonn.mwtek.utilities.generic.time.DateTools;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The values of one model parameter of a case as parallel arrays of epoch seconds and values,
+ * sorted by time once. Window queries are answered via binary search and prefix sums instead of
+ * filtering and sorting the whole item list for each 24-hour period.
+ *
+ * <p>Items with the same timestamp keep the order of the input collection, so ties are resolved
+ * the same way as the former list-based lookups ({@link java.util.Collections#max} and {@link
+ * java.util.Collections#min} return the first of equal items). The position of each item in the
+ * input collection is kept for tie rules across different timestamps. Missing values are stored as
+ * {@link Double#NaN}.
+ */
+public final class CaseTimeSeries {
+
+  private static final CaseTimeSeries EMPTY =
+      new CaseTimeSeries(new long[0], new double[0], new int[0]);
+
+  private final long[] epochSeconds;
+  private final double[] values;
+  private final int[] inputPositions;
+
+  /** Sum of all non-missing values before the index. */
+  private final double[] valuePrefixSums;
+
+  /** Number of missing values before the index. */
+  private final int[] missingValuePrefixCounts;
+
+  private CaseTimeSeries(long[] epochSeconds, double[] values, int[] inputPositions) {
+    this.epochSeconds = epochSeconds;
+    this.values = values;
+    this.inputPositions = inputPositions;
+    this.valuePrefixSums = new double[values.length + 1];
+    this.missingValuePrefixCounts = new int[values.length + 1];
+    for (int i = 0; i < values.length; i++) {
+      boolean missing = Double.isNaN(values[i]);
+      valuePrefixSums[i + 1] = valuePrefixSums[i] + (missing ? 0 : values[i]);
+      missingValuePrefixCounts[i + 1] = missingValuePrefixCounts[i] + (missing ? 1 : 0);
+    }
+  }
+
+  /**
+   * Creates the time series of the given items. Items without a {@link
+   * CoreBaseDataItem#dateFrom()} are ignored.
+   *
+   * @param items The items of one case and one parameter; {@code null} results in an empty series.
+   */
+  public static CaseTimeSeries of(Collection<CoreBaseDataItem> items) {
+    if (items == null || items.isEmpty()) {
+      return EMPTY;
+    }
+    List<CoreBaseDataItem> itemList = List.copyOf(items);
+    // Sorting an ordered stream is stable, so items with the same timestamp keep their order
+    int[] sortedPositions =
+        IntStream.range(0, itemList.size())
+            .filter(position -> itemList.get(position).dateFrom() != null)
+            .boxed()
+            .sorted(
+                Comparator.comparingLong(
+                    position -> DateTools.dateToUnixTime(itemList.get(position).dateFrom())))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    long[] epochSeconds = new long[sortedPositions.length];
+    double[] values = new double[sortedPositions.length];
+    for (int i = 0; i < sortedPositions.length; i++) {
+      CoreBaseDataItem item = itemList.get(sortedPositions[i]);
+      epochSeconds[i] = DateTools.dateToUnixTime(item.dateFrom());
+      values[i] = item.value() != null ? item.value() : Double.NaN;
+    }
+    return new CaseTimeSeries(epochSeconds, values, sortedPositions);
+  }
+
+  public int size() {
+    return epochSeconds.length;
+  }
+
+  public boolean isEmpty() {
+    return epochSeconds.length == 0;
+  }
+
+  public long epochSecondsAt(int index) {
+    return epochSeconds[index];
+  }
+
+  /** The position of the entry at the given index in the input collection. */
+  public int inputPositionAt(int index) {
+    return inputPositions[index];
+  }
+
+  /** The value at the given index or {@code null} if the item had no value. */
+  public Double valueAt(int index) {
+    return Double.isNaN(values[index]) ? null : values[index];
+  }
+
+  /** Index of the first entry with a timestamp {@code >= epochSecond}. */
+  public int lowerBound(long epochSecond) {
+    int low = 0;
+    int high = epochSeconds.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (epochSeconds[mid] < epochSecond) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /** Index of the first entry with a timestamp {@code > epochSecond}. */
+  public int upperBound(long epochSecond) {
+    int low = 0;
+    int high = epochSeconds.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (epochSeconds[mid] <= epochSecond) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * The index of the first entry that has the same timestamp as the entry at the given index,
+   * i.e. the entry that came first in the input collection.
+   */
+  public int firstIndexWithSameTime(int index) {
+    return lowerBound(epochSeconds[index]);
+  }
+
+  /**
+   * Sum of the values in the index range {@code [fromIndex, toIndex)}.
+   *
+   * @return The sum or {@code null} if one of the values is missing.
+   */
+  public Double sum(int fromIndex, int toIndex) {
+    if (missingValuePrefixCounts[toIndex] - missingValuePrefixCounts[fromIndex] > 0) {
+      return null;
+    }
+    return valuePrefixSums[toIndex] - valuePrefixSums[fromIndex];
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+package de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models;
+
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Index of the renal replacement model parameters by case id. It is built once per data item
+ * creation and can be shared between all worker threads, so that the parameter lists don't need to
+ * be grouped by each of them again. The {@link CaseTimeSeries} of a case get created on first
+ * access and are reused by all encounters of the case.
+ */
+public class RenalReplacementCaseIndex {
+
+  private final Map<RenalReplacementRiskParameters, Map<String, List<CoreBaseDataItem>>>
+      itemsByParameterAndCaseId = new EnumMap<>(RenalReplacementRiskParameters.class);
+
+  private final Map<RenalReplacementRiskParameters, Map<String, CaseTimeSeries>>
+      seriesByParameterAndCaseId = new EnumMap<>(RenalReplacementRiskParameters.class);
+
+  /**
+   * Groups all given parameter lists by the {@link CoreBaseDataItem#hisCaseId() case id}. The
+   * order of the items within a case is kept. Items without a case id can't be assigned and are
+   * skipped.
+   *
+   * @param mapModelParameter The input parameters of the renal replacement risk model.
+   */
+  public RenalReplacementCaseIndex(
+      Map<RenalReplacementRiskParameters, List<CoreBaseDataItem>> mapModelParameter) {
+    mapModelParameter.forEach(
+        (parameter, items) -> {
+          if (items == null) {
+            return;
+          }
+          Map<String, List<CoreBaseDataItem>> itemsByCaseId =
+              items.stream()
+                  .filter(item -> item.hisCaseId() != null)
+                  .collect(
+                      Collectors.groupingBy(
+                          CoreBaseDataItem::hisCaseId,
+                          HashMap::new,
+                          Collectors.toUnmodifiableList()));
+          itemsByParameterAndCaseId.put(parameter, Collections.unmodifiableMap(itemsByCaseId));
+        });
+    // The key set is fixed here, so the enum map itself is only read by the worker threads
+    for (RenalReplacementRiskParameters parameter : RenalReplacementRiskParameters.values()) {
+      seriesByParameterAndCaseId.put(parameter, new ConcurrentHashMap<>());
+    }
+  }
+
+  /**
+   * Returns the items of a parameter for the given case.
+   *
+   * @param parameter The model parameter (e.g. {@link RenalReplacementRiskParameters#CREATININE}).
+   * @param caseId The his case id.
+   * @return The unmodifiable list of items or {@code null} if the case has no items for this
+   *     parameter.
+   */
+  public List<CoreBaseDataItem> get(RenalReplacementRiskParameters parameter, String caseId) {
+    return itemsByParameterAndCaseId.getOrDefault(parameter, Map.of()).get(caseId);
+  }
+
+  /**
+   * Returns the items of a parameter for the given case or an empty list if there are none.
+   *
+   * @param parameter The model parameter (e.g. {@link RenalReplacementRiskParameters#EPISODES}).
+   * @param caseId The his case id.
+   */
+  public List<CoreBaseDataItem> getOrEmpty(
+      RenalReplacementRiskParameters parameter, String caseId) {
+    List<CoreBaseDataItem> items = get(parameter, caseId);
+    return items != null ? items : List.of();
+  }
+
+  /**
+   * Returns the time series of a parameter for the given case. It is created once per case and
+   * parameter and shared afterwards.
+   *
+   * @param parameter The model parameter (e.g. {@link RenalReplacementRiskParameters#CREATININE}).
+   * @param caseId The his case id.
+   * @return The time series; empty if the case has no items for this parameter.
+   */
+  public CaseTimeSeries getSeries(RenalReplacementRiskParameters parameter, String caseId) {
+    if (caseId == null) {
+      return CaseTimeSeries.of(null);
+    }
+    return seriesByParameterAndCaseId
+        .get(parameter)
+        .computeIfAbsent(caseId, id -> CaseTimeSeries.of(get(parameter, id)));
+  }
+}
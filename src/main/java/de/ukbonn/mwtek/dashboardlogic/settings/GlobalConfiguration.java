@@ -20,6 +20,8 @@ package de.ukbonn.mwtek.dashboardlogic.settings;
 
 import static de.ukbonn.mwtek.dashboardlogic.enums.NumDashboardConstants.YEAR_MONTH_DATE_FORMAT;
 
+import de.ukbonn.mwtek.dashboardlogic.enums.MaxTreatmentTimelineEngine;
+import de.ukbonn.mwtek.dashboardlogic.logic.timeline.TimelineBucketStrategy;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -41,11 +43,22 @@ public class GlobalConfiguration {
   /** Flag to add debug information (e.g. case ids / resource ids) to the output. */
   private Boolean debug = false;
 
+  /**
+   * Maximum number of ids that get written per debug data item. Larger debug items get truncated
+   * (the keys of the item are kept) and a warning is logged. A value <= 0 disables the limit.
+   * [default: 0 (unlimited)]
+   */
+  private Integer debugMaxIdsPerItem = 0;
+
   private Map<String, Boolean> predictionModels = new HashMap<>();
 
   private Boolean usePartOfInsteadOfIdentifier = false;
 
-  /** Use Patient.deceasedDateTime to classify encounters as deceased [default = false] */
+  /**
+   * Use Patient.deceasedDateTime to classify encounters as deceased (a death within the days of
+   * the case). Currently only used by timeline.deaths; the cumulative and length of stay items
+   * still use the discharge disposition [default = false]
+   */
   private Boolean usePatientDeceased = false;
 
   /**
@@ -61,6 +74,33 @@ public class GlobalConfiguration {
    */
   private Boolean checkProceduresIcuStays = true;
 
+  /**
+   * Algorithm used for the generation of the timeline.maxtreatmentlevel data item. [default:
+   * DAY_LOOP]
+   */
+  private MaxTreatmentTimelineEngine maxTreatmentTimelineEngine =
+      MaxTreatmentTimelineEngine.DAY_LOOP;
+
+  /**
+   * Granularity of the buckets of the timeline.tests and timeline.test.positive data items.
+   * [default: DAILY]
+   */
+  private TimelineBucketStrategy timelineBucketStrategy = TimelineBucketStrategy.DAILY;
+
+  /**
+   * Number of threads used to generate independent data item sections in parallel; 1 means
+   * sequential generation. Some sections still complete open encounter and location periods in
+   * place (e.g. the max treatment level timeline), so values above 1 are experimental. [default:
+   * 1]
+   */
+  private Integer dataItemThreadCount = 1;
+
+  /**
+   * Zone id (e.g. "Europe/Berlin") in which dates are assigned to calendar days, months, quarters
+   * and years of the timelines. [default: the system default zone]
+   */
+  private String timeZone;
+
   /** Should the covid-19 data item generation take place? */
   private Boolean generateCovidData = true;
 
@@ -54,7 +54,9 @@ import static de.ukbonn.mwtek.utilities.enums.MiiConsentPolicyValueSet.RECONTACT
 import static de.ukbonn.mwtek.utilities.enums.MiiConsentPolicyValueSet.RECONTACTING_FURTHER_STUDIES;
 import static de.ukbonn.mwtek.utilities.enums.MiiConsentPolicyValueSet.RECONTACTING_MERGING_DBS;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /** A BCT module assignment happens via l1 code or a combination of (multiple) l2 codes */
 public record BctModuleRule(String levelOneKey, List<List<String>> levelTwoKeys) {
@@ -141,6 +143,50 @@ public record BctModuleRule(String levelOneKey, List<List<String>> levelTwoKeys)
     };
   }
 
+  /**
+   * Checks whether the given permit codes fulfill at least one level two code combination.
+   *
+   * @param permitCodes The permit codes of a consent that are valid at the reference date
+   */
+  public boolean isFulfilledBy(Set<String> permitCodes) {
+    for (List<String> requiredCodes : levelTwoKeys) {
+      if (permitCodes.containsAll(requiredCodes)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Determines all modules whose rules are fulfilled by the given permit codes.
+   *
+   * @param moduleRules The module rules to evaluate
+   * @param permitCodes The permit codes of a consent that are valid at the reference date
+   * @return Bitmask with the {@link #getModuleIndex module index} bit set for every fulfilled
+   *     module
+   */
+  public static int getModuleMask(List<BctModuleRule> moduleRules, Set<String> permitCodes) {
+    int moduleMask = 0;
+    if (permitCodes.isEmpty()) {
+      return moduleMask;
+    }
+    for (BctModuleRule rule : moduleRules) {
+      if (rule.isFulfilledBy(permitCodes)) {
+        moduleMask |= 1 << getModuleIndex(rule.levelOneKey());
+      }
+    }
+    return moduleMask;
+  }
+
+  /** All level two codes that are part of at least one of the given module rules. */
+  public static Set<String> getLevelTwoCodes(List<BctModuleRule> moduleRules) {
+    Set<String> codes = new LinkedHashSet<>();
+    for (BctModuleRule rule : moduleRules) {
+      rule.levelTwoKeys().forEach(codes::addAll);
+    }
+    return codes;
+  }
+
   public static final List<String> MODULE_KEYS =
       List.of(
           BCT_MOD_1, BCT_MOD_2, BCT_MOD_3, BCT_MOD_4, BCT_MOD_5, BCT_MOD_6, BCT_MOD_7, BCT_MOD_8,
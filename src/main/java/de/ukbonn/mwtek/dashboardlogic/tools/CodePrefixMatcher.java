@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.tools;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Matches codes (e.g. ICD or OPS codes) against a fixed set of code prefixes. The prefixes are
+ * compiled once into a character trie, so the lookup of a code only needs one walk along its
+ * characters instead of a {@code startsWith} check against every prefix.
+ *
+ * @param <T> The type of the labels (e.g. cohort criteria or diagnosis groups) the prefixes are
+ *     assigned to.
+ */
+public class CodePrefixMatcher<T> {
+
+  private final Node<T> root = new Node<>();
+
+  private static final class Node<T> {
+    private final Map<Character, Node<T>> children = new HashMap<>();
+    private final Set<T> labels = new HashSet<>();
+  }
+
+  private CodePrefixMatcher() {}
+
+  /**
+   * Compiles a matcher from the given prefix lists. Blank prefixes are ignored.
+   *
+   * @param prefixesByLabel The code prefixes assigned to each label; {@code null} lists are
+   *     ignored.
+   * @return A matcher that returns the labels of all prefixes a code starts with.
+   */
+  public static <T> CodePrefixMatcher<T> of(Map<T, ? extends Collection<String>> prefixesByLabel) {
+    CodePrefixMatcher<T> matcher = new CodePrefixMatcher<>();
+    if (prefixesByLabel != null) {
+      prefixesByLabel.forEach(
+          (label, prefixes) -> {
+            if (prefixes != null) {
+              prefixes.forEach(prefix -> matcher.add(prefix, label));
+            }
+          });
+    }
+    return matcher;
+  }
+
+  private void add(String prefix, T label) {
+    if (prefix == null || prefix.isBlank()) {
+      return;
+    }
+    Node<T> node = root;
+    for (int i = 0; i < prefix.length(); i++) {
+      node = node.children.computeIfAbsent(prefix.charAt(i), _ -> new Node<>());
+    }
+    node.labels.add(label);
+  }
+
+  /**
+   * Adds the labels of all prefixes the given code starts with to the target collection.
+   *
+   * @param code The code to check (e.g. {@code I50.01}).
+   * @param target The collection the matching labels are added to.
+   */
+  public void collectMatches(String code, Collection<? super T> target) {
+    if (code == null) {
+      return;
+    }
+    Node<T> node = root;
+    for (int i = 0; i < code.length(); i++) {
+      node = node.children.get(code.charAt(i));
+      if (node == null) {
+        return;
+      }
+      target.addAll(node.labels);
+    }
+  }
+
+  /** Returns the labels of all prefixes the given code starts with. */
+  public Set<T> getMatches(String code) {
+    Set<T> result = new HashSet<>();
+    collectMatches(code, result);
+    return result;
+  }
+
+  /** Returns the labels of all prefixes that at least one of the given codes starts with. */
+  public Set<T> getMatches(Collection<String> codes) {
+    Set<T> result = new HashSet<>();
+    if (codes != null) {
+      codes.forEach(code -> collectMatches(code, result));
+    }
+    return result;
+  }
+
+  /** Checks whether the given code starts with any of the prefixes. */
+  public boolean matchesAny(String code) {
+    if (code == null) {
+      return false;
+    }
+    Node<T> node = root;
+    for (int i = 0; i < code.length(); i++) {
+      node = node.children.get(code.charAt(i));
+      if (node == null) {
+        return false;
+      }
+      if (!node.labels.isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.tools;
+
+import de.ukbonn.mwtek.dashboardlogic.settings.GlobalConfiguration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Converts dates to calendar days in a single zone, so the period checks (month, quarter, year)
+ * can compare epoch days with pre-parsed {@link DayRange day ranges} instead of creating {@link
+ * java.util.Calendar} instances or parsing period strings per check.
+ *
+ * <p>Since the conversion to a {@link LocalDate} happens in the zone itself, DST transitions don't
+ * shift a date into a neighbouring period.
+ */
+public class DashboardClock {
+
+  private final ZoneId zoneId;
+
+  /** @param zoneId The zone in which a {@link Date} gets assigned to a calendar day. */
+  public DashboardClock(ZoneId zoneId) {
+    this.zoneId = Objects.requireNonNull(zoneId, "zoneId must not be null");
+  }
+
+  /** A clock in the system default zone. */
+  public static DashboardClock systemDefault() {
+    return new DashboardClock(ZoneId.systemDefault());
+  }
+
+  /**
+   * Creates the clock for the configured {@link GlobalConfiguration#getTimeZone() time zone} or
+   * the system default zone if none is set.
+   */
+  public static DashboardClock of(GlobalConfiguration globalConfiguration) {
+    String timeZone = globalConfiguration.getTimeZone();
+    return timeZone == null || timeZone.isBlank()
+        ? systemDefault()
+        : new DashboardClock(ZoneId.of(timeZone.trim()));
+  }
+
+  public ZoneId getZoneId() {
+    return zoneId;
+  }
+
+  /** Calendar day of the date in the zone of this clock. */
+  public LocalDate toLocalDate(Date date) {
+    // Date.toInstant() isn't supported by java.sql.Date
+    return LocalDate.ofInstant(Instant.ofEpochMilli(date.getTime()), zoneId);
+  }
+
+  /** Epoch day (days since 1970-01-01) of the date in the zone of this clock. */
+  public long toEpochDay(Date date) {
+    return toLocalDate(date).toEpochDay();
+  }
+
+  /**
+   * A calendar period as a closed range of epoch days.
+   *
+   * @param firstEpochDay The epoch day of the first day of the period.
+   * @param lastEpochDay The epoch day of the last day of the period.
+   */
+  public record DayRange(long firstEpochDay, long lastEpochDay) {
+
+    public static DayRange ofMonth(YearMonth yearMonth) {
+      return new DayRange(yearMonth.atDay(1).toEpochDay(), yearMonth.atEndOfMonth().toEpochDay());
+    }
+
+    /** @param quarter The quarter (1..4) of the year. */
+    public static DayRange ofQuarter(int year, int quarter) {
+      YearMonth firstMonth = YearMonth.of(year, (quarter - 1) * 3 + 1);
+      return new DayRange(
+          firstMonth.atDay(1).toEpochDay(), firstMonth.plusMonths(2).atEndOfMonth().toEpochDay());
+    }
+
+    public static DayRange ofYear(int year) {
+      return new DayRange(
+          LocalDate.of(year, 1, 1).toEpochDay(), LocalDate.of(year, 12, 31).toEpochDay());
+    }
+
+    public boolean contains(long epochDay) {
+      return epochDay >= firstEpochDay && epochDay <= lastEpochDay;
+    }
+  }
+}
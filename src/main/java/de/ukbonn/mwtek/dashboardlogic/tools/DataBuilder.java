@@ -24,6 +24,7 @@ import de.ukbonn.mwtek.dashboardlogic.enums.DashboardLogicFixedValues;
 import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
 import de.ukbonn.mwtek.dashboardlogic.enums.Gender;
 import de.ukbonn.mwtek.dashboardlogic.enums.KidsRadarDataItemContext;
+import de.ukbonn.mwtek.dashboardlogic.enums.MaxTreatmentTimelineEngine;
 import de.ukbonn.mwtek.dashboardlogic.enums.StackedBarCharts;
 import de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels;
 import de.ukbonn.mwtek.dashboardlogic.logic.DashboardData;
@@ -51,17 +52,22 @@ import de.ukbonn.mwtek.dashboardlogic.logic.timeline.KiraKjpTimelineIntensiveCar
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.KiraPedTimelineAge;
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.KiraPedTimelineMaxTreatmentLevel;
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.KiraTimelineDisorders;
+import de.ukbonn.mwtek.dashboardlogic.logic.timeline.TimelineBucketStrategy;
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.TimelineConsent;
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.TimelineDeath;
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.TimelineMaxTreatmentLevel;
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.TimelineRecruitment;
 import de.ukbonn.mwtek.dashboardlogic.logic.timeline.TimelineTests;
 import de.ukbonn.mwtek.dashboardlogic.models.AggregatedDataItem;
+import de.ukbonn.mwtek.dashboardlogic.models.CaseProcedureIndex;
 import de.ukbonn.mwtek.dashboardlogic.models.ChartListItem;
 import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData;
+import de.ukbonn.mwtek.dashboardlogic.models.DebugSink;
+import de.ukbonn.mwtek.dashboardlogic.models.EncounterPatientIndex;
 import de.ukbonn.mwtek.dashboardlogic.models.FacilityContactIcuLocationMap;
 import de.ukbonn.mwtek.dashboardlogic.models.GroupedBarChartsCalcItem;
 import de.ukbonn.mwtek.dashboardlogic.models.KiraInteger;
+import de.ukbonn.mwtek.dashboardlogic.models.PatientBitmap;
 import de.ukbonn.mwtek.dashboardlogic.models.StackedBarChartsItem;
 import de.ukbonn.mwtek.dashboardlogic.models.StackedBarChartsUniformItem;
 import de.ukbonn.mwtek.dashboardlogic.models.TimestampedListPair;
@@ -73,6 +79,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import lombok.Setter;
 import lombok.experimental.Accessors;
 
@@ -87,6 +94,7 @@ public class DataBuilder {
   private List<MiiEncounter> encounterSubSet;
   private DashboardData dbData;
   private FacilityContactIcuLocationMap facilityContactIcuLocationMap;
+  private CaseProcedureIndex caseProcedureIndex;
   private List<MiiEncounter> currentStandardWardEncounters;
   private List<MiiEncounter> currentIcuEncounters;
   private List<MiiEncounter> currentVentEncounters;
@@ -108,6 +116,12 @@ public class DataBuilder {
   // Needed for the zip code generation since there is different logic between covid/infl + ped
   private Boolean applyDiseasePositiveFilter = true;
   private Boolean useIcuUndiff;
+  private Boolean usePatientDeceased;
+  private MaxTreatmentTimelineEngine maxTreatmentTimelineEngine =
+      MaxTreatmentTimelineEngine.DAY_LOOP;
+  private TimelineBucketStrategy timelineBucketStrategy = TimelineBucketStrategy.DAILY;
+  private DebugSink debugSink = DebugSink.DISABLED;
+  private DashboardClock clock = DashboardClock.systemDefault();
 
   public List<MiiEncounter> buildCumulativeByClass() {
     return new CumulativeMaxTreatmentLevel()
@@ -115,22 +129,41 @@ public class DataBuilder {
   }
 
   public List<MiiEncounter> buildCumulativeByIcuLevel() {
-    return new CumulativeMaxTreatmentLevel().getCumulativeByIcuLevel(icuDiseaseMap, treatmentLevel);
-  }
-
-  public List<MiiEncounter> buildCurrentEncounterByIcuLevel() {
-    return CurrentTreatmentLevel.getCurrentEncounterByIcuLevel(
+    return new CumulativeMaxTreatmentLevel()
+        .getCumulativeByIcuLevel(icuDiseaseMap, treatmentLevel, caseProcedureIndex);
+  }
+
+  public Map<TreatmentLevels, List<MiiEncounter>> buildCurrentEncountersByTreatmentLevel() {
+    // A procedure index created on the fly is a new instance per call, so the key uses the
+    // procedures it gets created from instead
+    return memoize(
+        "buildCurrentEncountersByTreatmentLevel",
+        () ->
+            CurrentTreatmentLevel.getCurrentEncountersByTreatmentLevel(
+                mapCurrentIcuPositive,
+                icuSupplyContactEncounters,
+                dbData.getFacilityContactEncounters(),
+                getOrCreateCaseProcedureIndex(),
+                dbData.getIcuLocationRegistry()),
         mapCurrentIcuPositive,
-        treatmentLevel,
         icuSupplyContactEncounters,
         dbData.getFacilityContactEncounters(),
-        dbData.getIcuProcedures(),
-        dbData.getLocations(),
-        dbData.getInputCodeSettings());
+        caseProcedureIndex != null ? caseProcedureIndex : dbData.getIcuProcedures(),
+        dbData.getInputCodeSettings(),
+        dbData.getIcuLocationRegistry());
   }
 
   public Map<String, List<String>> buildCurrentTreatmentlevelMapCaseIds() {
-    return CurrentTreatmentLevel.createMapCurrentTreatmentlevelCaseIds(
+    return memoize(
+        "buildCurrentTreatmentlevelMapCaseIds",
+        () ->
+            CurrentTreatmentLevel.createMapCurrentTreatmentlevelCaseIds(
+                currentStandardWardEncounters,
+                currentIcuEncounters,
+                currentVentEncounters,
+                currentEcmoEncounters,
+                currentIcuUndiffEncounters,
+                useIcuUndiff),
         currentStandardWardEncounters,
         currentIcuEncounters,
         currentVentEncounters,
@@ -140,19 +173,37 @@ public class DataBuilder {
   }
 
   public List<MiiEncounter> buildNumberOfCurrentMaxTreatmentLevel() {
-    return new CurrentMaxTreatmentLevel()
-        .getNumberOfCurrentMaxTreatmentLevel(
-            icuDiseaseMap, dbData.getFacilityContactEncounters(), treatmentLevel, useIcuUndiff);
+    return memoize(
+        "buildNumberOfCurrentMaxTreatmentLevel",
+        () ->
+            new CurrentMaxTreatmentLevel()
+                .getNumberOfCurrentMaxTreatmentLevel(
+                    icuDiseaseMap,
+                    dbData.getFacilityContactEncounters(),
+                    treatmentLevel,
+                    useIcuUndiff),
+        icuDiseaseMap,
+        dbData.getFacilityContactEncounters(),
+        treatmentLevel,
+        useIcuUndiff);
   }
 
   public Set<MiiObservation> buildObservationsByResult() {
-    return new CumulativeResult()
-        .getObservationsByResult(
-            labResult,
-            dataItemContext,
-            dbData.getObservations(),
-            dbData.getInputCodeSettings(),
-            dbData.getQualitativeLabCodesSettings());
+    return memoize(
+        "buildObservationsByResult",
+        () ->
+            new CumulativeResult()
+                .getObservationsByResult(
+                    labResult,
+                    dataItemContext,
+                    dbData.getObservations(),
+                    dbData.getInputCodeSettings(),
+                    dbData.getQualitativeLabCodesSettings()),
+        labResult,
+        dataItemContext,
+        dbData.getObservations(),
+        dbData.getInputCodeSettings(),
+        dbData.getQualitativeLabCodesSettings());
   }
 
   public Set<String> buildGenderCountList() {
@@ -160,44 +211,78 @@ public class DataBuilder {
         dbData.getFacilityContactEncounters(), dbData.getPatients(), gender);
   }
 
-  public Set<String> buildGenderList() {
-    return CumulativeGender.getGenderPatientIdList(
-        dbData.getFacilityContactEncounters(), dbData.getPatients(), gender);
-  }
-
   public Set<String> buildGenderCountByClass() {
     return CumulativeGenderByClass.getGenderCountByCaseClass(
         dbData.getFacilityContactEncounters(), dbData.getPatients(), gender, treatmentLevel);
   }
 
-  public Set<String> buildGenderPidsByCaseClass() {
-    return CumulativeGenderByClass.getGenderPidsByCaseClass(
-        dbData.getFacilityContactEncounters(), dbData.getPatients(), gender, treatmentLevel);
+  /**
+   * The disease-positive patients of the given gender as bitmap over the patient indexes of the
+   * {@link EncounterPatientIndex}.
+   */
+  public PatientBitmap buildGenderPatientBitmap() {
+    EncounterPatientIndex encounterPatientIndex = dbData.getEncounterPatientIndex();
+    return memoize(
+        "buildGenderPatientBitmap",
+        () -> CumulativeGender.getGenderPatientBitmap(encounterPatientIndex, gender),
+        encounterPatientIndex,
+        gender);
+  }
+
+  /**
+   * The disease-positive patients of the given gender and treatment level (case class) as bitmap
+   * over the patient indexes of the {@link EncounterPatientIndex}.
+   */
+  public PatientBitmap buildGenderPatientBitmapByCaseClass() {
+    EncounterPatientIndex encounterPatientIndex = dbData.getEncounterPatientIndex();
+    return memoize(
+        "buildGenderPatientBitmapByCaseClass",
+        () ->
+            CumulativeGenderByClass.getGenderPatientBitmapByCaseClass(
+                dbData.getFacilityContactEncounters(),
+                encounterPatientIndex,
+                gender,
+                treatmentLevel),
+        encounterPatientIndex,
+        gender,
+        treatmentLevel);
   }
 
   public List<Integer> buildCumMaxtreatmentlevelAgeList() {
-    return new CumulativeMaxTreatmentLevelAge()
-        .createMaxTreatmentLevelAgeMap(
-            mapPositiveEncounterByClass,
-            icuDiseaseMap,
-            dbData.getPatients(),
-            treatmentLevel,
-            useIcuUndiff);
+    return memoize(
+        "buildCumMaxtreatmentlevelAgeList",
+        () ->
+            new CumulativeMaxTreatmentLevelAge()
+                .createMaxTreatmentLevelAgeMap(
+                    mapPositiveEncounterByClass,
+                    icuDiseaseMap,
+                    dbData.getPatients(),
+                    treatmentLevel,
+                    useIcuUndiff),
+        mapPositiveEncounterByClass,
+        icuDiseaseMap,
+        dbData.getPatients(),
+        treatmentLevel,
+        useIcuUndiff);
   }
 
   public TimestampedListPair buildTimelineTestsMap() {
-    return new TimelineTests()
+    return new TimelineTests(clock)
         .createTimelineTestsMap(
-            dataItemContext, dbData.getObservations(), dbData.getInputCodeSettings());
+            dataItemContext,
+            dbData.getObservations(),
+            dbData.getInputCodeSettings(),
+            timelineBucketStrategy);
   }
 
   public TimestampedListPair buildTimelineTestsPositiveMap() {
-    return new TimelineTests()
+    return new TimelineTests(clock)
         .createTimelineTestPositiveMap(
             dataItemContext,
             dbData.getObservations(),
             dbData.getInputCodeSettings(),
-            dbData.getQualitativeLabCodesSettings());
+            dbData.getQualitativeLabCodesSettings(),
+            timelineBucketStrategy);
   }
 
   public Map<TreatmentLevels, Map<Long, Set<String>>> buildMaxTreatmentTimeline() {
@@ -205,10 +290,11 @@ public class DataBuilder {
         dataItemContext,
         dbData.getFacilityContactEncounters(),
         dbData.getSupplyContactEncounters(),
-        dbData.getIcuProcedures(),
-        dbData.getLocations(),
+        getOrCreateCaseProcedureIndex(),
+        dbData.getIcuLocationRegistry(),
         dbData.getInputCodeSettings(),
-        useIcuUndiff);
+        useIcuUndiff,
+        maxTreatmentTimelineEngine);
   }
 
   public List<Integer> buildAgeDistributionByCaseClass() {
@@ -217,12 +303,17 @@ public class DataBuilder {
   }
 
   public TimestampedListPair buildTimelineDeathMap() {
-    return new TimelineDeath()
-        .createTimelineDeathMap(dbData.getFacilityContactEncounters(), dataItemContext);
+    return new TimelineDeath(clock)
+        .createTimelineDeathMap(
+            dbData.getFacilityContactEncounters(),
+            dbData.getPatients(),
+            Boolean.TRUE.equals(usePatientDeceased),
+            dataItemContext);
   }
 
   public List<Long> buildCurrentMaxAgeMap() {
-    return new CurrentMaxTreatmentLevelAge(dbData.getPatients(), encounterSubSet)
+    return new CurrentMaxTreatmentLevelAge(
+            dbData.getPatients(), encounterSubSet, dbData.getPatientsById())
         .createCurrentMaxAgeMap(mapPositiveEncounterByClass);
   }
 
@@ -308,15 +399,16 @@ public class DataBuilder {
   }
 
   public StackedBarChartsItem<KiraInteger> buildTimelineAgeKjp() {
-    return new KiraKjpTimelineAge().createKjpAgeTimeline(coreCaseDataByGroups);
+    return new KiraKjpTimelineAge(clock).createKjpAgeTimeline(coreCaseDataByGroups);
   }
 
   public StackedBarChartsItem<KiraInteger> buildTimelineAdmission() {
-    return new KiraKjpTimelineAdmission().createKjpTimelineAdmission(coreCaseDataByGroups);
+    return new KiraKjpTimelineAdmission(clock).createKjpTimelineAdmission(coreCaseDataByGroups);
   }
 
   public StackedBarChartsUniformItem<KiraInteger> buildTimelineDiagsAdmission() {
-    return new KiraKjpTimelineAdmission().createKjpTimelineDiagsAdmission(coreCaseDataByGroups);
+    return new KiraKjpTimelineAdmission(clock)
+        .createKjpTimelineDiagsAdmission(coreCaseDataByGroups);
   }
 
   public StackedBarChartsItem buildKiraRsvTimelineDiagsItem(
@@ -326,7 +418,7 @@ public class DataBuilder {
   }
 
   public KiraTimelineDisorders buildKiraTimelineDisorders() {
-    return new KiraTimelineDisorders();
+    return new KiraTimelineDisorders(debugSink, clock);
   }
 
   public Map<String, List<Integer>> buildKiraPedMaxTreatmentlevelTimeline() {
@@ -344,10 +436,10 @@ public class DataBuilder {
   }
 
   public Map<String, List<? extends Number>> buildTimelineRecruitmentMap() {
-    return new TimelineRecruitment()
-        .createTimelineRecruitmentMap(
-            new TimelineRecruitment()
-                .createTimelineRecruitment(consents, questionnaireResponses, dataItemContext));
+    TimelineRecruitment timelineRecruitment = new TimelineRecruitment(clock);
+    return timelineRecruitment.createTimelineRecruitmentMap(
+        timelineRecruitment.createTimelineRecruitment(
+            consents, questionnaireResponses, dataItemContext));
   }
 
   public Map<String, List<Integer>> buildTimelineAgeByIcd(Collection<String> icdCodes) {
@@ -422,4 +514,22 @@ public class DataBuilder {
   public Map<String, List<Long>> buildTimelineConsent() {
     return new TimelineConsent().generateTimelineConsent(consents);
   }
+
+  /**
+   * Uses the run-scoped {@link DataBuilderCache} of the {@link DashboardData} instance, if one is
+   * set, to avoid the repeated calculation of the same result across data items.
+   */
+  private <T> T memoize(String method, Supplier<T> calculation, Object... parameters) {
+    if (dbData == null) {
+      return calculation.get();
+    }
+    return dbData.getDataBuilderCache().get(method, calculation, parameters);
+  }
+
+  /** Uses the given procedure index or creates one from the icu procedures of the dbData. */
+  private CaseProcedureIndex getOrCreateCaseProcedureIndex() {
+    return caseProcedureIndex != null
+        ? caseProcedureIndex
+        : new CaseProcedureIndex(dbData.getIcuProcedures(), dbData.getInputCodeSettings());
+  }
 }
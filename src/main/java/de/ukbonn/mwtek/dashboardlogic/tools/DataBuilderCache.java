@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+package de.ukbonn.mwtek.dashboardlogic.tools;
+
+import de.ukbonn.mwtek.utilities.generic.time.TimerTools;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Run-scoped memo cache for the results of the {@link DataBuilder} build methods.
+ *
+ * <p>The entries are keyed by the name of the build method and its parameter tuple. Collections
+ * and other resources are compared by identity, since they are shared between the data items of a
+ * run and a deep comparison of e.g. the encounter lists would cost more than the calculation
+ * itself. Enums, strings, numbers and booleans are compared by value. If an input collection gets
+ * changed in place, the entries must be dropped via {@link #invalidate()}.
+ *
+ * <p>List, set and map results are wrapped once into unmodifiable views (map values that are
+ * collections included), so a data item can't change the result another data item gets. An {@link
+ * EnumMap} stays backed by an {@link EnumMap}. All other results are shared between the callers and
+ * must be treated as read-only.
+ */
+public class DataBuilderCache {
+
+  private final Map<Key, FutureTask<Object>> entries = new ConcurrentHashMap<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * Returns the cached result for the given method and parameters or calculates it once. The
+   * calculation runs outside any lock, concurrent callers with the same key wait for it.
+   *
+   * @param method Name of the build method.
+   * @param calculation The calculation of the result.
+   * @param parameters The parameters the result depends on.
+   * @return The (cached) result of the calculation or a read-only view of it, see the class
+   *     comment.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(String method, Supplier<T> calculation, Object... parameters) {
+    Instant startTimer = TimerTools.startTimer();
+    Key key = new Key(method, parameters);
+    FutureTask<Object> task = new FutureTask<>(() -> unmodifiable(calculation.get()));
+    FutureTask<Object> existing = entries.putIfAbsent(key, task);
+    boolean hit = existing != null;
+    if (hit) {
+      task = existing;
+      hits.incrementAndGet();
+    } else {
+      task.run();
+      misses.incrementAndGet();
+    }
+    try {
+      T result = (T) task.get();
+      TimerTools.stopTimerAndLog(
+          startTimer, "DataBuilder cache " + (hit ? "hit" : "miss") + " for " + method);
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for " + method, e);
+    } catch (ExecutionException e) {
+      // Don't keep failed calculations
+      entries.remove(key, task);
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /** Removes all entries, e.g. after the input lists of the run got replaced. */
+  public void invalidate() {
+    entries.clear();
+  }
+
+  /** Wraps list, set and map results into read-only views, so the cached entry can't be changed. */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Object unmodifiable(Object result) {
+    return switch (result) {
+      case List<?> list -> Collections.unmodifiableList(list);
+      case Set<?> set -> Collections.unmodifiableSet(set);
+      case EnumMap<?, ?> enumMap -> {
+        EnumMap views = new EnumMap(enumMap);
+        views.replaceAll((key, value) -> unmodifiable(value));
+        yield Collections.unmodifiableMap(views);
+      }
+      case Map<?, ?> map -> {
+        Map<Object, Object> views = new LinkedHashMap<>();
+        map.forEach((key, value) -> views.put(key, unmodifiable(value)));
+        yield Collections.unmodifiableMap(views);
+      }
+      case null, default -> result;
+    };
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /** Method name plus parameter tuple; see the class comment for the equality semantic. */
+  private static final class Key {
+    private final String method;
+    private final Object[] parameters;
+    private final int hash;
+
+    private Key(String method, Object[] parameters) {
+      this.method = method;
+      this.parameters = parameters;
+      int result = method.hashCode();
+      for (Object parameter : parameters) {
+        result =
+            31 * result
+                + (isValueType(parameter)
+                    ? Objects.hashCode(parameter)
+                    : System.identityHashCode(parameter));
+      }
+      this.hash = result;
+    }
+
+    private static boolean isValueType(Object parameter) {
+      return parameter == null
+          || parameter instanceof Enum<?>
+          || parameter instanceof String
+          || parameter instanceof Number
+          || parameter instanceof Boolean;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key other)
+          || !method.equals(other.method)
+          || parameters.length != other.parameters.length) {
+        return false;
+      }
+      for (int i = 0; i < parameters.length; i++) {
+        Object a = parameters[i];
+        Object b = other.parameters[i];
+        if (isValueType(a) ? !Objects.equals(a, b) : a != b) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
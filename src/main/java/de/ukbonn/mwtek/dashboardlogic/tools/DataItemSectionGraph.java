@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.tools;
+
+import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Small task graph for the generation of independent data item sections.
+ *
+ * <p>Shared intermediates that are expensive to calculate (e.g. the icu length of stay map) are
+ * registered via {@link #intermediate} and each section declares the intermediates it reads. An
+ * intermediate is calculated once as a task of its own as soon as the first section that reads it
+ * gets scheduled, and a section is only started after all of its intermediates are available.
+ * Values that are already calculated before the graph is built can simply be captured by the
+ * section bodies.
+ *
+ * <p>{@link #run()} returns the data items in the order in which the sections were registered.
+ * With a thread count of {@code 1} everything runs sequentially on the calling thread, which
+ * equals the former behavior. Since neither a section nor an intermediate ever waits for another
+ * task, the generation can't block the pool. The logic classes used by the sections do not need
+ * to be thread-safe themselves as long as the sections don't share mutable state.
+ */
+@Slf4j
+public class DataItemSectionGraph {
+
+  private final int threadCount;
+  private final List<Section> sections = new ArrayList<>();
+
+  private record Section(
+      String name, List<Intermediate<?>> reads, Consumer<List<DiseaseDataItem>> body) {}
+
+  /**
+   * Intermediate that is calculated at most once and can only be read by the sections that
+   * declare it.
+   */
+  public static final class Intermediate<T> {
+    private final String name;
+    private final Supplier<T> producer;
+    private CompletableFuture<T> result;
+
+    private Intermediate(String name, Supplier<T> producer) {
+      this.name = name;
+      this.producer = producer;
+    }
+
+    /**
+     * Returns the calculated value.
+     *
+     * @throws IllegalStateException If the calling section didn't declare the intermediate.
+     */
+    public T get() {
+      CompletableFuture<T> calculation = result;
+      if (calculation == null || !calculation.isDone()) {
+        throw new IllegalStateException(
+            "Intermediate '" + name + "' is read by a section that doesn't declare it.");
+      }
+      return calculation.join();
+    }
+
+    private CompletableFuture<T> schedule(Executor executor) {
+      if (result == null) {
+        result = CompletableFuture.supplyAsync(producer, executor);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * @param threadCount Maximum number of tasks that are processed in parallel; values lower than
+   *     {@code 1} are treated as {@code 1}.
+   */
+  public DataItemSectionGraph(int threadCount) {
+    this.threadCount = Math.max(1, threadCount);
+  }
+
+  /**
+   * Registers a shared intermediate. Nothing is calculated if no section reads it.
+   *
+   * @param name The name of the intermediate for error messages.
+   * @param producer The calculation of the intermediate.
+   * @return The handle that sections declare as read and use to access the value.
+   */
+  public <T> Intermediate<T> intermediate(String name, Supplier<T> producer) {
+    return new Intermediate<>(name, producer);
+  }
+
+  /**
+   * Registers a section that doesn't read any intermediate.
+   *
+   * @param name Name of the section (usually the label of the main data item) for logging.
+   * @param body The generation of the data items.
+   */
+  public void section(String name, Consumer<List<DiseaseDataItem>> body) {
+    section(name, List.of(), body);
+  }
+
+  /**
+   * Registers a section. The section adds its data items to the list handed to the body.
+   *
+   * @param name Name of the section (usually the label of the main data item) for logging.
+   * @param reads The {@link #intermediate intermediates} that are read by the section.
+   * @param body The generation of the data items.
+   */
+  public void section(
+      String name, List<? extends Intermediate<?>> reads, Consumer<List<DiseaseDataItem>> body) {
+    sections.add(new Section(name, List.copyOf(reads), body));
+  }
+
+  /**
+   * Executes all registered sections.
+   *
+   * @return All generated data items in the order of the section registration.
+   */
+  public List<DiseaseDataItem> run() {
+    ExecutorService executor = threadCount > 1 ? Executors.newFixedThreadPool(threadCount) : null;
+    // Without a pool every task runs directly on the calling thread while it gets scheduled
+    Executor taskExecutor = executor != null ? executor : Runnable::run;
+    try {
+      List<CompletableFuture<List<DiseaseDataItem>>> sectionFutures = new ArrayList<>();
+      for (Section section : sections) {
+        CompletableFuture<?>[] dependencies =
+            section.reads().stream()
+                .map(intermediate -> intermediate.schedule(taskExecutor))
+                .toArray(CompletableFuture<?>[]::new);
+        sectionFutures.add(
+            CompletableFuture.allOf(dependencies)
+                .thenApplyAsync(_ -> execute(section), taskExecutor));
+      }
+
+      // Joining in registration order keeps the output order of the sequential processing
+      List<DiseaseDataItem> result = new ArrayList<>();
+      for (CompletableFuture<List<DiseaseDataItem>> future : sectionFutures) {
+        result.addAll(future.join());
+      }
+      return result;
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+  }
+
+  private static List<DiseaseDataItem> execute(Section section) {
+    List<DiseaseDataItem> items = new ArrayList<>();
+    try {
+      section.body().accept(items);
+    } catch (RuntimeException e) {
+      log.error("Generation of the section '{}' failed: {}", section.name(), e.getMessage());
+      throw e;
+    }
+    return items;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+package de.ukbonn.mwtek.dashboardlogic.tools;
+
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiCondition;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiObservation;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+
+/**
+ * Filters resource lists by a date window in a single pass. The relevant timestamp of each
+ * resource is determined once by a resource type specific extractor (e.g. {@link
+ * #encounterStart}); resources without such a timestamp are dropped.
+ */
+public class DateWindowFilter {
+
+  /**
+   * The result of a date window filtering.
+   *
+   * @param kept The resources within the window, in their original order.
+   * @param dropped The resources outside the window (or without timestamp), in their original
+   *     order.
+   */
+  public record Partition<T>(List<T> kept, List<T> dropped) {
+
+    /** The first dropped resource (e.g. as example for the logging) or {@code null}. */
+    public T firstDropped() {
+      return dropped.isEmpty() ? null : dropped.getFirst();
+    }
+  }
+
+  /**
+   * Splits the resources into those whose timestamp lies within the window and the rest.
+   *
+   * @param resources The resources to filter.
+   * @param timestampExtractor Returns the relevant timestamp (in milliseconds) of a resource or
+   *     {@code null} if it has none.
+   * @param window Predicate on the timestamp in milliseconds.
+   * @return The kept and the dropped resources.
+   */
+  public static <T> Partition<T> partition(
+      List<T> resources, Function<? super T, Long> timestampExtractor, LongPredicate window) {
+    List<T> kept = new ArrayList<>(resources.size());
+    List<T> dropped = new ArrayList<>();
+    for (T resource : resources) {
+      Long timestamp = timestampExtractor.apply(resource);
+      if (timestamp != null && window.test(timestamp)) {
+        kept.add(resource);
+      } else {
+        dropped.add(resource);
+      }
+    }
+    return new Partition<>(kept, dropped);
+  }
+
+  /** Keeps all resources with a timestamp at or after the cutoff. */
+  public static <T> Partition<T> filterFrom(
+      List<T> resources, Function<? super T, Long> timestampExtractor, long cutOffDateMillis) {
+    return partition(resources, timestampExtractor, timestamp -> timestamp >= cutOffDateMillis);
+  }
+
+  /** Keeps all resources with a timestamp strictly after the cutoff. */
+  public static <T> Partition<T> filterAfter(
+      List<T> resources, Function<? super T, Long> timestampExtractor, long cutOffDateMillis) {
+    return partition(resources, timestampExtractor, timestamp -> timestamp > cutOffDateMillis);
+  }
+
+  /** The start of the encounter period. */
+  public static Long encounterStart(MiiEncounter encounter) {
+    return encounter.hasPeriod() && encounter.getPeriod().hasStart()
+        ? encounter.getPeriod().getStart().getTime()
+        : null;
+  }
+
+  /** The recorded date of the condition. */
+  public static Long conditionRecordedDate(MiiCondition condition) {
+    return condition.hasRecordedDate() ? condition.getRecordedDate().getTime() : null;
+  }
+
+  /** The effective date time of the observation or the start of its effective period. */
+  public static Long observationEffective(MiiObservation observation) {
+    if (observation.hasEffectiveDateTimeType()) {
+      return toMillis(observation.getEffectiveDateTimeType().getValue());
+    }
+    if (observation.hasEffectivePeriod()) {
+      return toMillis(observation.getEffectivePeriod().getStart());
+    }
+    return null;
+  }
+
+  private static Long toMillis(Date date) {
+    return date != null ? date.getTime() : null;
+  }
+}
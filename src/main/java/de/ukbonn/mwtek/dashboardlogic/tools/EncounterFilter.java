@@ -22,6 +22,7 @@ import static de.ukbonn.mwtek.dashboardlogic.enums.DashboardLogicFixedValues.POS
 import static de.ukbonn.mwtek.dashboardlogic.enums.FlaggingExtension.POSITIVE_EXTENSION;
 
 import de.ukbonn.mwtek.dashboardlogic.models.CoreCaseData;
+import de.ukbonn.mwtek.dashboardlogic.models.IcuLocationRegistry;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiLocation;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiPatient;
@@ -46,10 +47,16 @@ public class EncounterFilter {
 
   public static List<MiiEncounter> getPositiveCurrentlyOnIcuWardEncounters(
       Collection<MiiEncounter> supplyContactEncounters, List<MiiLocation> locations) {
+    return getPositiveCurrentlyOnIcuWardEncounters(
+        supplyContactEncounters, new IcuLocationRegistry(locations));
+  }
+
+  public static List<MiiEncounter> getPositiveCurrentlyOnIcuWardEncounters(
+      Collection<MiiEncounter> supplyContactEncounters, IcuLocationRegistry icuLocationRegistry) {
     return supplyContactEncounters.stream()
         .filter(EncounterFilter::isDiseasePositive)
         .filter(MiiEncounter::isActive)
-        .filter(x -> x.isCurrentlyOnIcuWard(LocationFilter.getIcuLocationIds(locations)))
+        .filter(icuLocationRegistry::isCurrentlyOnIcuWard)
         .toList();
   }
 
@@ -20,7 +20,11 @@ package de.ukbonn.mwtek.dashboardlogic.tools;
 
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
 import de.ukbonn.mwtek.utilities.fhir.resources.MiiPatient;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
@@ -45,4 +49,26 @@ public class PatientFilter {
             .collect(Collectors.toSet());
     return patients.parallelStream().filter(x -> patientIds.contains(x.getId())).toList();
   }
+
+  /**
+   * Creates an unmodifiable map of the given patients by their id, so that patient lookups don't
+   * need a scan of the patient list. Patients without an id are ignored; on duplicate ids the first
+   * patient wins.
+   *
+   * @param patients A list with all the {@link MiiPatient} base entries; {@code null} is handled as
+   *     an empty list.
+   * @return The patients by their id.
+   */
+  public static Map<String, MiiPatient> indexPatientsById(Collection<MiiPatient> patients) {
+    if (patients == null) {
+      return Map.of();
+    }
+    Map<String, MiiPatient> result = new HashMap<>();
+    for (MiiPatient patient : patients) {
+      if (patient.getId() != null) {
+        result.putIfAbsent(patient.getId(), patient);
+      }
+    }
+    return Collections.unmodifiableMap(result);
+  }
 }
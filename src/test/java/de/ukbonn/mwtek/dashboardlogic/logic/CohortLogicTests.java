@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.logic;
+
+import static de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic.ACR_COHORT_K_1;
+import static de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic.ACR_COHORT_K_2;
+import static de.ukbonn.mwtek.dashboardlogic.DashboardDataItemLogic.ACR_COHORT_K_3;
+import static de.ukbonn.mwtek.dashboardlogic.logic.CohortLogic.evaluateCohorts;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import de.ukbonn.mwtek.dashboardlogic.enums.AcribisCohortIcdCodes;
+import de.ukbonn.mwtek.dashboardlogic.enums.AcribisCohortOpsCodes;
+import de.ukbonn.mwtek.dashboardlogic.logic.current.AcribisCurrentDischargeDiags;
+import de.ukbonn.mwtek.dashboardlogic.models.CohortAssignment;
+import de.ukbonn.mwtek.dashboardlogic.models.StackedBarChartsItem;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiConsent;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class CohortLogicTests {
+
+  private static final Date CONSENT_DATE = new Date(1_700_000_000_000L);
+
+  /** ICD codes per patient; P5 only qualifies via an OPS code and P8 has no consent. */
+  private static Map<String, Set<String>> createDiagnoses() {
+    Map<String, Set<String>> pidDiagnoses = new LinkedHashMap<>();
+    pidDiagnoses.put("P1", Set.of("I50.1"));
+    pidDiagnoses.put("P2", Set.of("I48.0"));
+    pidDiagnoses.put("P3", Set.of("I50.9", "I48.1"));
+    pidDiagnoses.put("P4", Set.of("I50.1", "I21.0"));
+    pidDiagnoses.put("P5", Set.of());
+    // Cardiogenic shock only excludes cohort 1
+    pidDiagnoses.put("P6", Set.of("I50.1", "R57.0"));
+    // Congenital septal defects exclude all cohorts
+    pidDiagnoses.put("P7", Set.of("I48.0", "Q21.1"));
+    pidDiagnoses.put("P8", Set.of("I50.1"));
+    pidDiagnoses.put("P9", Set.of("I21.4", "I48.0", "I50.0"));
+    pidDiagnoses.put("P10", Set.of("I50.1", "R57.0", "I48.0"));
+    return pidDiagnoses;
+  }
+
+  private static Map<String, Set<String>> createProcedures() {
+    return Map.of("P5", Set.of("5-361.0"), "P7", Set.of("8-836.0"));
+  }
+
+  private static List<MiiConsent> createConsents() {
+    List<MiiConsent> consents = new ArrayList<>();
+    for (String pid : createDiagnoses().keySet()) {
+      if (!pid.equals("P8")) {
+        consents.add(createConsent(pid));
+      }
+    }
+    return consents;
+  }
+
+  @Test
+  @DisplayName("The cohort counts match the former separate evaluation of each cohort.")
+  void testCountPerCohortMatchesSeparateEvaluation() {
+    CohortAssignment cohortAssignment =
+        evaluateCohorts(createDiagnoses(), createProcedures(), createConsents());
+
+    int[] expected = {
+      countCohort(
+          AcribisCohortIcdCodes.INCLUSION_CRITERIA_COHORT_1,
+          null,
+          AcribisCohortIcdCodes.EXCLUSION_CRITERIA_COHORT_1),
+      countCohort(
+          AcribisCohortIcdCodes.INCLUSION_CRITERIA_COHORT_2,
+          null,
+          AcribisCohortIcdCodes.EXCLUSION_CRITERIA_COHORT_2),
+      countCohort(
+          AcribisCohortIcdCodes.INCLUSION_CRITERIA_COHORT_3,
+          AcribisCohortOpsCodes.INCLUSION_CRITERIA_COHORT_3,
+          AcribisCohortIcdCodes.EXCLUSION_CRITERIA_COHORT_3)
+    };
+    assertThat(expected).containsExactly(4, 4, 3);
+    assertThat(cohortAssignment.countPerCohort()).containsExactly(expected);
+    assertThat(cohortAssignment.getCohort(0)).containsOnlyKeys("P1", "P3", "P4", "P9");
+    assertThat(cohortAssignment.getCohort(2)).containsEntry("P5", CONSENT_DATE);
+  }
+
+  @Test
+  @DisplayName("Patients are counted once per cohort combination, indexed by the cohort bitmask.")
+  void testCombinations() {
+    CohortAssignment cohortAssignment =
+        evaluateCohorts(createDiagnoses(), createProcedures(), createConsents());
+
+    assertThat(cohortAssignment.countPerCombination()).containsExactly(0, 1, 2, 1, 1, 1, 0, 1);
+    List<List<String>> patientIdsPerCombination = cohortAssignment.getPatientIdsPerCombination();
+    assertThat(patientIdsPerCombination.get(0b001)).containsExactly("P1");
+    assertThat(patientIdsPerCombination.get(0b010)).containsExactly("P2", "P10");
+    assertThat(patientIdsPerCombination.get(0b011)).containsExactly("P3");
+    assertThat(patientIdsPerCombination.get(0b100)).containsExactly("P5");
+    assertThat(patientIdsPerCombination.get(0b101)).containsExactly("P4");
+    assertThat(patientIdsPerCombination.get(0b110)).isEmpty();
+    assertThat(patientIdsPerCombination.get(0b111)).containsExactly("P9");
+    assertThat(cohortAssignment.getPatientIds()).doesNotContain("P6", "P7", "P8");
+  }
+
+  @Test
+  @DisplayName("The overlap item has one bar per cohort combination with its patient count.")
+  void testOverlapItem() {
+    AcribisCurrentDischargeDiags dischargeDiags =
+        new AcribisCurrentDischargeDiags(
+            evaluateCohorts(createDiagnoses(), createProcedures(), createConsents()));
+
+    StackedBarChartsItem<Integer> overlap = dischargeDiags.createOverlapStackedBarCharts();
+
+    assertThat(overlap.getBars().getFirst())
+        .containsExactly(
+            ACR_COHORT_K_1,
+            ACR_COHORT_K_2,
+            "acr_cohort_k1_k2",
+            ACR_COHORT_K_3,
+            "acr_cohort_k1_k3",
+            "acr_cohort_k2_k3",
+            "acr_cohort_k1_k2_k3");
+    assertThat(overlap.getValues().getFirst())
+        .containsExactly(
+            List.of(1), List.of(2), List.of(1), List.of(1), List.of(1), List.of(0), List.of(1));
+    assertThat(dischargeDiags.getOverlapDebugData())
+        .containsEntry("acr_cohort_k1_k2_k3", List.of("P9"));
+    assertThat(dischargeDiags.createStackedBarCharts().getValues().getFirst())
+        .containsExactly(List.of(4), List.of(4), List.of(3));
+  }
+
+  /** The evaluation of a single cohort as it was done before the single pass evaluation. */
+  private static int countCohort(
+      List<String> inclusionDiagnoses,
+      List<String> inclusionProcedures,
+      List<String> exclusionDiagnoses) {
+    Map<String, Set<String>> pidProcedures = createProcedures();
+    Set<String> pidsWithConsent =
+        Set.copyOf(createConsents().stream().map(MiiConsent::getPatientId).toList());
+    int count = 0;
+    for (Map.Entry<String, Set<String>> entry : createDiagnoses().entrySet()) {
+      Set<String> procedures = pidProcedures.getOrDefault(entry.getKey(), Set.of());
+      boolean hasInclusion =
+          matches(entry.getValue(), inclusionDiagnoses) || matches(procedures, inclusionProcedures);
+      if (hasInclusion
+          && pidsWithConsent.contains(entry.getKey())
+          && !matches(entry.getValue(), exclusionDiagnoses)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static boolean matches(Collection<String> codes, Collection<String> prefixes) {
+    return prefixes != null
+        && codes.stream().anyMatch(code -> prefixes.stream().anyMatch(code::startsWith));
+  }
+
+  private static MiiConsent createConsent(String pid) {
+    MiiConsent consent = mock(MiiConsent.class);
+    when(consent.getPatientId()).thenReturn(pid);
+    when(consent.getAcribisPermitStartDate()).thenReturn(CONSENT_DATE);
+    return consent;
+  }
+}
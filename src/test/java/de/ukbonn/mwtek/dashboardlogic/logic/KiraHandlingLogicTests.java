@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.logic;
+
+import static de.ukbonn.mwtek.dashboardlogic.enums.DashboardLogicFixedValues.ICD_SYSTEM;
+import static de.ukbonn.mwtek.utilities.fhir.misc.FhirConditionTools.getEncounterIdsByIcdCodes;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiCondition;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Reference;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class KiraHandlingLogicTests {
+
+  private static final String OTHER_SYSTEM = "http://snomed.info/sct";
+
+  @Test
+  @DisplayName(
+      "The grouped diagnosis lookup finds the same cases per group as the library lookup, with"
+          + " mixed code systems and exact vs prefix codes.")
+  void testDiagnosisGroupsMatchLibrary() {
+    List<MiiCondition> conditions =
+        List.of(
+            createCondition("C-1", ICD_SYSTEM.getValue(), "F32.1"),
+            createCondition("C-2", ICD_SYSTEM.getValue(), "F32"),
+            createCondition("C-3", OTHER_SYSTEM, "F32.1"),
+            createCondition("C-4", ICD_SYSTEM.getValue(), "f41.0"),
+            createCondition("C-5", ICD_SYSTEM.getValue(), "F41.01"),
+            createCondition("C-6", null, "F43.2"),
+            createCondition("C-7", ICD_SYSTEM.getValue(), "J21.0"),
+            createCondition("C-8", ICD_SYSTEM.getValue(), null));
+    Map<String, List<String>> icdCodesByDiag = new LinkedHashMap<>();
+    icdCodesByDiag.put("depression", List.of("F32"));
+    icdCodesByDiag.put("depression_exact", List.of("F32.1"));
+    icdCodesByDiag.put("anxiety", List.of("F41.0", "F43"));
+    icdCodesByDiag.put("none", List.of("Z99"));
+
+    Map<String, Set<String>> encounterIdsByDiag =
+        KiraHandlingLogic.getEncounterIdsByDiagnosisGroup(conditions, icdCodesByDiag);
+
+    icdCodesByDiag.forEach(
+        (group, icdCodes) ->
+            assertThat(encounterIdsByDiag.getOrDefault(group, Set.of()))
+                .as(group)
+                .isEqualTo(getEncounterIdsByIcdCodes(conditions, icdCodes)));
+  }
+
+  private static MiiCondition createCondition(String caseId, String system, String code) {
+    MiiCondition condition = new MiiCondition();
+    condition.setId("Condition-" + caseId);
+    condition.setCode(new CodeableConcept().addCoding(new Coding(system, code, null)));
+    condition.setEncounter(new Reference("Encounter/" + caseId));
+    return condition;
+  }
+}
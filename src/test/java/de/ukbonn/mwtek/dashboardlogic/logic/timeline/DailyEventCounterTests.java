@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.logic.timeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DailyEventCounterTests {
+
+  private static final DashboardClock BERLIN = new DashboardClock(ZoneId.of("Europe/Berlin"));
+  // 2024-03-01 00:00 CET
+  private static final long KICK_OFF = Instant.parse("2024-02-29T23:00:00Z").getEpochSecond();
+
+  private static Date date(String instant) {
+    return Date.from(Instant.parse(instant));
+  }
+
+  @Test
+  @DisplayName("Events are counted on their calendar day in the zone of the clock.")
+  void testEventsAreCountedPerDay() {
+    DailyEventCounter counter = new DailyEventCounter(BERLIN, KICK_OFF, 3);
+
+    assertThat(counter.add(date("2024-03-01T10:00:00Z"))).isTrue();
+    // 2024-03-03 00:30 CET
+    assertThat(counter.add(date("2024-03-02T23:30:00Z"))).isTrue();
+    // Before the kickoff date and after the last day
+    assertThat(counter.add(date("2024-02-29T22:30:00Z"))).isFalse();
+    assertThat(counter.add(date("2024-03-03T23:30:00Z"))).isFalse();
+    assertThat(counter.add(null)).isFalse();
+
+    assertThat(counter.getCounts()).containsExactly(1, 0, 1);
+  }
+
+  @Test
+  @DisplayName("Only the earliest event of a key is counted, regardless of the insertion order.")
+  void testEarliestEventPerKeyIsCounted() {
+    DailyEventCounter counter = new DailyEventCounter(BERLIN, KICK_OFF, 3);
+
+    counter.add(date("2024-03-03T10:00:00Z"), "patient-1");
+    counter.add(date("2024-03-02T10:00:00Z"), "patient-1");
+    counter.add(date("2024-03-03T10:00:00Z"), "patient-1");
+    counter.add(date("2024-03-01T10:00:00Z"), "patient-2");
+
+    assertThat(counter.toList()).containsExactly(1L, 1L, 0L);
+  }
+
+  @Test
+  @DisplayName("A key whose earliest event is outside the timeline isn't counted at all.")
+  void testEarliestEventOutsideTimeline() {
+    DailyEventCounter counter = new DailyEventCounter(BERLIN, KICK_OFF, 3);
+
+    counter.add(date("2024-03-02T10:00:00Z"), "patient-1");
+    counter.add(date("2024-02-01T10:00:00Z"), "patient-1");
+
+    assertThat(counter.getCounts()).containsExactly(0, 0, 0);
+  }
+}
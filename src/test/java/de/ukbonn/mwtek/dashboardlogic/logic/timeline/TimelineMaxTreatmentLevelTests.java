@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.logic.timeline;
+
+import static de.ukbonn.mwtek.dashboardlogic.enums.FlaggingExtension.POSITIVE_EXTENSION;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.ukbonn.mwtek.dashboardlogic.enums.DataItemContext;
+import de.ukbonn.mwtek.dashboardlogic.enums.MaxTreatmentTimelineEngine;
+import de.ukbonn.mwtek.dashboardlogic.enums.TreatmentLevels;
+import de.ukbonn.mwtek.dashboardlogic.examples.InputCodeSettingsExampleData;
+import de.ukbonn.mwtek.dashboardlogic.examples.LocationExampleData;
+import de.ukbonn.mwtek.dashboardlogic.settings.InputCodeSettings;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiEncounter;
+import de.ukbonn.mwtek.utilities.fhir.resources.MiiProcedure;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Encounter;
+import org.hl7.fhir.r4.model.Encounter.EncounterLocationComponent;
+import org.hl7.fhir.r4.model.Encounter.EncounterStatus;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.Procedure.ProcedureStatus;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class TimelineMaxTreatmentLevelTests {
+
+  private static final String CLASS_SYSTEM = "http://fhir.de/ValueSet/EncounterClassDE";
+  private static final String SNOMED_SYSTEM = "http://snomed.info/sct";
+  private static final String VENTILATION_CODE = "40617009";
+  private static final String ECMO_CODE = "265764009";
+
+  private static final InputCodeSettings INPUT_CODE_SETTINGS =
+      new InputCodeSettings(
+          InputCodeSettingsExampleData.getObservationPcrLoincCodes(),
+          InputCodeSettingsExampleData.getObservationVariantLoincCodes(),
+          InputCodeSettingsExampleData.getConditionIcdCodes(),
+          List.of(),
+          List.of(),
+          List.of(VENTILATION_CODE),
+          List.of(ECMO_CODE),
+          null,
+          null,
+          null,
+          null,
+          null,
+          null);
+
+  @Test
+  @DisplayName(
+      "Ensuring that the DAY_LOOP and the SWEEP_LINE engine create the same timeline, including"
+          + " ventilation and ECMO periods and encounters without facility contact id or period"
+          + " start.")
+  void testEnginesCreateSameTimeline() {
+    // The engines update the periods of ongoing encounters, so each one gets its own fixture
+    Instant now = Instant.now();
+    Map<TreatmentLevels, Map<Long, Set<String>>> dayLoop =
+        createTimeline(createFixture(now), MaxTreatmentTimelineEngine.DAY_LOOP);
+    Map<TreatmentLevels, Map<Long, Set<String>>> sweepLine =
+        createTimeline(createFixture(now), MaxTreatmentTimelineEngine.SWEEP_LINE);
+
+    assertThat(sweepLine).isEqualTo(dayLoop);
+    assertThat(caseIds(dayLoop))
+        .contains("FC-1", "FC-2", "FC-3", "FC-5", "FC-8", "FC-9")
+        .doesNotContain("FC-4");
+    assertThat(caseIds(dayLoop.get(TreatmentLevels.ICU_VENTILATION))).contains("FC-8", "FC-9");
+    assertThat(caseIds(dayLoop.get(TreatmentLevels.ICU_ECMO))).containsExactly("FC-9");
+  }
+
+  @Test
+  @DisplayName("Ensuring that encounters without facility contact id or period start are skipped.")
+  void testIsAssignableToTimeline() {
+    assertThat(
+            TimelineMaxTreatmentLevel.isAssignableToTimeline(
+                createEncounter("SC", "FC", "IMP", daysAgo(Instant.now(), 1), null, false)))
+        .isTrue();
+    assertThat(
+            TimelineMaxTreatmentLevel.isAssignableToTimeline(
+                createEncounter("SC", null, "IMP", daysAgo(Instant.now(), 1), null, false)))
+        .isFalse();
+    assertThat(
+            TimelineMaxTreatmentLevel.isAssignableToTimeline(
+                createEncounter("SC", "FC", "IMP", null, daysAgo(Instant.now(), 1), false)))
+        .isFalse();
+  }
+
+  /** The encounters and procedures of a single engine run. */
+  private record Fixture(
+      List<MiiEncounter> facilityEncounters,
+      List<MiiEncounter> supplyContacts,
+      List<MiiProcedure> procedures) {}
+
+  private static Fixture createFixture(Instant now) {
+    List<MiiEncounter> facilityEncounters = new ArrayList<>();
+    List<MiiEncounter> supplyContacts = new ArrayList<>();
+    List<MiiProcedure> procedures = new ArrayList<>();
+
+    // Finished icu stay followed by a normal ward stay of the same case
+    supplyContacts.add(
+        createEncounter("SC-ICU", "FC-1", "IMP", daysAgo(now, 12), daysAgo(now, 6), true));
+    supplyContacts.add(
+        createEncounter("SC-WARD", "FC-1", "IMP", daysAgo(now, 6), daysAgo(now, 2), false));
+    // Ongoing normal ward stay
+    supplyContacts.add(createEncounter("SC-ONGOING", "FC-2", "IMP", daysAgo(now, 4), null, false));
+    // Stay that started before the kickoff date of the timeline
+    supplyContacts.add(
+        createEncounter(
+            "SC-OLD", "FC-3", "IMP", Date.from(Instant.parse("2019-12-30T10:00:00Z")), null, true));
+    // Edge cases that can't be assigned to a case or a day
+    supplyContacts.add(createEncounter("SC-NO-CASE", null, "IMP", daysAgo(now, 3), null, true));
+    supplyContacts.add(createEncounter("SC-NO-START", "FC-4", "IMP", null, daysAgo(now, 1), true));
+    // Finished icu stay with a ventilation period in the middle of it
+    supplyContacts.add(
+        createEncounter("SC-VENT", "FC-8", "IMP", daysAgo(now, 10), daysAgo(now, 3), true));
+    procedures.add(
+        createProcedure("P-VENT", "FC-8", VENTILATION_CODE, daysAgo(now, 8), daysAgo(now, 5)));
+    // Ongoing icu stay with a finished ventilation followed by an ongoing ECMO
+    supplyContacts.add(createEncounter("SC-ECMO", "FC-9", "IMP", daysAgo(now, 9), null, true));
+    procedures.add(
+        createProcedure("P-VENT-2", "FC-9", VENTILATION_CODE, daysAgo(now, 9), daysAgo(now, 6)));
+    procedures.add(createProcedure("P-ECMO", "FC-9", ECMO_CODE, daysAgo(now, 4), null));
+    // Outpatient facility contacts
+    facilityEncounters.add(
+        createEncounter("FC-5", "FC-5", "AMB", daysAgo(now, 5), daysAgo(now, 5), false));
+    facilityEncounters.add(
+        createEncounter("FC-6", null, "AMB", daysAgo(now, 5), daysAgo(now, 5), false));
+    facilityEncounters.add(createEncounter("FC-7", "FC-7", "AMB", null, null, false));
+    return new Fixture(facilityEncounters, supplyContacts, procedures);
+  }
+
+  private static Map<TreatmentLevels, Map<Long, Set<String>>> createTimeline(
+      Fixture fixture, MaxTreatmentTimelineEngine engine) {
+    return TimelineMaxTreatmentLevel.createMaxTreatmentTimeline(
+        DataItemContext.COVID,
+        fixture.facilityEncounters(),
+        fixture.supplyContacts(),
+        fixture.procedures(),
+        LocationExampleData.getExampleList(),
+        INPUT_CODE_SETTINGS,
+        false,
+        engine);
+  }
+
+  private static Set<String> caseIds(Map<TreatmentLevels, Map<Long, Set<String>>> timeline) {
+    return timeline.values().stream()
+        .flatMap(caseIdsByDay -> caseIds(caseIdsByDay).stream())
+        .collect(Collectors.toSet());
+  }
+
+  private static Set<String> caseIds(Map<Long, Set<String>> caseIdsByDay) {
+    return caseIdsByDay.values().stream().flatMap(Set::stream).collect(Collectors.toSet());
+  }
+
+  private static Date daysAgo(Instant now, int days) {
+    return Date.from(now.minus(Duration.ofDays(days)));
+  }
+
+  private static MiiProcedure createProcedure(
+      String id, String caseId, String code, Date start, Date end) {
+    return new MiiProcedure(
+        id,
+        caseId,
+        end == null ? ProcedureStatus.INPROGRESS : ProcedureStatus.COMPLETED,
+        new CodeableConcept().addCoding(new Coding(SNOMED_SYSTEM, code, null)),
+        new Period().setStart(start).setEnd(end));
+  }
+
+  private static MiiEncounter createEncounter(
+      String id, String facilityContactId, String caseClass, Date start, Date end, boolean icu) {
+    MiiEncounter encounter =
+        new MiiEncounter(
+            id,
+            new Encounter.EncounterStatusEnumFactory()
+                .fromType(
+                    new StringType(
+                        (end == null ? EncounterStatus.INPROGRESS : EncounterStatus.FINISHED)
+                            .toCode())),
+            new Coding(CLASS_SYSTEM, caseClass, null));
+    encounter.setPeriod(new Period().setStart(start).setEnd(end));
+    encounter.setFacilityContactId(facilityContactId);
+    encounter.addExtension(POSITIVE_EXTENSION);
+    if (icu) {
+      encounter.addLocation(
+          new EncounterLocationComponent(
+              new Reference("Location/" + LocationExampleData.ICU_LOCATION_ID)));
+    }
+    return encounter;
+  }
+}
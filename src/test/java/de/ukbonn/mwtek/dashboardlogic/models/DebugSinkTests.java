@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.models;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.ukbonn.mwtek.dashboardlogic.settings.GlobalConfiguration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DebugSinkTests {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  @Test
+  @DisplayName("A truncated debug item keeps all of its keys, including trailing empty maps.")
+  void testTruncationKeepsKeys() throws Exception {
+    GlobalConfiguration globalConfiguration = new GlobalConfiguration();
+    globalConfiguration.setDebug(true);
+    globalConfiguration.setDebugMaxIdsPerItem(2);
+
+    DebugSink debugSink =
+        DebugSink.of(globalConfiguration)
+            .putResolved("icu", () -> new String[] {"1", "2", "3"})
+            .put("icu_ventilation", () -> List.of("4"))
+            .put("date", LinkedHashMap::new);
+
+    assertThat(OBJECT_MAPPER.writeValueAsString(debugSink))
+        .isEqualTo("{\"icu\":[\"1\",\"2\"],\"icu_ventilation\":[],\"date\":{}}");
+  }
+
+  @Test
+  @DisplayName("Debug items are not truncated by default.")
+  void testUnlimitedByDefault() throws Exception {
+    GlobalConfiguration globalConfiguration = new GlobalConfiguration();
+    globalConfiguration.setDebug(true);
+    List<String> caseIds = new ArrayList<>();
+    for (int i = 0; i < 200_000; i++) {
+      caseIds.add(String.valueOf(i));
+    }
+
+    DebugSink debugSink = DebugSink.of(globalConfiguration).put("icu", () -> caseIds);
+
+    Map<?, ?> payload =
+        OBJECT_MAPPER.readValue(OBJECT_MAPPER.writeValueAsString(debugSink), Map.class);
+    assertThat((List<?>) payload.get("icu")).hasSize(caseIds.size());
+  }
+
+  @Test
+  @DisplayName("Entries of a disabled debug output are neither resolved nor added.")
+  void testDisabledSinkIgnoresEntries() {
+    List<DiseaseDataItem> items = new ArrayList<>();
+
+    DebugSink.of(new GlobalConfiguration())
+        .putResolved(
+            "icu",
+            () -> {
+              throw new AssertionError("Must not be resolved");
+            })
+        .addTo(items, "current.maxtreatmentlevel.debug");
+
+    assertThat(items).isEmpty();
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.models;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class PatientBitmapTests {
+
+  /**
+   * Index ranges (from, to, number of random indexes) of the chunks. Dense index sets get a bitmap
+   * chunk in the second range and are the only ones with a chunk in the last range.
+   */
+  private static final int[][] DENSITIES = {
+    {0, 65536, 50}, {65536, 131072, 9000}, {131072, 196608, 1}, {196608, 262144, 30}
+  };
+
+  @Test
+  @DisplayName("Union, intersection and difference match the BitSet results for mixed chunks.")
+  void testSetOperationsMatchBitSet() {
+    Random random = new Random(42);
+    for (int run = 0; run < 20; run++) {
+      BitSet left = createIndexes(random, run % 2 == 0);
+      BitSet right = createIndexes(random, run % 3 == 0);
+      PatientBitmap leftBitmap = PatientBitmap.of(left);
+      PatientBitmap rightBitmap = PatientBitmap.of(right);
+
+      BitSet expectedOr = (BitSet) left.clone();
+      expectedOr.or(right);
+      BitSet expectedAnd = (BitSet) left.clone();
+      expectedAnd.and(right);
+      BitSet expectedAndNot = (BitSet) left.clone();
+      expectedAndNot.andNot(right);
+
+      assertThat(toBitSet(leftBitmap.or(rightBitmap))).isEqualTo(expectedOr);
+      assertThat(toBitSet(leftBitmap.and(rightBitmap))).isEqualTo(expectedAnd);
+      assertThat(toBitSet(leftBitmap.andNot(rightBitmap))).isEqualTo(expectedAndNot);
+      assertThat(leftBitmap.or(rightBitmap).cardinality()).isEqualTo(expectedOr.cardinality());
+      assertThat(leftBitmap.and(rightBitmap).cardinality()).isEqualTo(expectedAnd.cardinality());
+      assertThat(leftBitmap.andNot(rightBitmap).cardinality())
+          .isEqualTo(expectedAndNot.cardinality());
+      // The operands stay untouched
+      assertThat(toBitSet(leftBitmap)).isEqualTo(left);
+      assertThat(toBitSet(rightBitmap)).isEqualTo(right);
+    }
+  }
+
+  @Test
+  @DisplayName("The union of two sparse chunks turns into a dense chunk when it gets too large.")
+  void testUnionOfSparseChunksGetsDense() {
+    BitSet even = new BitSet();
+    BitSet odd = new BitSet();
+    for (int i = 0; i < 8000; i++) {
+      (i % 2 == 0 ? even : odd).set(i);
+    }
+
+    PatientBitmap union = PatientBitmap.of(even).or(PatientBitmap.of(odd));
+    union.add(8000);
+
+    BitSet expected = new BitSet();
+    expected.set(0, 8001);
+    assertThat(toBitSet(union)).isEqualTo(expected);
+    assertThat(union.cardinality()).isEqualTo(8001);
+  }
+
+  private static BitSet createIndexes(Random random, boolean dense) {
+    BitSet result = new BitSet();
+    int rangeCount = dense ? DENSITIES.length : DENSITIES.length - 1;
+    for (int[] range : Arrays.copyOf(DENSITIES, rangeCount)) {
+      int count = dense ? range[2] : Math.min(range[2], 100);
+      for (int i = 0; i < count; i++) {
+        result.set(range[0] + random.nextInt(range[1] - range[0]));
+      }
+    }
+    return result;
+  }
+
+  private static BitSet toBitSet(PatientBitmap bitmap) {
+    BitSet result = new BitSet();
+    bitmap.forEach(result::set);
+    return result;
+  }
+}
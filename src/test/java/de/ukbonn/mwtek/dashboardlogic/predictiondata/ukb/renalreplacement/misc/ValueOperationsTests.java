@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.misc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CaseTimeSeries;
+import de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models.CoreBaseDataItem;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class ValueOperationsTests {
+
+  private static final long PERIOD_FROM = 1_700_000_000L;
+  private static final long PERIOD_TO = PERIOD_FROM + 24 * 60 * 60;
+  private static final long MID = (PERIOD_FROM + PERIOD_TO) / 2;
+  private static final long ONE_HOUR = 60 * 60;
+
+  @Test
+  @DisplayName(
+      "Items that are equally close to the mid on opposite sides are resolved by the input order"
+          + " in both variants.")
+  void testClosestValueToMidTie() {
+    CoreBaseDataItem beforeMid = createItem(MID - ONE_HOUR, 1.0);
+    CoreBaseDataItem afterMid = createItem(MID + ONE_HOUR, 2.0);
+
+    for (List<CoreBaseDataItem> items :
+        List.of(List.of(afterMid, beforeMid), List.of(beforeMid, afterMid))) {
+      Double expected = items.getFirst().value();
+      assertThat(ValueOperations.getClosestValueToMid(items, PERIOD_FROM, PERIOD_TO))
+          .isEqualTo(expected);
+      assertThat(
+              ValueOperations.getClosestValueToMid(
+                  CaseTimeSeries.of(items), PERIOD_FROM, PERIOD_TO))
+          .isEqualTo(expected);
+    }
+  }
+
+  @Test
+  @DisplayName("The closest item to the mid is used if there is no tie.")
+  void testClosestValueToMid() {
+    List<CoreBaseDataItem> items =
+        List.of(
+            createItem(PERIOD_FROM + ONE_HOUR, 1.0),
+            createItem(MID + 2 * ONE_HOUR, 2.0),
+            createItem(MID - ONE_HOUR, 3.0));
+
+    assertThat(ValueOperations.getClosestValueToMid(items, PERIOD_FROM, PERIOD_TO)).isEqualTo(3.0);
+    assertThat(
+            ValueOperations.getClosestValueToMid(CaseTimeSeries.of(items), PERIOD_FROM, PERIOD_TO))
+        .isEqualTo(3.0);
+  }
+
+  private static CoreBaseDataItem createItem(long epochSeconds, double value) {
+    Date date = new Date(epochSeconds * 1000);
+    return new CoreBaseDataItem("case", "episode", value, date, date, null);
+  }
+}
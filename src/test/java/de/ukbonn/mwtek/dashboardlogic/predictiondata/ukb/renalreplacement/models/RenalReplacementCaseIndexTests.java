@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.models;
+
+import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters.CREATININE;
+import static de.ukbonn.mwtek.dashboardlogic.predictiondata.ukb.renalreplacement.enums.RenalReplacementRiskParameters.EPISODES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class RenalReplacementCaseIndexTests {
+
+  @Test
+  @DisplayName("Items without a case id are skipped instead of failing the grouping.")
+  void testItemsWithoutCaseIdAreSkipped() {
+    CoreBaseDataItem assigned = createItem("C1", 1.0);
+    RenalReplacementCaseIndex caseIndex =
+        new RenalReplacementCaseIndex(
+            Map.of(CREATININE, List.of(createItem(null, 2.0), assigned)));
+
+    assertThat(caseIndex.get(CREATININE, "C1")).containsExactly(assigned);
+    assertThat(caseIndex.getOrEmpty(EPISODES, "C1")).isEmpty();
+    assertThat(caseIndex.getSeries(CREATININE, null))
+        .isSameAs(caseIndex.getSeries(CREATININE, "unknown"));
+  }
+
+  @Test
+  @DisplayName("The time series of a case is created once and shared by all of its encounters.")
+  void testSeriesIsCreatedOncePerCase() {
+    RenalReplacementCaseIndex caseIndex =
+        new RenalReplacementCaseIndex(
+            Map.of(CREATININE, List.of(createItem("C1", 1.0), createItem("C2", 2.0))));
+
+    CaseTimeSeries series = caseIndex.getSeries(CREATININE, "C1");
+
+    assertThat(caseIndex.getSeries(CREATININE, "C1")).isSameAs(series);
+    assertThat(caseIndex.getSeries(CREATININE, "C2")).isNotSameAs(series);
+  }
+
+  private static CoreBaseDataItem createItem(String caseId, double value) {
+    return new CoreBaseDataItem(caseId, null, value, new Date(), null, null);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.ukbonn.mwtek.dashboardlogic.settings.GlobalConfiguration;
+import de.ukbonn.mwtek.dashboardlogic.tools.DashboardClock.DayRange;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Date;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DashboardClockTests {
+
+  private static final DashboardClock BERLIN = new DashboardClock(ZoneId.of("Europe/Berlin"));
+
+  private static long epochDay(String instant) {
+    return BERLIN.toEpochDay(Date.from(Instant.parse(instant)));
+  }
+
+  @Test
+  @DisplayName("Dates around the start of the summer time are assigned to the Berlin month.")
+  void testMonthAroundDstStart() {
+    DayRange march = DayRange.ofMonth(YearMonth.of(2024, 3));
+    DayRange april = DayRange.ofMonth(YearMonth.of(2024, 4));
+
+    // 2024-03-31 00:30 CET, before the switch to CEST
+    assertThat(march.contains(epochDay("2024-03-30T23:30:00Z"))).isTrue();
+    // 2024-03-31 23:30 CEST, after the switch
+    assertThat(march.contains(epochDay("2024-03-31T21:30:00Z"))).isTrue();
+    // 2024-04-01 00:30 CEST, still March 31 in UTC
+    assertThat(march.contains(epochDay("2024-03-31T22:30:00Z"))).isFalse();
+    assertThat(april.contains(epochDay("2024-03-31T22:30:00Z"))).isTrue();
+    assertThat(DayRange.ofQuarter(2024, 2).contains(epochDay("2024-03-31T22:30:00Z"))).isTrue();
+  }
+
+  @Test
+  @DisplayName("Dates around the end of the summer time are assigned to the Berlin month.")
+  void testMonthAroundDstEnd() {
+    DayRange october = DayRange.ofMonth(YearMonth.of(2024, 10));
+    DayRange november = DayRange.ofMonth(YearMonth.of(2024, 11));
+
+    // 2024-10-27 02:30 CEST and 02:30 CET (the hour that occurs twice)
+    assertThat(epochDay("2024-10-27T00:30:00Z")).isEqualTo(epochDay("2024-10-27T01:30:00Z"));
+    // 2024-10-31 23:30 CET
+    assertThat(october.contains(epochDay("2024-10-31T22:30:00Z"))).isTrue();
+    // 2024-11-01 00:30 CET, still October 31 in UTC
+    assertThat(november.contains(epochDay("2024-10-31T23:30:00Z"))).isTrue();
+    assertThat(october.contains(epochDay("2024-10-31T23:30:00Z"))).isFalse();
+  }
+
+  @Test
+  @DisplayName("The last half hour of a year in UTC belongs to the next year in Berlin.")
+  void testYearBoundary() {
+    long day = epochDay("2024-12-31T23:30:00Z");
+
+    assertThat(day).isEqualTo(LocalDate.of(2025, 1, 1).toEpochDay());
+    assertThat(DayRange.ofYear(2025).contains(day)).isTrue();
+    assertThat(DayRange.ofQuarter(2024, 4).contains(day)).isFalse();
+  }
+
+  @Test
+  @DisplayName("The configured time zone is used; without one, the system default zone.")
+  void testOfGlobalConfiguration() {
+    GlobalConfiguration globalConfiguration = new GlobalConfiguration();
+
+    assertThat(DashboardClock.of(globalConfiguration).getZoneId())
+        .isEqualTo(ZoneId.systemDefault());
+    globalConfiguration.setTimeZone("Europe/Berlin");
+    assertThat(DashboardClock.of(globalConfiguration).getZoneId())
+        .isEqualTo(ZoneId.of("Europe/Berlin"));
+  }
+}
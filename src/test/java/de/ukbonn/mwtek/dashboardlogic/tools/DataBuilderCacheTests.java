@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DataBuilderCacheTests {
+
+  private enum Level {
+    LOW,
+    HIGH
+  }
+
+  @Test
+  @DisplayName("A cached list is calculated once and can't be changed by a caller.")
+  void testCollectionResultsAreReadOnly() {
+    DataBuilderCache cache = new DataBuilderCache();
+    AtomicInteger calculations = new AtomicInteger();
+    List<String> input = List.of("a", "b");
+
+    List<String> first =
+        cache.get(
+            "list",
+            () -> {
+              calculations.incrementAndGet();
+              return new ArrayList<>(input);
+            },
+            input);
+    assertThatThrownBy(() -> first.removeIf("a"::equals))
+        .isInstanceOf(UnsupportedOperationException.class);
+    List<String> second = cache.get("list", ArrayList::new, input);
+
+    assertThat(calculations.get()).isEqualTo(1);
+    assertThat(second).containsExactly("a", "b");
+    assertThat(cache.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Collections inside cached map results are read-only as well.")
+  void testNestedMapValuesAreReadOnly() {
+    DataBuilderCache cache = new DataBuilderCache();
+    Map<String, List<String>> result = new LinkedHashMap<>();
+    result.put("key", new ArrayList<>(List.of("a")));
+
+    List<String> values = cache.get("map", () -> result).get("key");
+    assertThatThrownBy(() -> values.add("b")).isInstanceOf(UnsupportedOperationException.class);
+
+    Map<String, List<String>> cached = cache.get("map", LinkedHashMap::new);
+    assertThat(cached.get("key")).containsExactly("a");
+  }
+
+  @Test
+  @DisplayName("Cached enum maps keep the enum order of their keys.")
+  void testEnumMapKeepsKeyOrder() {
+    DataBuilderCache cache = new DataBuilderCache();
+    Map<Level, List<String>> result = new EnumMap<>(Level.class);
+    result.put(Level.HIGH, new ArrayList<>(List.of("b")));
+    result.put(Level.LOW, new ArrayList<>(List.of("a")));
+
+    Map<Level, List<String>> cached = cache.get("enumMap", () -> result);
+
+    assertThat(cached.keySet()).containsExactly(Level.LOW, Level.HIGH);
+    assertThatThrownBy(() -> cached.put(Level.LOW, List.of()))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2021 University Hospital Bonn - All Rights Reserved You may use, distribute and
+ * modify this code under the GPL 3 license. THERE IS NO WARRANTY FOR THE PROGRAM, TO THE EXTENT
+ * PERMITTED BY APPLICABLE LAW. EXCEPT WHEN OTHERWISE STATED IN WRITING THE COPYRIGHT HOLDERS AND/OR
+ * OTHER PARTIES PROVIDE THE PROGRAM “AS IS” WITHOUT WARRANTY OF ANY KIND, EITHER EXPRESSED OR
+ * IMPLIED, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR
+ * A PARTICULAR PURPOSE. THE ENTIRE RISK AS TO THE QUALITY AND PERFORMANCE OF THE PROGRAM IS WITH
+ * YOU. SHOULD THE PROGRAM PROVE DEFECTIVE, YOU ASSUME THE COST OF ALL NECESSARY SERVICING, REPAIR
+ * OR CORRECTION. IN NO EVENT UNLESS REQUIRED BY APPLICABLE LAW OR AGREED TO IN WRITING WILL ANY
+ * COPYRIGHT HOLDER, OR ANY OTHER PARTY WHO MODIFIES AND/OR CONVEYS THE PROGRAM AS PERMITTED ABOVE,
+ * BE LIABLE TO YOU FOR DAMAGES, INCLUDING ANY GENERAL, SPECIAL, INCIDENTAL OR CONSEQUENTIAL DAMAGES
+ * ARISING OUT OF THE USE OR INABILITY TO USE THE PROGRAM (INCLUDING BUT NOT LIMITED TO LOSS OF DATA
+ * OR DATA BEING RENDERED INACCURATE OR LOSSES SUSTAINED BY YOU OR THIRD PARTIES OR A FAILURE OF THE
+ * PROGRAM TO OPERATE WITH ANY OTHER PROGRAMS), EVEN IF SUCH HOLDER OR OTHER PARTY HAS BEEN ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGES. You should have received a copy of the GPL 3 license with *
+ * this file. If not, visit http://www.gnu.de/documents/gpl-3.0.en.html
+ */
+
+package de.ukbonn.mwtek.dashboardlogic.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.ukbonn.mwtek.dashboardlogic.models.DiseaseDataItem;
+import de.ukbonn.mwtek.dashboardlogic.tools.DataItemSectionGraph.Intermediate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class DataItemSectionGraphTests {
+
+  @Test
+  @DisplayName(
+      "Sections run in parallel, intermediates are calculated once and the items keep the"
+          + " registration order.")
+  void testParallelRun() {
+    DataItemSectionGraph graph = new DataItemSectionGraph(4);
+    AtomicInteger calculations = new AtomicInteger();
+    Intermediate<Integer> intermediate =
+        graph.intermediate("intermediate", () -> calculations.incrementAndGet() * 10);
+    // Both sections only finish if they are processed at the same time
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    for (String name : List.of("first", "second")) {
+      graph.section(
+          name,
+          List.of(intermediate),
+          items -> {
+            bothStarted.countDown();
+            awaitQuietly(bothStarted);
+            items.add(new DiseaseDataItem(name, "list", intermediate.get()));
+          });
+    }
+    graph.section("third", items -> items.add(new DiseaseDataItem("third", "list", null)));
+
+    List<DiseaseDataItem> result = graph.run();
+
+    assertThat(bothStarted.getCount()).isZero();
+    assertThat(calculations.get()).isEqualTo(1);
+    assertThat(result)
+        .extracting(DiseaseDataItem::getItemname)
+        .containsExactly("first", "second", "third");
+    assertThat(result.getFirst().getData()).isEqualTo(10);
+  }
+
+  @Test
+  @DisplayName("A thread count of 1 processes all sections on the calling thread.")
+  void testSequentialRun() {
+    DataItemSectionGraph graph = new DataItemSectionGraph(1);
+    Thread caller = Thread.currentThread();
+    Intermediate<Thread> producerThread = graph.intermediate("thread", Thread::currentThread);
+    graph.section(
+        "section",
+        List.of(producerThread),
+        items -> items.add(new DiseaseDataItem("section", "list", Thread.currentThread())));
+
+    List<DiseaseDataItem> result = graph.run();
+
+    assertThat(result.getFirst().getData()).isSameAs(caller);
+    assertThat(producerThread.get()).isSameAs(caller);
+  }
+
+  @Test
+  @DisplayName("Intermediates that are not read by any section are not calculated.")
+  void testUnreadIntermediate() {
+    DataItemSectionGraph graph = new DataItemSectionGraph(2);
+    AtomicInteger calculations = new AtomicInteger();
+    graph.intermediate("unread", calculations::incrementAndGet);
+    graph.section("section", items -> {});
+
+    graph.run();
+
+    assertThat(calculations.get()).isZero();
+  }
+
+  @Test
+  @DisplayName("Reading an intermediate that the section doesn't declare fails.")
+  void testUndeclaredRead() {
+    DataItemSectionGraph graph = new DataItemSectionGraph(2);
+    Intermediate<Integer> intermediate = graph.intermediate("undeclared", () -> 1);
+    graph.section("section", _ -> intermediate.get());
+
+    assertThatThrownBy(graph::run)
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("undeclared");
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}